@@ -133,6 +133,12 @@ class ExecutorContext {
         m_currentTxnTimestamp = (m_uniqueId >> 23) + VOLT_EPOCH_IN_MILLIS;
         m_currentDRTimestamp = createDRTimestampHiddenValue(static_cast<int64_t>(m_drClusterId), m_uniqueId);
         m_traceOn = traceOn;
+        m_readOnlyFragments = false;
+    }
+
+    /** The fragments being set up don't change any table (their undo token is INT64_MAX) */
+    void setReadOnlyFragments(bool readOnly) {
+        m_readOnlyFragments = readOnly;
     }
 
     // data available via tick()
@@ -238,6 +244,10 @@ class ExecutorContext {
         return m_traceOn;
     }
 
+    bool isReadOnlyFragments() {
+        return m_readOnlyFragments;
+    }
+
     VoltDBEngine* getContextEngine() {
         return m_engine;
     }
@@ -486,6 +496,7 @@ class ExecutorContext {
     int64_t m_currentDRTimestamp;
     LargeTempTableBlockCache m_lttBlockCache;
     bool m_traceOn;
+    bool m_readOnlyFragments;
 
   public:
     int64_t m_lastCommittedSpHandle;
@@ -77,6 +77,7 @@
 
 #include "common/SynchronizedThreadLock.h"
 #include "executors/abstractexecutor.h"
+#include "executors/parallelscan.h"
 
 #include "indexes/tableindex.h"
 #include "indexes/tableindexfactory.h"
@@ -199,7 +200,8 @@ VoltDBEngine::initialize(int32_t clusterIndex,
                          int32_t defaultDrBufferSize,
                          int64_t tempTableMemoryLimit,
                          bool isLowestSiteId,
-                         int32_t compactionThreshold)
+                         int32_t compactionThreshold,
+                         int32_t parallelScanThreads)
 {
     m_clusterIndex = clusterIndex;
     m_siteId = siteId;
@@ -207,6 +209,7 @@ VoltDBEngine::initialize(int32_t clusterIndex,
     m_partitionId = partitionId;
     m_tempTableMemoryLimit = tempTableMemoryLimit;
     m_compactionThreshold = compactionThreshold;
+    ParallelScan::startHelperThreads(parallelScanThreads);
 
     // Instantiate our catalog - it will be populated later on by load()
     m_catalog.reset(new catalog::Catalog());
@@ -440,6 +443,7 @@ int VoltDBEngine::executePlanFragments(int32_t numFragments,
                                              lastCommittedSpHandle,
                                              uniqueId,
                                              traceOn);
+    m_executorContext->setReadOnlyFragments(undoToken == INT64_MAX);
 
     m_executorContext->checkTransactionForDR();
 
@@ -2474,6 +2478,16 @@ size_t VoltDBEngine::tableHashCode(int32_t tableId) {
     return table->hashCode();
 }
 
+int64_t VoltDBEngine::tableChangeCount(int32_t tableId) {
+    PersistentTable *table = dynamic_cast<PersistentTable*>(getTableById(tableId));
+    if (table == NULL) {
+        throwFatalException(
+                "Tried to get the change count of a table that is not a persistent table id %d\n",
+                tableId);
+    }
+    return table->changeCount();
+}
+
 void VoltDBEngine::setHashinator(TheHashinator* hashinator) {
     m_hashinator.reset(hashinator);
 }
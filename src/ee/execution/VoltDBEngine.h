@@ -142,7 +142,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                         int32_t defaultDrBufferSize,
                         int64_t tempTableMemoryLimit,
                         bool createDrReplicatedStream,
-                        int32_t compactionThreshold = 95);
+                        int32_t compactionThreshold = 95,
+                        int32_t parallelScanThreads = 0);
         virtual ~VoltDBEngine();
 
         // ------------------------------------------------------------------
@@ -499,6 +500,11 @@ class __attribute__((visibility("default"))) VoltDBEngine {
          */
         size_t tableHashCode(int32_t tableId);
 
+        /**
+         * Retrieve the change count of the specified table, see PersistentTable::changeCount()
+         */
+        int64_t tableChangeCount(int32_t tableId);
+
         void updateHashinator(char const* config,
                               int32_t* configPtr, uint32_t numTokens);
 
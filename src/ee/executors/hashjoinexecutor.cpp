@@ -0,0 +1,358 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/* Copyright (C) 2008 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/ValuePeeker.hpp"
+#include "executors/aggregateexecutor.h"
+#include "expressions/abstractexpression.h"
+#include "storage/tableiterator.h"
+#include "storage/tabletuplefilter.h"
+#include "storage/TempTableLimits.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+
+#include "boost/foreach.hpp"
+
+#include <limits>
+
+using namespace std;
+using namespace voltdb;
+
+const static int8_t UNMATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE);
+const static int8_t MATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE + 1);
+
+// Outer inputs up to this size scan the inner input for every tuple rather than hash it
+const static int64_t MAX_OUTER_TUPLES_WITHOUT_HASH = 4;
+// Estimated memory of a hash table entry: the node with its key, value and next pointer,
+// and a bucket pointer, as the table has at least one bucket per entry
+const static int64_t HASH_ENTRY_BYTES = sizeof(std::pair<const size_t, char*>) + 2 * sizeof(void*);
+
+namespace {
+
+/**
+ * Charges the estimated memory of a hash table to the temp table limits
+ * of the fragment while it exists.
+ */
+class HashTableMemoryCharge {
+public:
+    HashTableMemoryCharge(TempTableLimits* limits) : m_limits(limits), m_charged(0) { }
+
+    ~HashTableMemoryCharge() {
+        if (m_limits != NULL && m_charged > 0) {
+            m_limits->reduceAllocated(m_charged);
+        }
+    }
+
+    /**
+     * @return false if the bytes don't fit under the temp table memory limit, in which case
+     *         nothing is charged
+     */
+    bool charge(int64_t bytes) {
+        if (m_limits == NULL) {
+            return true;
+        }
+        // The limits count in ints
+        int64_t limit = m_limits->getMemoryLimit();
+        if (bytes > std::numeric_limits<int>::max() ||
+                (limit > 0 && m_limits->getAllocated() + bytes > limit)) {
+            return false;
+        }
+        m_charged = static_cast<int>(bytes);
+        m_limits->increaseAllocated(m_charged);
+        return true;
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int m_charged;
+};
+
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              const ExecutorVector& executorVector)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    // The hash table holds the addresses of the inner tuples,
+    // which a large temp table may move out of memory
+    assert(! executorVector.isLargeQuery());
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+
+    // The planner only hashes keys of the same type on both sides, but the values of an
+    // expression are not always of its type. Cast them so equal keys hash the same.
+    m_keyTypes.clear();
+    BOOST_FOREACH(AbstractExpression* expr, node->getOuterHashExpressions()) {
+        m_keyTypes.push_back(expr->getValueType());
+    }
+    m_compareNotDistinct = node->getCompareNotDistinctFlags();
+    m_limits = executorVector.limits();
+
+    // NULL tuples for left and full joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    return true;
+}
+
+bool HashJoinExecutor::hashKeys(const std::vector<AbstractExpression*>& keys,
+                                const TableTuple* outerTuple,
+                                const TableTuple* innerTuple,
+                                size_t& hash) const
+{
+    hash = 0;
+    for (int i = 0; i < keys.size(); i++) {
+        NValue value = keys[i]->eval(outerTuple, innerTuple);
+        // A null key is only equal to another null key with IS NOT DISTINCT FROM
+        if (value.isNull() && !m_compareNotDistinct[i]) {
+            return false;
+        }
+        if (ValuePeeker::peekValueType(value) != m_keyTypes[i]) {
+            value = value.castAs(m_keyTypes[i]);
+        }
+        value.hashCombine(hash);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::joinInnerTuple(const TableTuple& outerTuple,
+                                      const TableTuple& innerTuple,
+                                      TableTuple& joinTuple,
+                                      const AbstractExpression* joinPredicate,
+                                      TableTupleFilter& innerTableFilter,
+                                      CountingPostfilter& postfilter,
+                                      ProgressMonitorProxy& pmp)
+{
+    // The join predicate also rejects the inner tuples whose keys only collide
+    if (joinPredicate != NULL && ! joinPredicate->eval(&outerTuple, &innerTuple).isTrue()) {
+        return false;
+    }
+    // The inner tuple passed the join predicate
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Mark it as matched
+        innerTableFilter.updateTuple(innerTuple, MATCHED_TUPLE);
+    }
+    // Filter the joined tuple
+    if (postfilter.eval(&outerTuple, &innerTuple)) {
+        // Matched! Complete the joined tuple with the inner column values.
+        joinTuple.setNValues(outerTuple.getSchema()->columnCount(), innerTuple, 0,
+                             innerTuple.getSchema()->columnCount());
+        outputTuple(postfilter, joinTuple, pmp);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+    const std::vector<AbstractExpression*>& outerKeys = node->getOuterHashExpressions();
+    const std::vector<AbstractExpression*>& innerKeys = node->getInnerHashExpressions();
+
+    // The table filter to keep track of inner tuples that don't match any of outer tuples for FULL joins
+    TableTupleFilter innerTableFilter;
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Prepopulate the view with all inner tuples
+        innerTableFilter.init(inner_table);
+    }
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(node->getInputTable(0)->schema());
+    TableTuple inner_tuple(node->getInputTable(1)->schema());
+    const TableTuple& null_inner_tuple = m_null_inner_tuple.tuple();
+
+    ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
+
+    //
+    // Build the hash table on the inner tuples, unless the outer input is too small for it
+    // to pay off or it doesn't fit under the temp table memory limit. Inner tuples with a
+    // null key can't match any outer tuple, though a FULL join still outputs them as unmatched.
+    //
+    int64_t innerTupleCount = inner_table->activeTupleCount();
+    HashTableMemoryCharge hashTableCharge(m_limits);
+    bool useHashTable = outer_table->activeTupleCount() > MAX_OUTER_TUPLES_WITHOUT_HASH &&
+                        hashTableCharge.charge(innerTupleCount * HASH_ENTRY_BYTES);
+    if (! useHashTable) {
+        VOLT_DEBUG("Scanning the %jd inner tuples for every outer tuple", (intmax_t)innerTupleCount);
+    }
+    HashJoinTableType hashTable(useHashTable ? innerTupleCount : 0);
+    size_t hash;
+    if (useHashTable) {
+        TableIterator iterator1 = inner_table->iterator();
+        while (iterator1.next(inner_tuple)) {
+            pmp.countdownProgress();
+            if (hashKeys(innerKeys, NULL, &inner_tuple, hash)) {
+                hashTable.insert(HashJoinTableType::value_type(hash, inner_tuple.address()));
+            }
+        }
+    }
+
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    TableIterator iterator0 = outer_table->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && iterator0.next(outer_tuple)) {
+        pmp.countdownProgress();
+
+        // populate output table's temp tuple with outer table's values
+        join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+
+        // did this loop body find at least one match for this tuple?
+        bool outerMatch = false;
+        // For outer joins if outer tuple fails pre-join predicate
+        // (join expression based on the outer table only)
+        // it can't match any of inner tuples
+        if (preJoinPredicate == NULL || preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) {
+            if (! useHashTable) {
+                // The join predicate holds the key comparisons
+                TableIterator iterator1 = inner_table->iterator();
+                while (postfilter.isUnderLimit() && iterator1.next(inner_tuple)) {
+                    pmp.countdownProgress();
+                    if (joinInnerTuple(outer_tuple, inner_tuple, join_tuple, joinPredicate,
+                                       innerTableFilter, postfilter, pmp)) {
+                        outerMatch = true;
+                    }
+                }
+            }
+            else if (hashKeys(outerKeys, &outer_tuple, NULL, hash)) {
+                std::pair<HashJoinTableType::const_iterator, HashJoinTableType::const_iterator> bucket =
+                    hashTable.equal_range(hash);
+                for (HashJoinTableType::const_iterator it = bucket.first;
+                        postfilter.isUnderLimit() && it != bucket.second; ++it) {
+                    pmp.countdownProgress();
+                    inner_tuple.move(it->second);
+                    if (joinInnerTuple(outer_tuple, inner_tuple, join_tuple, joinPredicate,
+                                       innerTableFilter, postfilter, pmp)) {
+                        outerMatch = true;
+                    }
+                } // END BUCKET LOOP
+            }
+        } // END IF PRE JOIN CONDITION
+
+        //
+        // Left Outer Join
+        //
+        if (m_joinType != JOIN_TYPE_INNER && !outerMatch && postfilter.isUnderLimit()) {
+            // Still needs to pass the filter
+            if (postfilter.eval(&outer_tuple, &null_inner_tuple)) {
+                // Matched! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, null_inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        } // END IF LEFT OUTER JOIN
+    } // END OUTER WHILE LOOP
+
+    //
+    // FULL Outer Join. Iterate over the unmatched inner tuples
+    //
+    if (m_joinType == JOIN_TYPE_FULL && postfilter.isUnderLimit()) {
+        // Preset outer columns to null
+        const TableTuple& null_outer_tuple = m_null_outer_tuple.tuple();
+        join_tuple.setNValues(0, null_outer_tuple, 0, outer_cols);
+
+        TableTupleFilter_iter<UNMATCHED_TUPLE> endItr = innerTableFilter.end<UNMATCHED_TUPLE>();
+        for (TableTupleFilter_iter<UNMATCHED_TUPLE> itr = innerTableFilter.begin<UNMATCHED_TUPLE>();
+                itr != endItr && postfilter.isUnderLimit(); ++itr) {
+            // Restore the tuple value
+            uint64_t tupleAddr = innerTableFilter.getTupleAddress(*itr);
+            inner_tuple.move((char *)tupleAddr);
+            // Still needs to pass the filter
+            assert(inner_tuple.isActive());
+            if (postfilter.eval(&null_outer_tuple, &inner_tuple)) {
+                // Passed! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    return (true);
+}
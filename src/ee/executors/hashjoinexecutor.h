@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/* Copyright (C) 2008 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/valuevector.h"
+#include "executors/abstractjoinexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+namespace voltdb {
+
+class AbstractExpression;
+class TableTupleFilter;
+
+/**
+ * Joins the outer and the inner input on equal keys by hashing every inner tuple
+ * on its keys and probing with the keys of every outer tuple. The hash table refers
+ * to the tuples of the inner input table, which must hold them all in memory.
+ *
+ * The memory of the hash table counts against the temp table limit of the fragment.
+ * When the outer input is too small for the hash table to pay off, or the hash table
+ * would not fit under the limit, the inner input is scanned for every outer tuple
+ * like a nested loop join would, which needs no memory.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractJoinExecutor(engine, abstract_node), m_limits(NULL) { }
+    private:
+
+        // Inner tuple addresses by the hash of their keys
+        typedef boost::unordered_multimap<size_t, char*> HashJoinTableType;
+
+        bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+        bool p_execute(const NValueArray &params);
+
+        // Hash the keys of the tuple, or return false if a null key can't match anything
+        bool hashKeys(const std::vector<AbstractExpression*>& keys,
+                      const TableTuple* outerTuple,
+                      const TableTuple* innerTuple,
+                      size_t& hash) const;
+
+        // Output the joined tuple if the inner tuple passes the join predicate,
+        // and return true if it did
+        bool joinInnerTuple(const TableTuple& outerTuple,
+                            const TableTuple& innerTuple,
+                            TableTuple& joinTuple,
+                            const AbstractExpression* joinPredicate,
+                            TableTupleFilter& innerTableFilter,
+                            CountingPostfilter& postfilter,
+                            ProgressMonitorProxy& pmp);
+
+        // The temp table limits the hash table is charged to
+        TempTableLimits* m_limits;
+
+        // The type both sides of every key are hashed as
+        std::vector<ValueType> m_keyTypes;
+        // Whether a null key matches null keys, as with IS NOT DISTINCT FROM
+        std::vector<bool> m_compareNotDistinct;
+};
+
+}
+
+#endif
@@ -0,0 +1,264 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "executors/parallelscan.h"
+
+#include "common/debuglog.h"
+#include "common/tabletuple.h"
+#include "expressions/abstractexpression.h"
+#include "storage/persistenttable.h"
+
+#include <atomic>
+#include <deque>
+#include <functional>
+#include <thread>
+
+namespace voltdb {
+
+namespace {
+
+// Tables with fewer active tuples are scanned serially
+const int64_t MIN_PARALLEL_SCAN_TUPLES = 100000;
+// Morsels handed to the helper threads ahead of the one being consumed, per helper thread
+const int MORSELS_IN_FLIGHT_PER_THREAD = 2;
+
+/**
+ * Threads which run the morsel scans of all the engines of the process.
+ * They are never stopped, like the engines they serve.
+ */
+class HelperPool {
+public:
+    explicit HelperPool(int threads) : m_threads(threads) {
+        for (int i = 0; i < threads; ++i) {
+            std::thread(&HelperPool::run, this).detach();
+        }
+    }
+
+    void submit(const std::function<void()>& task) {
+        {
+            std::lock_guard<std::mutex> lock(m_mutex);
+            m_tasks.push_back(task);
+        }
+        m_taskAdded.notify_one();
+    }
+
+    int threads() const {
+        return m_threads;
+    }
+
+private:
+    void run() {
+        while (true) {
+            std::function<void()> task;
+            {
+                std::unique_lock<std::mutex> lock(m_mutex);
+                m_taskAdded.wait(lock, [this] { return ! m_tasks.empty(); });
+                task = m_tasks.front();
+                m_tasks.pop_front();
+            }
+            task();
+        }
+    }
+
+    const int m_threads;
+    std::mutex m_mutex;
+    std::condition_variable m_taskAdded;
+    std::deque<std::function<void()> > m_tasks;
+};
+
+std::mutex s_poolMutex;
+std::atomic<HelperPool*> s_pool(NULL);
+
+bool isFixedSizeType(ValueType type) {
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_DOUBLE:
+    case VALUE_TYPE_TIMESTAMP:
+    case VALUE_TYPE_DECIMAL:
+        return true;
+    default:
+        return false;
+    }
+}
+
+/**
+ * Comparisons of fixed size values and the logical operators over them neither
+ * allocate memory nor use the executor context, so they can run on any thread.
+ */
+bool canEvaluateOnHelper(const AbstractExpression* expr) {
+    if (expr == NULL) {
+        return true;
+    }
+    switch (expr->getExpressionType()) {
+    case EXPRESSION_TYPE_VALUE_TUPLE:
+    case EXPRESSION_TYPE_VALUE_CONSTANT:
+    case EXPRESSION_TYPE_VALUE_PARAMETER:
+        return isFixedSizeType(expr->getValueType());
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_NOTDISTINCT:
+    case EXPRESSION_TYPE_CONJUNCTION_AND:
+    case EXPRESSION_TYPE_CONJUNCTION_OR:
+    case EXPRESSION_TYPE_OPERATOR_NOT:
+    case EXPRESSION_TYPE_OPERATOR_IS_NULL:
+        return canEvaluateOnHelper(expr->getLeft()) && canEvaluateOnHelper(expr->getRight());
+    default:
+        return false;
+    }
+}
+
+} // anonymous namespace
+
+void ParallelScan::startHelperThreads(int threads) {
+    std::lock_guard<std::mutex> lock(s_poolMutex);
+    if (s_pool.load() == NULL && threads > 0) {
+        VOLT_DEBUG("Starting %d parallel scan threads", threads);
+        s_pool.store(new HelperPool(threads));
+    }
+}
+
+bool ParallelScan::canScanInParallel(PersistentTable* table, const AbstractExpression* predicate) {
+    return s_pool.load() != NULL &&
+           predicate != NULL &&
+           table->activeTupleCount() >= MIN_PARALLEL_SCAN_TUPLES &&
+           table->allocatedBlockCount() > 1 &&
+           canEvaluateOnHelper(predicate);
+}
+
+bool ParallelScan::canSplitSeqScan(PersistentTable* table, const AbstractExpression* predicate,
+                                   bool readOnlyFragments, bool hasInlineLimit, bool hasInlineInsert) {
+    return readOnlyFragments &&
+           ! hasInlineLimit &&
+           ! hasInlineInsert &&
+           canScanInParallel(table, predicate);
+}
+
+ParallelScan::ParallelScan(PersistentTable* table, const AbstractExpression* predicate)
+    : m_schema(table->schema())
+    , m_tupleLength(table->getTupleLength())
+    , m_predicate(predicate)
+    , m_current(-1)
+    , m_nextMatch(0)
+    , m_nextToSubmit(0)
+    , m_pending(0)
+{
+    // Only the site thread may touch the block map and its shared pointers,
+    // so the bounds of every morsel are taken here.
+    m_morsels.resize(table->m_data.size());
+    size_t i = 0;
+    for (TBMapI block = table->m_data.begin(); block != table->m_data.end(); ++block, ++i) {
+        Morsel& morsel = m_morsels[i];
+        morsel.m_begin = block.key();
+        morsel.m_end = morsel.m_begin + block.data()->unusedTupleBoundary() * m_tupleLength;
+        morsel.m_scanned = 0;
+        morsel.m_done = false;
+    }
+
+    size_t inFlight = s_pool.load()->threads() * MORSELS_IN_FLIGHT_PER_THREAD;
+    while (m_nextToSubmit < m_morsels.size() && m_nextToSubmit < inFlight) {
+        submitNext();
+    }
+}
+
+ParallelScan::~ParallelScan() {
+    // The helper threads still reference the morsels of an abandoned scan
+    std::unique_lock<std::mutex> lock(m_mutex);
+    m_morselDone.wait(lock, [this] { return m_pending == 0; });
+}
+
+void ParallelScan::submitNext() {
+    Morsel* morsel = &m_morsels[m_nextToSubmit++];
+    {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        ++m_pending;
+    }
+    s_pool.load()->submit([this, morsel] { scanMorsel(*morsel); });
+}
+
+void ParallelScan::scanMorsel(Morsel& morsel) {
+    try {
+        TableTuple tuple(m_schema);
+        for (char* address = morsel.m_begin; address < morsel.m_end; address += m_tupleLength) {
+            tuple.move(address);
+            if ( ! tuple.isActive()) {
+                continue;
+            }
+            ++morsel.m_scanned;
+            // Same as TableIterator: deleted tuples are active until their undo is released
+            if (tuple.isPendingDelete() || tuple.isPendingDeleteOnUndoRelease()) {
+                continue;
+            }
+            if (m_predicate->eval(&tuple, NULL).isTrue()) {
+                morsel.m_matches.push_back(address);
+            }
+        }
+    }
+    catch (...) {
+        morsel.m_error = std::current_exception();
+    }
+    // Notify under the lock: once the site thread can see the last morsel done,
+    // the scan may be destroyed, so this thread must not touch it afterwards.
+    std::lock_guard<std::mutex> lock(m_mutex);
+    morsel.m_done = true;
+    --m_pending;
+    m_morselDone.notify_all();
+}
+
+bool ParallelScan::next(TableTuple& out, int64_t& skipped) {
+    while (m_current < 0 || m_nextMatch >= m_morsels[m_current].m_matches.size()) {
+        if ( ! nextMorsel(skipped)) {
+            return false;
+        }
+    }
+    out.move(m_morsels[m_current].m_matches[m_nextMatch++]);
+    return true;
+}
+
+bool ParallelScan::nextMorsel(int64_t& skipped) {
+    if (m_current >= 0) {
+        // Release the matches of the consumed morsel
+        std::vector<char*>().swap(m_morsels[m_current].m_matches);
+    }
+    if (m_current + 1 >= static_cast<int>(m_morsels.size())) {
+        return false;
+    }
+    ++m_current;
+    m_nextMatch = 0;
+    if (m_nextToSubmit < m_morsels.size()) {
+        submitNext();
+    }
+
+    Morsel& morsel = m_morsels[m_current];
+    {
+        std::unique_lock<std::mutex> lock(m_mutex);
+        m_morselDone.wait(lock, [&morsel] { return morsel.m_done; });
+    }
+    if (morsel.m_error) {
+        std::rethrow_exception(morsel.m_error);
+    }
+    skipped += morsel.m_scanned - static_cast<int64_t>(morsel.m_matches.size());
+    return true;
+}
+
+} // namespace voltdb
@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#ifndef PARALLELSCAN_H_
+#define PARALLELSCAN_H_
+
+#include <condition_variable>
+#include <exception>
+#include <mutex>
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+class AbstractExpression;
+class PersistentTable;
+class TableTuple;
+class TupleSchema;
+
+/**
+ * Splits the sequential scan of a large persistent table into morsels of one tuple
+ * block each, and evaluates the scan predicate of the morsels on a pool of helper
+ * threads shared by all the engines of the process. The site thread consumes the
+ * tuples which passed the predicate morsel by morsel, in block order, so it sees
+ * the same tuples in the same order as a serial scan would.
+ *
+ * Nothing may change the table while it is scanned, so only the scans of read-only
+ * fragments are split. Helper threads have no executor context and no thread local
+ * memory pools, so only predicates which compare fixed size values are evaluated
+ * on them, see canScanInParallel().
+ */
+class ParallelScan {
+public:
+    /**
+     * Start the helper threads, once per process. 0 threads disables parallel scans.
+     */
+    static void startHelperThreads(int threads);
+
+    /**
+     * @return true if the scan of the table with the predicate is large enough to
+     *         be split, and the predicate can be evaluated on a helper thread.
+     */
+    static bool canScanInParallel(PersistentTable* table, const AbstractExpression* predicate);
+
+    /**
+     * @return true if a sequential scan should be split: the fragments are read-only,
+     *         no inline limit may stop the scan early, no inline insert writes to a
+     *         table while it runs, and canScanInParallel() holds.
+     */
+    static bool canSplitSeqScan(PersistentTable* table, const AbstractExpression* predicate,
+                                bool readOnlyFragments, bool hasInlineLimit, bool hasInlineInsert);
+
+    ParallelScan(PersistentTable* table, const AbstractExpression* predicate);
+
+    /**
+     * Waits for the morsels still being scanned by helper threads.
+     */
+    ~ParallelScan();
+
+    /**
+     * Move the tuple to the next tuple which passed the predicate, waiting for its
+     * morsel to be scanned. Rethrows the exception the predicate threw on a helper thread.
+     *
+     * @param skipped Incremented by the number of scanned tuples which failed the predicate
+     * @return false when every tuple was consumed
+     */
+    bool next(TableTuple& out, int64_t& skipped);
+
+private:
+    struct Morsel {
+        char* m_begin;
+        char* m_end;
+        std::vector<char*> m_matches;
+        int64_t m_scanned;
+        bool m_done;
+        std::exception_ptr m_error;
+    };
+
+    bool nextMorsel(int64_t& skipped);
+    void submitNext();
+    void scanMorsel(Morsel& morsel);
+
+    const TupleSchema* m_schema;
+    const int m_tupleLength;
+    const AbstractExpression* m_predicate;
+    std::vector<Morsel> m_morsels;
+    // Index of the morsel being consumed, -1 before the first one
+    int m_current;
+    // Index of the next match of the morsel being consumed
+    size_t m_nextMatch;
+    // Index of the next morsel to hand to a helper thread
+    size_t m_nextToSubmit;
+
+    // Protect the state of the morsels shared with helper threads
+    std::mutex m_mutex;
+    std::condition_variable m_morselDone;
+    int m_pending;
+};
+
+} // namespace voltdb
+
+#endif /* PARALLELSCAN_H_ */
@@ -46,14 +46,18 @@
 #include "seqscanexecutor.h"
 #include "executors/aggregateexecutor.h"
 #include "executors/insertexecutor.h"
+#include "executors/parallelscan.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/insertnode.h"
 #include "plannodes/seqscannode.h"
 #include "plannodes/projectionnode.h"
 #include "plannodes/limitnode.h"
+#include "storage/persistenttable.h"
 #include "storage/temptable.h"
 #include "storage/tablefactory.h"
 
+#include "boost/scoped_ptr.hpp"
+
 using namespace voltdb;
 
 bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
@@ -197,13 +201,31 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             VOLT_TRACE("SCAN PREDICATE :\n%s\n", predicate->debug(true).c_str());
         }
 
+        //
+        // OPTIMIZATION: PARALLEL SCAN
+        //
+        // A large table which nothing changes during the scan can have its
+        // predicate evaluated by helper threads, one tuple block at a time.
+        // A limit usually stops the scan early, so limited scans stay serial.
+        //
+        boost::scoped_ptr<ParallelScan> parallelScan;
+        PersistentTable* persistentTable = dynamic_cast<PersistentTable*>(input_table);
+        if (persistentTable != NULL &&
+            ParallelScan::canSplitSeqScan(persistentTable, predicate,
+                                          m_engine->getExecutorContext()->isReadOnlyFragments(),
+                                          limit_node != NULL, m_insertExec != NULL)) {
+            VOLT_DEBUG("Scanning table %s in parallel", input_table->name().c_str());
+            parallelScan.reset(new ParallelScan(persistentTable, predicate));
+        }
+
         int limit = CountingPostfilter::NO_LIMIT;
         int offset = CountingPostfilter::NO_OFFSET;
         if (limit_node) {
             limit_node->getLimitAndOffsetByReference(params, limit, offset);
         }
-        // Initialize the postfilter
-        CountingPostfilter postfilter(m_tmpOutputTable, predicate, limit, offset);
+        // Initialize the postfilter, the helper threads of a parallel scan already applied the predicate
+        CountingPostfilter postfilter(m_tmpOutputTable, parallelScan ? NULL : predicate, limit, offset);
+        int64_t skippedTuples = 0;
 
         ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
         TableTuple temp_tuple;
@@ -251,11 +273,16 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = m_tmpOutputTable->tempTuple();
         }
 
-        while (postfilter.isUnderLimit() && iterator.next(tuple))
+        while (postfilter.isUnderLimit() &&
+               (parallelScan ? parallelScan->next(tuple, skippedTuples) : iterator.next(tuple)))
         {
 #if   defined(VOLT_TRACE_ENABLED)
             int tuple_ctr = 0;
 #endif
+            // Tuples the helper threads filtered out count towards the progress as well
+            for (; skippedTuples > 0; --skippedTuples) {
+                pmp.countdownProgress();
+            }
             VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
                        tuple.debug(input_table->name()).c_str(),
                        ++tuple_ctr,
@@ -89,6 +89,7 @@
 #include <boost/scoped_ptr.hpp>
 
 #include <algorithm> // std::find
+#include <atomic>
 #include <cassert>
 #include <cstdio>
 #include <sstream>
@@ -98,6 +99,10 @@ namespace voltdb {
 
 #define TABLE_BLOCKSIZE 2097152
 
+// Each table instance takes the next 2^40 values of the change count
+static std::atomic<int64_t> s_nextChangeCountBase(0);
+static const int64_t CHANGE_COUNT_RANGE = 1LL << 40;
+
 class SetAndRestorePendingDeleteFlag
 {
 public:
@@ -140,6 +145,7 @@ PersistentTable::PersistentTable(int partitionColumn,
     , m_blocksWithSpace()
     , m_tableStreamer()
     , m_failedCompactionCount(0)
+    , m_changeCount(s_nextChangeCountBase.fetch_add(CHANGE_COUNT_RANGE))
     , m_invisibleTuplesPendingDeleteCount(0)
     , m_surgeon(*this)
     , m_tableForStreamIndexing(NULL)
@@ -837,6 +843,8 @@ void PersistentTable::insertPersistentTuple(TableTuple& source, bool fallible, b
 
 void PersistentTable::doInsertTupleCommon(TableTuple& source, TableTuple& target,
                                         bool fallible, bool shouldDRStream, bool delayTupleDelete) {
+    ++m_changeCount;
+
     if (fallible) {
         // not null checks at first
         FAIL_IF(!checkNulls(target)) {
@@ -979,6 +987,8 @@ void PersistentTable::updateTupleWithSpecificIndexes(TableTuple& targetTupleToUp
                                                      std::vector<TableIndex*> const& indexesToUpdate,
                                                      bool fallible,
                                                      bool updateDRTimestamp) {
+    ++m_changeCount;
+
     UndoQuantum* uq = NULL;
     char* oldTupleData = NULL;
     int tupleLength = targetTupleToUpdate.tupleLength();
@@ -1224,6 +1234,8 @@ void PersistentTable::updateTupleForUndo(char* tupleWithUnwantedValues,
 }
 
 void PersistentTable::deleteTuple(TableTuple& target, bool fallible) {
+    ++m_changeCount;
+
     UndoQuantum* uq = ExecutorContext::currentUndoQuantum();
     bool createUndoAction = fallible && (uq != NULL);
 
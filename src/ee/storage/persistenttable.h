@@ -83,6 +83,7 @@ namespace voltdb {
 class CoveringCellIndexTest_TableCompaction;
 class MaterializedViewTriggerForWrite;
 class MaterializedViewHandler;
+class ParallelScan;
 class TableIndex;
 
 /**
@@ -208,6 +209,7 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     friend class ::CompactionTest_CompactionWithCopyOnWrite;
     friend class CoveringCellIndexTest_TableCompaction;
     friend class MaterializedViewHandler;
+    friend class ParallelScan;
     friend class ScopedDeltaTableContext;
 
 private:
@@ -421,6 +423,13 @@ public:
      */
     size_t hashCode();
 
+    /**
+     * A count which changes whenever a tuple of the table is inserted, updated or
+     * deleted. Every table instance counts from its own base, so the count of a
+     * table name also changes when the table behind it is truncated or swapped.
+     */
+    int64_t changeCount() const { return m_changeCount; }
+
     size_t getBlocksNotPendingSnapshotCount() {
         return m_blocksNotPendingSnapshot.size();
     }
@@ -775,6 +784,9 @@ private:
 
     int m_failedCompactionCount;
 
+    // See changeCount()
+    int64_t m_changeCount;
+
     // This is a testability feature not intended for use in product logic.
     int m_invisibleTuplesPendingDeleteCount;
 
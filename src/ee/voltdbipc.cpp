@@ -194,6 +194,8 @@ private:
 
     void tableHashCode( struct ipc_command *cmd);
 
+    void tableChangeCount( struct ipc_command *cmd);
+
     void hashinate(struct ipc_command* cmd);
 
     void updateHashinator(struct ipc_command *cmd);
@@ -333,7 +335,7 @@ typedef struct {
 }__attribute__((packed)) recovery_message;
 
 /*
- * Header for a request for a table hash code
+ * Header for a request for a table hash code or change count
  */
 typedef struct {
     struct ipc_command cmd;
@@ -555,6 +557,10 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
       case 30:
           result = shutDown();
           break;
+      case 31:
+          tableChangeCount(cmd);
+          result = kErrorCode_None;
+          break;
       default:
         result = stub(cmd);
     }
@@ -1469,6 +1475,16 @@ void VoltDBIPC::tableHashCode( struct ipc_command *cmd) {
     writeOrDie(m_fd, (unsigned char*)response, 9);
 }
 
+void VoltDBIPC::tableChangeCount( struct ipc_command *cmd) {
+    table_hash_code *changeCountRequest = (table_hash_code*) cmd;
+    const int32_t tableId = ntohl(changeCountRequest->tableId);
+    int64_t tableChangeCount = m_engine->tableChangeCount(tableId);
+    char response[9];
+    response[0] = kErrorCode_Success;
+    *reinterpret_cast<int64_t*>(&response[1]) = htonll(tableChangeCount);
+    writeOrDie(m_fd, (unsigned char*)response, 9);
+}
+
 void VoltDBIPC::exportAction(struct ipc_command *cmd) {
     export_action *action = (export_action*)cmd;
 
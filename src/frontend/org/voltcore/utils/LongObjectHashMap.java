@@ -0,0 +1,182 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltcore.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to objects. Keys are
+ * never boxed and entries don't need a node object, so steady state put/remove
+ * cycles don't allocate. Collisions are resolved with linear probing and
+ * removal shifts entries back instead of leaving tombstones, so a map that
+ * sees a constant stream of short lived keys (like transaction handles) stays
+ * compact. Null values are not allowed.
+ *
+ * Not thread safe.
+ */
+public class LongObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private int m_mask;
+    private int m_shift;
+    private int m_size;
+    private int m_resizeThreshold;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(Math.max(1, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1));
+    }
+
+    private void allocate(int capacity) {
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_mask = capacity - 1;
+        m_shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        m_resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /*
+     * Fibonacci hashing, handles are often sequential or share their low bits
+     * so they have to be spread before they are masked
+     */
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> m_shift);
+    }
+
+    private int find(long key) {
+        int idx = slot(key);
+        while (m_values[idx] != null) {
+            if (m_keys[idx] == key) {
+                return idx;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final int idx = find(key);
+        return idx < 0 ? null : (V) m_values[idx];
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value for the key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int idx = slot(key);
+        while (m_values[idx] != null) {
+            if (m_keys[idx] == key) {
+                final V previous = (V) m_values[idx];
+                m_values[idx] = value;
+                return previous;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+        m_keys[idx] = key;
+        m_values[idx] = value;
+        if (++m_size > m_resizeThreshold) {
+            rehash(m_keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int idx = find(key);
+        if (idx < 0) {
+            return null;
+        }
+        final V removed = (V) m_values[idx];
+        m_size--;
+
+        // Shift back the entries of the probe sequence that follows the hole
+        int next = (idx + 1) & m_mask;
+        while (m_values[next] != null) {
+            final int home = slot(m_keys[next]);
+            // Move the entry if the hole lies cyclically between its home slot and its current slot
+            if (((next - home) & m_mask) >= ((next - idx) & m_mask)) {
+                m_keys[idx] = m_keys[next];
+                m_values[idx] = m_values[next];
+                idx = next;
+            }
+            next = (next + 1) & m_mask;
+        }
+        m_values[idx] = null;
+        return removed;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(m_values, null);
+        m_size = 0;
+    }
+
+    /**
+     * @return a copy of the keys currently in the map, in no particular order
+     */
+    public long[] keys() {
+        final long[] keys = new long[m_size];
+        int ii = 0;
+        for (int idx = 0; idx < m_values.length; idx++) {
+            if (m_values[idx] != null) {
+                keys[ii++] = m_keys[idx];
+            }
+        }
+        return keys;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = m_keys;
+        final Object[] oldValues = m_values;
+        allocate(capacity);
+        for (int idx = 0; idx < oldValues.length; idx++) {
+            if (oldValues[idx] != null) {
+                int slot = slot(oldKeys[idx]);
+                while (m_values[slot] != null) {
+                    slot = (slot + 1) & m_mask;
+                }
+                m_keys[slot] = oldKeys[idx];
+                m_values[slot] = oldValues[idx];
+            }
+        }
+    }
+}
@@ -100,6 +100,7 @@ import org.voltdb.messaging.Iv2EndOfLogMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.LocalMailbox;
 import org.voltdb.messaging.MigratePartitionLeaderMessage;
+import org.voltdb.messaging.ResultChunkMessage;
 import org.voltdb.security.AuthenticationRequest;
 import org.voltdb.utils.MiscUtils;
 import org.voltdb.utils.VoltTrace;
@@ -915,6 +916,51 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     }
 
+    /**
+     * Runs on the network thread to prepare one chunk of streamed results. The chunk goes
+     * out ahead of the response of its transaction, so the handle stays in flight.
+     */
+    private static class ResultChunkWork implements DeferredSerialization {
+        private final ClientInterfaceHandleManager cihm;
+        private final ResultChunkMessage chunk;
+        private ClientResponseImpl clientResponse;
+
+        private ResultChunkWork(ResultChunkMessage chunk, ClientInterfaceHandleManager cihm)
+        {
+            this.chunk = chunk;
+            this.cihm = cihm;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException
+        {
+            buf.putInt(buf.capacity() - 4);
+            clientResponse.flattenToBuffer(buf);
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public int getSerializedSize() throws IOException {
+            ClientInterfaceHandleManager.Iv2InFlight clientData = cihm.peekHandle(chunk.getClientInterfaceHandle());
+            if (clientData == null) {
+                return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
+            }
+            clientResponse = new ClientResponseImpl(ClientResponse.RESULT_CHUNK,
+                                                    new VoltTable[] { chunk.getChunk() },
+                                                    null,
+                                                    clientData.m_clientHandle);
+            return clientResponse.getSerializedSize() + 4;
+        }
+
+        @Override
+        public String toString() {
+            return chunk.toString();
+        }
+    }
+
     /**
      * Runs on the network thread to prepare client response. If a transaction needs to be
      * restarted, it will get restarted here.
@@ -1213,6 +1259,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         Iv2Trace.logFinishTransaction(response, m_mailbox.getHSId());
                     }
                 }
+                else if (message instanceof ResultChunkMessage) {
+                    ResultChunkMessage chunk = (ResultChunkMessage)message;
+                    ClientInterfaceHandleManager cihm = m_cihm.get(chunk.getClientConnectionId());
+                    //Can be null on hangup
+                    if (cihm != null) {
+                        cihm.connection.writeStream().fastEnqueue(new ResultChunkWork(chunk, cihm));
+                    }
+                }
                 else if (message instanceof BinaryPayloadMessage) {
                     handlePartitionFailOver((BinaryPayloadMessage)message);
                 }
@@ -18,17 +18,11 @@
 package org.voltdb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
-
-import com.google_voltpatches.common.collect.ImmutableMap;
-import com.google_voltpatches.common.collect.ImmutableMap.Builder;
+import org.voltcore.utils.LongObjectHashMap;
 
 /**
  * This manages per-partition handles used to identify responses for
@@ -64,8 +58,8 @@ public class ClientInterfaceHandleManager
 
     private volatile boolean m_wantsTopologyUpdates = false;
 
-    private ImmutableMap<Integer, PartitionInFlightTracker> m_trackerMap
-        = new Builder<Integer, PartitionInFlightTracker>().build();
+    private final LongObjectHashMap<PartitionInFlightTracker> m_trackerMap =
+            new LongObjectHashMap<PartitionInFlightTracker>();
 
     private static class HandleGenerator
     {
@@ -106,13 +100,146 @@ public class ClientInterfaceHandleManager
         }
     }
 
+    /**
+     * Tracks the in flight transactions of one partition. Handles of a partition are
+     * issued in sequence and mostly complete in the same order, so they are kept in a
+     * ring indexed by the distance from the oldest outstanding handle, which makes adding
+     * and removing a handle O(1) without boxing the handle or allocating a map entry.
+     * Out of order completions leave holes that are skipped once the transactions in
+     * front of them complete. If a slow transaction holds up the ring when it is full,
+     * the entries at its head are moved to an overflow map so the ring doesn't grow
+     * without bound.
+     */
     static class PartitionInFlightTracker {
+        private static final int INITIAL_RING_SIZE = 16;
+        static final int MAX_RING_SIZE = 4096;
+
         private final HandleGenerator m_generator;
-        private final Map<Long, Iv2InFlight> m_inFlights = new HashMap<Long, Iv2InFlight>();
 
-        private PartitionInFlightTracker(int partitionId) {
+        private Iv2InFlight[] m_ring = new Iv2InFlight[INITIAL_RING_SIZE];
+        // Handle stored at m_ring[m_headIdx], the oldest slot still in the ring
+        private long m_headHandle;
+        private int m_headIdx;
+        // Number of ring slots between the head and the newest handle, including holes
+        private int m_span;
+        private int m_ringCount;
+        // Entries spilled out of the ring or not issued in sequence, allocated on demand
+        private LongObjectHashMap<Iv2InFlight> m_overflow;
+
+        PartitionInFlightTracker(int partitionId) {
             m_generator = new HandleGenerator(partitionId);
         }
+
+        void put(long ciHandle, Iv2InFlight inFlight) {
+            if (m_span == 0) {
+                m_headHandle = ciHandle;
+                m_headIdx = 0;
+            } else if (ciHandle != m_headHandle + m_span) {
+                // Not the next handle in sequence, e.g. the sequence number wrapped
+                overflow().put(ciHandle, inFlight);
+                return;
+            }
+            if (m_span == m_ring.length) {
+                if (m_ring.length < MAX_RING_SIZE) {
+                    growRing();
+                } else {
+                    spillHead();
+                    if (m_span == 0) {
+                        m_headHandle = ciHandle;
+                        m_headIdx = 0;
+                    }
+                }
+            }
+            m_ring[(m_headIdx + m_span) & (m_ring.length - 1)] = inFlight;
+            m_span++;
+            m_ringCount++;
+        }
+
+        Iv2InFlight remove(long ciHandle) {
+            final long offset = ciHandle - m_headHandle;
+            if (offset >= 0 && offset < m_span) {
+                final int idx = (int) ((m_headIdx + offset) & (m_ring.length - 1));
+                final Iv2InFlight inFlight = m_ring[idx];
+                if (inFlight != null) {
+                    m_ring[idx] = null;
+                    m_ringCount--;
+                    if (offset == 0) {
+                        trimHead();
+                    }
+                }
+                return inFlight;
+            }
+            return m_overflow == null ? null : m_overflow.remove(ciHandle);
+        }
+
+        Iv2InFlight get(long ciHandle) {
+            final long offset = ciHandle - m_headHandle;
+            if (offset >= 0 && offset < m_span) {
+                return m_ring[(int) ((m_headIdx + offset) & (m_ring.length - 1))];
+            }
+            return m_overflow == null ? null : m_overflow.get(ciHandle);
+        }
+
+        int size() {
+            return m_ringCount + (m_overflow == null ? 0 : m_overflow.size());
+        }
+
+        /**
+         * @return all the in flight transactions of this partition, oldest first for the ones in the ring
+         */
+        List<Iv2InFlight> values() {
+            final List<Iv2InFlight> values = new ArrayList<Iv2InFlight>(size());
+            if (m_overflow != null) {
+                for (long handle : m_overflow.keys()) {
+                    values.add(m_overflow.get(handle));
+                }
+            }
+            for (int ii = 0; ii < m_span; ii++) {
+                final Iv2InFlight inFlight = m_ring[(m_headIdx + ii) & (m_ring.length - 1)];
+                if (inFlight != null) {
+                    values.add(inFlight);
+                }
+            }
+            return values;
+        }
+
+        private LongObjectHashMap<Iv2InFlight> overflow() {
+            if (m_overflow == null) {
+                m_overflow = new LongObjectHashMap<Iv2InFlight>();
+            }
+            return m_overflow;
+        }
+
+        private void trimHead() {
+            while (m_span > 0 && m_ring[m_headIdx] == null) {
+                m_headIdx = (m_headIdx + 1) & (m_ring.length - 1);
+                m_headHandle++;
+                m_span--;
+            }
+        }
+
+        private void growRing() {
+            final Iv2InFlight[] ring = new Iv2InFlight[m_ring.length << 1];
+            for (int ii = 0; ii < m_span; ii++) {
+                ring[ii] = m_ring[(m_headIdx + ii) & (m_ring.length - 1)];
+            }
+            m_ring = ring;
+            m_headIdx = 0;
+        }
+
+        /*
+         * Move the oldest entry to the overflow map and release the slots in front of
+         * the next outstanding entry
+         */
+        private void spillHead() {
+            final Iv2InFlight inFlight = m_ring[m_headIdx];
+            if (inFlight != null) {
+                overflow().put(m_headHandle, inFlight);
+                m_ring[m_headIdx] = null;
+                m_ringCount--;
+            }
+            trimHead();
+        }
     }
 
     ClientInterfaceHandleManager(boolean isAdmin, Connection connection, ClientInterfaceRepairCallback repairCallback, AdmissionControlGroup acg)
@@ -144,6 +271,10 @@ public class ClientInterfaceHandleManager
                 return super.findHandle(ciHandle);
             }
             @Override
+            synchronized Iv2InFlight peekHandle(long ciHandle) {
+                return super.peekHandle(ciHandle);
+            }
+            @Override
             synchronized Iv2InFlight removeHandle(long ciHandle) {
                 return super.removeHandle(ciHandle);
             }
@@ -199,17 +330,14 @@ public class ClientInterfaceHandleManager
         PartitionInFlightTracker tracker = m_trackerMap.get(partitionId);
         if (tracker == null) {
             tracker = new PartitionInFlightTracker(partitionId);
-            m_trackerMap =
-                    new Builder<Integer, PartitionInFlightTracker>().
-                    putAll(m_trackerMap).
-                    put(partitionId, tracker).build();
+            m_trackerMap.put(partitionId, tracker);
         }
 
         long ciHandle = tracker.m_generator.getNextHandle();
         Iv2InFlight inFlight = new Iv2InFlight(ciHandle, clientHandle, messageSize,
                                                creationTimeNanos, procName, initiatorHSId);
 
-        tracker.m_inFlights.put(ciHandle, inFlight);
+        tracker.put(ciHandle, inFlight);
 
         m_outstandingTxns++;
         m_acg.increaseBackpressure(messageSize);
@@ -235,7 +363,7 @@ public class ClientInterfaceHandleManager
             return null;
         }
 
-        Iv2InFlight inFlight = partitionStuff.m_inFlights.remove(ciHandle);
+        Iv2InFlight inFlight = partitionStuff.remove(ciHandle);
         if (inFlight != null) {
             m_acg.reduceBackpressure(inFlight.m_messageSize);
             m_outstandingTxns--;
@@ -245,6 +373,21 @@ public class ClientInterfaceHandleManager
         return null;
     }
 
+    /**
+     * Find the client data of a transaction which is still in flight without removing it,
+     * for the chunks of streamed results sent ahead of the response.
+     */
+    Iv2InFlight peekHandle(long ciHandle)
+    {
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
+
+        PartitionInFlightTracker partitionStuff = m_trackerMap.get(getPartIdFromHandle(ciHandle));
+        if (partitionStuff == null) {
+            return null;
+        }
+        return partitionStuff.get(ciHandle);
+    }
+
     /** Remove a specific handle without destroying any handles ordered before it */
     Iv2InFlight removeHandle(long ciHandle)
     {
@@ -262,7 +405,7 @@ public class ClientInterfaceHandleManager
             return null;
         }
 
-        Iv2InFlight inFlight = partitionStuff.m_inFlights.remove(ciHandle);
+        Iv2InFlight inFlight = partitionStuff.remove(ciHandle);
         if (inFlight != null) {
             m_acg.reduceBackpressure(inFlight.m_messageSize);
             m_outstandingTxns--;
@@ -286,8 +429,8 @@ public class ClientInterfaceHandleManager
      */
     void freeOutstandingTxns() {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
-        for (PartitionInFlightTracker tracker : m_trackerMap.values()) {
-            for (Iv2InFlight inflight : tracker.m_inFlights.values()) {
+        for (long partitionId : m_trackerMap.keys()) {
+            for (Iv2InFlight inflight : m_trackerMap.get(partitionId).values()) {
                 m_outstandingTxns--;
                 m_acg.reduceBackpressure(inflight.m_messageSize);
             }
@@ -297,17 +440,15 @@ public class ClientInterfaceHandleManager
     private void collectAndRemovePartitionInFlightRequests(Integer partitionId, Long initiatorHSId, List<Iv2InFlight> retval) {
         PartitionInFlightTracker partitionStuff = m_trackerMap.get(partitionId);
         if (partitionStuff != null) {
-            Iterator<Entry<Long, Iv2InFlight>> iter = partitionStuff.m_inFlights.entrySet().iterator();
-            while (iter.hasNext()) {
-                Entry<Long, Iv2InFlight> entry = iter.next();
-                if (entry.getValue().m_initiatorHSId != initiatorHSId) {
+            for (Iv2InFlight inFlight : partitionStuff.values()) {
+                if (inFlight.m_initiatorHSId != initiatorHSId) {
                     if (tmLog.isTraceEnabled()) {
-                        tmLog.trace("cleared response for handle " + entry.getKey());
+                        tmLog.trace("cleared response for handle " + inFlight.m_ciHandle);
                     }
-                    iter.remove();
-                    retval.add(entry.getValue());
+                    partitionStuff.remove(inFlight.m_ciHandle);
+                    retval.add(inFlight);
                     m_outstandingTxns--;
-                    m_acg.reduceBackpressure(entry.getValue().m_messageSize);
+                    m_acg.reduceBackpressure(inFlight.m_messageSize);
                 }
             }
         }
@@ -44,6 +44,10 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     private String appStatusString = null;
     private byte encodedAppStatusString[];
     private VoltTable[] results = new VoltTable[0];
+    // When the response was deserialized with lazy results, the message buffer and the
+    // offset of the result tables in it. Cleared once the tables have been materialized.
+    private volatile ByteBuffer m_lazyResultsBuffer = null;
+    private int m_lazyResultsOffset;
     private int[] m_hashes = null;
 
     private int clusterRoundTripTime = 0;
@@ -97,6 +101,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     }
 
     public Pair<Long, byte[]> getMispartitionedResult() {
+        final VoltTable[] results = getResults();
         if (results.length != 1 || !results[0].advanceRow()) {
             throw new IllegalArgumentException("No hashinator config in result");
         }
@@ -129,6 +134,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
 
         this.status = status;
         this.results = results;
+        this.m_lazyResultsBuffer = null;
         this.statusString = statusString;
         this.setProperly = true;
     }
@@ -144,9 +150,23 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
 
     @Override
     public VoltTable[] getResults() {
+        if (m_lazyResultsBuffer != null) {
+            materializeResults();
+        }
         return results;
     }
 
+    private synchronized void materializeResults() {
+        final ByteBuffer lazyResults = m_lazyResultsBuffer;
+        if (lazyResults == null) {
+            return;
+        }
+        final ByteBuffer buf = lazyResults.duplicate();
+        buf.position(m_lazyResultsOffset);
+        results = readResults(buf, buf.getShort());
+        m_lazyResultsBuffer = null;
+    }
+
     @Override
     public String getStatusString() {
         return statusString;
@@ -169,6 +189,16 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     }
 
     public void initFromBuffer(ByteBuffer buf) throws IOException {
+        initFromBuffer(buf, false);
+    }
+
+    /**
+     * Deserialize a response. With lazy results the result tables are not created until
+     * {@link #getResults()} is first called, so a caller that only looks at the status
+     * doesn't pay for them. The response then keeps a reference to <code>buf</code>, which
+     * must not be modified or reused afterwards.
+     */
+    public void initFromBuffer(ByteBuffer buf, boolean lazyResults) throws IOException {
         buf.get();//Skip version byte
         clientHandle = buf.getLong();
         byte presentFields = buf.get();
@@ -197,11 +227,24 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         } else {
             m_hashes = null;
         }
+        final int resultsOffset = buf.position();
         int tableCount = buf.getShort();
         if (tableCount < 0) {
             throw new IOException("Table count is negative: " + tableCount);
         }
-        results = new VoltTable[tableCount];
+        if (lazyResults && tableCount > 0) {
+            m_lazyResultsBuffer = buf;
+            m_lazyResultsOffset = resultsOffset;
+            buf.position(buf.limit());
+        } else {
+            m_lazyResultsBuffer = null;
+            results = readResults(buf, tableCount);
+        }
+        setProperly = true;
+    }
+
+    private static VoltTable[] readResults(ByteBuffer buf, int tableCount) {
+        final VoltTable[] results = new VoltTable[tableCount];
         for (int i = 0; i < tableCount; i++) {
             int tableSize = buf.getInt();
             final int originalLimit = buf.limit();
@@ -211,7 +254,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             buf.limit(originalLimit);
             results[i] = new VoltTable(slice, false);
         }
-        setProperly = true;
+        return results;
     }
 
     public int getSerializedSize() {
@@ -235,7 +278,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             msgsize += 2; // short array len
             msgsize += m_hashes.length * 4; // array of ints
         }
-        for (VoltTable vt : results) {
+        for (VoltTable vt : getResults()) {
             msgsize += vt.getSerializedSize();
         }
 
@@ -278,6 +321,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
                 buf.putInt(hash);
             }
         }
+        final VoltTable[] results = getResults();
         buf.putShort((short) results.length);
         for (VoltTable vt : results)
         {
@@ -340,7 +384,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             js.keySymbolValuePair(JSON_APPSTATUSSTRING_KEY, appStatusString);
             js.key(JSON_RESULTS_KEY);
             js.array();
-            for (VoltTable o : results) {
+            for (VoltTable o : getResults()) {
                 js.value(o);
             }
             js.endArray();
@@ -359,6 +403,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
      */
     public int getHashOfTableResults() {
         try {
+            final VoltTable[] results = getResults();
             long cheesyChecksum = 0;
             for (int i = 0; i < results.length; ++i) {
                 cheesyChecksum += ClientUtils.cheesyBufferCheckSum(results[i].m_buffer);
@@ -371,6 +416,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     }
 
     public void dropResultTable() {
+        m_lazyResultsBuffer = null;
         results = new VoltTable[] {};
     }
 }
@@ -26,11 +26,11 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -54,7 +54,6 @@ import com.google_voltpatches.common.util.concurrent.Futures;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 import com.google_voltpatches.common.util.concurrent.ListeningScheduledExecutorService;
-import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 import com.google_voltpatches.common.util.concurrent.UnsynchronizedRateLimiter;
 
 
@@ -90,6 +89,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
     private final ScheduledFuture<?> m_syncTask;
+    private final SyncTask m_syncWork = new SyncTask();
+    private final AtomicBoolean m_syncRequested = new AtomicBoolean(false);
     /*
      * Accept a single write even though simulating a full disk is enabled;
      */
@@ -105,9 +106,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private final Condition m_noMoreOutstandingWriteTasksCondition =
             m_outstandingWriteTasksLock.newCondition();
 
-    private static final ListeningExecutorService m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write service ");
-    static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
-            Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
+    // Write thread and sync service of the device the file is on, see SnapshotDeviceWriters
+    private final ListeningExecutorService m_es;
+    private final ListeningScheduledExecutorService m_syncService;
+
+    // Codec of the chunks, recorded in the header so the file can be read by any node
+    private final CompressionService.Codec m_codec = CompressionService.SNAPSHOT_CODEC;
 
     public static final int SNAPSHOT_SYNC_FREQUENCY = Integer.getInteger("SNAPSHOT_SYNC_FREQUENCY", 500);
     public static final int SNAPSHOT_FADVISE_BYTES = Integer.getInteger("SNAPSHOT_FADVISE_BYTES", 1024 * 1024 * 2);
@@ -135,7 +139,10 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     public static void enforceSnapshotRateLimit(int permits) {
         if (USE_SNAPSHOT_RATELIMIT) {
-            SNAPSHOT_RATELIMITER.acquire(permits);
+            // The limiter is shared by the write threads of all devices
+            synchronized (SNAPSHOT_RATELIMITER) {
+                SNAPSHOT_RATELIMITER.acquire(permits);
+            }
         }
     }
 
@@ -163,7 +170,40 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 schemaTable,
                 txnId,
                 timestamp,
-                new int[] { 0, 0, 0, 2 });
+                (String)null);
+    }
+
+    /**
+     * @param baseDataFile Name of the file in the same directory which holds the data of
+     * the table, or null if the data is written to this target
+     */
+    public DefaultSnapshotDataTarget(
+            final File file,
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final VoltTable schemaTable,
+            final long txnId,
+            final long timestamp,
+            final String baseDataFile) throws IOException {
+        this(
+                file,
+                hostId,
+                clusterName,
+                databaseName,
+                tableName,
+                numPartitions,
+                isReplicated,
+                partitionIds,
+                schemaTable,
+                txnId,
+                timestamp,
+                new int[] { 0, 0, 0, 2 },
+                baseDataFile);
     }
 
     public DefaultSnapshotDataTarget(
@@ -180,9 +220,43 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             final long timestamp,
             int version[]
             ) throws IOException {
+        this(
+                file,
+                hostId,
+                clusterName,
+                databaseName,
+                tableName,
+                numPartitions,
+                isReplicated,
+                partitionIds,
+                schemaTable,
+                txnId,
+                timestamp,
+                version,
+                null);
+    }
+
+    private DefaultSnapshotDataTarget(
+            final File file,
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final VoltTable schemaTable,
+            final long txnId,
+            final long timestamp,
+            int version[],
+            final String baseDataFile
+            ) throws IOException {
         String hostname = CoreUtils.getHostnameOrAddress();
         m_file = file;
         m_tableName = tableName;
+        SnapshotDeviceWriters device = SnapshotDeviceWriters.forFile(file);
+        m_es = device.nextWriter();
+        m_syncService = device.getSyncService();
         m_fos = new FileOutputStream(file);
         m_channel = m_fos.getChannel();
         m_needsFinalClose = !isReplicated;
@@ -206,6 +280,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             stringer.keySymbolValuePair("isReplicated", isReplicated);
             stringer.keySymbolValuePair("isCompressed", true);
             stringer.keySymbolValuePair("checksumType", "CRC32C");
+            stringer.keySymbolValuePair("compressionCodec", m_codec.name());
             stringer.keySymbolValuePair("timestamp", timestamp);
             /*
              * The timestamp string is for human consumption, automated stuff should use
@@ -221,6 +296,9 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
                 stringer.keySymbolValuePair("numPartitions", numPartitions);
             }
+            if (baseDataFile != null) {
+                stringer.keySymbolValuePair(SnapshotUtil.JSON_BASE_DATA_FILE, baseDataFile);
+            }
             stringer.endObject();
             String jsonString = stringer.toString();
             JSONObject jsonObj = new JSONObject(jsonString);
@@ -280,60 +358,86 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             throw m_writeException;
         }
 
-        ScheduledFuture<?> syncTask = null;
-        syncTask = m_syncService.scheduleAtFixedRate(new Runnable() {
-            private long fadvisedBytes = 0;
-            private long syncedBytes = 0;
-            @Override
-            public void run() {
-                //Only sync for at least 4 megabyte of data, enough to amortize the cost of seeking
-                //on ye olden platters. Since we are appending to a file it's actually 2 seeks.
-                while (m_bytesWrittenSinceLastSync.get() > (1024 * 1024 * 4)) {
-                    final int bytesSinceLastSync = m_bytesWrittenSinceLastSync.getAndSet(0);
-                    long positionAtSync = 0;
-                    try {
-                        positionAtSync = m_channel.position();
-                        final long syncStart = syncedBytes;
-                        syncedBytes = Bits.sync_file_range(SNAP_LOG, m_fos.getFD(), m_channel, syncStart, positionAtSync);
-                    } catch (IOException e) {
-                        if (!(e instanceof java.nio.channels.AsynchronousCloseException )) {
-                            SNAP_LOG.error("Error syncing snapshot", e);
-                        } else {
-                            SNAP_LOG.debug("Asynchronous close syncing snasphot data, presumably graceful", e);
-                        }
+        m_syncTask = m_syncService.scheduleAtFixedRate(m_syncWork,
+                SNAPSHOT_SYNC_FREQUENCY, SNAPSHOT_SYNC_FREQUENCY, TimeUnit.MILLISECONDS);
+    }
+
+    private class SyncTask implements Runnable {
+        private long fadvisedBytes = 0;
+        private long syncedBytes = 0;
+
+        @Override
+        public void run() {
+            //Only sync for at least 4 megabyte of data, enough to amortize the cost of seeking
+            //on ye olden platters. Since we are appending to a file it's actually 2 seeks.
+            sync(1024 * 1024 * 4);
+        }
+
+        void sync(int minBytes) {
+            while (m_bytesWrittenSinceLastSync.get() > minBytes) {
+                final int bytesSinceLastSync = m_bytesWrittenSinceLastSync.getAndSet(0);
+                long positionAtSync = 0;
+                try {
+                    positionAtSync = m_channel.position();
+                    final long syncStart = syncedBytes;
+                    syncedBytes = Bits.sync_file_range(SNAP_LOG, m_fos.getFD(), m_channel, syncStart, positionAtSync);
+                } catch (IOException e) {
+                    if (!(e instanceof java.nio.channels.AsynchronousCloseException )) {
+                        SNAP_LOG.error("Error syncing snapshot", e);
+                    } else {
+                        SNAP_LOG.debug("Asynchronous close syncing snasphot data, presumably graceful", e);
                     }
-                    m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
+                }
+                m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
 
-                    /*
-                     * Don't pollute the page cache with snapshot data, use fadvise
-                     * to periodically request the kernel drop pages we have written
-                     */
-                    try {
-                        if (positionAtSync - fadvisedBytes > SNAPSHOT_FADVISE_BYTES) {
-                            //Get aligned start and end position
-                            final long fadviseStart = fadvisedBytes;
-                            //-1 because we don't want to drop the last page because
-                            //we might modify it while appending
-                            fadvisedBytes = ((positionAtSync / Bits.pageSize()) - 1) * Bits.pageSize();
-                            final long retval = PosixAdvise.fadvise(
-                                    m_fos.getFD(),
-                                    fadviseStart,
-                                    fadvisedBytes - fadviseStart,
-                                    PosixAdvise.POSIX_FADV_DONTNEED );
-                            if (retval != 0) {
-                                SNAP_LOG.error("Error fadvising snapshot data: " + retval);
-                                SNAP_LOG.error(
-                                        "Params offset " + fadviseStart +
-                                        " length " + (fadvisedBytes - fadviseStart));
-                            }
+                /*
+                 * Don't pollute the page cache with snapshot data, use fadvise
+                 * to periodically request the kernel drop pages we have written
+                 */
+                try {
+                    if (positionAtSync - fadvisedBytes > SNAPSHOT_FADVISE_BYTES) {
+                        //Get aligned start and end position
+                        final long fadviseStart = fadvisedBytes;
+                        //-1 because we don't want to drop the last page because
+                        //we might modify it while appending
+                        fadvisedBytes = ((positionAtSync / Bits.pageSize()) - 1) * Bits.pageSize();
+                        final long retval = PosixAdvise.fadvise(
+                                m_fos.getFD(),
+                                fadviseStart,
+                                fadvisedBytes - fadviseStart,
+                                PosixAdvise.POSIX_FADV_DONTNEED );
+                        if (retval != 0) {
+                            SNAP_LOG.error("Error fadvising snapshot data: " + retval);
+                            SNAP_LOG.error(
+                                    "Params offset " + fadviseStart +
+                                    " length " + (fadvisedBytes - fadviseStart));
                         }
-                    } catch (Throwable t) {
-                        SNAP_LOG.error("Error fadvising snapshot data", t);
                     }
+                } catch (Throwable t) {
+                    SNAP_LOG.error("Error fadvising snapshot data", t);
                 }
             }
-        }, SNAPSHOT_SYNC_FREQUENCY, SNAPSHOT_SYNC_FREQUENCY, TimeUnit.MILLISECONDS);
-        m_syncTask = syncTask;
+        }
+    }
+
+    /*
+     * Take permits for unsynced bytes. If the budget shared by all snapshot files is exhausted,
+     * sync this file right away instead of waiting for the next periodic sync, so that
+     * under heavy write load the syncs get smaller and more frequent rather than stalling writes.
+     */
+    private void acquireSyncPermits(int permits) throws InterruptedException {
+        if (!m_bytesAllowedBeforeSync.tryAcquire(permits)) {
+            if (m_syncRequested.compareAndSet(false, true)) {
+                m_syncService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        m_syncRequested.set(false);
+                        m_syncWork.sync(0);
+                    }
+                });
+            }
+            m_bytesAllowedBeforeSync.acquire(permits);
+        }
     }
 
     @Override
@@ -445,7 +549,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
              * that is 16 bytes, but 4 of those are done by CompressionService
              */
             cont.b().position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont);
+            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont, m_codec);
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
@@ -476,8 +580,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadBuffer.position(0);
 
                             ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
+                            acquireSyncPermits(payloadBuffer.remaining());
                             permitAcquired = payloadBuffer.remaining();
-                            m_bytesAllowedBeforeSync.acquire(permitAcquired);
                             //Length prefix does not include 4 header items, just compressd payload
                             //that follows
                             lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
@@ -505,8 +609,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadContainer.discard();
                         }
                     } else {
+                        acquireSyncPermits(tupleData.remaining());
                         permitAcquired = tupleData.remaining();
-                        m_bytesAllowedBeforeSync.acquire(permitAcquired);
                         while (tupleData.hasRemaining()) {
                             totalWritten += m_channel.write(tupleData);
                         }
@@ -582,15 +686,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     }
 
     public static void setRate(final Integer megabytesPerSecond) {
-        m_es.execute(new Runnable() {
-            @Override
-            public void run() {
-                if (megabytesPerSecond == null) {
-                    SNAPSHOT_RATELIMITER.setRate(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0);
-                } else {
-                    SNAPSHOT_RATELIMITER.setRate(megabytesPerSecond * 1024.0 * 1024.0);
-                }
+        synchronized (SNAPSHOT_RATELIMITER) {
+            if (megabytesPerSecond == null) {
+                SNAPSHOT_RATELIMITER.setRate(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0);
+            } else {
+                SNAPSHOT_RATELIMITER.setRate(megabytesPerSecond * 1024.0 * 1024.0);
             }
-        });
+        }
     }
 }
@@ -64,6 +64,18 @@ public class ElasticHashinator extends TheHashinator {
     public static int DEFAULT_TOTAL_TOKENS =
         Integer.parseInt(System.getProperty("ELASTIC_TOTAL_TOKENS", "16384"));
 
+    /**
+     * Put a direct-indexed table in front of the token array, which maps the high bits of a
+     * hash to the few tokens it can land on, instead of binary searching all the tokens.
+     */
+    public static boolean USE_TOKEN_LOOKUP_TABLE =
+        Boolean.parseBoolean(System.getProperty("ELASTIC_TOKEN_LOOKUP_TABLE", "true"));
+    static final int LOOKUP_BITS = 16;
+    private static final int LOOKUP_SHIFT = Integer.SIZE - LOOKUP_BITS;
+    private static final int LOOKUP_BUCKETS = 1 << LOOKUP_BITS;
+    // Buckets wider than this many tokens are binary searched
+    private static final int LOOKUP_MAX_SCAN = 8;
+
     /**
      * Tokens on the ring. A value hashes to a token if the token is the first value <=
      * the value's hash
@@ -77,6 +89,14 @@ public class ElasticHashinator extends TheHashinator {
     private final long m_tokens;
     private final int m_tokenCount;
 
+    /*
+     * Index of the token each 2^LOOKUP_SHIFT wide bucket of hashes starts in, the buckets
+     * ordered from Integer.MIN_VALUE up, followed by the index of the last token. A hash in
+     * bucket b lands on one of the tokens m_lookupTable[b] to m_lookupTable[b + 1].
+     * Null if the table is disabled or the ring doesn't start at Integer.MIN_VALUE.
+     */
+    private final int[] m_lookupTable;
+
     // Provide a hook for the GC
     @SuppressWarnings("unused")
     private final Cleaner m_cleaner;
@@ -127,6 +147,7 @@ public class ElasticHashinator extends TheHashinator {
                 : updateRaw(configBytes));
         m_tokens = p.getFirst();
         m_tokenCount = p.getSecond();
+        m_lookupTable = buildLookupTable(m_tokens, m_tokenCount);
         m_cleaner = Cleaner.create(this, new Deallocator(m_tokens, m_tokenCount * 8));
         m_configBytes = !cooked ? Suppliers.ofInstance(configBytes) : m_configBytesSupplier;
         m_cookedBytes = cooked ? Suppliers.ofInstance(configBytes) : m_cookedBytesSupplier;
@@ -166,6 +187,7 @@ public class ElasticHashinator extends TheHashinator {
             ii++;
         }
         m_tokenCount = tokens.size();
+        m_lookupTable = buildLookupTable(m_tokens, m_tokenCount);
         m_configBytes = m_configBytesSupplier;
         m_cookedBytes = m_cookedBytesSupplier;
     }
@@ -282,8 +304,34 @@ public class ElasticHashinator extends TheHashinator {
      * it wraps around to the last token in the ring closest to Long.MAX_VALUE
      */
     public int partitionForToken(int hash) {
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        final int[] lookupTable = m_lookupTable;
+        if (lookupTable == null) {
+            return Bits.unsafe.getInt(getTokenPtr(hash, 0, m_tokenCount - 1) + 4);
+        }
+        final int bucket = (hash >> LOOKUP_SHIFT) + (LOOKUP_BUCKETS >> 1);
+        int index = lookupTable[bucket];
+        final int last = lookupTable[bucket + 1];
+        if (last - index > LOOKUP_MAX_SCAN) {
+            return Bits.unsafe.getInt(getTokenPtr(hash, index + 1, last) + 4);
+        }
+        long ptr = m_tokens + 8L * index;
+        while (index < last && Bits.unsafe.getInt(ptr + 8) <= hash) {
+            index++;
+            ptr += 8;
+        }
+        return Bits.unsafe.getInt(ptr + 4);
+    }
+
+    /**
+     * Batch version of {@link #partitionForToken(int)}.
+     * @param hashes      value hashes
+     * @param partitions  receives the partition of each of the first count hashes
+     * @param count       number of hashes to look up
+     */
+    public void partitionsForTokens(int[] hashes, int[] partitions, int count) {
+        for (int ii = 0; ii < count; ii++) {
+            partitions[ii] = partitionForToken(hashes[ii]);
+        }
     }
 
     /**
@@ -586,10 +634,11 @@ public class ElasticHashinator extends TheHashinator {
         return Pair.of(tokens, numEntries);
     }
 
-    private long getTokenPtr(int hash) {
-        int min = 0;
-        int max = m_tokenCount - 1;
-
+    /**
+     * Binary search tokens min to max for the last one <= hash, assuming the token
+     * before min is <= hash.
+     */
+    private long getTokenPtr(int hash, int min, int max) {
         while (min <= max) {
             int mid = (min + max) >>> 1;
             final long midPtr = m_tokens + (8 * mid);
@@ -606,6 +655,34 @@ public class ElasticHashinator extends TheHashinator {
         return m_tokens + (min - 1) * 8;
     }
 
+    /**
+     * Build the lookup table for the tokens, see {@link #m_lookupTable}. It takes
+     * LOOKUP_BUCKETS + 1 ints, which is 256KB for the default 16 bits.
+     */
+    private static int[] buildLookupTable(long tokens, int tokenCount) {
+        if (!USE_TOKEN_LOOKUP_TABLE || tokenCount == 0 || Bits.unsafe.getInt(tokens) != Integer.MIN_VALUE) {
+            return null;
+        }
+        // The scan assumes distinct tokens, leave rings with duplicates to the binary search
+        for (int ii = 1; ii < tokenCount; ii++) {
+            if (Bits.unsafe.getInt(tokens + 8L * ii) <= Bits.unsafe.getInt(tokens + 8L * (ii - 1))) {
+                return null;
+            }
+        }
+
+        final int[] lookupTable = new int[LOOKUP_BUCKETS + 1];
+        int index = 0;
+        for (int bucket = 0; bucket < LOOKUP_BUCKETS; bucket++) {
+            final int bucketStart = (bucket - (LOOKUP_BUCKETS >> 1)) << LOOKUP_SHIFT;
+            while (index + 1 < tokenCount && Bits.unsafe.getInt(tokens + 8L * (index + 1)) <= bucketStart) {
+                index++;
+            }
+            lookupTable[bucket] = index;
+        }
+        lookupTable[LOOKUP_BUCKETS] = tokenCount - 1;
+        return lookupTable;
+    }
+
     /**
      * Update from optimized (cooked) wire format.
      *      token-1 token-2 ...
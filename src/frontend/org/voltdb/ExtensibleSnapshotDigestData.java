@@ -68,6 +68,12 @@ public class ExtensibleSnapshotDigestData {
      */
     private long m_terminus;
 
+    /**
+     * Tables of an incremental snapshot which are unchanged since an earlier snapshot
+     * and link its data, mapped to the nonce of the snapshot which wrote the data
+     */
+    private Map<String, String> m_inheritedTables = new HashMap<>();
+
     public ExtensibleSnapshotDigestData(
             Map<String, Map<Integer, Pair<Long, Long>>> exportSequenceNumbers,
             Map<Integer, TupleStreamStateInfo> drTupleStreamInfo,
@@ -323,9 +329,25 @@ public class ExtensibleSnapshotDigestData {
         }
     }
 
+    private void writeInheritedTablesToSnapshot(JSONStringer stringer) throws IOException {
+        if (m_inheritedTables.isEmpty()) {
+            return;
+        }
+        try {
+            stringer.key(SnapshotUtil.JSON_INHERITED_TABLES).object();
+            for (Map.Entry<String, String> e : m_inheritedTables.entrySet()) {
+                stringer.keySymbolValuePair(e.getKey(), e.getValue());
+            }
+            stringer.endObject();
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
     public void writeToSnapshotDigest(JSONStringer stringer) throws IOException {
         writeExportSequencesToSnapshot(stringer);
         writeDRStateToSnapshot(stringer);
+        writeInheritedTablesToSnapshot(stringer);
     }
 
     public void mergeToZooKeeper(JSONObject jsonObj, VoltLogger log) throws JSONException {
@@ -338,4 +360,8 @@ public class ExtensibleSnapshotDigestData {
     public long getTerminus() {
         return m_terminus;
     }
+
+    public void setInheritedTables(Map<String, String> inheritedTables) {
+        m_inheritedTables = inheritedTables;
+    }
 }
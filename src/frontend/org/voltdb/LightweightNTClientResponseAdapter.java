@@ -36,6 +36,7 @@ import org.voltdb.ProcedureRunnerNT.NTNestedProcedureCallback;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcedureCallback;
+import org.voltdb.client.ResultChunkCallback;
 import org.voltdb.utils.MiscUtils;
 
 /**
@@ -141,6 +142,19 @@ public class LightweightNTClientResponseAdapter implements Connection, WriteStre
             VoltDB.crashLocalVoltDB("enqueue() in InternalClientResponseAdapter throw an exception", true, ex);
         }
 
+        // chunks of streamed results come ahead of the response, keep the callback for it
+        if (resp.getStatus() == ClientResponse.RESULT_CHUNK) {
+            final ProcedureCallback callback = m_callbacks.get(resp.getClientHandle());
+            if (callback instanceof ResultChunkCallback) {
+                try {
+                    ((ResultChunkCallback) callback).chunkCallback(resp);
+                } catch (Exception ex) {
+                    m_logger.error("Failed to process result chunk.", ex);
+                }
+            }
+            return;
+        }
+
         final ProcedureCallback callback = m_callbacks.remove(resp.getClientHandle());
         if (callback == null) {
             assert(false);
@@ -280,9 +294,25 @@ public class LightweightNTClientResponseAdapter implements Connection, WriteStre
                               ProcedureCallback cb,
                               String procName,
                               Object[] args)
+    {
+        callProcedure(user, isAdmin, timeout, false, cb, procName, args);
+    }
+
+    /**
+     * Same as above, asking for the results to be streamed to a {@link ResultChunkCallback}
+     * if streamResults is set
+     */
+    public void callProcedure(AuthUser user,
+                              boolean isAdmin,
+                              int timeout,
+                              boolean streamResults,
+                              ProcedureCallback cb,
+                              String procName,
+                              Object[] args)
     {
         // since we know the caller, this is safe
         assert(cb != null);
+        assert(!streamResults || cb instanceof ResultChunkCallback);
 
         StoredProcedureInvocation task = new StoredProcedureInvocation();
         task.setProcName(procName);
@@ -290,6 +320,7 @@ public class LightweightNTClientResponseAdapter implements Connection, WriteStre
         if (timeout != BatchTimeoutOverrideType.NO_TIMEOUT) {
             task.setBatchTimeout(timeout);
         }
+        task.setStreamResults(streamResults);
 
         InternalAdapterTaskAttributes kattrs = new InternalAdapterTaskAttributes(
                 DEFAULT_INTERNAL_ADAPTER_NAME, isAdmin, connectionId());
@@ -202,7 +202,8 @@ public class NTProcedureService {
                                                     boolean isAdmin,
                                                     long ciHandle,
                                                     long clientHandle,
-                                                    int timeout)
+                                                    int timeout,
+                                                    boolean streamResults)
                 throws InstantiationException, IllegalAccessException
         {
             // every single call gets a unique id as a key for the outstanding procedure map
@@ -218,6 +219,7 @@ public class NTProcedureService {
                                                              ciHandle,
                                                              clientHandle,
                                                              timeout,
+                                                             streamResults,
                                                              procedure,
                                                              m_procedureName,
                                                              m_procMethod,
@@ -391,7 +393,10 @@ public class NTProcedureService {
 
         final ProcedureRunnerNT runner;
         try {
-            runner = prntg.generateProcedureRunnerNT(user, ccxn, isAdmin, ciHandle, task.getClientHandle(), task.getBatchTimeout());
+            // only ad hoc queries can stream their results for now
+            boolean streamResults = task.getStreamResults() && "@AdHoc".equals(procName);
+            runner = prntg.generateProcedureRunnerNT(user, ccxn, isAdmin, ciHandle, task.getClientHandle(),
+                    task.getBatchTimeout(), streamResults);
         } catch (InstantiationException | IllegalAccessException e1) {
             // I don't expect to hit this, but it's here...
             // must be done as IRM to CI mailbox for backpressure accounting
@@ -95,6 +95,30 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cacheMisses = 0;
     long m_lastCacheMisses = 0;
 
+    /**
+     * Cache 1 misses, including lookups that then hit cache 2
+     */
+    long m_cache1Misses = 0;
+    long m_lastCache1Misses = 0;
+
+    /**
+     * Cache 2 misses
+     */
+    long m_cache2Misses = 0;
+    long m_lastCache2Misses = 0;
+
+    /**
+     * Cache 1 evictions
+     */
+    long m_cache1Evictions = 0;
+    long m_lastCache1Evictions = 0;
+
+    /**
+     * Cache 2 evictions
+     */
+    long m_cache2Evictions = 0;
+    long m_lastCache2Evictions = 0;
+
     /**
      * Time of last planning start
      */
@@ -172,6 +196,7 @@ public class PlannerStatsCollector extends StatsSource {
         m_cache1Level = eeCacheSize;
         m_cache1Hits += hits;
         m_cacheMisses += misses;
+        m_cache1Misses += misses;
 
         m_invocations += hits + misses;
         m_partitionId = partitionId;
@@ -222,9 +247,12 @@ public class PlannerStatsCollector extends StatsSource {
             break;
           case HIT2:
             m_cache2Hits++;
+            m_cache1Misses++;
             break;
           case MISS:
             m_cacheMisses++;
+            m_cache1Misses++;
+            m_cache2Misses++;
             break;
           case FAIL:
             m_failures++;
@@ -235,6 +263,18 @@ public class PlannerStatsCollector extends StatsSource {
         m_partitionId = partitionId;
     }
 
+    /**
+     * Called by the ad hoc plan cache with the number of entries each cache level evicted
+     * when a plan was inserted.
+     *
+     * @param cache1Evictions  entries evicted from level 1 cache
+     * @param cache2Evictions  entries evicted from level 2 cache
+     */
+    public void updateCacheEvictions(long cache1Evictions, long cache2Evictions) {
+        m_cache1Evictions += cache1Evictions;
+        m_cache2Evictions += cache2Evictions;
+    }
+
     /**
      * Update the rowValues array with the latest statistical information.
      * This method is overrides the super class version
@@ -254,6 +294,10 @@ public class PlannerStatsCollector extends StatsSource {
         long cache1Hits  = m_cache1Hits;
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
+        long cache1Misses = m_cache1Misses;
+        long cache2Misses = m_cache2Misses;
+        long cache1Evictions = m_cache1Evictions;
+        long cache2Evictions = m_cache2Evictions;
         long failureCount = m_failures;
 
         if (m_interval) {
@@ -280,6 +324,18 @@ public class PlannerStatsCollector extends StatsSource {
             cacheMisses = m_cacheMisses - m_lastCacheMisses;
             m_lastCacheMisses = m_cacheMisses;
 
+            cache1Misses = m_cache1Misses - m_lastCache1Misses;
+            m_lastCache1Misses = m_cache1Misses;
+
+            cache2Misses = m_cache2Misses - m_lastCache2Misses;
+            m_lastCache2Misses = m_cache2Misses;
+
+            cache1Evictions = m_cache1Evictions - m_lastCache1Evictions;
+            m_lastCache1Evictions = m_cache1Evictions;
+
+            cache2Evictions = m_cache2Evictions - m_lastCache2Evictions;
+            m_lastCache2Evictions = m_cache2Evictions;
+
             failureCount = m_failures - m_lastFailures;
             m_lastFailures = m_failures;
 
@@ -302,6 +358,10 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("CACHE1_MISSES")] = cache1Misses;
+        rowValues[columnNameToIndex.get("CACHE2_MISSES")] = cache2Misses;
+        rowValues[columnNameToIndex.get("CACHE1_EVICTIONS")] = cache1Evictions;
+        rowValues[columnNameToIndex.get("CACHE2_EVICTIONS")] = cache2Evictions;
     }
 
     /**
@@ -322,6 +382,10 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_MISSES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_MISSES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT));
     }
 
     @Override
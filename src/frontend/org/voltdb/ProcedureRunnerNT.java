@@ -38,9 +38,11 @@ import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientResponseWithPartitionKey;
 import org.voltdb.client.ProcedureCallback;
+import org.voltdb.client.ResultChunkCallback;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.ResultChunkMessage;
 
 /**
  * Support class non-transactional procedures that runs 1-1
@@ -75,6 +77,8 @@ public class ProcedureRunnerNT {
     protected final long m_ciHandle;
     protected final long m_clientHandle;
     protected final int m_timeout;
+    // whether the caller asked for the results of @AdHoc to be streamed
+    protected final boolean m_streamResults;
     protected final String m_procedureName;
     protected final VoltNonTransactionalProcedure m_procedure;
     protected final Method m_procMethod;
@@ -92,6 +96,7 @@ public class ProcedureRunnerNT {
                       long ciHandle,
                       long clientHandle,
                       int timeout,
+                      boolean streamResults,
                       VoltNonTransactionalProcedure procedure,
                       String procName,
                       Method procMethod,
@@ -108,6 +113,7 @@ public class ProcedureRunnerNT {
         m_ciHandle = ciHandle;
         m_clientHandle = clientHandle;
         m_timeout = timeout;
+        m_streamResults = streamResults;
         m_procedure = procedure;
         m_procedureName = procName;
         m_procMethod = procMethod;
@@ -121,9 +127,16 @@ public class ProcedureRunnerNT {
     /**
      * Complete the future when we get a traditional ProcedureCallback.
      */
-    class NTNestedProcedureCallback implements ProcedureCallback {
+    class NTNestedProcedureCallback implements ResultChunkCallback {
         final CompletableFuture<ClientResponse> m_fut = new CompletableFuture<>();
 
+        @Override
+        public void chunkCallback(ClientResponse chunk) throws Exception {
+            // pass the chunk through to the caller, ahead of the response
+            // must be done through the CI mailbox, like the response
+            m_mailbox.deliver(new ResultChunkMessage(m_ciHandle, m_ccxn.connectionId(), chunk.getResults()[0]));
+        }
+
         @Override
         public void clientCallback(ClientResponse clientResponse) throws Exception {
             // the future needs to be completed in the right executor service
@@ -183,7 +196,11 @@ public class ProcedureRunnerNT {
      */
     protected CompletableFuture<ClientResponse> callProcedure(String procName, Object... params) {
         NTNestedProcedureCallback cb = new NTNestedProcedureCallback();
-        m_ntProcService.m_internalNTClientAdapter.callProcedure(m_user, isAdminConnection(), m_timeout, cb, procName, params);
+        // Only the results of the read-only multi-partition transaction of @AdHoc can
+        // go straight to the caller, other procedures called here have to see them
+        boolean streamResults = m_streamResults && "@AdHoc_RO_MP".equals(procName);
+        m_ntProcService.m_internalNTClientAdapter.callProcedure(m_user, isAdminConnection(), m_timeout,
+                streamResults, cb, procName, params);
         return cb.fut();
     }
 
@@ -149,6 +149,7 @@ import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.join.BalancePartitionsStatistics;
 import org.voltdb.join.ElasticJoinService;
 import org.voltdb.largequery.LargeBlockManager;
+import org.voltdb.largequery.LargeBlockStats;
 import org.voltdb.licensetool.LicenseApi;
 import org.voltdb.messaging.MigratePartitionLeaderMessage;
 import org.voltdb.messaging.VoltDbMessageFactory;
@@ -1309,6 +1310,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_gcStats = new GcStats();
             getStatsAgent().registerStatsSource(StatsSelector.GC,
                     0, m_gcStats);
+            getStatsAgent().registerStatsSource(StatsSelector.LARGEQUERYSPILL,
+                    0, new LargeBlockStats());
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
             getStatsAgent().registerStatsSource(StatsSelector.COMMANDLOG, 0, m_commandLogStats);
@@ -2160,6 +2163,18 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             }
         }, 0, 6, TimeUnit.MINUTES));
 
+        // warm the ad hoc plan cache from the previous run and keep the file current
+        if (AdHocCompilerCache.PERSIST_CACHE) {
+            loadPersistedAdHocCompilerCache();
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    persistAdHocCompilerCache();
+                }
+            }, AdHocCompilerCache.PERSIST_INTERVAL_SECONDS, AdHocCompilerCache.PERSIST_INTERVAL_SECONDS,
+            TimeUnit.SECONDS));
+        }
+
         // other enterprise setup
         EnterpriseMaintenance em = EnterpriseMaintenance.get();
         if (em != null) { em.setupMaintenaceTasks(); }
@@ -2167,6 +2182,39 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         GCInspector.instance.start(m_periodicPriorityWorkThread, m_gcStats);
     }
 
+    private File getAdHocCompilerCacheFile() {
+        return new VoltFile(getConfigDirectory(), AdHocCompilerCache.PERSISTED_CACHE_FILE_NAME);
+    }
+
+    private void loadPersistedAdHocCompilerCache() {
+        final File cacheFile = getAdHocCompilerCacheFile();
+        final CatalogContext context = m_catalogContext;
+        if (context == null || !cacheFile.exists()) {
+            return;
+        }
+        try {
+            int loaded = AdHocCompilerCache.getCacheForCatalogHash(context.getCatalogHash())
+                    .loadFromFile(cacheFile, context.getCatalogHash());
+            hostLog.info("Loaded " + loaded + " ad hoc plan cache entries from " + cacheFile);
+        } catch (Exception e) {
+            hostLog.warn("Unable to load the ad hoc plan cache from " + cacheFile, e);
+        }
+    }
+
+    private void persistAdHocCompilerCache() {
+        final CatalogContext context = m_catalogContext;
+        if (context == null) {
+            return;
+        }
+        final File cacheFile = getAdHocCompilerCacheFile();
+        try {
+            AdHocCompilerCache.getCacheForCatalogHash(context.getCatalogHash())
+                    .writeToFile(cacheFile, context.getCatalogHash());
+        } catch (Exception e) {
+            hostLog.warn("Unable to persist the ad hoc plan cache to " + cacheFile, e);
+        }
+    }
+
     public boolean isClusterCompelte() {
         return (m_config.m_hostCount == m_messenger.getLiveHostIds().size());
     }
@@ -3425,6 +3473,9 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 m_computationService.shutdown();
                 m_computationService.awaitTermination(1, TimeUnit.DAYS);
                 m_computationService = null;
+                if (AdHocCompilerCache.PERSIST_CACHE) {
+                    persistAdHocCompilerCache();
+                }
                 m_catalogContext = null;
                 m_initiatorStats = null;
                 m_latencyStats = null;
@@ -61,6 +61,7 @@ import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.TableFiles;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.InMemoryJarfile;
 import org.voltdb.utils.MiscUtils;
 
@@ -814,6 +815,17 @@ SnapshotCompletionInterest, Promotable
                 newPartitionCount = digest_detail.getInt("newPartitionCount");
             }
 
+            if (digest_detail.has(SnapshotUtil.JSON_COMPRESSION_CODEC)) {
+                // Each table file records its codec as well, this rejects snapshots written
+                // with a codec this version can't read before choosing them
+                final String codec = digest_detail.getString(SnapshotUtil.JSON_COMPRESSION_CODEC);
+                try {
+                    CompressionService.Codec.valueOf(codec);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("unsupported compression codec " + codec);
+                }
+            }
+
             if (digest_detail.has("tables")) {
                 JSONArray tableObj = digest_detail.getJSONArray("tables");
                 for (int i = 0; i < tableObj.length(); i++) {
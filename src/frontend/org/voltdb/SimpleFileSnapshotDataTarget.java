@@ -85,7 +85,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
 
         m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write thread for " + m_file);
         ScheduledFuture<?> syncTask = null;
-        syncTask = DefaultSnapshotDataTarget.m_syncService.scheduleAtFixedRate(new Runnable() {
+        syncTask = SnapshotDeviceWriters.forFile(m_tempFile).getSyncService().scheduleAtFixedRate(new Runnable() {
             private long syncedBytes = 0;
             @Override
             public void run() {
@@ -254,6 +254,7 @@ public class SnapshotDeleteAgent extends OpsAgent
                     !pathname.getName().endsWith(".digest") &&
                     !pathname.getName().endsWith(".jar") &&
                     !pathname.getName().endsWith(SnapshotUtil.HASH_EXTENSION) &&
+                    !pathname.getName().endsWith(SnapshotUtil.BASE_DATA_EXTENSION) &&
                     !pathname.getName().endsWith(SnapshotUtil.COMPLETION_EXTENSION)) {
                     return false;
                 }
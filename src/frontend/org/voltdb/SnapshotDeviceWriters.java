@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
+/**
+ * Snapshot write and sync threads for one file store, i.e. one device or filesystem.
+ *
+ * Each snapshot file is assigned to one of the write threads of the file store it
+ * is on, which keeps its writes in order, while files on different devices, or on
+ * the same device but different threads, are written in parallel. Syncs are done by
+ * a thread per file store so that a slow device doesn't hold up the others.
+ *
+ * File stores are never torn down, like the single snapshot write service they replace.
+ */
+class SnapshotDeviceWriters {
+    private static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
+
+    static final int SNAPSHOT_WRITE_THREADS_PER_DEVICE =
+            Math.max(1, Integer.getInteger("SNAPSHOT_WRITE_THREADS_PER_DEVICE", 2));
+
+    private static final Object DEFAULT_STORE = new Object();
+    private static final ConcurrentMap<Object, SnapshotDeviceWriters> s_devices = new ConcurrentHashMap<>();
+
+    private final String m_name;
+    private final ListeningExecutorService m_writers[];
+    private final AtomicInteger m_nextWriter = new AtomicInteger();
+    private final ListeningScheduledExecutorService m_syncService;
+
+    private SnapshotDeviceWriters(String name) {
+        m_name = name;
+        m_writers = new ListeningExecutorService[SNAPSHOT_WRITE_THREADS_PER_DEVICE];
+        for (int ii = 0; ii < m_writers.length; ii++) {
+            m_writers[ii] = CoreUtils.getListeningSingleThreadExecutor(
+                    "Snapshot write service " + ii + " for " + name);
+        }
+        m_syncService = MoreExecutors.listeningDecorator(
+                Executors.newSingleThreadScheduledExecutor(
+                        CoreUtils.getThreadFactory("Snapshot sync service for " + name)));
+    }
+
+    /**
+     * Get the writers of the file store the given file will be created on
+     */
+    static SnapshotDeviceWriters forFile(File file) {
+        Object key = DEFAULT_STORE;
+        String name = "default";
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            try {
+                FileStore store = Files.getFileStore(dir.toPath());
+                key = store;
+                name = store.name();
+            } catch (IOException e) {
+                SNAP_LOG.debug("Unable to find the file store of " + dir + ", using the default snapshot writers", e);
+            }
+        }
+        SnapshotDeviceWriters writers = s_devices.get(key);
+        if (writers == null) {
+            synchronized (s_devices) {
+                writers = s_devices.get(key);
+                if (writers == null) {
+                    writers = new SnapshotDeviceWriters(name);
+                    s_devices.put(key, writers);
+                }
+            }
+        }
+        return writers;
+    }
+
+    /**
+     * Pick the write thread for a new file, round robin
+     */
+    ListeningExecutorService nextWriter() {
+        return m_writers[(m_nextWriter.getAndIncrement() & Integer.MAX_VALUE) % m_writers.length];
+    }
+
+    ListeningScheduledExecutorService getSyncService() {
+        return m_syncService;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotDeviceWriters for " + m_name;
+    }
+}
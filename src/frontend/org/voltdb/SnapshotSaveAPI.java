@@ -46,6 +46,7 @@ import org.voltdb.exceptions.InterruptException;
 import org.voltdb.iv2.TxnEgo;
 import org.voltdb.sysprocs.saverestore.CSVSnapshotWritePlan;
 import org.voltdb.sysprocs.saverestore.HashinatorSnapshotData;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotTracker;
 import org.voltdb.sysprocs.saverestore.IndexSnapshotWritePlan;
 import org.voltdb.sysprocs.saverestore.NativeSnapshotWritePlan;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
@@ -203,6 +204,8 @@ public class SnapshotSaveAPI
             //From within this EE, record the sequence numbers as of the start of the snapshot (now)
             //so that the info can be put in the digest.
             SnapshotSiteProcessor.populateSequenceNumbersForExecutionSite(context);
+            // Every format records them, a stream snapshot may include a native truncation snapshot
+            IncrementalSnapshotTracker.recordChangeCounts(context);
             Integer partitionId = TxnEgo.getPartitionId(partitionTxnId);
             if (SNAP_LOG.isDebugEnabled()) {
                 SNAP_LOG.debug("Registering transaction id " + partitionTxnId + " for " + TxnEgo.getPartitionId(partitionTxnId) + " SP Txn:" +
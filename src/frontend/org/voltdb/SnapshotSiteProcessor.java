@@ -129,6 +129,32 @@ public class SnapshotSiteProcessor {
     public static final ConcurrentLinkedQueue<Runnable> m_tasksOnSnapshotCompletion =
         new ConcurrentLinkedQueue<Runnable>();
 
+    /**
+     * Close the targets of a snapshot, then run its completion tasks. If a target fails
+     * to close, the completion tasks are dropped, so that they don't run at the end of
+     * the next snapshot as if the failed one had completed.
+     */
+    public static void closeTargetsAndRunCompletionTasks(Collection<SnapshotDataTarget> targets)
+            throws IOException, InterruptedException {
+        try {
+            for (final SnapshotDataTarget t : targets) {
+                t.close();
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            m_tasksOnSnapshotCompletion.clear();
+            throw e;
+        }
+
+        Runnable r = null;
+        while ((r = m_tasksOnSnapshotCompletion.poll()) != null) {
+            try {
+                r.run();
+            } catch (Exception e) {
+                SNAP_LOG.error("Error running snapshot completion task", e);
+            }
+        }
+    }
+
     /*
      * Random tasks performed on each site after the snapshot tasks are finished but
      * before the snapshot transaction is finished.
@@ -685,25 +711,14 @@ public class SnapshotSiteProcessor {
                                     return;
                                 }
                             }
-                            for (final SnapshotDataTarget t : snapshotTargets) {
-                                try {
-                                    t.close();
-                                } catch (IOException e) {
-                                    snapshotSucceeded = false;
-                                    throw new RuntimeException(e);
-                                } catch (InterruptedException e) {
-                                    snapshotSucceeded = false;
-                                    throw new RuntimeException(e);
-                                }
-                            }
-
-                            Runnable r = null;
-                            while ((r = m_tasksOnSnapshotCompletion.poll()) != null) {
-                                try {
-                                    r.run();
-                                } catch (Exception e) {
-                                    SNAP_LOG.error("Error running snapshot completion task", e);
-                                }
+                            try {
+                                closeTargetsAndRunCompletionTasks(snapshotTargets);
+                            } catch (IOException e) {
+                                snapshotSucceeded = false;
+                                throw new RuntimeException(e);
+                            } catch (InterruptedException e) {
+                                snapshotSucceeded = false;
+                                throw new RuntimeException(e);
                             }
                         } finally {
                             // Caching the value here before the site removes itself from the
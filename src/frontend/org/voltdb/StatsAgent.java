@@ -566,6 +566,12 @@ public class StatsAgent extends OpsAgent
         case GC:
             stats = collectStats(StatsSelector.GC, interval);
             break;
+        case MPREADPOOL:
+            stats = collectStats(StatsSelector.MPREADPOOL, interval);
+            break;
+        case LARGEQUERYSPILL:
+            stats = collectStats(StatsSelector.LARGEQUERYSPILL, interval);
+            break;
         default:
             // Should have been successfully groomed in collectStatsImpl().  Log something
             // for our information but let the null check below return harmlessly
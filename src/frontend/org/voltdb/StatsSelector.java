@@ -60,5 +60,7 @@ public enum StatsSelector {
     GC,             // return GC Stats
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
-    IMPORTER
+    IMPORTER,
+    MPREADPOOL,     // return size changes of the MP read-only site pool
+    LARGEQUERYSPILL // return large query block spill statistics per site
 }
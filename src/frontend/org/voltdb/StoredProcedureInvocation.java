@@ -72,6 +72,7 @@ public class StoredProcedureInvocation implements JSONString {
 
     private int m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
     private boolean m_allPartition = false;
+    private boolean m_streamResults = false;
 
     public StoredProcedureInvocation getShallowCopy()
     {
@@ -92,6 +93,7 @@ public class StoredProcedureInvocation implements JSONString {
 
         copy.m_batchTimeout = m_batchTimeout;
         copy.m_allPartition = m_allPartition;
+        copy.m_streamResults = m_streamResults;
 
         return copy;
     }
@@ -185,6 +187,14 @@ public class StoredProcedureInvocation implements JSONString {
         return m_allPartition;
     }
 
+    public void setStreamResults(boolean streamResults) {
+        m_streamResults = streamResults;
+    }
+
+    public boolean getStreamResults() {
+        return m_streamResults;
+    }
+
     /** Read into an serialized parameter buffer to extract a single parameter */
     Object getParameterAtIndex(int partitionIndex) {
         try {
@@ -214,6 +224,7 @@ public class StoredProcedureInvocation implements JSONString {
         int batchExtensionSize = m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT ? 6 : 0;
         // 2 is one byte for ext type, one for size
         int allPartitionExtensionSize = m_allPartition ? 2 : 0;
+        int streamResultsExtensionSize = m_streamResults ? 2 : 0;
 
         // compute the size
         int size =
@@ -221,7 +232,7 @@ public class StoredProcedureInvocation implements JSONString {
             4 + getProcNameBytes().length + // procname
             8 + // client handle
             1 + // extension count
-            batchExtensionSize + allPartitionExtensionSize + // extensions
+            batchExtensionSize + allPartitionExtensionSize + streamResultsExtensionSize + // extensions
             getSerializedParamSize(); // parameters
         assert(size > 0); // sanity
 
@@ -313,10 +324,11 @@ public class StoredProcedureInvocation implements JSONString {
 
         buf.putLong(clientHandle);
 
-        // there are two possible extensions, count which apply
+        // there are three possible extensions, count which apply
         byte extensionCount = 0;
         if (m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT) ++extensionCount;
         if (m_allPartition) ++extensionCount;
+        if (m_streamResults) ++extensionCount;
         // write the count as one byte
         buf.put(extensionCount);
         // write any extensions that apply
@@ -326,6 +338,9 @@ public class StoredProcedureInvocation implements JSONString {
         if (m_allPartition) {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
+        if (m_streamResults) {
+            ProcedureInvocationExtensions.writeStreamResultsWithTypeByte(buf);
+        }
 
         serializeParams(buf);
 
@@ -399,6 +414,7 @@ public class StoredProcedureInvocation implements JSONString {
         // set these to defaults so old versions don't worry about them
         m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
         m_allPartition = false;
+        m_streamResults = false;
 
         switch (type) {
             case ORIGINAL:
@@ -481,6 +497,9 @@ public class StoredProcedureInvocation implements JSONString {
                 // note this always returns true as it's just a flag
                 m_allPartition = ProcedureInvocationExtensions.readAllPartition(buf);
                 break;
+            case ProcedureInvocationExtensions.STREAM_RESULTS:
+                m_streamResults = ProcedureInvocationExtensions.readStreamResults(buf);
+                break;
             default:
                 ProcedureInvocationExtensions.skipUnknownExtension(buf);
                 break;
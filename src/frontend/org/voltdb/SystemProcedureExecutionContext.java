@@ -95,6 +95,8 @@ public interface SystemProcedureExecutionContext {
 
     boolean activateTableStream(int tableId, TableStreamType type, boolean undo, byte[] predicates);
 
+    long getTableChangeCount(int tableId);
+
     public void forceAllDRNodeBuffersToDisk(final boolean nofsync);
 
     public DRIdempotencyResult isExpectedApplyBinaryLog(int producerClusterId, int producerPartitionId,
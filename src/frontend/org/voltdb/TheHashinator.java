@@ -163,6 +163,23 @@ public abstract class TheHashinator {
      */
     abstract public int pHashinateLong(long value);
     abstract public int pHashinateBytes(byte[] bytes);
+
+    /**
+     * Batch versions of {@link #pHashinateLong(long)} and {@link #pHashinateBytes(byte[])}
+     * which fill in the partitions of the first count values. A Long.MIN_VALUE or null
+     * value goes to partition 0, like a null parameter.
+     */
+    public void pHashinateLongs(long[] values, int[] partitions, int count) {
+        for (int ii = 0; ii < count; ii++) {
+            partitions[ii] = values[ii] == Long.MIN_VALUE ? 0 : pHashinateLong(values[ii]);
+        }
+    }
+
+    public void pHashinateBytes(byte[][] values, int[] partitions, int count) {
+        for (int ii = 0; ii < count; ii++) {
+            partitions[ii] = hashinateBytes(values[ii]);
+        }
+    }
     abstract public long pGetConfigurationSignature();
     abstract public HashinatorConfig pGetCurrentConfig();
     abstract public Map<Integer, Integer> pPredecessors(int partition);
@@ -232,6 +249,32 @@ public abstract class TheHashinator {
         return instance.get().getSecond().getHashedPartitionForParameter(partitionType, invocationParameter);
     }
 
+    /**
+     * Route a column of integer partition values at once, all with the same hashinator
+     * even if it is updated meanwhile. The values have to be widened to long, with nulls
+     * passed as Long.MIN_VALUE.
+     *
+     * @param values The values to hash.
+     * @param partitions Receives the partition of each value.
+     * @param count The number of values to hash.
+     */
+    public static void getPartitionsForLongs(long[] values, int[] partitions, int count) {
+        instance.get().getSecond().pHashinateLongs(values, partitions, count);
+    }
+
+    /**
+     * Route a column of string or varbinary partition values at once, all with the same
+     * hashinator even if it is updated meanwhile. Strings have to be UTF-8 encoded, nulls
+     * are passed as null.
+     *
+     * @param values The values to hash.
+     * @param partitions Receives the partition of each value.
+     * @param count The number of values to hash.
+     */
+    public static void getPartitionsForBytes(byte[][] values, int[] partitions, int count) {
+        instance.get().getSecond().pHashinateBytes(values, partitions, count);
+    }
+
     /**
      * Given the type of the targeting partition parameter and an object,
      * coerce the object to the correct type and hash it.
@@ -28,6 +28,8 @@ import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderSuccessCallback;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  <p>
  *  A <code>Client</code> that connects to one or more nodes in a volt cluster
@@ -153,6 +155,53 @@ public interface Client {
     public boolean callProcedureWithTimeout(ProcedureCallback callback, int queryTimeout, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure and get a future for its response. The future completes
+     * with the {@link ClientResponse} when the procedure succeeds and fails with a
+     * {@link ProcCallException} if the response is anything other than success, including when
+     * the request could not be queued. Follows the same backpressure rules as
+     * {@link #callProcedure(ProcedureCallback, String, Object...)}.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the response of the invocation.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
+    /**
+     * <p>Asynchronously invoke a procedure and iterate over the tables of its results as they
+     * arrive. The server streams the results of multi-partition <code>@AdHoc</code> reads whose
+     * partition results need no merging, ordering or aggregation, one table per partition,
+     * so the whole result never has to be held in one response. The results of any other
+     * invocation arrive with the response.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return {@link ResultChunkIterator} over the tables of results.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ResultChunkIterator callProcedureWithStreamedResults(String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
+    /**
+     * <p>Asynchronously invoke all the procedures in a {@link ProcedureBatch}. Invocations routed to the
+     * same server are written to the network together. Responses are delivered to the callbacks, or
+     * futures, registered with the batch. If there is backpressure on any of the servers the batch
+     * goes to, this call will block until the whole batch can be queued. If configureBlocking(false)
+     * is invoked then it will return immediately without queueing any of the batch.</p>
+     *
+     * @param batch invocations to submit.
+     * @return <code>true</code> if the batch was queued and <code>false</code> otherwise.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public boolean callProcedureBatch(ProcedureBatch batch)
+    throws IOException, NoConnectionsException;
+
     /**
      * <p>Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
@@ -583,4 +632,48 @@ public interface Client {
      */
     public boolean callAllPartitionProcedure(AllPartitionProcedureCallback callback, String procedureName, Object... params)
             throws IOException, NoConnectionsException, ProcCallException;
+
+    /**
+     * <p>Find the partitions that a batch of integer partition values hash to, the same ones
+     * the client routes single partition procedure invocations to. The values are hashed
+     * without boxing, which makes it cheap to group the rows of a large batch by partition
+     * before sending them.</p>
+     *
+     * <p>The client only knows the partitioning of the cluster when topology awareness or
+     * client affinity is enabled in its {@link ClientConfig}, and after it has received the
+     * hashinator configuration from the cluster.</p>
+     *
+     * @param values Partition values of a TINYINT, SMALLINT, INTEGER or BIGINT column widened to long.
+     * {@link Long#MIN_VALUE} is the null value.
+     * @param partitions Array that receives the partition id of each value.
+     * @param count Number of values to route from the start of the arrays.
+     * @return <code>false</code> if the client doesn't know the partitioning yet, in which case
+     * <code>partitions</code> is left unchanged, and <code>true</code> otherwise.
+     */
+    public boolean getPartitionsForLongs(long[] values, int[] partitions, int count);
+
+    /**
+     * <p>Find the partitions that a batch of VARCHAR partition values hash to. Strings made
+     * of ASCII characters are copied into a scratch buffer reused for the whole batch instead
+     * of being encoded into a new byte array each.</p>
+     *
+     * @param values Partition values, null entries are the null value.
+     * @param partitions Array that receives the partition id of each value.
+     * @param count Number of values to route from the start of the arrays.
+     * @return <code>false</code> if the client doesn't know the partitioning yet.
+     * @see #getPartitionsForLongs(long[], int[], int)
+     */
+    public boolean getPartitionsForStrings(String[] values, int[] partitions, int count);
+
+    /**
+     * <p>Find the partitions that a batch of VARBINARY partition values, or of UTF-8 encoded
+     * VARCHAR partition values, hash to.</p>
+     *
+     * @param values Partition values, null entries are the null value.
+     * @param partitions Array that receives the partition id of each value.
+     * @param count Number of values to route from the start of the arrays.
+     * @return <code>false</code> if the client doesn't know the partitioning yet.
+     * @see #getPartitionsForLongs(long[], int[], int)
+     */
+    public boolean getPartitionsForBytes(byte[][] values, int[] partitions, int count);
 }
@@ -67,6 +67,7 @@ public class ClientConfig {
     boolean m_sendReadsToReplicasBytDefaultIfCAEnabled = false;
     SslConfig m_sslConfig;
     boolean m_topologyChangeAware = false;
+    boolean m_lazyResponseDecoding = false;
     boolean m_enableSSL = false;
     String m_sslPropsFile = null;
 
@@ -380,6 +381,21 @@ public class ClientConfig {
         m_sendReadsToReplicasBytDefaultIfCAEnabled = on;
     }
 
+    /**
+     * <p>Defer deserializing the result tables of a response until
+     * {@link ClientResponse#getResults()} is first called. Clients that mostly check
+     * the status of responses, or only read results for some of them, avoid creating
+     * the tables for the others, which lowers garbage collection overhead at high call rates.</p>
+     *
+     * <p>A response decoded this way keeps the whole message buffer it was read from
+     * until it is no longer referenced.</p>
+     *
+     * @param on Enable or disable lazy decoding of results. Default is off.
+     */
+    public void setLazyResponseDecoding(boolean on) {
+        m_lazyResponseDecoding = on;
+    }
+
     /**
      * <p>Attempts to reconnect to a node with retry after connection loss. See the {@link ReconnectStatusListener}.</p>
      *
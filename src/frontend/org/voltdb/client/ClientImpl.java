@@ -22,6 +22,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +53,7 @@ import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 
 /**
  *  A client that connects to one or more nodes in a VoltCluster
@@ -145,6 +148,7 @@ public final class ClientImpl implements Client {
         }
         m_username = username;
         m_distributer.setTopologyChangeAware(config.m_topologyChangeAware);
+        m_distributer.setLazyResponseDecoding(config.m_lazyResponseDecoding);
         if (config.m_topologyChangeAware) {
             m_ex = Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Topoaware thread"));
         }
@@ -422,6 +426,108 @@ public final class ClientImpl implements Client {
         return internalAsyncCallProcedure(callback, clientTimeoutUnit.toNanos(clientTimeout), invocation);
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(
+            String procName,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        ProcedureBatch.FutureCallback callback = new ProcedureBatch.FutureCallback();
+        if (!callProcedure(callback, procName, parameters)) {
+            callback.clientCallback(new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    "Unable to queue client request."));
+        }
+        return callback.getFuture();
+    }
+
+    @Override
+    public ResultChunkIterator callProcedureWithStreamedResults(
+            String procName,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        if (m_isShutdown) {
+            throw new NoConnectionsException("Client instance is shutdown");
+        }
+        ResultChunkIterator callback = new ResultChunkIterator();
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation
+            = new ProcedureInvocation(handle, BatchTimeoutOverrideType.NO_TIMEOUT, false, true, procName, parameters);
+        if (!internalAsyncCallProcedure(callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation)) {
+            callback.clientCallback(new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    "Unable to queue client request."));
+        }
+        return callback;
+    }
+
+    @Override
+    public boolean callProcedureBatch(ProcedureBatch batch)
+            throws IOException, NoConnectionsException
+    {
+        if (m_isShutdown) {
+            return false;
+        }
+        if (batch.size() == 0) {
+            return true;
+        }
+
+        final List<ProcedureInvocation> invocations = new ArrayList<>(batch.size());
+        final List<ProcedureCallback> callbacks = new ArrayList<>(batch.size());
+        for (ProcedureBatch.Entry entry : batch.getEntries()) {
+            invocations.add(new ProcedureInvocation(m_handle.getAndIncrement(),
+                    BatchTimeoutOverrideType.NO_TIMEOUT, false, entry.m_procName, entry.m_parameters));
+            callbacks.add(entry.m_callback);
+        }
+
+        final long nowNanos = System.nanoTime();
+        //Blessed threads (the ones that invoke callbacks) are not subject to backpressure
+        boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+        while (!m_distributer.queueBatch(invocations, callbacks, isBlessed, nowNanos,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT)) {
+            if ( ! m_blockingQueue) {
+                return false;
+            }
+
+            /*
+             * Wait on backpressure honoring the default timeout
+             */
+            final long delta = Math.max(1, System.nanoTime() - nowNanos);
+            final long timeout = m_distributer.getProcedureTimeoutNanos();
+            try {
+                if (backpressureBarrier(nowNanos, timeout - delta)) {
+                    final ClientResponse response = new ClientResponseImpl(
+                            ClientResponse.CONNECTION_TIMEOUT,
+                            ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                            "",
+                            new VoltTable[0],
+                            String.format("No response received in the allotted time (set to %d ms).",
+                                    TimeUnit.NANOSECONDS.toMillis(timeout)));
+                    for (ProcedureCallback callback : callbacks) {
+                        try {
+                            callback.clientCallback(response);
+                        }
+                        catch (Throwable thrown) {
+                            m_distributer.uncaughtException(callback, response, thrown);
+                        }
+                    }
+                    return true;
+                }
+            }
+            catch (InterruptedException e) {
+                throw new java.io.InterruptedIOException("Interrupted while invoking procedure batch asynchronously");
+            }
+        }
+        return true;
+    }
+
     @Deprecated
     @Override
     public int calculateInvocationSerializedSize(
@@ -1009,6 +1115,31 @@ public final class ClientImpl implements Client {
 
     }
 
+    //Hidden method for getPartitionForLong
+    public long getPartitionForLong(long value) {
+        return m_distributer.getPartitionForLong(value);
+    }
+
+    //Hidden method for getPartitionForBytes
+    public long getPartitionForBytes(ByteBuffer buf, int offset, int length) {
+        return m_distributer.getPartitionForBytes(buf, offset, length);
+    }
+
+    @Override
+    public boolean getPartitionsForLongs(long[] values, int[] partitions, int count) {
+        return m_distributer.getPartitionsForLongs(values, partitions, count);
+    }
+
+    @Override
+    public boolean getPartitionsForStrings(String[] values, int[] partitions, int count) {
+        return m_distributer.getPartitionsForStrings(values, partitions, count);
+    }
+
+    @Override
+    public boolean getPartitionsForBytes(byte[][] values, int[] partitions, int count) {
+        return m_distributer.getPartitionsForBytes(values, partitions, count);
+    }
+
     @Override
     public VoltBulkLoader getNewBulkLoader(String tableName, int maxBatchSize, boolean upsertMode, BulkLoaderFailureCallBack failureCallback) throws Exception
     {
@@ -94,6 +94,13 @@ public interface ClientResponse {
      */
     public static final byte TXN_MISROUTED = -11;
 
+    /**
+     * Status code indicating that the response holds one chunk of the results of an invocation
+     * which asked for its results to be streamed. More chunks and then the final response follow.
+     * These are consumed by the client library and shouldn't leak out to callbacks.
+     */
+    public static final byte RESULT_CHUNK = 2;
+
     /**
      * Default value for the user specified app status code field
      */
@@ -33,8 +33,6 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -157,6 +155,9 @@ class Distributer {
     private AtomicBoolean m_createConnectionUponTopoChangeInProgress = new AtomicBoolean(false);
     private boolean m_topologyChangeAware;
 
+    // Defer creating result tables until a callback asks for them
+    private boolean m_lazyResponseDecoding = false;
+
     //private final Timer m_timer;
     private final ScheduledExecutorService m_ex =
         Executors.newSingleThreadScheduledExecutor(
@@ -346,9 +347,11 @@ class Distributer {
                     }
 
                     // for each outstanding procedure
-                    for (final Map.Entry<Long, CallbackBookeeping> e : c.m_callbacks.entrySet()) {
-                        final long handle = e.getKey();
-                        final CallbackBookeeping cb = e.getValue();
+                    for (final long handle : c.m_callbacks.handles()) {
+                        final CallbackBookeeping cb = c.m_callbacks.get(handle);
+                        if (cb == null) {
+                            continue;
+                        }
 
                         // if the timeout is expired, call the callback and remove the
                         // bookeeping data
@@ -407,7 +410,7 @@ class Distributer {
 
     class NodeConnection extends VoltProtocolHandler implements org.voltcore.network.QueueMonitor {
         private final AtomicInteger m_callbacksToInvoke = new AtomicInteger(0);
-        private final ConcurrentMap<Long, CallbackBookeeping> m_callbacks = new ConcurrentHashMap<>();
+        private final StripedHandleMap<CallbackBookeeping> m_callbacks = new StripedHandleMap<>();
         private final NonBlockingHashMap<String, ClientStats> m_stats = new NonBlockingHashMap<>();
         private Connection m_connection;
         private volatile boolean m_isConnected = true;
@@ -426,6 +429,54 @@ class Distributer {
          */
         public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
+            if (registerWork(nowNanos, handle, name, callback, ignoreBackpressure, timeoutNanos)) {
+                m_connection.writeStream().enqueue(c);
+            }
+        }
+
+        /**
+         * Register a batch of invocations and write all of those that were accepted
+         * to the connection as a single buffer, so the whole batch costs one enqueue
+         * and typically one write.
+         */
+        public void createBatchWork(final long nowNanos, List<ProcedureInvocation> invocations,
+                List<ProcedureCallback> callbacks, boolean ignoreBackpressure, long timeoutNanos) {
+            assert(invocations.size() == callbacks.size());
+            final List<ProcedureInvocation> accepted = new ArrayList<>(invocations.size());
+            int size = 0;
+            for (int ii = 0; ii < invocations.size(); ii++) {
+                final ProcedureInvocation invocation = invocations.get(ii);
+                if (registerWork(nowNanos, invocation.getHandle(), invocation.getProcName(), callbacks.get(ii),
+                        ignoreBackpressure, timeoutNanos)) {
+                    accepted.add(invocation);
+                    size += 4 + invocation.getSerializedSize();
+                }
+            }
+            if (accepted.isEmpty()) {
+                return;
+            }
+
+            final ByteBuffer buf = ByteBuffer.allocate(size);
+            try {
+                for (ProcedureInvocation invocation : accepted) {
+                    buf.putInt(invocation.getSerializedSize());
+                    invocation.flattenToBuffer(buf);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            buf.flip();
+            m_connection.writeStream().enqueue(buf);
+        }
+
+        /**
+         * Do the bookkeeping for an invocation about to be written to this connection.
+         *
+         * @return true if the invocation should be written, false if its callback has
+         * already been invoked because it timed out waiting for permits or the connection was lost
+         */
+        private boolean registerWork(final long nowNanos, long handle, String name,
+                ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
             assert(callback != null);
 
             //How long from the starting point in time to wait to get this stuff done
@@ -453,7 +504,7 @@ class Distributer {
                  */
                 final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
                     invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
-                return;
+                return false;
             }
 
             assert(m_callbacks.containsKey(handle) == false);
@@ -480,7 +531,7 @@ class Distributer {
             if (!m_isConnected) {
                 //Check if the disconnect or expiration already handled the callback
                 if (m_callbacks.remove(handle) == null) {
-                    return;
+                    return false;
                 }
                 final ClientResponse r = new ClientResponseImpl(
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
@@ -498,10 +549,9 @@ class Distributer {
 
                 //for bookkeeping, but it feels dishonest to call this here
                 m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
-                return;
-            } else {
-                m_connection.writeStream().enqueue(c);
+                return false;
             }
+            return true;
         }
 
         /*
@@ -636,7 +686,7 @@ class Distributer {
             long nowNanos = System.nanoTime();
             ClientResponseImpl response = new ClientResponseImpl();
             try {
-                response.initFromBuffer(buf);
+                response.initFromBuffer(buf, m_lazyResponseDecoding);
             } catch (IOException e1) {
                 // TODO Auto-generated catch block
                 e1.printStackTrace();
@@ -675,6 +725,20 @@ class Distributer {
                 return;
             }
 
+            // chunks of streamed results come ahead of the response, leave the callback
+            // in the map for it
+            if (response.getStatus() == ClientResponse.RESULT_CHUNK) {
+                final CallbackBookeeping stuff = m_callbacks.get(handle);
+                if (stuff != null && stuff.callback instanceof ResultChunkCallback) {
+                    try {
+                        ((ResultChunkCallback) stuff.callback).chunkCallback(response);
+                    } catch (Exception e) {
+                        uncaughtException(stuff.callback, response, e);
+                    }
+                }
+                return;
+            }
+
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
             final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
@@ -836,12 +900,12 @@ class Distributer {
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
                 ") was lost before a response was received");
-            for (Map.Entry<Long, CallbackBookeeping> e : m_callbacks.entrySet()) {
+            for (long handle : m_callbacks.handles()) {
                 //Check for race with other threads
-                if (m_callbacks.remove(e.getKey()) == null) {
+                final CallbackBookeeping callBk = m_callbacks.remove(handle);
+                if (callBk == null) {
                     continue;
                 }
-                final CallbackBookeeping callBk = e.getValue();
                 try {
                     callBk.callback.clientCallback(r);
                 }
@@ -1155,106 +1219,16 @@ class Distributer {
                 throw new NoConnectionsException("No connections.");
             }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
-                Procedure procedureInfo = null;
-                if (procedures != null) {
-                    procedureInfo = procedures.get(invocation.getProcName());
-                }
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (( ! procedureInfo.multiPart) &&
-                        // User may have passed too few parameters to allow dispatching.
-                        // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
-                    }
-                    /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
-                                }
-                            }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
-                        }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
-                            backpressure = false;
-                        }
-                    }
-                }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
-                }
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
-                }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
-                    }
-                }
-                // account these here because we lose the partition ID and procedure info once we
-                // bust out of this scope.
-                else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
-                }
-            }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
-                }
-            }
+            final Route route = selectConnection(invocation, ignoreBackpressure);
+            cxn = route.m_cxn;
+            backpressure = (cxn == null);
 
             if (backpressure) {
-                cxn = null;
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.backpressure(true);
                 }
+            } else {
+                route.count();
             }
         }
 
@@ -1267,7 +1241,7 @@ class Distributer {
             try {
                 buf = serializeSPI(invocation);
             } catch (Exception e) {
-                Throwables.propagate(e);
+                throw new RuntimeException(e);
             }
             cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
         }
@@ -1277,6 +1251,199 @@ class Distributer {
         return !backpressure;
     }
 
+    /**
+     * Connection picked for an invocation, and the client affinity statistics to count
+     * once the invocation is actually queued on it.
+     */
+    private static final class Route {
+        // null if the chosen connections have backpressure
+        NodeConnection m_cxn;
+        ClientAffinityStats m_stats;
+        boolean m_readOnly;
+        boolean m_affinity;
+
+        void count() {
+            if (m_stats == null) {
+                return;
+            }
+            if (m_affinity) {
+                if (m_readOnly) {
+                    m_stats.addAffinityRead();
+                }
+                else {
+                    m_stats.addAffinityWrite();
+                }
+            }
+            else {
+                if (m_readOnly) {
+                    m_stats.addRrRead();
+                }
+                else {
+                    m_stats.addRrWrite();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick the connection an invocation should be sent to, using client affinity when the
+     * topology is known and round robin otherwise. Must be called holding the Distributer lock.
+     * The affinity statistics are not counted, the caller counts the route once the invocation
+     * is queued so that backpressure retries are not counted again.
+     */
+    private Route selectConnection(ProcedureInvocation invocation, boolean ignoreBackpressure) {
+        final Route route = new Route();
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (m_hashinator != null)) {
+            final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
+            Procedure procedureInfo = null;
+            if (procedures != null) {
+                procedureInfo = procedures.get(invocation.getProcName());
+            }
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (( ! procedureInfo.multiPart) &&
+                    // User may have passed too few parameters to allow dispatching.
+                    // Avoid an indexing error here to fall through to the proper ProcCallException.
+                        (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
+                    hashedPartition = m_hashinator.getHashedPartitionForParameter(
+                            procedureInfo.partitionParameterType,
+                            invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+                }
+                /*
+                 * If the procedure is read only and single part and the user wants it, load balance across replicas
+                 * This is probably slower for SAFE consistency.
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                    NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
+                        if (cxn.hadBackPressure()) {
+                            //See if there is one without backpressure, make sure it's still connected
+                            for (NodeConnection nc : partitionReplicas) {
+                                if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    cxn = nc;
+                                    break;
+                                }
+                            }
+                        }
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                            backpressure = false;
+                        }
+                    }
+                } else {
+                    /*
+                     * For writes or SAFE reads, this is the best way to go
+                     */
+                    cxn = m_partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
+                    }
+                }
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
+                m_clientAffinityStats.put(hashedPartition, stats);
+            }
+            // account these here because we lose the partition ID and procedure info once we
+            // bust out of this scope.
+            route.m_stats = stats;
+            route.m_readOnly = procedureInfo != null && procedureInfo.readOnly;
+            route.m_affinity = cxn != null;
+        }
+        if (cxn == null) {
+            final int totalConnections = m_connections.size();
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
+                }
+            }
+        }
+        route.m_cxn = backpressure ? null : cxn;
+        return route;
+    }
+
+    /**
+     * Queue a batch of invocations. Each invocation is routed as it would be by
+     * {@link #queue(ProcedureInvocation, ProcedureCallback, boolean, long, long)}, then
+     * the invocations going to the same connection are serialized into one buffer.
+     * Either the whole batch is queued or, if one of the connections it needs has
+     * backpressure, none of it is.
+     *
+     * @return True if the batch was queued and false if it was not queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean queueBatch(
+            List<ProcedureInvocation> invocations,
+            List<ProcedureCallback> callbacks,
+            final boolean ignoreBackpressure, final long nowNanos, final long timeoutNanos)
+            throws NoConnectionsException {
+        assert(invocations.size() == callbacks.size());
+
+        final Map<NodeConnection, Pair<List<ProcedureInvocation>, List<ProcedureCallback>>> work = new HashMap<>();
+        synchronized (this) {
+            if (m_connections.isEmpty()) {
+                throw new NoConnectionsException("No connections.");
+            }
+
+            boolean backpressure = false;
+            final List<Route> routes = new ArrayList<>(invocations.size());
+            for (int ii = 0; ii < invocations.size(); ii++) {
+                // Route ignoring backpressure so the batch doesn't scatter onto other connections
+                final Route route = selectConnection(invocations.get(ii), true);
+                routes.add(route);
+                final NodeConnection cxn = route.m_cxn;
+                backpressure |= cxn.hadBackPressure();
+                Pair<List<ProcedureInvocation>, List<ProcedureCallback>> forConnection = work.get(cxn);
+                if (forConnection == null) {
+                    forConnection = Pair.<List<ProcedureInvocation>, List<ProcedureCallback>>of(
+                            new ArrayList<ProcedureInvocation>(), new ArrayList<ProcedureCallback>());
+                    work.put(cxn, forConnection);
+                }
+                forConnection.getFirst().add(invocations.get(ii));
+                forConnection.getSecond().add(callbacks.get(ii));
+            }
+
+            if (backpressure && !ignoreBackpressure) {
+                for (ClientStatusListenerExt s : m_listeners) {
+                    s.backpressure(true);
+                }
+                return false;
+            }
+            // Only count the batch once it is queued, it is routed again when it is retried
+            for (Route route : routes) {
+                route.count();
+            }
+        }
+
+        for (Map.Entry<NodeConnection, Pair<List<ProcedureInvocation>, List<ProcedureCallback>>> e : work.entrySet()) {
+            e.getKey().createBatchWork(nowNanos, e.getValue().getFirst(), e.getValue().getSecond(),
+                    ignoreBackpressure, timeoutNanos);
+        }
+        if (m_topologyChangeAware) {
+            createConnectionsUponTopologyChange();
+        }
+        return true;
+    }
+
     /**
      * Shutdown the VoltNetwork allowing the Ports to close and free resources
      * like memory pools
@@ -1541,6 +1708,66 @@ class Distributer {
         return m_hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
+    /**
+     * Typed variant of {@link #getPartitionForParameter(byte, Object)} for integer values.
+     */
+    public long getPartitionForLong(long value) {
+        if (m_hashinator == null) {
+            return -1;
+        }
+        return m_hashinator.getHashedPartitionForLong(value);
+    }
+
+    /**
+     * Variant of {@link #getPartitionForParameter(byte, Object)} for string or varbinary
+     * values already serialized in a buffer.
+     */
+    public long getPartitionForBytes(ByteBuffer buf, int offset, int length) {
+        if (m_hashinator == null) {
+            return -1;
+        }
+        return m_hashinator.getHashedPartitionForBytes(buf, offset, length);
+    }
+
+    /**
+     * Batch variant of {@link #getPartitionForLong(long)}.
+     * @return false if there is no hashinator, partitions is left unchanged
+     */
+    public boolean getPartitionsForLongs(long[] values, int[] partitions, int count) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            return false;
+        }
+        hashinator.getHashedPartitionsForLongs(values, partitions, count);
+        return true;
+    }
+
+    /**
+     * Batch variant of {@link #getPartitionForParameter(byte, Object)} for string values.
+     * @return false if there is no hashinator, partitions is left unchanged
+     */
+    public boolean getPartitionsForStrings(String[] values, int[] partitions, int count) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            return false;
+        }
+        hashinator.getHashedPartitionsForStrings(values, partitions, count);
+        return true;
+    }
+
+    /**
+     * Batch variant of {@link #getPartitionForParameter(byte, Object)} for varbinary values.
+     * @return false if there is no hashinator, partitions is left unchanged
+     */
+    public boolean getPartitionsForBytes(byte[][] values, int[] partitions, int count) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            return false;
+        }
+        hashinator.getHashedPartitionsForBytes(values, partitions, count);
+        return true;
+    }
+
     private ByteBuffer serializeSPI(ProcedureInvocation pi) throws IOException {
         ByteBuffer buf = ByteBuffer.allocate(pi.getSerializedSize() + 4);
         buf.putInt(buf.capacity() - 4);
@@ -1603,6 +1830,10 @@ class Distributer {
         m_topologyChangeAware = topoAware;
     }
 
+    void setLazyResponseDecoding(boolean lazy) {
+        m_lazyResponseDecoding = lazy;
+    }
+
     void createConnectionsUponTopologyChange() {
 
         if(!m_topologyChangeAware || m_createConnectionUponTopoChangeInProgress.get()) {
@@ -27,6 +27,7 @@ import org.voltcore.utils.Bits;
 import org.voltcore.utils.Pair;
 import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
+import org.voltdb.common.Constants;
 
 import com.google_voltpatches.common.base.Preconditions;
 
@@ -194,10 +195,7 @@ public class HashinatorLite {
             return 0;
         }
 
-        ByteBuffer buf = ByteBuffer.wrap(bytes);
-        final int hash = MurmurHash3.hash3_x64_128(buf, 0, bytes.length, 0);
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        return getHashedPartitionForBytes(ByteBuffer.wrap(bytes), 0, bytes.length);
     }
 
     private long getTokenPtr(int hash) {
@@ -270,6 +268,93 @@ public class HashinatorLite {
         return hashToPartition(partitionParamType, partitionValue);
     }
 
+    /**
+     * Partition for an integer partition value. Same result as
+     * {@link #getHashedPartitionForParameter(int, Object)} without boxing the value.
+     * Long.MIN_VALUE is the null value and maps to partition 0.
+     */
+    public int getHashedPartitionForLong(long value) {
+        return hashinateLong(value);
+    }
+
+    /**
+     * Partition for a non-null string or varbinary partition value which is already
+     * serialized in the given buffer, UTF-8 encoded for strings. Same result as
+     * {@link #getHashedPartitionForParameter(int, Object)} without copying the bytes out.
+     */
+    public int getHashedPartitionForBytes(ByteBuffer buf, int offset, int length) {
+        return partitionForToken(MurmurHash3.hash3_x64_128(buf, offset, length, 0));
+    }
+
+    /**
+     * Partitions for a batch of integer partition values, same results as
+     * {@link #getHashedPartitionForParameter(int, Object)} on each value without boxing.
+     * Long.MIN_VALUE is the null value and maps to partition 0.
+     *
+     * @param values The values, widened to long
+     * @param partitions Receives the partition of each value
+     * @param count Number of values to route from the start of the arrays
+     */
+    public void getHashedPartitionsForLongs(long[] values, int[] partitions, int count) {
+        for (int i = 0; i < count; i++) {
+            partitions[i] = getHashedPartitionForLong(values[i]);
+        }
+    }
+
+    /**
+     * Partitions for a batch of varbinary partition values, or of strings already UTF-8
+     * encoded. A null value maps to partition 0.
+     *
+     * @see #getHashedPartitionsForLongs(long[], int[], int)
+     */
+    public void getHashedPartitionsForBytes(byte[][] values, int[] partitions, int count) {
+        for (int i = 0; i < count; i++) {
+            final byte[] value = values[i];
+            partitions[i] = value == null ? 0 : getHashedPartitionForBytes(ByteBuffer.wrap(value), 0, value.length);
+        }
+    }
+
+    /**
+     * Partitions for a batch of string partition values. Strings made of ASCII characters
+     * are copied one after another into a scratch buffer which is reused for the whole batch,
+     * only strings with non-ASCII characters are encoded into a new array. A null value maps
+     * to partition 0.
+     *
+     * @see #getHashedPartitionsForLongs(long[], int[], int)
+     */
+    public void getHashedPartitionsForStrings(String[] values, int[] partitions, int count) {
+        byte[] scratch = new byte[64];
+        ByteBuffer scratchBuf = ByteBuffer.wrap(scratch);
+        for (int i = 0; i < count; i++) {
+            final String value = values[i];
+            if (value == null) {
+                partitions[i] = 0;
+                continue;
+            }
+            final int length = value.length();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+                scratchBuf = ByteBuffer.wrap(scratch);
+            }
+            int ascii = 0;
+            for (; ascii < length; ascii++) {
+                final char c = value.charAt(ascii);
+                if (c >= 0x80) {
+                    break;
+                }
+                scratch[ascii] = (byte) c;
+            }
+            if (ascii == length) {
+                partitions[i] = getHashedPartitionForBytes(scratchBuf, 0, length);
+            }
+            else {
+                // Let the encoder deal with multi-byte characters and unpaired surrogates
+                final byte[] bytes = value.getBytes(Constants.UTF8ENCODING);
+                partitions[i] = getHashedPartitionForBytes(ByteBuffer.wrap(bytes), 0, bytes.length);
+            }
+        }
+    }
+
     // copy and pasted code below from the compression service
     // to avoid linking all that jazz into the client code
 
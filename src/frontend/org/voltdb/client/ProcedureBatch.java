@@ -0,0 +1,119 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.voltdb.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * <p>A group of stored procedure invocations that are submitted together with
+ * {@link Client#callProcedureBatch(ProcedureBatch)}. Invocations that are routed to
+ * the same server are serialized into a single buffer and written with one network
+ * write, which lowers the per call overhead for clients that issue many small
+ * requests at once.</p>
+ *
+ * <p>Each invocation can be given its own {@link ProcedureCallback}, or be added
+ * without one in which case a future is returned that completes with the response.
+ * A batch is not a transaction; every invocation is still executed on its own.</p>
+ *
+ * <p>A batch can only be submitted once and is not thread safe.</p>
+ */
+public class ProcedureBatch {
+
+    static final class Entry {
+        final String m_procName;
+        final Object[] m_parameters;
+        final ProcedureCallback m_callback;
+
+        Entry(String procName, Object[] parameters, ProcedureCallback callback) {
+            m_procName = procName;
+            m_parameters = parameters;
+            m_callback = callback;
+        }
+    }
+
+    private final List<Entry> m_entries = new ArrayList<>();
+
+    /**
+     * Add an invocation whose response will be delivered to the given callback.
+     *
+     * @param callback ProcedureCallback that will be invoked with procedure results.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return this batch
+     */
+    public ProcedureBatch add(ProcedureCallback callback, String procName, Object... parameters) {
+        if (procName == null) {
+            throw new IllegalArgumentException("Procedure name can not be null");
+        }
+        if (callback instanceof ProcedureArgumentCacher) {
+            ((ProcedureArgumentCacher) callback).setArgs(parameters);
+        }
+        m_entries.add(new Entry(procName, parameters, callback == null ? new NullCallback() : callback));
+        return this;
+    }
+
+    /**
+     * Add an invocation and get a future for its response. The future fails with a
+     * {@link ProcCallException} if the response status is anything other than success.
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the response of the invocation
+     */
+    public ListenableFuture<ClientResponse> add(String procName, Object... parameters) {
+        FutureCallback callback = new FutureCallback();
+        add(callback, procName, parameters);
+        return callback.getFuture();
+    }
+
+    /**
+     * @return number of invocations in this batch
+     */
+    public int size() {
+        return m_entries.size();
+    }
+
+    List<Entry> getEntries() {
+        return m_entries;
+    }
+
+    /**
+     * Callback that completes a future with the response of the invocation.
+     */
+    static final class FutureCallback implements ProcedureCallback {
+        private final SettableFuture<ClientResponse> m_future = SettableFuture.create();
+
+        @Override
+        public void clientCallback(ClientResponse response) {
+            if (response.getStatus() == ClientResponse.SUCCESS) {
+                m_future.set(response);
+            } else {
+                m_future.setException(new ProcCallException(response, response.getStatusString(), null));
+            }
+        }
+
+        ListenableFuture<ClientResponse> getFuture() {
+            return m_future;
+        }
+    }
+}
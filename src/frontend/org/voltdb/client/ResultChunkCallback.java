@@ -0,0 +1,34 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+/**
+ * Callback for an invocation which asked for its results to be streamed. Besides the
+ * response, it receives the chunks of results the server sends ahead of the response.
+ */
+public interface ResultChunkCallback extends ProcedureCallback {
+
+    /**
+     * Invoked with every chunk of results, in the order they were sent, before
+     * {@link #clientCallback} is invoked with the response.
+     *
+     * @param chunk Response with status {@link ClientResponse#RESULT_CHUNK} holding one table of results
+     * @throws Exception on any Exception.
+     */
+    public void chunkCallback(ClientResponse chunk) throws Exception;
+}
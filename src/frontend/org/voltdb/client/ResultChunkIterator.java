@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+/**
+ * <p>Iterates over the tables of results of an invocation which asked for its results to be
+ * streamed, as returned by {@link Client#callProcedureWithStreamedResults(String, Object...)}.
+ * The tables are returned in the order they arrive, the ones streamed ahead of the response
+ * first, then the non-empty tables of the response.</p>
+ *
+ * <p>{@link #hasNext()} blocks until the next table or the response arrives. If the invocation
+ * fails, {@link #hasNext()} and {@link #next()} throw a {@link RuntimeException} caused by a
+ * {@link ProcCallException} holding the response, the tables returned until then are only part
+ * of the results.</p>
+ */
+public class ResultChunkIterator implements Iterator<VoltTable>, ResultChunkCallback {
+    // Marks the end of the results, the response is in m_response
+    private static final VoltTable END = new VoltTable(new VoltTable.ColumnInfo("END", VoltType.TINYINT));
+
+    private final LinkedBlockingQueue<VoltTable> m_tables = new LinkedBlockingQueue<>();
+    private volatile ClientResponse m_response = null;
+    private VoltTable m_next = null;
+
+    ResultChunkIterator() {
+    }
+
+    @Override
+    public void chunkCallback(ClientResponse chunk) {
+        for (VoltTable table : chunk.getResults()) {
+            m_tables.offer(table);
+        }
+    }
+
+    @Override
+    public void clientCallback(ClientResponse clientResponse) {
+        if (clientResponse.getStatus() == ClientResponse.SUCCESS) {
+            for (VoltTable table : clientResponse.getResults()) {
+                if (table.getRowCount() > 0) {
+                    m_tables.offer(table);
+                }
+            }
+        }
+        m_response = clientResponse;
+        m_tables.offer(END);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (m_next == null) {
+            try {
+                m_next = m_tables.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for results", e);
+            }
+        }
+        if (m_next == END) {
+            // leave the marker for the following calls
+            m_tables.offer(END);
+            m_next = null;
+            if (m_response.getStatus() != ClientResponse.SUCCESS) {
+                throw new RuntimeException(new ProcCallException(m_response, m_response.getStatusString(), null));
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public VoltTable next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        VoltTable table = m_next;
+        m_next = null;
+        return table;
+    }
+
+    /**
+     * @return the response of the invocation, without the tables streamed ahead of it,
+     *         or null if it has not arrived yet.
+     */
+    public ClientResponse getResponse() {
+        return m_response;
+    }
+}
@@ -0,0 +1,106 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import org.voltcore.utils.LongObjectHashMap;
+
+/**
+ * Concurrent map from client handles to per invocation state, used in place of a
+ * ConcurrentHashMap&lt;Long, ...&gt; so that tracking an invocation doesn't box the
+ * handle or allocate a map node. Handles are spread over a fixed number of stripes,
+ * each a primitive keyed map guarded by its own lock. Callers rely on remove() to be
+ * atomic to decide which of the response, timeout and connection loss paths gets
+ * to invoke a callback.
+ */
+class StripedHandleMap<V> {
+    private static final int STRIPES = 16;
+
+    private final LongObjectHashMap<V>[] m_stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedHandleMap() {
+        m_stripes = (LongObjectHashMap<V>[]) new LongObjectHashMap<?>[STRIPES];
+        for (int ii = 0; ii < STRIPES; ii++) {
+            m_stripes[ii] = new LongObjectHashMap<>();
+        }
+    }
+
+    private LongObjectHashMap<V> stripe(long handle) {
+        return m_stripes[(int) (handle & (STRIPES - 1))];
+    }
+
+    V put(long handle, V value) {
+        final LongObjectHashMap<V> stripe = stripe(handle);
+        synchronized (stripe) {
+            return stripe.put(handle, value);
+        }
+    }
+
+    V get(long handle) {
+        final LongObjectHashMap<V> stripe = stripe(handle);
+        synchronized (stripe) {
+            return stripe.get(handle);
+        }
+    }
+
+    V remove(long handle) {
+        final LongObjectHashMap<V> stripe = stripe(handle);
+        synchronized (stripe) {
+            return stripe.remove(handle);
+        }
+    }
+
+    boolean containsKey(long handle) {
+        final LongObjectHashMap<V> stripe = stripe(handle);
+        synchronized (stripe) {
+            return stripe.containsKey(handle);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (LongObjectHashMap<V> stripe : m_stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the handles in the map at the time of the call. Entries may be added or
+     * removed concurrently, so callers must still use the result of remove() to claim one.
+     */
+    long[] handles() {
+        long[][] perStripe = new long[STRIPES][];
+        int total = 0;
+        for (int ii = 0; ii < STRIPES; ii++) {
+            synchronized (m_stripes[ii]) {
+                perStripe[ii] = m_stripes[ii].keys();
+            }
+            total += perStripe[ii].length;
+        }
+        final long[] handles = new long[total];
+        int pos = 0;
+        for (long[] keys : perStripe) {
+            System.arraycopy(keys, 0, handles, pos, keys.length);
+            pos += keys.length;
+        }
+        return handles;
+    }
+}
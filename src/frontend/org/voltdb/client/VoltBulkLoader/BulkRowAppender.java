@@ -0,0 +1,487 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client.VoltBulkLoader;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltOverflowException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTypeException;
+import org.voltdb.client.ClientImpl;
+import org.voltdb.common.Constants;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.Encoder;
+
+/**
+ * <p>Typed, row object free way to feed a {@link VoltBulkLoader}. Instead of passing an
+ * <code>Object[]</code> per row to {@link VoltBulkLoader#insertRow(Object, Object...)}, the
+ * fields of a row are appended one by one in column order and the row is completed with
+ * {@link #endRow()}:</p>
+ *
+ * <pre>
+ * BulkRowAppender appender = loader.newRowAppender();
+ * for (...) {
+ *     appender.addLong(id).addString(name).endRow();
+ * }
+ * appender.flush();
+ * loader.drain();
+ * </pre>
+ *
+ * <p>Fields are serialized as they are appended. A completed row is hashed to its partition
+ * once and copied into the VoltTable buffer the appender keeps for that partition. When the
+ * buffer reaches the batch size of the loader it is handed to the partition's loader thread
+ * as is, without per row objects or queue nodes.</p>
+ *
+ * <p>Each <code>add</code> method accepts the natural Java type of the column, see the
+ * individual methods. Geography columns can only be set to null here, use
+ * {@link VoltBulkLoader#insertRow(Object, Object...)} for tables which need them. An exception
+ * thrown by an <code>add</code> method or by {@link #endRow()} discards the row being built.
+ * Rows rejected by the database are reported to the loader's {@link BulkLoaderFailureCallBack}
+ * with the handle given to {@link #endRow(Object)} and the row's values, the success callback
+ * is invoked with the handle as well.</p>
+ *
+ * <p>An appender is not thread safe, use one per producer thread. Rows only become visible to
+ * the loader when their batch is handed off, so {@link #flush()} the appender before calling
+ * {@link VoltBulkLoader#flush()}, {@link VoltBulkLoader#drain()} or
+ * {@link VoltBulkLoader#close()}.</p>
+ */
+public class BulkRowAppender {
+    private static final int INITIAL_ROW_CAPACITY = 256;
+    private static final int NULL_STRING_INDICATOR = -1;
+
+    private final VoltBulkLoader m_loader;
+    private final ClientImpl m_clientImpl;
+    private final String[] m_columnNames;
+    private final VoltType[] m_columnTypes;
+    private final int m_partitionedColumnIndex;
+    // Serialized table header up to, but excluding, the row count
+    private final byte[] m_tableHeader;
+
+    // Field values of the row being built, without the row length prefix
+    private ByteBuffer m_row = ByteBuffer.allocate(INITIAL_ROW_CAPACITY);
+    // Index of the next column to append
+    private int m_column = 0;
+    // Partitioning value of the row being built
+    private boolean m_partitionValueIsNull;
+    private long m_partitionLongValue;
+    private int m_partitionValueOffset;
+    private int m_partitionValueLength;
+
+    // Batches being filled, indexed like VoltBulkLoader.m_partitionTable
+    private final ByteBuffer[] m_batches;
+    private final int[] m_batchRowCounts;
+    private final Object[][] m_batchRowHandles;
+
+    BulkRowAppender(VoltBulkLoader loader) {
+        m_loader = loader;
+        m_clientImpl = loader.m_clientImpl;
+        m_columnTypes = loader.m_columnTypes;
+        m_columnNames = loader.m_colNames.values().toArray(new String[m_columnTypes.length]);
+        m_partitionedColumnIndex = loader.m_partitionedColumnIndex;
+        m_tableHeader = PrivateVoltTableFactory.getSchemaBytes(new VoltTable(loader.m_colInfo));
+        m_batches = new ByteBuffer[loader.m_partitionTable.length];
+        m_batchRowCounts = new int[loader.m_partitionTable.length];
+        m_batchRowHandles = new Object[loader.m_partitionTable.length][];
+    }
+
+    /**
+     * Append a value to a TINYINT, SMALLINT, INTEGER, BIGINT, FLOAT or TIMESTAMP (microseconds
+     * since the epoch) column. The NULL value of a BIGINT or TIMESTAMP column is
+     * {@link Long#MIN_VALUE}, values which would be NULL or overflow a narrower integer column
+     * are rejected.
+     */
+    public BulkRowAppender addLong(long value) {
+        final VoltType type = nextColumnType();
+        switch (type) {
+        case TINYINT:
+            checkRange(type, value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+            m_row.put((byte) value);
+            break;
+        case SMALLINT:
+            checkRange(type, value, Short.MIN_VALUE, Short.MAX_VALUE);
+            m_row.putShort((short) value);
+            break;
+        case INTEGER:
+            checkRange(type, value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            m_row.putInt((int) value);
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            m_row.putLong(value);
+            break;
+        case FLOAT:
+            m_row.putDouble(value);
+            break;
+        default:
+            throw typeMismatch(type, "long");
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionValueIsNull = (value == VoltType.NULL_BIGINT);
+            m_partitionLongValue = value;
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Append a value to a FLOAT column.
+     */
+    public BulkRowAppender addDouble(double value) {
+        final VoltType type = nextColumnType();
+        if (type != VoltType.FLOAT) {
+            throw typeMismatch(type, "double");
+        }
+        m_row.putDouble(value);
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Append a value to a STRING column, or to a VARBINARY column as a hex string.
+     */
+    public BulkRowAppender addString(String value) {
+        final VoltType type = nextColumnType();
+        if (value == null) {
+            return addNull();
+        }
+        if (type == VoltType.VARBINARY) {
+            final byte[] decoded;
+            try {
+                decoded = Encoder.hexDecode(value);
+            }
+            catch (RuntimeException e) {
+                final int column = m_column;
+                resetRow();
+                throw new VoltTypeException("Value for column " + column + " (" +
+                        m_columnNames[column] + ") is not a valid hex string.");
+            }
+            return appendBytes(type, decoded);
+        }
+        if (type != VoltType.STRING) {
+            throw typeMismatch(type, "String");
+        }
+
+        final int lengthPosition = m_row.position();
+        final int length = value.length();
+        ensureCapacity(4 + length);
+        m_row.position(lengthPosition + 4);
+        // Fast path for ASCII, which needs no encoder
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+                break;
+            }
+            m_row.put((byte) c);
+        }
+        if (!ascii) {
+            m_row.position(lengthPosition);
+            return appendBytes(type, value.getBytes(Constants.UTF8ENCODING));
+        }
+        return endVariableLengthValue(lengthPosition, length);
+    }
+
+    /**
+     * Append a value to a VARBINARY column, or to a STRING column as UTF-8 encoded bytes.
+     */
+    public BulkRowAppender addBytes(byte[] value) {
+        final VoltType type = nextColumnType();
+        if (value == null) {
+            return addNull();
+        }
+        if (type != VoltType.VARBINARY && type != VoltType.STRING) {
+            throw typeMismatch(type, "byte[]");
+        }
+        return appendBytes(type, value);
+    }
+
+    /**
+     * Append a value to a DECIMAL column.
+     */
+    public BulkRowAppender addDecimal(BigDecimal value) {
+        final VoltType type = nextColumnType();
+        if (type != VoltType.DECIMAL) {
+            throw typeMismatch(type, "BigDecimal");
+        }
+        ensureCapacity(VoltType.DECIMAL.getLengthInBytesForFixedTypes());
+        try {
+            VoltDecimalHelper.serializeBigDecimal(value, m_row);
+        }
+        catch (RuntimeException e) {
+            resetRow();
+            throw e;
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Append a value to a TIMESTAMP column.
+     */
+    public BulkRowAppender addTimestamp(TimestampType value) {
+        if (value == null) {
+            return addNull();
+        }
+        final VoltType type = nextColumnType();
+        if (type != VoltType.TIMESTAMP) {
+            throw typeMismatch(type, "TimestampType");
+        }
+        m_row.putLong(value.getTime());
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Append NULL to a column of any type.
+     */
+    public BulkRowAppender addNull() {
+        final VoltType type = nextColumnType();
+        switch (type) {
+        case TINYINT:
+            m_row.put(VoltType.NULL_TINYINT);
+            break;
+        case SMALLINT:
+            m_row.putShort(VoltType.NULL_SMALLINT);
+            break;
+        case INTEGER:
+            m_row.putInt(VoltType.NULL_INTEGER);
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            m_row.putLong(VoltType.NULL_BIGINT);
+            break;
+        case FLOAT:
+            m_row.putDouble(VoltType.NULL_FLOAT);
+            break;
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            m_row.putInt(NULL_STRING_INDICATOR);
+            break;
+        case GEOGRAPHY_POINT:
+            ensureCapacity(GeographyPointValue.getLengthInBytes());
+            GeographyPointValue.serializeNull(m_row);
+            break;
+        case DECIMAL:
+            ensureCapacity(VoltType.DECIMAL.getLengthInBytesForFixedTypes());
+            VoltDecimalHelper.serializeNull(m_row);
+            break;
+        default:
+            resetRow();
+            throw new VoltTypeException("Unsupported type: " + type);
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionValueIsNull = true;
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Complete the row being built without a row handle.
+     */
+    public void endRow() throws InterruptedException {
+        endRow(null);
+    }
+
+    /**
+     * Complete the row being built and add it to the batch of its partition. The batch is
+     * handed to the loader once full, which may block if the loader is falling behind.
+     *
+     * @param rowHandle User supplied object passed to the callbacks for this row, may be null
+     */
+    public void endRow(Object rowHandle) throws InterruptedException {
+        if (m_column != m_columnTypes.length) {
+            final int found = m_column;
+            resetRow();
+            throw new IllegalStateException("Row has " + found + " columns, " +
+                    m_columnTypes.length + " expected");
+        }
+        final int rowLength = m_row.position();
+        if (rowLength > VoltTableRow.MAX_TUPLE_LENGTH) {
+            resetRow();
+            throw new VoltOverflowException(
+                    "Table row total length larger than allowed max " + VoltTableRow.MAX_TUPLE_LENGTH_STR);
+        }
+
+        final int index = partitionTableIndex();
+        ByteBuffer batch = m_batches[index];
+        if (batch == null) {
+            batch = newBatch(index, rowLength);
+        }
+        else if (batch.remaining() < 4 + rowLength) {
+            final ByteBuffer bigger = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + 4 + rowLength));
+            batch.flip();
+            bigger.put(batch);
+            batch = bigger;
+            m_batches[index] = batch;
+        }
+        batch.putInt(rowLength);
+        m_row.flip();
+        batch.put(m_row);
+
+        if (rowHandle != null) {
+            if (m_batchRowHandles[index] == null) {
+                m_batchRowHandles[index] = new Object[batchSize(index)];
+            }
+            else if (m_batchRowHandles[index].length == m_batchRowCounts[index]) {
+                // The batch size was lowered by another loader
+                final Object[] bigger = new Object[m_batchRowCounts[index] * 2];
+                System.arraycopy(m_batchRowHandles[index], 0, bigger, 0, m_batchRowCounts[index]);
+                m_batchRowHandles[index] = bigger;
+            }
+            m_batchRowHandles[index][m_batchRowCounts[index]] = rowHandle;
+        }
+        resetRow();
+
+        if (++m_batchRowCounts[index] >= batchSize(index)) {
+            handOff(index);
+        }
+    }
+
+    /**
+     * Hand all partially filled batches to the loader. Call this before flushing, draining
+     * or closing the loader so the rows appended so far are included.
+     */
+    public void flush() throws InterruptedException {
+        for (int i = 0; i < m_batches.length; i++) {
+            if (m_batchRowCounts[i] > 0) {
+                handOff(i);
+            }
+        }
+    }
+
+    private int batchSize(int index) {
+        return m_loader.m_partitionTable[index].m_minBatchTriggerSize;
+    }
+
+    private ByteBuffer newBatch(int index, int firstRowLength) {
+        // Size for a full batch of rows like the first one, the buffer grows if they are wider
+        final int capacity = m_tableHeader.length + 4 + batchSize(index) * (4 + firstRowLength);
+        final ByteBuffer batch = ByteBuffer.allocate(capacity);
+        batch.put(m_tableHeader);
+        batch.putInt(0); // row count, set when the batch is handed off
+        m_batches[index] = batch;
+        return batch;
+    }
+
+    private void handOff(int index) throws InterruptedException {
+        final ByteBuffer batch = m_batches[index];
+        final int rowCount = m_batchRowCounts[index];
+        final Object[] handles = m_batchRowHandles[index];
+        m_batches[index] = null;
+        m_batchRowCounts[index] = 0;
+        m_batchRowHandles[index] = null;
+
+        batch.putInt(m_tableHeader.length, rowCount);
+        batch.flip();
+        final VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(batch, false);
+        m_loader.m_outstandingRowCount.addAndGet(rowCount);
+        m_loader.m_partitionTable[index].loadAppendedBatch(m_loader, table, handles);
+    }
+
+    private int partitionTableIndex() {
+        if (m_partitionedColumnIndex == -1) {
+            return m_loader.m_firstPartitionTable;
+        }
+        if (m_partitionValueIsNull) {
+            return 0;
+        }
+        final VoltType type = m_columnTypes[m_partitionedColumnIndex];
+        if (type.isAnyIntegerType()) {
+            return (int) m_clientImpl.getPartitionForLong(m_partitionLongValue);
+        }
+        return (int) m_clientImpl.getPartitionForBytes(m_row, m_partitionValueOffset, m_partitionValueLength);
+    }
+
+    private BulkRowAppender appendBytes(VoltType type, byte[] value) {
+        final int lengthPosition = m_row.position();
+        ensureCapacity(4 + value.length);
+        m_row.position(lengthPosition + 4);
+        m_row.put(value);
+        return endVariableLengthValue(lengthPosition, value.length);
+    }
+
+    private BulkRowAppender endVariableLengthValue(int lengthPosition, int length) {
+        if (length > VoltType.MAX_VALUE_LENGTH) {
+            resetRow();
+            throw new VoltOverflowException(
+                    "Value in BulkRowAppender larger than allowed max " +
+                            VoltType.humanReadableSize(VoltType.MAX_VALUE_LENGTH));
+        }
+        m_row.putInt(lengthPosition, length);
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionValueIsNull = false;
+            m_partitionValueOffset = lengthPosition + 4;
+            m_partitionValueLength = length;
+        }
+        m_column++;
+        return this;
+    }
+
+    private VoltType nextColumnType() {
+        if (m_column >= m_columnTypes.length) {
+            resetRow();
+            throw new IllegalStateException("Row already has all " + m_columnTypes.length +
+                    " columns, call endRow() to complete it");
+        }
+        // Fixed size values need at most 16 bytes, variable length values make room themselves
+        ensureCapacity(16);
+        return m_columnTypes[m_column];
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (m_row.remaining() < bytes) {
+            final ByteBuffer bigger = ByteBuffer.allocate(Math.max(m_row.capacity() * 2, m_row.position() + bytes));
+            m_row.flip();
+            bigger.put(m_row);
+            m_row = bigger;
+        }
+    }
+
+    private void checkRange(VoltType type, long value, long nullValue, long max) {
+        // The minimum value is the NULL of the type, like VoltTable.addRow() rejects it
+        if (value <= nullValue || value > max) {
+            final int column = m_column;
+            resetRow();
+            throw new VoltTypeException("Value " + value + " for column " + column + " (" +
+                    m_columnNames[column] + ") would overflow " + type);
+        }
+    }
+
+    private VoltTypeException typeMismatch(VoltType type, String javaType) {
+        final int column = m_column;
+        resetRow();
+        return new VoltTypeException("Value for column " + column + " (" +
+                m_columnNames[column] + ") is type " + javaType + " when type " +
+                type + " was expected.");
+    }
+
+    private void resetRow() {
+        m_row.clear();
+        m_column = 0;
+        m_partitionValueIsNull = false;
+    }
+}
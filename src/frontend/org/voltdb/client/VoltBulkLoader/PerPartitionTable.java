@@ -29,6 +29,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
@@ -48,6 +49,9 @@ import org.voltdb.client.ProcedureCallback;
  */
 public class PerPartitionTable {
     private static final VoltLogger loaderLog = new VoltLogger("LOADER");
+    // Number of batches from BulkRowAppenders which may wait for the loader thread,
+    // matches the 5 batches worth of rows m_partitionRowQueue holds
+    static final int MAX_PENDING_APPENDED_BATCHES = 5;
 
     // Client we are tied to
     final ClientImpl m_clientImpl;
@@ -81,6 +85,8 @@ public class PerPartitionTable {
     final BulkLoaderSuccessCallback m_successCallback;
     //Whether to retry insertion when the connection is lost
     final boolean m_autoReconnect;
+    //Bounds the appended batches handed off but not yet submitted to the Client
+    final Semaphore m_appendedBatchPermits = new Semaphore(MAX_PENDING_APPENDED_BATCHES);
 
     // Callback for batch submissions to the Client. A failed request submits the entire
     // batch of rows to m_failedQueue for row by row processing on m_failureProcessor.
@@ -131,6 +137,84 @@ public class PerPartitionTable {
         }
     }
 
+    // Callback for batches built by a BulkRowAppender. The rows only exist in the submitted
+    // table, they are turned into VoltBulkLoaderRows if the batch has to be retried row by row.
+    class AppendedBatchCallback implements ProcedureCallback {
+        final VoltBulkLoader m_loader;
+        final VoltTable m_batch;
+        final Object[] m_rowHandles;
+
+        AppendedBatchCallback(VoltBulkLoader loader, VoltTable batch, Object[] rowHandles) {
+            m_loader = loader;
+            m_batch = batch;
+            m_rowHandles = rowHandles;
+        }
+
+        @Override
+        public void clientCallback(final ClientResponse response) throws InterruptedException {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_es.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reinsertFailed(toRows());
+                        } catch (Exception e) {
+                            loaderLog.error("Failed to re-insert failed batch", e);
+                        }
+                    }
+                });
+            }
+            else {
+                final int rowCount = m_batch.getRowCount();
+                if (m_successCallback != null) {
+                    m_es.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < rowCount; i++) {
+                                m_successCallback.success(rowHandle(i), response);
+                            }
+                        }
+                    });
+                }
+                m_loader.m_loaderCompletedCnt.addAndGet(rowCount);
+                m_loader.m_outstandingRowCount.addAndGet(-1 * rowCount);
+            }
+        }
+
+        /**
+         * Fail every row of a batch which could not be submitted, so the loader
+         * neither loses the rows nor waits for them in drain()
+         */
+        void failAll(Exception e) {
+            final ClientResponse r = new ClientResponseImpl(
+                    ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0],
+                    "Failed to load batch: " + e.getMessage());
+            for (VoltBulkLoaderRow row : toRows()) {
+                m_loader.m_notificationCallBack.failureCallback(row.m_rowHandle, row.m_rowData, r);
+                m_loader.m_loaderCompletedCnt.incrementAndGet();
+                m_loader.m_outstandingRowCount.decrementAndGet();
+            }
+        }
+
+        private Object rowHandle(int row) {
+            return m_rowHandles == null ? null : m_rowHandles[row];
+        }
+
+        private List<VoltBulkLoaderRow> toRows() {
+            List<VoltBulkLoaderRow> rows = new ArrayList<VoltBulkLoaderRow>(m_batch.getRowCount());
+            m_batch.resetRowPosition();
+            int row = 0;
+            while (m_batch.advanceRow()) {
+                Object[] rowData = new Object[m_columnTypes.length];
+                for (int i = 0; i < rowData.length; i++) {
+                    rowData[i] = m_batch.get(i, m_columnTypes[i]);
+                }
+                rows.add(new VoltBulkLoaderRow(m_loader, rowHandle(row++), rowData));
+            }
+            return rows;
+        }
+    }
+
     PerPartitionTable(ClientImpl clientImpl, String tableName, int partitionId, boolean isMP,
             VoltBulkLoader firstLoader, int minBatchTriggerSize, BulkLoaderSuccessCallback successCallback) {
         m_clientImpl = clientImpl;
@@ -185,6 +269,30 @@ public class PerPartitionTable {
         }
     }
 
+    /**
+     * Queue a full batch built by a BulkRowAppender for submission. Blocks while
+     * MAX_PENDING_APPENDED_BATCHES batches are already waiting for the loader thread.
+     */
+    void loadAppendedBatch(final VoltBulkLoader loader, final VoltTable batch, final Object[] rowHandles)
+            throws InterruptedException {
+        m_appendedBatchPermits.acquire();
+        m_es.execute(new Runnable() {
+            @Override
+            public void run() {
+                AppendedBatchCallback callback = new AppendedBatchCallback(loader, batch, rowHandles);
+                try {
+                    // The rows are needed again if the batch fails, so the table isn't cleared
+                    submitTable(callback, batch);
+                } catch (Exception e) {
+                    loaderLog.error("Failed to load batch", e);
+                    callback.failAll(e);
+                } finally {
+                    m_appendedBatchPermits.release();
+                }
+            }
+        });
+    }
+
     /**
      * Flush all queued rows even if they are smaller than the batch size. This does not
      * guarantee that they will be reinserted if any of them fail. To make sure all rows
@@ -295,6 +403,11 @@ public class PerPartitionTable {
     }
 
     private void loadTable(ProcedureCallback callback, VoltTable toSend) throws Exception {
+        submitTable(callback, toSend);
+        toSend.clearRowData();
+    }
+
+    private void submitTable(ProcedureCallback callback, VoltTable toSend) throws Exception {
         if (toSend.getRowCount() <= 0) {
             return;
         }
@@ -322,7 +435,6 @@ public class PerPartitionTable {
                 callback.clientCallback(r);
             }
         }
-        toSend.clearRowData();
     }
 
     private void load(ProcedureCallback callback, VoltTable toSend) throws Exception {
@@ -347,6 +347,17 @@ public class VoltBulkLoader {
         m_outstandingRowCount.incrementAndGet();
     }
 
+    /**
+     * <p>Create a typed appender which serializes rows straight into per-partition batches,
+     * without the per row objects of {@link #insertRow(Object, Object...)}. Use one appender
+     * per producer thread and flush it before flushing, draining or closing this loader.</p>
+     *
+     * @return A new {@link BulkRowAppender} feeding this loader
+     */
+    public BulkRowAppender newRowAppender() {
+        return new BulkRowAppender(this);
+    }
+
     /**
      * Called to asynchronously force the VoltBulkLoader to submit all the partially full batches
      * in all partitions of the table to the Client for insert. To wait for all rows to be processed,
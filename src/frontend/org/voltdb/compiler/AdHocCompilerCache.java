@@ -17,16 +17,30 @@
 
 package org.voltdb.compiler;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.ParameterSet;
+import org.voltdb.PlannerStatsCollector;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
@@ -47,6 +61,17 @@ import com.google_voltpatches.common.cache.CacheBuilder;
 public class AdHocCompilerCache implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    /** Persist the cache of the current catalog so it can be reloaded after a restart or rejoin */
+    public static final boolean PERSIST_CACHE = Boolean.getBoolean("ADHOC_COMPILER_CACHE_PERSIST");
+    /** How often a changed cache is written while the node is running */
+    public static final int PERSIST_INTERVAL_SECONDS =
+            Integer.getInteger("ADHOC_COMPILER_CACHE_PERSIST_INTERVAL_SECONDS", 300);
+    /** Name of the file, in the config directory, the caches are persisted to */
+    public static final String PERSISTED_CACHE_FILE_NAME = "adhoc_plan_cache.bin";
+    private static final int PERSISTED_CACHE_VERSION = 1;
+
     //////////////////////////////////////////////////////////////////////////
     // STATIC CODE TO MANAGE CACHE LIFETIMES / GLOBALNESS
     //////////////////////////////////////////////////////////////////////////
@@ -100,6 +125,13 @@ public class AdHocCompilerCache implements Serializable {
     long m_planInsertions = 0;
     long m_planEvictions = 0;
 
+    // cumulative counts for the PLANNER statistics, never reset
+    long m_totalLiteralEvictions = 0;
+    long m_totalPlanEvictions = 0;
+
+    // set when an entry is added so unchanged caches are not persisted again
+    boolean m_dirty = false;
+
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
 
@@ -132,6 +164,7 @@ public class AdHocCompilerCache implements Serializable {
             public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
                 if (size() > MAX_CORE_ENTRIES) {
                     ++m_planEvictions;
+                    ++m_totalPlanEvictions;
                     return true;
                 }
                 return false;
@@ -172,6 +205,7 @@ public class AdHocCompilerCache implements Serializable {
         public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
             if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
                 ++m_literalEvictions;
+                ++m_totalLiteralEvictions;
                 this.currentMemory -= eldest.getValue().getSerializedSize();
                 return true;
             }
@@ -327,6 +361,7 @@ public class AdHocCompilerCache implements Serializable {
                 // Don't count insertions (of possibly repeated tokens) here
                 //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
                 boundVariants.add(unmatched);
+                m_dirty = true;
             }
         }
 
@@ -337,6 +372,7 @@ public class AdHocCompilerCache implements Serializable {
                 //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
                 m_literalCache.put(sql, plan);
                 ++m_literalInsertions;
+                m_dirty = true;
             }
             else {
                 assert(cachedPlan.equals(plan));
@@ -344,6 +380,31 @@ public class AdHocCompilerCache implements Serializable {
         }
     }
 
+    /**
+     * Same as {@link #put(String, String, AdHocPlannedStatement, String[], boolean, boolean)},
+     * and report to the given collector the entries this insertion evicted. The cache is
+     * shared by the planners of the same catalog, so the evictions can't be derived
+     * from the cumulative counters outside of the cache lock.
+     *
+     * @param evictionStats collector to report the evictions to, may be null
+     */
+    public synchronized void put(String sql,
+                                 String parsedToken,
+                                 AdHocPlannedStatement planIn,
+                                 String[] extractedLiterals,
+                                 boolean hasUserQuestionMarkParameters,
+                                 boolean hasAutoParameterizedException,
+                                 PlannerStatsCollector evictionStats)
+    {
+        final long literalEvictions = m_totalLiteralEvictions;
+        final long planEvictions = m_totalPlanEvictions;
+        put(sql, parsedToken, planIn, extractedLiterals, hasUserQuestionMarkParameters, hasAutoParameterizedException);
+        if (evictionStats != null) {
+            evictionStats.updateCacheEvictions(m_totalLiteralEvictions - literalEvictions,
+                                               m_totalPlanEvictions - planEvictions);
+        }
+    }
+
     /**
      * Start a timer that prints cache stats to the console every 5s.
      * Used for development until we get better stats integration.
@@ -375,4 +436,187 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * @return number of entries evicted from the literal cache since it was created
+     */
+    public synchronized long getLiteralCacheEvictions() {
+        return m_totalLiteralEvictions;
+    }
+
+    /**
+     * @return number of entries evicted from the core (parameterized) cache since it was created
+     */
+    public synchronized long getCoreCacheEvictions() {
+        return m_totalPlanEvictions;
+    }
+
+    /**
+     * Drop every cached plan, so that the statements are planned again
+     * (e.g. after the table statistics the plans were costed with have changed).
+     */
+    public synchronized void clear() {
+        m_literalCache.clear();
+        m_coreCache.clear();
+        m_dirty = true;
+    }
+
+    //////////////////////////////////////////////////////////////////////////
+    // PERSISTENCE ACROSS RESTARTS
+    //////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Write both levels of the cache for the given catalog to a file, so that a restarted
+     * node with the same catalog can skip planning the statements it has already seen.
+     * Entries are written least recently used first so that loading them preserves LRU order.
+     * The file is written to a temporary file and renamed so a crash never leaves a partial cache.
+     *
+     * @return true if the cache was written, false if it had not changed since the last write
+     */
+    public synchronized boolean writeToFile(File file, byte[] catalogHash) throws IOException {
+        if (!m_dirty && file.exists()) {
+            return false;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(PERSISTED_CACHE_VERSION);
+            writeBytes(out, catalogHash);
+
+            out.writeInt(m_literalCache.size());
+            for (Map.Entry<String, AdHocPlannedStatement> e : m_literalCache.entrySet()) {
+                AdHocPlannedStatement stmt = e.getValue();
+                writeBytes(out, e.getKey().getBytes(Constants.UTF8ENCODING));
+                ByteBuffer buf = ByteBuffer.allocate(stmt.getSerializedSize());
+                stmt.flattenToBuffer(buf);
+                writeBytes(out, buf.array());
+                writeCoreRouting(out, stmt.core);
+                writeStrings(out, stmt.parameterBindings(null));
+            }
+
+            out.writeInt(m_coreCache.size());
+            for (Map.Entry<String, List<BoundPlan>> e : m_coreCache.entrySet()) {
+                writeBytes(out, e.getKey().getBytes(Constants.UTF8ENCODING));
+                out.writeInt(e.getValue().size());
+                for (BoundPlan bound : e.getValue()) {
+                    ByteBuffer buf = ByteBuffer.allocate(bound.m_core.getSerializedSize());
+                    bound.m_core.flattenToBuffer(buf);
+                    writeBytes(out, buf.array());
+                    writeCoreRouting(out, bound.m_core);
+                    writeStrings(out, bound.m_constants);
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Unable to rename " + tmp + " to " + file);
+        }
+        m_dirty = false;
+        return true;
+    }
+
+    /**
+     * Populate this cache from a file written by {@link #writeToFile(File, byte[])}. Nothing is
+     * loaded if the file was written for a different catalog. Existing entries are kept.
+     *
+     * @return number of entries loaded into both levels of the cache
+     */
+    public synchronized int loadFromFile(File file, byte[] catalogHash) throws IOException {
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != PERSISTED_CACHE_VERSION) {
+                hostLog.info("Ignoring ad hoc plan cache " + file + " written by a different version");
+                return 0;
+            }
+            if (!Arrays.equals(catalogHash, readBytes(in))) {
+                hostLog.info("Ignoring ad hoc plan cache " + file + " written for a different catalog");
+                return 0;
+            }
+
+            int literalCount = in.readInt();
+            for (int ii = 0; ii < literalCount; ii++) {
+                String sql = new String(readBytes(in), Constants.UTF8ENCODING);
+                AdHocPlannedStatement stmt = AdHocPlannedStatement.fromBuffer(ByteBuffer.wrap(readBytes(in)));
+                readCoreRouting(in, stmt.core);
+                stmt.setBoundConstants(readStrings(in));
+                if (!m_literalCache.containsKey(sql)) {
+                    m_literalCache.put(sql, stmt);
+                    loaded++;
+                }
+            }
+
+            int coreCount = in.readInt();
+            for (int ii = 0; ii < coreCount; ii++) {
+                String parsedToken = new String(readBytes(in), Constants.UTF8ENCODING);
+                int variantCount = in.readInt();
+                List<BoundPlan> variants = new ArrayList<BoundPlan>(variantCount);
+                for (int jj = 0; jj < variantCount; jj++) {
+                    CorePlan core = CorePlan.fromBuffer(ByteBuffer.wrap(readBytes(in)));
+                    readCoreRouting(in, core);
+                    variants.add(new BoundPlan(core, readStrings(in)));
+                }
+                if (!m_coreCache.containsKey(parsedToken)) {
+                    m_coreCache.put(parsedToken, variants);
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Partitioning information is set on the core after planning and isn't part of its serialized form
+    private static void writeCoreRouting(DataOutputStream out, CorePlan core) throws IOException {
+        out.writeInt(core.getPartitioningParamIndex());
+        ParameterSet value = ParameterSet.fromArrayNoCopy(core.getPartitioningParamValue());
+        ByteBuffer buf = ByteBuffer.allocate(value.getSerializedSize());
+        value.flattenToBuffer(buf);
+        writeBytes(out, buf.array());
+    }
+
+    private static void readCoreRouting(DataInputStream in, CorePlan core) throws IOException {
+        core.setPartitioningParamIndex(in.readInt());
+        core.setPartitioningParamValue(ParameterSet.fromByteBuffer(ByteBuffer.wrap(readBytes(in))).toArray()[0]);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt ad hoc plan cache, negative length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            out.writeBoolean(s != null);
+            if (s != null) {
+                writeBytes(out, s.getBytes(Constants.UTF8ENCODING));
+            }
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        String[] strings = new String[length];
+        for (int ii = 0; ii < length; ii++) {
+            if (in.readBoolean()) {
+                strings[ii] = new String(readBytes(in), Constants.UTF8ENCODING);
+            }
+        }
+        return strings;
+    }
 }
@@ -29,6 +29,8 @@ public class DatabaseEstimates {
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
+    // Number of entries by index name, only known from the statistics of a running database
+    HashMap<String, Long> indexEntries = new HashMap<String, Long>();
 
     public TableEstimates getEstimatesForTable(String tableName) {
         if (tables.containsKey(tableName) == false)
@@ -36,4 +38,11 @@ public class DatabaseEstimates {
 
         return tables.get(tableName);
     }
+
+    /**
+     * @return The estimated number of entries of the index, or null if it isn't known
+     */
+    public Long getEntriesForIndex(String indexName) {
+        return indexEntries.get(indexName);
+    }
 }
@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Row counts of the tables and entry counts of the indexes of the local sites,
+ * reported by every site as it refreshes its table and index statistics.
+ *
+ * Ad hoc statements are costed with the average count per partition instead of the
+ * fixed guesses of {@link DatabaseEstimates}, so the planner can tell a small table
+ * from a large one when it orders joins. Stored procedures keep the fixed guesses,
+ * their plans are compiled into the catalog and must not depend on the data.
+ *
+ * When the row count of a table drifts past {@link #REPLAN_DRIFT_RATIO} of the count
+ * the cached ad hoc plans were costed with, the plans are planned again.
+ */
+public class DatabaseStatistics {
+    /** Smallest row count a table is costed with, so an index scan of a tiny table still beats a sequential scan */
+    public static final long MIN_ESTIMATED_TUPLES = 100;
+    /** How many times larger or smaller a table must get before the cached ad hoc plans are planned again */
+    public static final double REPLAN_DRIFT_RATIO =
+            Double.parseDouble(System.getProperty("PLANNER_STATS_REPLAN_DRIFT_RATIO", "2.0"));
+
+    // Counts by site, then by table or index name
+    private final Map<Long, Map<String, Long>> m_tableRows = new HashMap<>();
+    private final Map<Long, Map<String, Long>> m_indexEntries = new HashMap<>();
+
+    // Averages of the counts of all sites, null when a site has reported new counts
+    private Map<String, Long> m_avgTableRows = null;
+    private Map<String, Long> m_avgIndexEntries = null;
+    private DatabaseEstimates m_estimates = null;
+
+    // Row counts the cached plans were costed with, tables not in here used the fixed guesses
+    private Map<String, Long> m_plannedTableRows = new HashMap<>();
+
+    /**
+     * Replace the counts of a site. Called from the site thread.
+     *
+     * @param tableRows Row count by table name
+     * @param indexEntries Entry count by index name
+     */
+    public synchronized void updateSite(long siteId, Map<String, Long> tableRows, Map<String, Long> indexEntries) {
+        if (tableRows.equals(m_tableRows.get(siteId)) && indexEntries.equals(m_indexEntries.get(siteId))) {
+            return;
+        }
+        m_tableRows.put(siteId, tableRows);
+        m_indexEntries.put(siteId, indexEntries);
+        m_avgTableRows = null;
+        m_avgIndexEntries = null;
+        m_estimates = null;
+    }
+
+    private static Map<String, Long> average(Map<Long, Map<String, Long>> countsBySite) {
+        final Map<String, Long> sums = new HashMap<>();
+        final Map<String, Integer> sites = new HashMap<>();
+        for (Map<String, Long> counts : countsBySite.values()) {
+            for (Map.Entry<String, Long> e : counts.entrySet()) {
+                final Long sum = sums.get(e.getKey());
+                sums.put(e.getKey(), sum == null ? e.getValue() : sum + e.getValue());
+                final Integer count = sites.get(e.getKey());
+                sites.put(e.getKey(), count == null ? 1 : count + 1);
+            }
+        }
+        for (Map.Entry<String, Long> e : sums.entrySet()) {
+            e.setValue(e.getValue() / sites.get(e.getKey()));
+        }
+        return sums;
+    }
+
+    private void computeAverages() {
+        if (m_avgTableRows == null) {
+            // Replicated tables have the same rows on every site and partitioned tables are costed
+            // by the rows of one partition, so the average of the sites fits both.
+            m_avgTableRows = average(m_tableRows);
+            m_avgIndexEntries = average(m_indexEntries);
+        }
+    }
+
+    /**
+     * @return Estimates with the current row and entry counts, to be used only by the planner thread
+     */
+    public synchronized DatabaseEstimates getEstimates() {
+        if (m_estimates == null) {
+            computeAverages();
+            final DatabaseEstimates estimates = new DatabaseEstimates();
+            for (Map.Entry<String, Long> e : m_avgTableRows.entrySet()) {
+                final DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(e.getKey());
+                tableEstimates.maxTuples = Math.max(e.getValue(), MIN_ESTIMATED_TUPLES);
+                tableEstimates.minTuples = Math.min(tableEstimates.minTuples, tableEstimates.maxTuples);
+            }
+            estimates.indexEntries.putAll(m_avgIndexEntries);
+            m_estimates = estimates;
+        }
+        return m_estimates;
+    }
+
+    private static boolean drifted(long planned, long current) {
+        final double larger = Math.max(Math.max(planned, current), MIN_ESTIMATED_TUPLES);
+        final double smaller = Math.max(Math.min(planned, current), MIN_ESTIMATED_TUPLES);
+        return larger / smaller >= REPLAN_DRIFT_RATIO;
+    }
+
+    /**
+     * Check whether the row count of any table drifted too far from the count the cached plans
+     * were costed with. If it did, the current counts become the ones plans are costed with.
+     *
+     * @return true if the cached plans must be planned again
+     */
+    public synchronized boolean checkDrift() {
+        computeAverages();
+        final long defaultTuples = new DatabaseEstimates.TableEstimates().maxTuples;
+        boolean drifted = false;
+        for (Map.Entry<String, Long> e : m_avgTableRows.entrySet()) {
+            final Long planned = m_plannedTableRows.get(e.getKey());
+            if (drifted(planned == null ? defaultTuples : planned, e.getValue())) {
+                drifted = true;
+                break;
+            }
+        }
+        if (drifted) {
+            m_plannedTableRows = new HashMap<>(m_avgTableRows);
+        }
+        return drifted;
+    }
+}
@@ -56,6 +56,8 @@ public class PlannerTool {
     private AdHocCompilerCache m_cache;
 
     private final HSQLInterface m_hsql;
+    // Kept across catalog updates without schema changes, like the HSQL schema
+    private final DatabaseStatistics m_statistics = new DatabaseStatistics();
 
     private static PlannerStatsCollector m_plannerStats;
 
@@ -114,6 +116,10 @@ public class PlannerTool {
         return m_hsql;
     }
 
+    public DatabaseStatistics getStatistics() {
+        return m_statistics;
+    }
+
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
         StatementPartitioning infer = StatementPartitioning.inferPartitioning();
         return planSql(sqlIn, infer, false, null, false, false);
@@ -167,6 +173,12 @@ public class PlannerTool {
             boolean isExplainMode, final Object[] userParams, boolean isSwapTables, boolean isLargeQuery) {
 
         CacheUse cacheUse = CacheUse.FAIL;
+        final AdHocCompilerCache cache = m_cache;
+        if (m_statistics.checkDrift()) {
+            // The cached plans were costed for tables of very different sizes
+            compileLog.info("Table statistics changed, clearing the ad hoc plan cache");
+            cache.clear();
+        }
         if (m_plannerStats != null) {
             m_plannerStats.startStatsCollection();
         }
@@ -212,7 +224,7 @@ public class PlannerTool {
             String parsedToken = null;
 
             TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = m_statistics.getEstimates();
             // This try-with-resources block acquires a global lock on all planning
             // This is required until we figure out how to do parallel planning.
             try (QueryPlanner planner = new QueryPlanner(
@@ -285,7 +297,7 @@ public class PlannerTool {
                                                                                    null);
                             ahps.setBoundConstants(matched.m_constants);
                             // parameterized plan from the cache does not have exception
-                            m_cache.put(sql, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, false);
+                            m_cache.put(sql, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, false, m_plannerStats);
                             cacheUse = CacheUse.HIT2;
                             return ahps;
                         }
@@ -334,7 +346,8 @@ public class PlannerTool {
 
                 assert(parsedToken != null);
                 // Again, plans with inferred partitioning are the only ones supported in the cache.
-                m_cache.put(sqlIn, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, planHasExceptionsWhenParameterized);
+                m_cache.put(sqlIn, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, planHasExceptionsWhenParameterized,
+                        m_plannerStats);
             }
             return ahps;
         }
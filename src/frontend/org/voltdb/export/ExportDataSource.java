@@ -41,7 +41,6 @@ import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.BinaryPayloadMessage;
 import org.voltcore.messaging.Mailbox;
-import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
@@ -95,7 +94,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     private final Semaphore m_allowAcceptingMastership = new Semaphore(0);
     private volatile boolean m_closed = false;
     private volatile AtomicBoolean m_mastershipAccepted = new AtomicBoolean(false);
-    private volatile ListeningExecutorService m_es;
+    private volatile ExportWorkerPool.SourceExecutor m_es;
     private final AtomicReference<BBContainer> m_pendingContainer = new AtomicReference<>();
     private volatile boolean m_isInCatalog;
     private volatile boolean m_eos;
@@ -207,7 +206,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         m_isInCatalog = true;
         m_eos = false;
         m_client = null;
-        m_es = CoreUtils.getListeningExecutorService("ExportDataSource for table " + m_tableName + " partition " + m_partitionId, 1);
+        m_es = ExportWorkerPool.instance().newSourceExecutor("ExportDataSource for table " + m_tableName + " partition " + m_partitionId);
     }
 
     public ExportDataSource(Generation generation, File adFile) throws IOException {
@@ -259,7 +258,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         m_isInCatalog = false;
         m_eos = false;
         m_client = null;
-        m_es = CoreUtils.getListeningExecutorService("ExportDataSource for table " + m_tableName + " partition " + m_partitionId, 1);
+        m_es = ExportWorkerPool.instance().newSourceExecutor("ExportDataSource for table " + m_tableName + " partition " + m_partitionId);
     }
 
     public void setReadyForPolling(boolean readyForPolling) {
@@ -964,6 +963,28 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         return m_es;
     }
 
+    /**
+     * @return number of tasks queued for this source on the shared export worker pool
+     */
+    public int getExecutorQueueDepth() {
+        return m_es.getQueueDepth();
+    }
+
+    public long getExecutorTasksExecuted() {
+        return m_es.getTasksExecuted();
+    }
+
+    /**
+     * @return average time, in nanoseconds, this source's tasks waited for an export worker
+     */
+    public long getAverageSchedulingLatencyNanos() {
+        return m_es.getAverageSchedulingLatencyNanos();
+    }
+
+    public long getMaxSchedulingLatencyNanos() {
+        return m_es.getMaxSchedulingLatencyNanos();
+    }
+
     @Override
     public String toString() {
         return "ExportDataSource for Table " + getTableName() + " at Partition " + getPartitionId();
@@ -381,6 +381,37 @@ public class ExportGeneration implements Generation {
         return source.sizeInBytes();
     }
 
+    /**
+     * @return number of tasks the given source has waiting on the shared export worker pool
+     */
+    public int getExecutorQueueDepth(int partitionId, String signature) {
+        ExportDataSource source = getDataSource(partitionId, signature);
+        return source == null ? 0 : source.getExecutorQueueDepth();
+    }
+
+    public long getExecutorTasksExecuted(int partitionId, String signature) {
+        ExportDataSource source = getDataSource(partitionId, signature);
+        return source == null ? 0 : source.getExecutorTasksExecuted();
+    }
+
+    /**
+     * @return average time, in nanoseconds, the given source's tasks waited for an export worker
+     */
+    public long getAverageSchedulingLatencyNanos(int partitionId, String signature) {
+        ExportDataSource source = getDataSource(partitionId, signature);
+        return source == null ? 0 : source.getAverageSchedulingLatencyNanos();
+    }
+
+    public long getMaxSchedulingLatencyNanos(int partitionId, String signature) {
+        ExportDataSource source = getDataSource(partitionId, signature);
+        return source == null ? 0 : source.getMaxSchedulingLatencyNanos();
+    }
+
+    private ExportDataSource getDataSource(int partitionId, String signature) {
+        Map<String, ExportDataSource> sources = m_dataSourcesByPartition.get(partitionId);
+        return sources == null ? null : sources.get(signature);
+    }
+
     @Override
     public void onSourceDone(int partitionId, String signature) {
         assert(m_dataSourcesByPartition.containsKey(partitionId));
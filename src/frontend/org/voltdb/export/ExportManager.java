@@ -516,6 +516,26 @@ public class ExportManager
         return 0;
     }
 
+    public static int getExecutorQueueDepth(int partitionId, String signature) {
+        ExportGeneration generation = instance().m_generation.get();
+        return generation == null ? 0 : generation.getExecutorQueueDepth(partitionId, signature);
+    }
+
+    public static long getExecutorTasksExecuted(int partitionId, String signature) {
+        ExportGeneration generation = instance().m_generation.get();
+        return generation == null ? 0 : generation.getExecutorTasksExecuted(partitionId, signature);
+    }
+
+    public static long getAverageSchedulingLatencyNanos(int partitionId, String signature) {
+        ExportGeneration generation = instance().m_generation.get();
+        return generation == null ? 0 : generation.getAverageSchedulingLatencyNanos(partitionId, signature);
+    }
+
+    public static long getMaxSchedulingLatencyNanos(int partitionId, String signature) {
+        ExportGeneration generation = instance().m_generation.get();
+        return generation == null ? 0 : generation.getMaxSchedulingLatencyNanos(partitionId, signature);
+    }
+
     /*
      * This method pulls double duty as a means of pushing export buffers
      * and "syncing" export data to disk. Syncing doesn't imply fsync, it just means
@@ -0,0 +1,301 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+
+import com.google_voltpatches.common.util.concurrent.AbstractListeningExecutorService;
+
+/**
+ * A single, host-wide pool of export worker threads shared by every
+ * {@link ExportDataSource}. Each data source gets a {@link SourceExecutor}
+ * which runs its tasks one at a time and in submission order, but the tasks
+ * of all sources are multiplexed on a work-stealing pool whose size is bounded
+ * by the number of cores instead of growing with (stream x partition).
+ */
+public class ExportWorkerPool {
+
+    private static final VoltLogger exportLog = new VoltLogger("EXPORT");
+
+    /**
+     * Number of threads in the shared pool. Defaults to the number of cores, capped
+     * so that very large hosts don't dedicate an unreasonable number of threads to export.
+     */
+    public static final int EXPORT_WORKER_THREADS =
+            Integer.getInteger("EXPORT_WORKER_THREADS", Math.min(CoreUtils.availableProcessors(), 16));
+
+    /**
+     * Max number of tasks a source runs before yielding its worker to other sources,
+     * so that one busy stream can't starve the rest.
+     */
+    static final int MAX_TASKS_PER_TURN = Integer.getInteger("EXPORT_WORKER_TASKS_PER_TURN", 32);
+
+    private static volatile ExportWorkerPool m_instance;
+
+    private final ForkJoinPool m_pool;
+
+    public static ExportWorkerPool instance() {
+        ExportWorkerPool pool = m_instance;
+        if (pool == null) {
+            synchronized (ExportWorkerPool.class) {
+                pool = m_instance;
+                if (pool == null) {
+                    pool = new ExportWorkerPool(EXPORT_WORKER_THREADS);
+                    m_instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    ExportWorkerPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Must specify > 0 threads");
+        }
+        final AtomicInteger threadIndex = new AtomicInteger();
+        m_pool = new ForkJoinPool(
+                threads,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        t.setName("Export worker - " + threadIndex.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                },
+                new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                        exportLog.error("Uncaught exception in export worker thread " + t.getName(), e);
+                    }
+                },
+                true /* FIFO for tasks that are never joined */);
+    }
+
+    /**
+     * Create an executor which runs tasks serially, in order, on this pool.
+     * @param name descriptive name of the owner, used in log messages
+     */
+    public SourceExecutor newSourceExecutor(String name) {
+        return new SourceExecutor(name);
+    }
+
+    /**
+     * Stop the worker threads once the work already handed to them is done. Only used
+     * for pools which are not the shared instance.
+     */
+    void shutdown() {
+        m_pool.shutdown();
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return m_pool.awaitTermination(timeout, unit);
+    }
+
+    public int getPoolSize() {
+        return m_pool.getParallelism();
+    }
+
+    public int getActiveThreadCount() {
+        return m_pool.getActiveThreadCount();
+    }
+
+    /**
+     * Executor handed out to each data source. Tasks are kept in a per source queue and
+     * a single drain task is scheduled on the shared pool whenever the queue goes from
+     * empty to non-empty, which is what preserves per source ordering.
+     */
+    public class SourceExecutor extends AbstractListeningExecutorService {
+        private final String m_name;
+        private final Queue<TimedTask> m_tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger m_queueDepth = new AtomicInteger();
+        private final AtomicBoolean m_scheduled = new AtomicBoolean(false);
+        private final CountDownLatch m_terminated = new CountDownLatch(1);
+        // Guards the shutdown check in execute() against shutdown(), so that no task is
+        // queued once the executor may have terminated
+        private final Object m_lock = new Object();
+        private volatile boolean m_shutdown = false;
+
+        // Scheduling statistics, time from submission to start of execution
+        private final AtomicLong m_tasksExecuted = new AtomicLong();
+        private final AtomicLong m_totalSchedulingLatencyNanos = new AtomicLong();
+        private volatile long m_maxSchedulingLatencyNanos = 0;
+
+        private final Runnable m_drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        private SourceExecutor(String name) {
+            m_name = name;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            synchronized (m_lock) {
+                if (m_shutdown) {
+                    throw new RejectedExecutionException(m_name + " has been shut down");
+                }
+                m_queueDepth.incrementAndGet();
+                m_tasks.offer(new TimedTask(command));
+            }
+            scheduleIfNeeded();
+        }
+
+        private void scheduleIfNeeded() {
+            if (!m_tasks.isEmpty() && m_scheduled.compareAndSet(false, true)) {
+                m_pool.execute(m_drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int ii = 0; ii < MAX_TASKS_PER_TURN; ii++) {
+                    TimedTask task = m_tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    m_queueDepth.decrementAndGet();
+                    recordLatency(System.nanoTime() - task.m_enqueueTime);
+                    try {
+                        task.m_task.run();
+                    } catch (Throwable t) {
+                        exportLog.error("Unexpected exception running export task for " + m_name, t);
+                    }
+                }
+            } finally {
+                m_scheduled.set(false);
+                if (m_tasks.isEmpty()) {
+                    maybeTerminate();
+                }
+                // Re-check after clearing the flag, a task may have been added in between
+                scheduleIfNeeded();
+            }
+        }
+
+        private void recordLatency(long latency) {
+            m_tasksExecuted.incrementAndGet();
+            m_totalSchedulingLatencyNanos.addAndGet(latency);
+            if (latency > m_maxSchedulingLatencyNanos) {
+                m_maxSchedulingLatencyNanos = latency;
+            }
+        }
+
+        private void maybeTerminate() {
+            if (m_shutdown && m_tasks.isEmpty() && !m_scheduled.get()) {
+                m_terminated.countDown();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (m_lock) {
+                m_shutdown = true;
+            }
+            maybeTerminate();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            synchronized (m_lock) {
+                m_shutdown = true;
+            }
+            List<Runnable> pending = new ArrayList<>();
+            TimedTask task;
+            while ((task = m_tasks.poll()) != null) {
+                m_queueDepth.decrementAndGet();
+                pending.add(task.m_task);
+            }
+            maybeTerminate();
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return m_shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return m_terminated.getCount() == 0;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return m_terminated.await(timeout, unit);
+        }
+
+        /**
+         * @return number of tasks waiting to run for this source
+         */
+        public int getQueueDepth() {
+            return m_queueDepth.get();
+        }
+
+        public long getTasksExecuted() {
+            return m_tasksExecuted.get();
+        }
+
+        /**
+         * @return average time, in nanoseconds, tasks of this source waited before they started running
+         */
+        public long getAverageSchedulingLatencyNanos() {
+            long count = m_tasksExecuted.get();
+            return count == 0 ? 0 : m_totalSchedulingLatencyNanos.get() / count;
+        }
+
+        public long getMaxSchedulingLatencyNanos() {
+            return m_maxSchedulingLatencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "SourceExecutor for " + m_name;
+        }
+    }
+
+    private static class TimedTask {
+        final Runnable m_task;
+        final long m_enqueueTime;
+
+        TimedTask(Runnable task) {
+            m_task = task;
+            m_enqueueTime = System.nanoTime();
+        }
+    }
+}
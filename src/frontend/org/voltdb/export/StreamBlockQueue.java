@@ -88,7 +88,8 @@ public class StreamBlockQueue {
     private StreamBlock pollPersistentDeque(boolean actuallyPoll) {
         BBContainer cont = null;
         try {
-            cont = m_reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            // Blocks read back from disk are only handed out as read only buffers
+            cont = m_reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY);
         } catch (IOException e) {
             exportLog.error(e);
         }
@@ -64,6 +64,8 @@ public class GuestProcessor implements ExportDataProcessor {
 
     private final long m_startTS = System.currentTimeMillis();
     private volatile boolean m_startPolling = false;
+    // Sources which are waiting for command log replay to be done before they start polling
+    private final List<Runnable> m_waitingForPolling = new ArrayList<>();
 
     // Instantiated at ExportManager
     public GuestProcessor() {
@@ -240,55 +242,45 @@ public class GuestProcessor implements ExportDataProcessor {
                                 m_source.getExportFormat());
 
                 // in this case we cannot poll until the initial truncation is complete
-                final Runnable waitForBarrierRelease = new Runnable() {
+                final Runnable beginPolling = new Runnable() {
                     @Override
                     public void run() {
                         try {
-                            if (m_startPolling) { // Wait for command log replay to be done.
-                                if (m_logger.isDebugEnabled()) {
-                                    m_logger.debug("Beginning export processing for export source " + m_source.getTableName()
-                                    + " partition " + m_source.getPartitionId());
-                                }
-                                m_source.setReadyForPolling(true); // Tell source it is OK to start polling now.
-                                synchronized (GuestProcessor.this) {
-                                    if (m_shutdown) return;
-                                    buildListener(ads);
-                                }
-                            } else {
-                                Thread.sleep(5);
-                                resubmitSelf();
+                            if (m_logger.isDebugEnabled()) {
+                                m_logger.debug("Beginning export processing for export source " + m_source.getTableName()
+                                + " partition " + m_source.getPartitionId());
+                            }
+                            m_source.setReadyForPolling(true); // Tell source it is OK to start polling now.
+                            synchronized (GuestProcessor.this) {
+                                if (m_shutdown) return;
+                                buildListener(ads);
                             }
-                        } catch(InterruptedException e) {
-                            resubmitSelf();
                         } catch (Exception e) {
                             VoltDB.crashLocalVoltDB("Failed to initiate export binary deque poll", true, e);
                         }
                     }
-
-                    private void resubmitSelf() {
-                        synchronized (GuestProcessor.this) {
-                            if (m_shutdown) return;
-                            if (!m_source.getExecutorService().isShutdown()) try {
-                                m_source.getExecutorService().submit(this);
-                            } catch (RejectedExecutionException whenExportDataSourceIsClosed) {
-                                // it is truncated so we no longer need to wait
-
-                                // TODO: When truncation is finished, generation roll-over does not happen.
-                                // Log a message to and revisit the error handling for this case
-                                m_logger.warn("Got rejected execution exception while waiting for truncation to finish");
-                            }
+                };
+                final Runnable submitBeginPolling = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (m_shutdown) return;
+                        if (!m_source.getExecutorService().isShutdown()) try {
+                            m_source.getExecutorService().submit(beginPolling);
+                        } catch (RejectedExecutionException whenExportDataSourceIsClosed) {
+                            // it is truncated so we no longer need to wait
+
+                            // TODO: When truncation is finished, generation roll-over does not happen.
+                            // Log a message to and revisit the error handling for this case
+                            m_logger.warn("Got rejected execution exception while waiting for truncation to finish");
                         }
                     }
                 };
                 if (m_shutdown) return;
-                if (!m_source.getExecutorService().isShutdown()) try {
-                    m_source.getExecutorService().submit(waitForBarrierRelease);
-                } catch (RejectedExecutionException whenExportDataSourceIsClosed) {
-                    // it is truncated so we no longer need to wait
-
-                    // TODO: When truncation is finished, generation roll-over does not happen.
-                    // Log a message to and revisit the error handling for this case
-                    m_logger.warn("Got rejected execution exception while waiting for truncation to finish");
+                if (m_startPolling) {
+                    submitBeginPolling.run();
+                } else {
+                    // Park the source until command log replay is done, startPolling() submits it
+                    m_waitingForPolling.add(submitBeginPolling);
                 }
             }
         }
@@ -297,7 +289,13 @@ public class GuestProcessor implements ExportDataProcessor {
     @Override
     public void startPolling() {
         Preconditions.checkState(!m_clientsByTarget.isEmpty(), "processor was not configured with setProcessorConfig()");
-        m_startPolling = true;
+        synchronized (this) {
+            m_startPolling = true;
+            for (Runnable submitBeginPolling : m_waitingForPolling) {
+                submitBeginPolling.run();
+            }
+            m_waitingForPolling.clear();
+        }
     }
 
 
@@ -430,6 +428,7 @@ public class GuestProcessor implements ExportDataProcessor {
     public void shutdown() {
         synchronized (this) {
             m_shutdown = true;
+            m_waitingForPolling.clear();
             for (final Pair<ExportDecoderBase, AdvertisedDataSource> p : m_decoders) {
                 try {
                     if (p == null) {
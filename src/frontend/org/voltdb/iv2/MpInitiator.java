@@ -33,6 +33,7 @@ import org.voltdb.ProducerDRGateway;
 import org.voltdb.Promotable;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
 import org.voltdb.iv2.RepairAlgo.RepairResult;
@@ -90,6 +91,9 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 m_partitionId,
                 m_initiatorMailbox);
         sched.setMpRoSitePool(sitePool);
+        agent.registerStatsSource(StatsSelector.MPREADPOOL,
+                m_initiatorMailbox.getHSId(),
+                sitePool.getStats());
 
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
@@ -265,6 +265,12 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
             throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
         }
 
+        @Override
+        public long getTableChangeCount(int tableId)
+        {
+            throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+        }
+
         @Override
         public void forceAllDRNodeBuffersToDisk(final boolean nofsync)
         {
@@ -17,6 +17,8 @@
 
 package org.voltdb.iv2;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -26,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.function.DoubleSupplier;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.BackendTarget;
@@ -37,6 +40,10 @@ import org.voltdb.StarvationTracker;
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ *
+ * Unless a fixed size is configured with mpiReadPoolSize, the number of sites the pool
+ * may use adapts to the load between mpiReadPoolMinSize and mpiReadPoolMaxSize,
+ * see {@link MpRoSitePoolSizer}. Sites above the current target are retired once idle.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
@@ -50,6 +57,8 @@ class MpRoSitePool {
         final private CatalogContext m_catalogContext;
         final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        // When the site started its current transaction, for the sizing latency
+        private long m_workStartNanos;
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -110,7 +119,10 @@ class MpRoSitePool {
     private final InitiatorMailbox m_initiatorMailbox;
     private CatalogContext m_catalogContext;
     private ThreadFactory m_poolThreadFactory;
-    private final int m_poolSize;
+    private final MpRoSitePoolSizer m_sizer;
+    private final MpRoSitePoolStats m_stats;
+    // Process CPU load between 0.0 and 1.0, negative if unknown
+    private final DoubleSupplier m_cpuLoad;
     private volatile boolean m_shuttingDown = false;
 
     MpRoSitePool(
@@ -130,11 +142,27 @@ class MpRoSitePool {
                     CoreUtils.MEDIUM_STACK_SIZE);
 
         Integer poolSize = Integer.getInteger("mpiReadPoolSize");
-        if (poolSize == null) {
-            poolSize = DEFAULT_MAX_POOL_SIZE;
+        if (poolSize != null) {
+            poolSize = Math.max(1, poolSize);
+            m_sizer = new MpRoSitePoolSizer(poolSize, poolSize, System.nanoTime());
+            tmLog.info("Setting fixed size of MPI read pool to: " + poolSize);
+        }
+        else {
+            int maxSize = Integer.getInteger("mpiReadPoolMaxSize", DEFAULT_MAX_POOL_SIZE);
+            maxSize = Math.max(1, maxSize);
+            int minSize = Math.max(1, Math.min(maxSize, Integer.getInteger("mpiReadPoolMinSize", INITIAL_POOL_SIZE)));
+            m_sizer = new MpRoSitePoolSizer(minSize, maxSize, System.nanoTime());
+            tmLog.info("Setting size of MPI read pool to adapt between: " + minSize + " and " + maxSize);
+        }
+        m_stats = new MpRoSitePoolStats(m_sizer);
+
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            m_cpuLoad = ((com.sun.management.OperatingSystemMXBean) osBean)::getProcessCpuLoad;
+        }
+        else {
+            m_cpuLoad = () -> -1;
         }
-        m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
 
         // Construct the initial pool
         for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
@@ -149,6 +177,11 @@ class MpRoSitePool {
         }
     }
 
+    MpRoSitePoolStats getStats()
+    {
+        return m_stats;
+    }
+
     /**
      * Update the catalog
      */
@@ -208,7 +241,38 @@ class MpRoSitePool {
         if (m_shuttingDown) {
             return false;
         }
-        return (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize);
+        return m_busySites.size() < m_sizer.getTargetSize();
+    }
+
+    /**
+     * Inform the pool that reads are waiting in the backlog because it couldn't accept them
+     */
+    void readsQueued(int queuedReads)
+    {
+        if (m_shuttingDown) {
+            return;
+        }
+        m_sizer.readsQueued(queuedReads);
+        resize();
+    }
+
+    /**
+     * Let the sizer re-evaluate the target size and retire idle sites above it
+     */
+    private void resize()
+    {
+        if (!m_sizer.isAdaptive()) {
+            return;
+        }
+        MpRoSitePoolSizer.SizeChange change = m_sizer.evaluate(System.nanoTime(), m_cpuLoad);
+        if (change != null && tmLog.isDebugEnabled()) {
+            tmLog.debug(change.toString());
+        }
+        while (m_allSites.size() > m_sizer.getTargetSize() && !m_idleSites.isEmpty()) {
+            MpRoSiteContext site = m_idleSites.removeLast();
+            site.shutdown();
+            m_allSites.remove(site);
+        }
     }
 
     /**
@@ -238,7 +302,10 @@ class MpRoSitePool {
                 m_allSites.add(newSite);
             }
             site = m_idleSites.pop();
+            site.m_workStartNanos = System.nanoTime();
             m_busySites.put(txnId, site);
+            m_sizer.workStarted(m_busySites.size());
+            resize();
         }
         site.offer(task);
         return true;
@@ -257,6 +324,7 @@ class MpRoSitePool {
         if (site == null) {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
         }
+        m_sizer.workCompleted(System.nanoTime() - site.m_workStartNanos);
         // check the catalog versions, only push back onto idle if the catalog hasn't changed
         // otherwise, just let it get garbage collected and let doWork() construct new ones for the
         // pool with the updated catalog.
@@ -268,6 +336,7 @@ class MpRoSitePool {
             site.shutdown();
             m_allSites.remove(site);
         }
+        resize();
     }
 
     void shutdown()
@@ -0,0 +1,231 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Sizing policy for the {@link MpRoSitePool}. Once per evaluation interval it looks at
+ * how many MP reads had to wait for a site, how many sites were busy, the average
+ * time a site spent on a read and the process CPU load, and picks a new target
+ * pool size between the configured minimum and maximum:
+ * <ul>
+ * <li>reads waited, CPU has headroom and latency is not degrading: double the target</li>
+ * <li>reads waited but CPU is saturated and latency is degrading: shrink by one, more
+ * sites would only add contention</li>
+ * <li>no reads waited and fewer than half of the sites were used: halve the target,
+ * never below the peak number of busy sites</li>
+ * </ul>
+ * Every change is kept in a bounded history which is reported by {@link MpRoSitePoolStats}.
+ *
+ * Like the pool, this is not thread safe and expects to be called while holding the
+ * MpTransactionTaskQueue lock. Only the history may be read from other threads.
+ */
+class MpRoSitePoolSizer {
+
+    static final long EVALUATION_INTERVAL_MS = Long.getLong("mpiReadPoolEvalIntervalMs", 1000);
+    static final int CPU_HIGH_PERCENT = Integer.getInteger("mpiReadPoolCpuHighPercent", 85);
+    // Average latency has to grow by this factor between two intervals to count as degrading
+    static final double LATENCY_DEGRADATION_FACTOR = 1.5;
+    static final int MAX_HISTORY = 100;
+
+    enum Reason {
+        READS_QUEUED,
+        CPU_SATURATED,
+        UNDERUTILIZED
+    }
+
+    static class SizeChange {
+        final long m_sequence;
+        final long m_timestamp;
+        final int m_oldSize;
+        final int m_newSize;
+        final Reason m_reason;
+        final int m_peakBusySites;
+        final int m_peakQueuedReads;
+        final long m_avgLatencyMicros;
+        final int m_cpuPercent;
+
+        SizeChange(long sequence, long timestamp, int oldSize, int newSize, Reason reason,
+                int peakBusySites, int peakQueuedReads, long avgLatencyMicros, int cpuPercent) {
+            m_sequence = sequence;
+            m_timestamp = timestamp;
+            m_oldSize = oldSize;
+            m_newSize = newSize;
+            m_reason = reason;
+            m_peakBusySites = peakBusySites;
+            m_peakQueuedReads = peakQueuedReads;
+            m_avgLatencyMicros = avgLatencyMicros;
+            m_cpuPercent = cpuPercent;
+        }
+
+        @Override
+        public String toString() {
+            return "MP read pool size " + m_oldSize + " -> " + m_newSize + " (" + m_reason
+                    + ", busy sites " + m_peakBusySites + ", queued reads " + m_peakQueuedReads
+                    + ", avg latency " + m_avgLatencyMicros + "us, cpu " + m_cpuPercent + "%)";
+        }
+    }
+
+    private final int m_minSize;
+    private final int m_maxSize;
+    private final long m_intervalNanos;
+    private int m_targetSize;
+
+    // Observations for the current interval
+    private long m_intervalStartNanos;
+    private int m_peakBusySites;
+    private int m_peakQueuedReads;
+    private long m_completed;
+    private long m_totalLatencyNanos;
+    // Average latency of the last interval which completed any work, 0 if unknown
+    private long m_lastAvgLatencyNanos;
+
+    private final Deque<SizeChange> m_history = new ArrayDeque<>();
+    private long m_changeSequence = 0;
+
+    MpRoSitePoolSizer(int minSize, int maxSize, long nowNanos) {
+        this(minSize, maxSize, TimeUnit.MILLISECONDS.toNanos(EVALUATION_INTERVAL_MS), nowNanos);
+    }
+
+    MpRoSitePoolSizer(int minSize, int maxSize, long intervalNanos, long nowNanos) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid MP read pool bounds: " + minSize + " - " + maxSize);
+        }
+        m_minSize = minSize;
+        m_maxSize = maxSize;
+        m_intervalNanos = intervalNanos;
+        // Start wide open, like a fixed size pool, and let the load shrink it.
+        // Sites are only created on demand so this doesn't cost anything up front.
+        m_targetSize = maxSize;
+        m_intervalStartNanos = nowNanos;
+    }
+
+    int getTargetSize() {
+        return m_targetSize;
+    }
+
+    int getMinSize() {
+        return m_minSize;
+    }
+
+    int getMaxSize() {
+        return m_maxSize;
+    }
+
+    boolean isAdaptive() {
+        return m_minSize != m_maxSize;
+    }
+
+    void workStarted(int busySites) {
+        if (busySites > m_peakBusySites) {
+            m_peakBusySites = busySites;
+        }
+    }
+
+    void workCompleted(long latencyNanos) {
+        m_completed++;
+        m_totalLatencyNanos += latencyNanos;
+    }
+
+    void readsQueued(int queuedReads) {
+        if (queuedReads > m_peakQueuedReads) {
+            m_peakQueuedReads = queuedReads;
+        }
+    }
+
+    /**
+     * Re-evaluate the target size if the current interval has elapsed.
+     * @param cpuLoad supplies the process CPU load between 0.0 and 1.0, negative if unknown.
+     *        It is only sampled once the interval has elapsed.
+     * @return the size change, or null if the target didn't change
+     */
+    SizeChange evaluate(long nowNanos, DoubleSupplier cpuLoad) {
+        if (nowNanos - m_intervalStartNanos < m_intervalNanos) {
+            return null;
+        }
+
+        final long avgLatencyNanos = m_completed == 0 ? 0 : m_totalLatencyNanos / m_completed;
+        final boolean latencyDegrading = m_lastAvgLatencyNanos > 0 && avgLatencyNanos > 0 &&
+                avgLatencyNanos > m_lastAvgLatencyNanos * LATENCY_DEGRADATION_FACTOR;
+        final double load = cpuLoad.getAsDouble();
+        final int cpuPercent = load < 0 ? -1 : (int) Math.round(load * 100);
+        final boolean cpuSaturated = cpuPercent >= CPU_HIGH_PERCENT;
+
+        int newSize = m_targetSize;
+        Reason reason = null;
+        if (m_peakQueuedReads > 0) {
+            if (cpuSaturated && latencyDegrading) {
+                newSize = Math.max(m_minSize, m_targetSize - 1);
+                reason = Reason.CPU_SATURATED;
+            }
+            else if (!cpuSaturated && !latencyDegrading) {
+                newSize = Math.min(m_maxSize, m_targetSize * 2);
+                reason = Reason.READS_QUEUED;
+            }
+        }
+        else if (m_peakBusySites * 2 < m_targetSize) {
+            newSize = Math.max(m_minSize, Math.max(m_peakBusySites, m_targetSize / 2));
+            reason = Reason.UNDERUTILIZED;
+        }
+
+        SizeChange change = null;
+        if (newSize != m_targetSize) {
+            change = new SizeChange(++m_changeSequence, System.currentTimeMillis(), m_targetSize, newSize,
+                    reason, m_peakBusySites, m_peakQueuedReads,
+                    TimeUnit.NANOSECONDS.toMicros(avgLatencyNanos), cpuPercent);
+            m_targetSize = newSize;
+            synchronized (m_history) {
+                if (m_history.size() == MAX_HISTORY) {
+                    m_history.removeFirst();
+                }
+                m_history.addLast(change);
+            }
+        }
+
+        if (m_completed > 0) {
+            m_lastAvgLatencyNanos = avgLatencyNanos;
+        }
+        m_intervalStartNanos = nowNanos;
+        m_peakBusySites = 0;
+        m_peakQueuedReads = 0;
+        m_completed = 0;
+        m_totalLatencyNanos = 0;
+        return change;
+    }
+
+    /**
+     * @return the recorded size changes with a sequence number greater than the given one, oldest first
+     */
+    List<SizeChange> getHistory(long afterSequence) {
+        synchronized (m_history) {
+            List<SizeChange> changes = new ArrayList<>(m_history.size());
+            for (SizeChange change : m_history) {
+                if (change.m_sequence > afterSequence) {
+                    changes.add(change);
+                }
+            }
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Reports the size changes of the MP read-only site pool, one row per change.
+ * An interval collection only returns the changes made since the previous one.
+ */
+public class MpRoSitePoolStats extends StatsSource {
+
+    public static interface Constants {
+        public final static String CHANGE_TIME = "CHANGE_TIME";
+        public final static String OLD_SIZE = "OLD_SIZE";
+        public final static String NEW_SIZE = "NEW_SIZE";
+        public final static String REASON = "REASON";
+        public final static String BUSY_SITES = "BUSY_SITES";
+        public final static String QUEUED_READS = "QUEUED_READS";
+        public final static String AVG_LATENCY_MICROS = "AVG_LATENCY_MICROS";
+        public final static String PERCENT_CPU = "PERCENT_CPU";
+        public final static String MIN_SIZE = "MIN_SIZE";
+        public final static String MAX_SIZE = "MAX_SIZE";
+    }
+
+    private final MpRoSitePoolSizer m_sizer;
+    private long m_lastIntervalSequence = 0;
+
+    MpRoSitePoolStats(MpRoSitePoolSizer sizer) {
+        super(false);
+        m_sizer = sizer;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.CHANGE_TIME, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.OLD_SIZE, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.NEW_SIZE, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.REASON, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.BUSY_SITES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.QUEUED_READS, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.AVG_LATENCY_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.PERCENT_CPU, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.MIN_SIZE, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.MAX_SIZE, VoltType.INTEGER));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        MpRoSitePoolSizer.SizeChange change = (MpRoSitePoolSizer.SizeChange) rowKey;
+        rowValues[columnNameToIndex.get(Constants.CHANGE_TIME)] = change.m_timestamp;
+        rowValues[columnNameToIndex.get(Constants.OLD_SIZE)] = change.m_oldSize;
+        rowValues[columnNameToIndex.get(Constants.NEW_SIZE)] = change.m_newSize;
+        rowValues[columnNameToIndex.get(Constants.REASON)] = change.m_reason.name();
+        rowValues[columnNameToIndex.get(Constants.BUSY_SITES)] = change.m_peakBusySites;
+        rowValues[columnNameToIndex.get(Constants.QUEUED_READS)] = change.m_peakQueuedReads;
+        rowValues[columnNameToIndex.get(Constants.AVG_LATENCY_MICROS)] = change.m_avgLatencyMicros;
+        rowValues[columnNameToIndex.get(Constants.PERCENT_CPU)] = change.m_cpuPercent;
+        rowValues[columnNameToIndex.get(Constants.MIN_SIZE)] = m_sizer.getMinSize();
+        rowValues[columnNameToIndex.get(Constants.MAX_SIZE)] = m_sizer.getMaxSize();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        List<MpRoSitePoolSizer.SizeChange> changes = m_sizer.getHistory(interval ? m_lastIntervalSequence : 0);
+        if (interval && !changes.isEmpty()) {
+            m_lastIntervalSequence = changes.get(changes.size() - 1).m_sequence;
+        }
+        @SuppressWarnings("rawtypes")
+        Iterator iter = changes.iterator();
+        return (Iterator<Object>)iter;
+    }
+}
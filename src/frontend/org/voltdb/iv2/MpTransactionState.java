@@ -27,6 +27,9 @@ import java.util.Set;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
@@ -44,9 +47,11 @@ import org.voltdb.messaging.DumpMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.ResultChunkMessage;
 import org.voltdb.utils.MiscUtils;
 import org.voltdb.utils.VoltTableUtil;
 
+import com.google_voltpatches.common.base.Charsets;
 import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.collect.Maps;
 import org.voltdb.utils.VoltTrace;
@@ -78,6 +83,10 @@ public class MpTransactionState extends TransactionState
     boolean m_haveDistributedInitTask = false;
     boolean m_isRestart = false;
     boolean m_fragmentRestarted = false;
+    // The partition results of the current batch go straight to the client as they arrive
+    boolean m_streamingResults = false;
+    // Some results went to the client already, the transaction can no longer be restarted
+    boolean m_resultsStreamed = false;
 
     //Master change from MigratePartitionLeader. The remote dependencies are built before MigratePartitionLeader. After
     //fragment restart, the FragmentResponseMessage will come from the new partition master. The map is used to remove
@@ -146,6 +155,7 @@ public class MpTransactionState extends TransactionState
         m_remoteWork = null;
         m_remoteDeps = null;
         m_remoteDepTables.clear();
+        m_streamingResults = false;
     }
 
     // I met this List at bandcamp...
@@ -223,6 +233,15 @@ public class MpTransactionState extends TransactionState
     {
         final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.MPSITE);
 
+        // the client has seen part of the results already, running the transaction again
+        // would send them twice
+        if (m_isRestart && m_resultsStreamed) {
+            setNeedsRollback(true);
+            throw new TransactionTerminationException(
+                    "Transaction restarted after some of its results were streamed to the client.", txnId);
+        }
+        m_streamingResults = !m_isRestart && canStreamResults();
+
         // if we're restarting this transaction, and we only have local work, add some dummy
         // remote work so that we can avoid injecting a borrow task into the local buddy site
         // before the CompleteTransactionMessage with the restart flag reaches it.
@@ -340,6 +359,48 @@ public class MpTransactionState extends TransactionState
         return results;
     }
 
+    /**
+     * The results of a read-only ad hoc query can be streamed to the client if the caller
+     * asked for it and the coordinator fragment only passes the partition results through,
+     * i.e. it is a bare SEND of a RECEIVE. Queries which merge, order, limit or aggregate
+     * the partition results on the coordinator return them in one response.
+     */
+    private boolean canStreamResults()
+    {
+        if (m_localWork == null || m_localWork.getFragmentCount() != 1 ||
+                m_remoteWork == null || m_remoteWork.getFragmentCount() != 1 ||
+                !isReadOnly() || !"@AdHoc_RO_MP".equals(m_initiationMsg.getStoredProcedureName()) ||
+                !getInvocation().getStreamResults()) {
+            return false;
+        }
+        byte[] plan = m_localWork.getFragmentPlan(0);
+        if (plan == null) {
+            return false;
+        }
+        try {
+            JSONObject jobj = new JSONObject(new String(plan, Charsets.UTF_8));
+            if (!jobj.has("PLAN_NODES")) {
+                return false;
+            }
+            JSONArray nodes = jobj.getJSONArray("PLAN_NODES");
+            if (nodes.length() != 2) {
+                return false;
+            }
+            for (int i = 0; i < nodes.length(); i++) {
+                JSONObject node = nodes.getJSONObject(i);
+                if (!node.isNull("INLINE_NODES") && node.getJSONArray("INLINE_NODES").length() > 0) {
+                    return false;
+                }
+            }
+            return "SEND".equals(nodes.getJSONObject(0).getString("PLAN_NODE_TYPE")) &&
+                    "RECEIVE".equals(nodes.getJSONObject(1).getString("PLAN_NODE_TYPE"));
+        }
+        catch (JSONException e) {
+            tmLog.warn("Unable to parse the coordinator fragment plan, results will not be streamed", e);
+            return false;
+        }
+    }
+
     private FragmentResponseMessage pollForResponses()
     {
         FragmentResponseMessage msg = null;
@@ -430,7 +491,18 @@ public class MpTransactionState extends TransactionState
             }
             // null dependency table is from a joining node, has no content, drop it
             if (table.getStatusCode() != VoltTableUtil.NULL_DEPENDENCY_STATUS) {
-                tables.add(table);
+                if (m_streamingResults) {
+                    // the coordinator passes it through unchanged, send it to the client
+                    // now and let the coordinator return an empty table
+                    m_mbox.send(m_initiationMsg.getInitiatorHSId(),
+                            new ResultChunkMessage(m_initiationMsg.getClientInterfaceHandle(),
+                                                   m_initiationMsg.getConnectionId(),
+                                                   table));
+                    m_resultsStreamed = true;
+                }
+                else {
+                    tables.add(table);
+                }
             }
         }
         else if (tmLog.isDebugEnabled()){
@@ -222,6 +222,10 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     // task will be null
                     task = m_backlog.peekFirst();
                 }
+                if (task != null && task.getTransactionState().isReadOnly()) {
+                    // Reads are waiting on the pool, let it know so it can grow
+                    m_sitePool.readsQueued(m_backlog.size());
+                }
             }
         }
         return retval;
@@ -429,6 +429,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             return m_ee.activateTableStream(tableId, type, undo ? getNextUndoToken(m_currentTxnId) : Long.MAX_VALUE, predicates);
         }
 
+        @Override
+        public long getTableChangeCount(int tableId)
+        {
+            return m_ee.tableChangeCount(tableId);
+        }
+
         @Override
         public Pair<Long, int[]> tableStreamSerializeMore(int tableId, TableStreamType type,
                                                           List<DBBPool.BBContainer> outputBuffers)
@@ -1290,6 +1296,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             long indexMem = 0;
             long stringMem = 0;
 
+            // counts the ad hoc planner costs its plans with
+            Map<String, Long> tableRows = new HashMap<>();
+            Map<String, Long> indexEntries = new HashMap<>();
+
             // update table stats
             final VoltTable[] s1 =
                 m_ee.getStats(StatsSelector.TABLE, tableIds, false, time);
@@ -1305,8 +1315,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                     assert(stats.getColumnName(5).equals("TABLE_NAME"));
                     boolean isReplicated = tables.getIgnoreCase(stats.getString(5)).getIsreplicated();
                     boolean trackMemory = (!isReplicated) || m_isLowestSiteId;
-                    if ("PersistentTable".equals(stats.getString(6)) && trackMemory){
-                        tupleCount += stats.getLong(7);
+                    if ("PersistentTable".equals(stats.getString(6))) {
+                        if (trackMemory) {
+                            tupleCount += stats.getLong(7);
+                        }
+                        tableRows.put(stats.getString(5), stats.getLong(7));
                     }
                     assert(stats.getColumnName(8).equals("TUPLE_ALLOCATED_MEMORY"));
                     if (trackMemory) {
@@ -1348,6 +1361,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                     if (trackMemory) {
                         indexMem += stats.getLong(11);
                     }
+                    assert(stats.getColumnName(5).equals("INDEX_NAME"));
+                    assert(stats.getColumnName(10).equals("ENTRY_COUNT"));
+                    indexEntries.put(stats.getString(5), stats.getLong(10));
                 }
                 stats.resetRowPosition();
 
@@ -1359,6 +1375,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 m_indexStats.resetStatsTable();
             }
 
+            if (m_context.m_ptool != null) {
+                m_context.m_ptool.getStatistics().updateSite(m_siteId, tableRows, indexEntries);
+            }
+
             // update the rolled up memory statistics
             if (m_memStats != null) {
                 m_memStats.eeUpdateMemStats(m_siteId,
@@ -803,6 +803,13 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public abstract long tableHashCode(int tableId);
 
+    /**
+     * Get a count which changes whenever a row of a table is inserted, updated or deleted,
+     * or the table is truncated or swapped.
+     * @param tableId table to get the change count of
+     */
+    public abstract long tableChangeCount(int tableId);
+
     /**
      * Compute the partition to which the parameter value maps using the
      * ExecutionEngine's hashinator.  Currently only valid for int types
@@ -905,7 +912,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             int defaultDrBufferSize,
             long tempTableMemory,
             boolean createDrReplicatedStream,
-            int compactionThreshold);
+            int compactionThreshold,
+            int parallelScanThreads);
 
     /**
      * Sets (or re-sets) all the shared direct byte buffers in the EE.
@@ -1117,6 +1125,13 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native long nativeTableHashCode(long pointer, int tableId);
 
+    /**
+     * Get the change count of a table.
+     * @param pointer Pointer to an engine instance
+     * @param tableId table to get the change count of
+     */
+    protected native long nativeTableChangeCount(long pointer, int tableId);
+
     protected native long nativeApplyBinaryLog(long pointer,
                                                long txnId,
                                                long spHandle,
@@ -131,7 +131,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         UpdateHashinator(27),
         ExecuteTask(28),
         ApplyBinaryLog(29),
-        ShutDown(30);
+        ShutDown(30),
+        TableChangeCount(31);
         Commands(final int id) {
             m_id = id;
         }
@@ -1656,6 +1657,32 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
     }
 
+    @Override
+    public long tableChangeCount(int tableId) {
+        try {
+            m_data.clear();
+            m_data.putInt(Commands.TableChangeCount.m_id);
+            m_data.putInt(tableId);
+
+            m_data.flip();
+            m_connection.write();
+
+            m_connection.readStatusByte();
+            ByteBuffer changeCount = ByteBuffer.allocate(8);
+            while (changeCount.hasRemaining()) {
+                int read = m_connection.m_socketChannel.read(changeCount);
+                if (read <= 0) {
+                    throw new EOFException();
+                }
+            }
+            changeCount.flip();
+            return changeCount.getLong();
+        } catch (final IOException e) {
+            System.out.println("Exception: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public int hashinate(Object value, HashinatorConfig config)
     {
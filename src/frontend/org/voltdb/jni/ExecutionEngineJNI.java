@@ -71,6 +71,12 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     public static final int EE_COMPACTION_THRESHOLD;
 
+    /*
+     * Number of helper threads, shared by all the sites of the host, which split the
+     * sequential scans of large tables in read-only fragments. 0 disables them.
+     */
+    public static final int EE_PARALLEL_SCAN_THREADS;
+
     /** java.util.logging logger. */
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
@@ -85,6 +91,10 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         if (EE_COMPACTION_THRESHOLD < 0 || EE_COMPACTION_THRESHOLD > 99) {
             VoltDB.crashLocalVoltDB("EE_COMPACTION_THRESHOLD " + EE_COMPACTION_THRESHOLD + " is not valid, must be between 0 and 99", false, null);
         }
+        EE_PARALLEL_SCAN_THREADS = Integer.getInteger("EE_PARALLEL_SCAN_THREADS", 0);
+        if (EE_PARALLEL_SCAN_THREADS < 0) {
+            VoltDB.crashLocalVoltDB("EE_PARALLEL_SCAN_THREADS " + EE_PARALLEL_SCAN_THREADS + " is not valid, must not be negative", false, null);
+        }
         HOST_TRACE_ENABLED = LOG.isTraceEnabled();
     }
 
@@ -184,7 +194,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     defaultDrBufferSize,
                     tempTableMemory * 1024 * 1024,
                     isLowestSiteId,
-                    EE_COMPACTION_THRESHOLD);
+                    EE_COMPACTION_THRESHOLD,
+                    EE_PARALLEL_SCAN_THREADS);
         checkErrorCode(errorCode);
 
         setupPsetBuffer(smallBufferSize);
@@ -697,6 +708,11 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         return nativeTableHashCode(pointer, tableId);
     }
 
+    @Override
+    public long tableChangeCount(int tableId) {
+        return nativeTableChangeCount(pointer, tableId);
+    }
+
     @Override
     public int hashinate(
             Object value,
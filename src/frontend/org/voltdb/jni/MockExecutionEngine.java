@@ -215,6 +215,11 @@ public class MockExecutionEngine extends ExecutionEngine {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public long tableChangeCount(int tableId) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int hashinate(Object value, TheHashinator.HashinatorConfig config) {
         return 0;
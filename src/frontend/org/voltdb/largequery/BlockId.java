@@ -60,17 +60,18 @@ public class BlockId {
      * @return A string of the form "SID___BLOCKID.block" where SID and BLOCKID are unsigned.
      */
     public String fileNameString() {
-        BigInteger bigSiteId = BigInteger.valueOf(getSiteId());
-        BigInteger bigBlockCounter = BigInteger.valueOf(getBlockId());
-        final BigInteger BIT_64 = BigInteger.ONE.shiftLeft(64);
+        return unsignedString(getSiteId()) + "___" + unsignedString(getBlockId()) + ".block";
+    }
 
-        if(bigSiteId.signum() < 0) {
-            bigSiteId = bigSiteId.add(BIT_64);
-        }
-        if(bigBlockCounter.signum() < 0) {
-            bigBlockCounter = bigBlockCounter.add(BIT_64);
+    /**
+     * Format an ID as unsigned, for use in file names.
+     */
+    static String unsignedString(long id) {
+        BigInteger bigId = BigInteger.valueOf(id);
+        if (bigId.signum() < 0) {
+            bigId = bigId.add(BigInteger.ONE.shiftLeft(64));
         }
-        return bigSiteId.toString() + "___" + bigBlockCounter.toString() + ".block";
+        return bigId.toString();
     }
 
     @Override
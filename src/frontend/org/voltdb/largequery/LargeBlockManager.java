@@ -18,23 +18,20 @@ package org.voltdb.largequery;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileAttribute;
-import java.nio.file.attribute.PosixFilePermission;
-import java.nio.file.attribute.PosixFilePermissions;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.utils.VoltFile;
 
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+
 /**
  * A class that manages large blocks produced by large queries.
  *
@@ -43,24 +40,27 @@ import org.voltdb.utils.VoltFile;
  *
  * This class is also responsible for managing the files in the
  * directory large_query_swap under voltdbroot.
+ *
+ * The blocks of each site are kept in a {@link SiteSpillStore}, which has its own
+ * lock and segment file, so sites spilling at the same time don't contend with
+ * each other. Writes and read ahead are done by a small shared pool of I/O threads.
  */
 public class LargeBlockManager {
+    // Size by which a segment file grows when its slots are exhausted
+    static final long SEGMENT_GROWTH_BYTES = Long.getLong("LARGE_QUERY_SEGMENT_GROWTH_MB", 64) * 1024 * 1024;
+    // Max number of blocks per site being written in the background, each holds a copy of the block
+    static final int MAX_PENDING_WRITES = Integer.getInteger("LARGE_QUERY_MAX_PENDING_WRITES", 2);
+    static final int SPILL_THREADS = Integer.getInteger("LARGE_QUERY_SPILL_THREADS",
+            Math.max(1, Math.min(CoreUtils.availableProcessors() / 2, 8)));
+    // Do all spill I/O synchronously on the site thread
+    static final boolean SYNC_SPILL = Boolean.getBoolean("LARGE_QUERY_SYNC_SPILL");
+
     private final Path m_largeQuerySwapPath;
-    private final Map<BlockId, Path> m_blockPathMap = new HashMap<>();
-    private final Object m_accessLock = new Object();
+    private final ConcurrentMap<Long, SiteSpillStore> m_siteStores = new ConcurrentHashMap<>();
+    private final ListeningExecutorService m_spillExecutor;
 
     private static LargeBlockManager INSTANCE = null;
 
-    private final static Set<OpenOption> OPEN_OPTIONS = new HashSet<>();
-    private final static FileAttribute<Set<PosixFilePermission>> PERMISSIONS;
-
-    static {
-        OPEN_OPTIONS.add(StandardOpenOption.CREATE_NEW);
-        OPEN_OPTIONS.add(StandardOpenOption.WRITE);
-        Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rw-------");
-        PERMISSIONS = PosixFilePermissions.asFileAttribute(perms);
-    }
-
     /**
      * This method creates the instance of LargeBlockManager (if it does not exist) and
      * clears out any files in the large query swap directory.
@@ -74,7 +74,7 @@ public class LargeBlockManager {
         // JUnit tests that have an in-process server that is re-used.  This is
         // okay.  Create a new instance of LargeBlockManager regardless.
 
-        INSTANCE = new LargeBlockManager(largeQuerySwapPath);
+        INSTANCE = new LargeBlockManager(largeQuerySwapPath, !SYNC_SPILL);
         INSTANCE.startupInstance();
     }
 
@@ -98,17 +98,20 @@ public class LargeBlockManager {
 
     /**
      * Private constructor---use initializeInstance and getInstance instead.
+     * Given package visibility for unit testing purposes.
      */
-    private LargeBlockManager(Path largeQuerySwapPath) {
+    LargeBlockManager(Path largeQuerySwapPath, boolean asyncSpill) {
         m_largeQuerySwapPath = largeQuerySwapPath;
+        m_spillExecutor = asyncSpill ?
+                CoreUtils.getListeningExecutorService("Large Query Spill", SPILL_THREADS) : null;
     }
 
     /**
      * On startup, clear out the large query swap directory.
      * @throws IOException
      */
-    private void startupInstance() throws IOException {
-        assert (m_blockPathMap.isEmpty());
+    void startupInstance() throws IOException {
+        assert (m_siteStores.isEmpty());
         try {
             clearSwapDir();
         }
@@ -122,8 +125,11 @@ public class LargeBlockManager {
      * and clear out the directory of blocks on disk.
      * @throws IOException
      */
-    private void shutdownInstance() throws IOException {
+    void shutdownInstance() throws IOException {
         releaseAllBlocks();
+        if (m_spillExecutor != null) {
+            m_spillExecutor.shutdown();
+        }
         try {
             clearSwapDir();
         }
@@ -141,7 +147,7 @@ public class LargeBlockManager {
      * @throws IOException
      */
     private void clearSwapDir() throws IOException {
-        if (! m_blockPathMap.isEmpty()) {
+        if (! m_siteStores.isEmpty()) {
             throw new IllegalStateException("Attempt to clear swap directory when "
                     + "there are still managed blocks; use releaseAllBlocks() instead");
         }
@@ -155,47 +161,39 @@ public class LargeBlockManager {
         }
     }
 
+    private SiteSpillStore getSiteStore(long siteId) {
+        SiteSpillStore store = m_siteStores.get(siteId);
+        if (store == null) {
+            store = new SiteSpillStore(siteId, makeSegmentPath(siteId),
+                    SEGMENT_GROWTH_BYTES, MAX_PENDING_WRITES, m_spillExecutor);
+            SiteSpillStore existing = m_siteStores.putIfAbsent(siteId, store);
+            if (existing != null) {
+                store = existing;
+            }
+        }
+        return store;
+    }
+
     /**
      * Store the given block with the given ID to disk.
+     * The block may still be being written when this returns, it can be loaded in the meantime.
      * @param id           the ID of the block
      * @param origAddress  the original address of the block
      * @param block        the bytes for the block
      * @throws IOException
      */
     public void storeBlock(BlockId blockId, long origAddress, ByteBuffer block) throws IOException {
-        synchronized (m_accessLock) {
-            if (m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to store block that is already stored: "
-                                                    + blockId.toString());
-            }
-
-            // We need to store the original memory address of the block so that the EE
-            // can update pointers to non-inlined data in the tuples, when the block is later loaded.
-            //
-            // At some point the block header will contain more items because
-            // we'll need to track more metadata on disk before the block itself:
-            //   - When we can pass temporary results to the coordinator site in MP plans, we'll need also to store
-            //     the number of tuples in the block.  Currently blocks are loaded and stored in the same EE
-            //     so all metadata is retained there.
-            //   - When we return a large result to the client, we may need a place to
-            //     store the schema of the result.
-            ByteBuffer origAddressBuffer = ByteBuffer.allocate(8);
-            origAddressBuffer.putLong(origAddress);
-            origAddressBuffer.position(0);
-
-            int origPosition = block.position();
-            block.position(0);
-            Path blockPath = makeBlockPath(blockId);
-            try (SeekableByteChannel channel = Files.newByteChannel(blockPath, OPEN_OPTIONS, PERMISSIONS)) {
-                channel.write(origAddressBuffer);
-                channel.write(block);
-            }
-            finally {
-                block.position(origPosition);
-            }
-
-            m_blockPathMap.put(blockId, blockPath);
-        }
+        // We need to store the original memory address of the block so that the EE
+        // can update pointers to non-inlined data in the tuples, when the block is later loaded.
+        //
+        // At some point the block header will contain more items because
+        // we'll need to track more metadata on disk before the block itself:
+        //   - When we can pass temporary results to the coordinator site in MP plans, we'll need also to store
+        //     the number of tuples in the block.  Currently blocks are loaded and stored in the same EE
+        //     so all metadata is retained there.
+        //   - When we return a large result to the client, we may need a place to
+        //     store the schema of the result.
+        getSiteStore(blockId.getSiteId()).storeBlock(blockId, origAddress, block);
     }
 
     /**
@@ -206,69 +204,58 @@ public class LargeBlockManager {
      * @throws IOException
      */
     public long loadBlock(BlockId blockId, ByteBuffer block) throws IOException {
-        synchronized (m_accessLock) {
-            if (! m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to load block that is not stored: " + blockId);
-            }
-
-            ByteBuffer origAddressBuffer = ByteBuffer.allocate(8);
-
-            int origPosition = block.position();
-            block.position(0);
-            Path blockPath = m_blockPathMap.get(blockId);
-            try (SeekableByteChannel channel = Files.newByteChannel(blockPath)) {
-                channel.read(origAddressBuffer);
-                channel.read(block);
-            }
-            finally {
-                block.position(origPosition);
-            }
-
-            origAddressBuffer.position(0);
-            long origAddress = origAddressBuffer.getLong();
-            return origAddress;
+        SiteSpillStore store = m_siteStores.get(blockId.getSiteId());
+        if (store == null) {
+            throw new IllegalArgumentException("Request to load block that is not stored: " + blockId);
         }
+        return store.loadBlock(blockId, block);
     }
 
     /**
-     * The block with the given site id and block counter is no longer needed, so delete it from disk.
+     * The block with the given site id and block counter is no longer needed, so free its space on disk.
      * @param siteId         The siteId of the block to release.
      * @param blockCounter   The ID of the block to release.
      * @throws IOException
      */
     public void releaseBlock(BlockId blockId) throws IOException {
-        synchronized (m_accessLock) {
-            if (! m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to release block that is not stored: " + blockId);
-            }
-
-            Path blockPath = m_blockPathMap.get(blockId);
-            Files.delete(blockPath);
-            m_blockPathMap.remove(blockId);
+        SiteSpillStore store = m_siteStores.get(blockId.getSiteId());
+        if (store == null) {
+            throw new IllegalArgumentException("Request to release block that is not stored: " + blockId);
         }
+        store.releaseBlock(blockId);
     }
 
     /**
-     * Release all the blocks that are on disk, and delete them from the
-     * map that tracks them.
+     * Release all the blocks that are on disk, and delete the segment
+     * files that hold them.
      * @throws IOException
      */
     private void releaseAllBlocks() throws IOException {
-        synchronized (m_accessLock) {
-            Set<Map.Entry<BlockId, Path>> entries = m_blockPathMap.entrySet();
-            while (! entries.isEmpty()) {
-                Map.Entry<BlockId, Path> entry = entries.iterator().next();
-                Files.delete(entry.getValue());
-                m_blockPathMap.remove(entry.getKey());
-                entries = m_blockPathMap.entrySet();
-            }
+        Iterator<SiteSpillStore> iter = m_siteStores.values().iterator();
+        while (iter.hasNext()) {
+            iter.next().close();
+            iter.remove();
+        }
+    }
+
+    /**
+     * @return the number of blocks currently stored, for all sites
+     */
+    public int getStoredBlockCount() {
+        int count = 0;
+        for (SiteSpillStore store : m_siteStores.values()) {
+            count += store.getBlockCount();
         }
+        return count;
+    }
+
+    List<SiteSpillStore> getSiteStores() {
+        return new ArrayList<>(m_siteStores.values());
     }
 
-    // Given an ID, generate the Path for it.
+    // Given a site ID, generate the Path of its segment file.
     // Given package visibility for unit testing purposes.
-    Path makeBlockPath(BlockId id) {
-        String filename = id.fileNameString();
-        return m_largeQuerySwapPath.resolve(filename);
+    Path makeSegmentPath(long siteId) {
+        return m_largeQuerySwapPath.resolve(BlockId.unsignedString(siteId) + ".segment");
     }
 }
@@ -0,0 +1,99 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.largequery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Spill statistics of the large query block store, one row per site that has spilled.
+ * Counters are cumulative since the block manager was started.
+ */
+public class LargeBlockStats extends StatsSource {
+
+    public static interface Constants {
+        public final static String SITE_ID = "SITE_ID";
+        public final static String BLOCKS_STORED = "BLOCKS_STORED";
+        public final static String BYTES_STORED = "BYTES_STORED";
+        public final static String SEGMENT_BYTES = "SEGMENT_BYTES";
+        public final static String BYTES_WRITTEN = "BYTES_WRITTEN";
+        public final static String AVG_WRITE_MICROS = "AVG_WRITE_MICROS";
+        public final static String BYTES_READ = "BYTES_READ";
+        public final static String AVG_READ_MICROS = "AVG_READ_MICROS";
+        public final static String MEMORY_HITS = "MEMORY_HITS";
+        public final static String PREFETCH_HITS = "PREFETCH_HITS";
+    }
+
+    public LargeBlockStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.SITE_ID, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.BLOCKS_STORED, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.BYTES_STORED, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.SEGMENT_BYTES, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.BYTES_WRITTEN, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.AVG_WRITE_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.BYTES_READ, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.AVG_READ_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.MEMORY_HITS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.PREFETCH_HITS, VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        SiteSpillStore store = (SiteSpillStore) rowKey;
+        rowValues[columnNameToIndex.get(Constants.SITE_ID)] = store.getSiteId();
+        rowValues[columnNameToIndex.get(Constants.BLOCKS_STORED)] = store.getBlockCount();
+        rowValues[columnNameToIndex.get(Constants.BYTES_STORED)] = store.getStoredBytes();
+        rowValues[columnNameToIndex.get(Constants.SEGMENT_BYTES)] = store.getSegmentBytes();
+        rowValues[columnNameToIndex.get(Constants.BYTES_WRITTEN)] = store.m_bytesWritten.get();
+        rowValues[columnNameToIndex.get(Constants.AVG_WRITE_MICROS)] =
+                averageMicros(store.m_writeNanos.get(), store.m_writes.get());
+        rowValues[columnNameToIndex.get(Constants.BYTES_READ)] = store.m_bytesRead.get();
+        rowValues[columnNameToIndex.get(Constants.AVG_READ_MICROS)] =
+                averageMicros(store.m_readNanos.get(), store.m_reads.get());
+        rowValues[columnNameToIndex.get(Constants.MEMORY_HITS)] = store.m_memoryHits.get();
+        rowValues[columnNameToIndex.get(Constants.PREFETCH_HITS)] = store.m_prefetchHits.get();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    private static long averageMicros(long totalNanos, long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / count);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        LargeBlockManager lbm = LargeBlockManager.getInstance();
+        if (lbm == null) {
+            return Collections.emptyIterator();
+        }
+        @SuppressWarnings("rawtypes")
+        Iterator iter = lbm.getSiteStores().iterator();
+        return (Iterator<Object>)iter;
+    }
+}
@@ -0,0 +1,570 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.largequery;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * The large query blocks of a single site, kept in one segment file.
+ *
+ * The segment is grown in large preallocated steps and divided into slots, one per
+ * stored block. Released slots are merged with their free neighbours and reused by
+ * later blocks, the smallest free slot which fits is split, so that spilling doesn't
+ * create and delete a file per block. Free space at the end of the segment is given
+ * back to it, and the file is truncated once no block is left.
+ *
+ * Writes are asynchronous: the block is copied into a buffer owned by the store and
+ * written by the shared spill executor, while loads of a block whose write is still in
+ * flight are served from that buffer. A failed write is thrown from the next store or
+ * load of the site, its block stays in memory until it is released. After a block is loaded, the next stored block of
+ * the site is read ahead on the executor, since scans of a large temp table visit its
+ * blocks in the order they were stored.
+ *
+ * All operations are done while holding the lock of this store, so sites never contend
+ * with each other. Only positional I/O, which FileChannel allows concurrently, is done
+ * by the executor threads.
+ */
+class SiteSpillStore {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    private final static Set<OpenOption> OPEN_OPTIONS = new HashSet<>();
+    private final static FileAttribute<Set<PosixFilePermission>> PERMISSIONS;
+
+    static {
+        OPEN_OPTIONS.add(StandardOpenOption.CREATE_NEW);
+        OPEN_OPTIONS.add(StandardOpenOption.READ);
+        OPEN_OPTIONS.add(StandardOpenOption.WRITE);
+        Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rw-------");
+        PERMISSIONS = PosixFilePermissions.asFileAttribute(perms);
+    }
+
+    // Each slot starts with the original address of the block
+    static final int HEADER_SIZE = 8;
+
+    private static class StoredBlock {
+        final long m_blockId;
+        final long m_offset;
+        final int m_slotSize;
+        final long m_origAddress;
+        // Copy of the slot while its write is in flight, or if the write failed
+        ByteBuffer m_pending;
+        Future<?> m_write;
+        boolean m_released;
+
+        StoredBlock(long blockId, long offset, int slotSize, long origAddress) {
+            m_blockId = blockId;
+            m_offset = offset;
+            m_slotSize = slotSize;
+            m_origAddress = origAddress;
+        }
+    }
+
+    private static class Prefetch {
+        final StoredBlock m_block;
+        final Future<?> m_read;
+
+        Prefetch(StoredBlock block, Future<?> read) {
+            m_block = block;
+            m_read = read;
+        }
+    }
+
+    private final long m_siteId;
+    private final Path m_segmentPath;
+    private final long m_growthBytes;
+    private final int m_maxPendingWrites;
+    // null to do all I/O synchronously on the calling thread
+    private final ListeningExecutorService m_executor;
+
+    private FileChannel m_channel;
+    private long m_segmentSize = 0;
+    private long m_usedSize = 0;
+    private final TreeMap<Long, StoredBlock> m_blocks = new TreeMap<>();
+    // Free space below m_usedSize, by offset and by size
+    private final TreeMap<Long, Long> m_freeByOffset = new TreeMap<>();
+    private final TreeMap<Long, TreeSet<Long>> m_freeBySize = new TreeMap<>();
+    // First asynchronous write which failed since the last store or load
+    private IOException m_writeError;
+    private final ArrayDeque<StoredBlock> m_pendingWrites = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> m_bufferPool = new ArrayDeque<>();
+    private ByteBuffer m_prefetchBuffer;
+    private Prefetch m_prefetch;
+
+    // Statistics, read without the lock
+    final AtomicLong m_bytesWritten = new AtomicLong();
+    final AtomicLong m_writes = new AtomicLong();
+    final AtomicLong m_writeNanos = new AtomicLong();
+    final AtomicLong m_bytesRead = new AtomicLong();
+    final AtomicLong m_reads = new AtomicLong();
+    final AtomicLong m_readNanos = new AtomicLong();
+    final AtomicLong m_memoryHits = new AtomicLong();
+    final AtomicLong m_prefetchHits = new AtomicLong();
+    private volatile int m_blockCount = 0;
+    private volatile long m_storedBytes = 0;
+    private volatile long m_segmentBytes = 0;
+
+    SiteSpillStore(long siteId, Path segmentPath, long growthBytes, int maxPendingWrites,
+            ListeningExecutorService executor) {
+        m_siteId = siteId;
+        m_segmentPath = segmentPath;
+        m_growthBytes = growthBytes;
+        m_maxPendingWrites = maxPendingWrites;
+        m_executor = executor;
+    }
+
+    long getSiteId() {
+        return m_siteId;
+    }
+
+    Path getSegmentPath() {
+        return m_segmentPath;
+    }
+
+    int getBlockCount() {
+        return m_blockCount;
+    }
+
+    long getStoredBytes() {
+        return m_storedBytes;
+    }
+
+    long getSegmentBytes() {
+        return m_segmentBytes;
+    }
+
+    synchronized void storeBlock(BlockId blockId, long origAddress, ByteBuffer block) throws IOException {
+        if (m_blocks.containsKey(blockId.getBlockId())) {
+            throw new IllegalArgumentException("Request to store block that is already stored: "
+                                                + blockId.toString());
+        }
+        reapWrites(false);
+        if (m_executor != null) {
+            while (m_pendingWrites.size() >= m_maxPendingWrites) {
+                reapWrites(true);
+            }
+        }
+        throwWriteError();
+
+        int slotSize = HEADER_SIZE + block.limit();
+        StoredBlock stored = new StoredBlock(blockId.getBlockId(), allocateSlot(slotSize), slotSize, origAddress);
+
+        ByteBuffer slot = takeBuffer(slotSize);
+        slot.putLong(origAddress);
+        ByteBuffer src = block.duplicate();
+        src.position(0);
+        slot.put(src);
+        slot.flip();
+
+        if (m_executor == null) {
+            try {
+                write(slot, stored.m_offset);
+            }
+            catch (IOException e) {
+                freeSlot(stored);
+                throw e;
+            }
+            finally {
+                returnBuffer(slot);
+            }
+        }
+        else {
+            stored.m_pending = slot;
+            stored.m_write = m_executor.submit(new WriteTask(slot.duplicate(), stored.m_offset));
+            m_pendingWrites.add(stored);
+        }
+
+        m_blocks.put(stored.m_blockId, stored);
+        m_blockCount = m_blocks.size();
+        m_storedBytes += slotSize;
+    }
+
+    synchronized long loadBlock(BlockId blockId, ByteBuffer block) throws IOException {
+        StoredBlock stored = m_blocks.get(blockId.getBlockId());
+        if (stored == null) {
+            throw new IllegalArgumentException("Request to load block that is not stored: " + blockId);
+        }
+        reapWrites(false);
+        throwWriteError();
+
+        ByteBuffer dst = block.duplicate();
+        dst.position(0);
+        dst.limit(Math.min(dst.limit(), stored.m_slotSize - HEADER_SIZE));
+        if (stored.m_pending != null) {
+            copySlot(stored.m_pending, dst);
+            m_memoryHits.incrementAndGet();
+        }
+        else if (m_prefetch != null && m_prefetch.m_block == stored && awaitPrefetch()) {
+            copySlot(m_prefetchBuffer, dst);
+            m_prefetchHits.incrementAndGet();
+        }
+        else {
+            read(dst, stored.m_offset + HEADER_SIZE);
+        }
+
+        if (m_executor != null) {
+            prefetchAfter(stored.m_blockId);
+        }
+        return stored.m_origAddress;
+    }
+
+    synchronized void releaseBlock(BlockId blockId) {
+        StoredBlock stored = m_blocks.remove(blockId.getBlockId());
+        if (stored == null) {
+            throw new IllegalArgumentException("Request to release block that is not stored: " + blockId);
+        }
+        m_blockCount = m_blocks.size();
+        m_storedBytes -= stored.m_slotSize;
+        if (m_prefetch != null && m_prefetch.m_block == stored) {
+            awaitPrefetch();
+            m_prefetch = null;
+        }
+        stored.m_released = true;
+        if (stored.m_write == null) {
+            // Write is done or was never asynchronous, otherwise the slot is freed once it completes
+            stored.m_pending = null;
+            freeSlot(stored);
+        }
+        reapWrites(false);
+        if (m_blocks.isEmpty()) {
+            truncateSegment();
+        }
+    }
+
+    /**
+     * Give the disk space of the segment back once no block is stored in it.
+     */
+    private void truncateSegment() {
+        // The writes still in flight are all of released blocks
+        while (!m_pendingWrites.isEmpty()) {
+            reapWrites(true);
+        }
+        assert(m_usedSize == 0 && m_freeByOffset.isEmpty());
+        m_freeByOffset.clear();
+        m_freeBySize.clear();
+        m_usedSize = 0;
+        if (m_channel != null && m_segmentSize > 0) {
+            try {
+                m_channel.truncate(0);
+                m_segmentSize = 0;
+                m_segmentBytes = 0;
+            }
+            catch (IOException e) {
+                hostLog.warn("Could not truncate large query segment " + m_segmentPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void throwWriteError() throws IOException {
+        if (m_writeError != null) {
+            IOException e = m_writeError;
+            m_writeError = null;
+            throw new IOException("Could not write large temp table block to disk", e);
+        }
+    }
+
+    /**
+     * Wait for all I/O in flight, then close and delete the segment file.
+     */
+    synchronized void close() throws IOException {
+        while (!m_pendingWrites.isEmpty()) {
+            reapWrites(true);
+        }
+        if (m_prefetch != null) {
+            awaitPrefetch();
+            m_prefetch = null;
+        }
+        m_blocks.clear();
+        m_freeByOffset.clear();
+        m_freeBySize.clear();
+        m_writeError = null;
+        m_bufferPool.clear();
+        m_prefetchBuffer = null;
+        m_blockCount = 0;
+        m_storedBytes = 0;
+        if (m_channel != null) {
+            m_channel.close();
+            m_channel = null;
+            Files.deleteIfExists(m_segmentPath);
+        }
+        m_segmentSize = 0;
+        m_usedSize = 0;
+        m_segmentBytes = 0;
+    }
+
+    private long allocateSlot(int slotSize) throws IOException {
+        // Best fit, the rest of the free slot stays free
+        Map.Entry<Long, TreeSet<Long>> fit = m_freeBySize.ceilingEntry((long) slotSize);
+        if (fit != null) {
+            long offset = fit.getValue().first();
+            long size = fit.getKey();
+            removeFree(offset, size);
+            if (size > slotSize) {
+                addFree(offset + slotSize, size - slotSize);
+            }
+            return offset;
+        }
+        if (m_channel == null) {
+            m_channel = FileChannel.open(m_segmentPath, OPEN_OPTIONS, PERMISSIONS);
+        }
+        long offset = m_usedSize;
+        m_usedSize += slotSize;
+        if (m_usedSize > m_segmentSize) {
+            // Grow the segment by a large step, so that the file size only changes once in a while
+            m_segmentSize = Math.max(m_usedSize, m_segmentSize + m_growthBytes);
+            m_channel.write(ByteBuffer.allocate(1), m_segmentSize - 1);
+            m_segmentBytes = m_segmentSize;
+        }
+        return offset;
+    }
+
+    private void freeSlot(StoredBlock stored) {
+        long offset = stored.m_offset;
+        long size = stored.m_slotSize;
+        // Merge with the free neighbours
+        Map.Entry<Long, Long> previous = m_freeByOffset.lowerEntry(offset);
+        if (previous != null && previous.getKey() + previous.getValue() == offset) {
+            removeFree(previous.getKey(), previous.getValue());
+            offset = previous.getKey();
+            size += previous.getValue();
+        }
+        Long nextSize = m_freeByOffset.get(offset + size);
+        if (nextSize != null) {
+            removeFree(offset + size, nextSize);
+            size += nextSize;
+        }
+        if (offset + size == m_usedSize) {
+            // The end of the segment is reused first by the next allocation from it
+            m_usedSize = offset;
+        }
+        else {
+            addFree(offset, size);
+        }
+    }
+
+    private void addFree(long offset, long size) {
+        m_freeByOffset.put(offset, size);
+        TreeSet<Long> offsets = m_freeBySize.get(size);
+        if (offsets == null) {
+            offsets = new TreeSet<>();
+            m_freeBySize.put(size, offsets);
+        }
+        offsets.add(offset);
+    }
+
+    private void removeFree(long offset, long size) {
+        m_freeByOffset.remove(offset);
+        TreeSet<Long> offsets = m_freeBySize.get(size);
+        offsets.remove(offset);
+        if (offsets.isEmpty()) {
+            m_freeBySize.remove(size);
+        }
+    }
+
+    private ByteBuffer takeBuffer(int size) {
+        Iterator<ByteBuffer> iter = m_bufferPool.iterator();
+        while (iter.hasNext()) {
+            ByteBuffer buffer = iter.next();
+            if (buffer.capacity() == size) {
+                iter.remove();
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private void returnBuffer(ByteBuffer buffer) {
+        // Only keep as many buffers as there can be writes in flight
+        if (m_bufferPool.size() >= Math.max(1, m_maxPendingWrites)) {
+            m_bufferPool.removeLast();
+        }
+        m_bufferPool.push(buffer);
+    }
+
+    /**
+     * Retire completed writes, returning their buffers and the slots of blocks released meanwhile.
+     * @param waitForOldest block until the oldest write in flight completes
+     */
+    private void reapWrites(boolean waitForOldest) {
+        while (!m_pendingWrites.isEmpty()) {
+            StoredBlock stored = m_pendingWrites.peek();
+            if (!waitForOldest && !stored.m_write.isDone()) {
+                return;
+            }
+            waitForOldest = false;
+            m_pendingWrites.poll();
+            boolean written = true;
+            try {
+                stored.m_write.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                written = false;
+            }
+            catch (ExecutionException e) {
+                hostLog.error("Could not write large temp table block to disk, keeping it in memory: "
+                        + e.getCause().getMessage());
+                if (m_writeError == null) {
+                    m_writeError = e.getCause() instanceof IOException ?
+                            (IOException) e.getCause() : new IOException(e.getCause());
+                }
+                written = false;
+            }
+            stored.m_write = null;
+            if (stored.m_released) {
+                stored.m_pending = null;
+                freeSlot(stored);
+            }
+            else if (written) {
+                returnBuffer(stored.m_pending);
+                stored.m_pending = null;
+            }
+        }
+    }
+
+    private void prefetchAfter(long blockId) {
+        Map.Entry<Long, StoredBlock> next = m_blocks.higherEntry(blockId);
+        if (next == null || next.getValue().m_pending != null) {
+            return;
+        }
+        StoredBlock stored = next.getValue();
+        if (m_prefetch != null) {
+            if (m_prefetch.m_block == stored) {
+                return;
+            }
+            awaitPrefetch();
+        }
+        if (m_prefetchBuffer == null || m_prefetchBuffer.capacity() < stored.m_slotSize) {
+            m_prefetchBuffer = ByteBuffer.allocateDirect(stored.m_slotSize);
+        }
+        m_prefetchBuffer.clear();
+        m_prefetchBuffer.limit(stored.m_slotSize);
+        m_prefetch = new Prefetch(stored,
+                m_executor.submit(new ReadTask(m_prefetchBuffer.duplicate(), stored.m_offset)));
+    }
+
+    /**
+     * Wait for the read ahead in flight
+     * @return true if it succeeded and the prefetch buffer holds the slot
+     */
+    private boolean awaitPrefetch() {
+        Prefetch prefetch = m_prefetch;
+        m_prefetch = null;
+        try {
+            prefetch.m_read.get();
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            hostLog.warn("Could not read ahead large temp table block: " + e.getCause().getMessage());
+        }
+        return false;
+    }
+
+    // Copy the block out of a slot image, skipping the header
+    private static void copySlot(ByteBuffer slot, ByteBuffer dst) {
+        ByteBuffer src = slot.duplicate();
+        src.position(HEADER_SIZE);
+        src.limit(Math.min(slot.limit(), HEADER_SIZE + dst.remaining()));
+        dst.put(src);
+    }
+
+    private void write(ByteBuffer src, long offset) throws IOException {
+        final long start = System.nanoTime();
+        final int length = src.remaining();
+        long position = offset;
+        while (src.hasRemaining()) {
+            position += m_channel.write(src, position);
+        }
+        m_writeNanos.addAndGet(System.nanoTime() - start);
+        m_bytesWritten.addAndGet(length);
+        m_writes.incrementAndGet();
+    }
+
+    private void read(ByteBuffer dst, long offset) throws IOException {
+        final long start = System.nanoTime();
+        final int length = dst.remaining();
+        long position = offset;
+        while (dst.hasRemaining()) {
+            int read = m_channel.read(dst, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of large query segment " + m_segmentPath);
+            }
+            position += read;
+        }
+        m_readNanos.addAndGet(System.nanoTime() - start);
+        m_bytesRead.addAndGet(length);
+        m_reads.incrementAndGet();
+    }
+
+    private class WriteTask implements java.util.concurrent.Callable<Void> {
+        private final ByteBuffer m_src;
+        private final long m_offset;
+
+        WriteTask(ByteBuffer src, long offset) {
+            m_src = src;
+            m_offset = offset;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            write(m_src, m_offset);
+            return null;
+        }
+    }
+
+    private class ReadTask implements java.util.concurrent.Callable<Void> {
+        private final ByteBuffer m_dst;
+        private final long m_offset;
+
+        ReadTask(ByteBuffer dst, long offset) {
+            m_dst = dst;
+            m_offset = offset;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            read(m_dst, m_offset);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+
+/**
+ * One chunk of the results of an invocation which asked for its results to be streamed,
+ * sent to the client interface ahead of the InitiateResponseMessage of the invocation.
+ * The client interface forwards it to the connection and handle of the invocation.
+ */
+public class ResultChunkMessage extends VoltMessage {
+
+    private long m_clientInterfaceHandle;
+    private long m_connectionId;
+    private VoltTable m_chunk;
+
+    /** Empty constructor for de-serialization */
+    ResultChunkMessage()
+    {
+        super();
+    }
+
+    public ResultChunkMessage(long clientInterfaceHandle, long connectionId, VoltTable chunk)
+    {
+        super();
+        m_clientInterfaceHandle = clientInterfaceHandle;
+        m_connectionId = connectionId;
+        m_chunk = chunk;
+        m_chunk.resetRowPosition();
+    }
+
+    public long getClientInterfaceHandle() {
+        return m_clientInterfaceHandle;
+    }
+
+    public long getClientConnectionId() {
+        return m_connectionId;
+    }
+
+    public VoltTable getChunk() {
+        return m_chunk;
+    }
+
+    @Override
+    public int getSerializedSize()
+    {
+        int size = super.getSerializedSize();
+        size += 8 // client interface handle
+              + 8 // connection id
+              + m_chunk.getSerializedSize();
+        return size;
+    }
+
+    @Override
+    protected void initFromBuffer(ByteBuffer buf) throws IOException
+    {
+        m_clientInterfaceHandle = buf.getLong();
+        m_connectionId = buf.getLong();
+        m_chunk = PrivateVoltTableFactory.createVoltTableFromSharedBuffer(buf);
+    }
+
+    @Override
+    public void flattenToBuffer(ByteBuffer buf) throws IOException
+    {
+        buf.put(VoltDbMessageFactory.RESULT_CHUNK_ID);
+        buf.putLong(m_clientInterfaceHandle);
+        buf.putLong(m_connectionId);
+        m_chunk.flattenToBuffer(buf);
+    }
+
+    @Override
+    public String toString() {
+        return "RESULT_CHUNK (CI HANDLE: " + m_clientInterfaceHandle +
+                ", CONNECTION: " + m_connectionId + ", ROWS: " + m_chunk.getRowCount() + ")";
+    }
+}
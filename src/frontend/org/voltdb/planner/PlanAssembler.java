@@ -60,6 +60,7 @@ import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.CommonTablePlanNode;
 import org.voltdb.plannodes.DeletePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexSortablePlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
@@ -311,7 +312,8 @@ public class PlanAssembler {
                 // Convert RIGHT joins to the LEFT ones
                 ((BranchNode)m_parsedSelect.m_joinTree).toLeftJoin();
             }
-            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning);
+            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning,
+                    m_isLargeQuery);
 
             // Process the GROUP BY information, decide whether it is group by the partition column
             if (isPartitionColumnInGroupbyList(m_parsedSelect.groupByColumns())) {
@@ -1156,17 +1158,19 @@ public class PlanAssembler {
                 if (m_parsedSelect.m_mvFixInfo.needed()) {
                     mvFixInfoCoordinatorNeeded = false;
                     AbstractPlanNode receiveNode = receivers.get(0);
-                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode) {
+                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode ||
+                            receiveNode.getParent(0) instanceof HashJoinPlanNode) {
                         if (subSelectRoot.hasInlinedIndexScanOfTable(m_parsedSelect.m_mvFixInfo.getMVTableName())) {
                             return getNextSelectPlan();
                         }
 
                         List<AbstractPlanNode> nljs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOP);
                         List<AbstractPlanNode> nlijs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+                        List<AbstractPlanNode> hjs = receiveNode.findAllNodesOfType(PlanNodeType.HASHJOIN);
 
                         // outer join edge case does not have any join plan node under receive node.
                         // This is like a single table case.
-                        if (nljs.size() + nlijs.size() == 0) {
+                        if (nljs.size() + nlijs.size() + hjs.size() == 0) {
                             mvFixInfoEdgeCaseOuterJoin = true;
                         }
                         root = handleMVBasedMultiPartQuery(reAggNode, root, mvFixInfoEdgeCaseOuterJoin);
@@ -2393,7 +2397,8 @@ public class PlanAssembler {
         }
 
         // For join node, find outer sequential scan plan node
-        if (candidate.getPlanNodeType() == PlanNodeType.NESTLOOP) {
+        if (candidate.getPlanNodeType() == PlanNodeType.NESTLOOP ||
+                candidate.getPlanNodeType() == PlanNodeType.HASHJOIN) {
             assert(candidate.getChildCount() == 2);
             return findSeqScanCandidateForGroupBy(candidate.getChild(0));
         }
@@ -3154,6 +3159,7 @@ public class PlanAssembler {
         AbstractPlanNode receiveNode = root;
         List<ParsedColInfo> orderBys = m_parsedSelect.orderByColumns();
         boolean orderByCoversAllGroupBy = m_parsedSelect.groupByIsAnOrderByPermutation();
+        boolean orderByExtremeAggregate = isOrderByOnlyExtremeAggregate(root, orderBys);
 
         while ( ! (receiveNode instanceof ReceivePlanNode)) {
 
@@ -3164,7 +3170,7 @@ public class PlanAssembler {
             if ( ! (receiveNode instanceof OrderByPlanNode) &&
                     ! (receiveNode instanceof ProjectionPlanNode) &&
                     ! isValidAggregateNodeForLimitPushdown(receiveNode,
-                            orderBys, orderByCoversAllGroupBy) ) {
+                            orderBys, orderByCoversAllGroupBy, orderByExtremeAggregate) ) {
                 return null;
             }
 
@@ -3172,7 +3178,8 @@ public class PlanAssembler {
                 // if grouping by the partition key,
                 // limit can still push down if ordered by aggregate values.
                 if (! m_parsedSelect.hasPartitionColumnInGroupby() &&
-                        isOrderByAggregationValue(m_parsedSelect.orderByColumns())) {
+                        isOrderByAggregationValue(m_parsedSelect.orderByColumns()) &&
+                        ! orderByExtremeAggregate) {
                     return null;
                 }
             }
@@ -3205,10 +3212,106 @@ public class PlanAssembler {
         return false;
     }
 
+    /**
+     * A top N ordered by the value of a MAX (descending) or a MIN (ascending) aggregate
+     * can be taken on every partition before the coordinator aggregates the partial
+     * groups, if that is the only aggregate and nothing but group by expressions are
+     * ordered before it. Every group of the top N is also in the top N of the partition
+     * which holds its extreme value, and that partition sends the group with that value.
+     * No partition can overstate the value of any other group, so the coordinator
+     * finds the same top N. Any other aggregate of the pruned groups would be wrong.
+     *
+     * NULL sorts below every value, so the MIN of a group with only NULL values on a
+     * partition comes first in ascending order and would push the real top N out of that
+     * partition. MIN is only accepted over a NOT NULL column. A MAX of NULL sorts last
+     * in descending order, which can only understate a group.
+     *
+     * A top N ordered by SUM or COUNT is not pushed down. The value of a group adds up
+     * over the partitions, so a group can be in the global top N without being in the
+     * local top N of any partition. Pruning it exactly would need thresholds exchanged
+     * between the coordinator and the partitions, which a plan run in a single round of
+     * fragments can't do, and there is no way for a query to opt into an approximate
+     * top N.
+     */
+    private boolean isOrderByOnlyExtremeAggregate(AbstractPlanNode root,
+            List<ParsedColInfo> orderBys) {
+        // The order by columns of complex aggregates are expressions of the aggregates,
+        // which need not keep the order of the aggregate values.
+        if (m_parsedSelect.hasComplexAgg()) {
+            return false;
+        }
+        AbstractPlanNode node = root;
+        while ( ! (node instanceof AggregatePlanNode)) {
+            if (node instanceof ReceivePlanNode || node.getChildCount() != 1) {
+                return false;
+            }
+            node = node.getChild(0);
+        }
+        AggregatePlanNode aggNode = (AggregatePlanNode) node;
+        if ( ! aggNode.m_isCoordinatingAggregator ||
+                aggNode.getAggregateTypesSize() != 1 ||
+                aggNode.getPostPredicate() != null) {
+            return false;
+        }
+        ExpressionType aggType = aggNode.getAggregateTypes().get(0);
+        if (aggType != ExpressionType.AGGREGATE_MAX && aggType != ExpressionType.AGGREGATE_MIN) {
+            return false;
+        }
+        if (aggType == ExpressionType.AGGREGATE_MIN && ! isMinOfNotNullColumn()) {
+            return false;
+        }
+
+        for (ParsedColInfo col : orderBys) {
+            AbstractExpression expr = col.expression;
+            boolean hasAggregate = false;
+            for (AbstractExpression tve : expr.findAllTupleValueSubexpressions()) {
+                if (((TupleValueExpression) tve).hasAggregate()) {
+                    hasAggregate = true;
+                }
+            }
+            if (hasAggregate) {
+                // The first ordering by the aggregate decides, it has to put the extreme values first
+                return expr instanceof TupleValueExpression &&
+                        col.ascending == (aggType == ExpressionType.AGGREGATE_MIN);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every MIN aggregate of the statement is over a NOT NULL column
+     */
+    private boolean isMinOfNotNullColumn() {
+        List<ParsedColInfo> columns = new ArrayList<>(m_parsedSelect.displayColumns());
+        columns.addAll(m_parsedSelect.orderByColumns());
+        for (ParsedColInfo col : columns) {
+            for (AbstractExpression agg : col.expression.findAllAggregateSubexpressions()) {
+                if (agg.getExpressionType() != ExpressionType.AGGREGATE_MIN) {
+                    continue;
+                }
+                if ( ! (agg.getLeft() instanceof TupleValueExpression)) {
+                    return false;
+                }
+                TupleValueExpression tve = (TupleValueExpression) agg.getLeft();
+                Table table = m_catalogDb.getTables().getIgnoreCase(tve.getTableName());
+                if (table == null) {
+                    // derived tables do not keep the nullability of their columns
+                    return false;
+                }
+                Column column = table.getColumns().getIgnoreCase(tve.getColumnName());
+                if (column == null || column.getNullable()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private static boolean isValidAggregateNodeForLimitPushdown(
             AbstractPlanNode aggregateNode,
             List<ParsedColInfo> orderBys,
-            boolean orderByCoversAllGroupBy) {
+            boolean orderByCoversAllGroupBy,
+            boolean orderByExtremeAggregate) {
         if (aggregateNode instanceof AggregatePlanNode == false) {
             return false;
         }
@@ -3241,7 +3344,8 @@ public class PlanAssembler {
             return false;
         }
 
-        if (( ! orderByCoversAllGroupBy) || isOrderByAggregationValue(orderBys)) {
+        if ((( ! orderByCoversAllGroupBy) || isOrderByAggregationValue(orderBys)) &&
+                ! orderByExtremeAggregate) {
             return false;
         }
 
@@ -25,8 +25,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -38,11 +40,13 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.utils.PermutationGenerator;
 
@@ -63,16 +67,22 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<>();
 
+    /** Whether the plan may spill its intermediate results, which rules out hash joins */
+    private final boolean m_isLargeQuery;
+
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param isLargeQuery true if the intermediate results of the plan may be spilled to disk
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+            boolean isLargeQuery)
     {
         super(db, selectStmt, partitioning);
+        m_isLargeQuery = isLargeQuery;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
@@ -722,7 +732,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -763,6 +772,14 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+            // Rather than scanning the inner rows for every outer row, hash them on the join keys
+            // if there are any. A large query may not hold its inner rows in memory.
+            // The executor falls back to scanning the inner rows when the outer input is tiny
+            // or the hash table doesn't fit under the temp table memory limit.
+            AbstractJoinPlanNode nljNode = m_isLargeQuery ? null : getHashJoinNode(joinNode, joinClauses);
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -810,6 +827,68 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Create a hash join keyed on the equalities among the join clauses which compare an
+     * expression of the outer tables to an expression of the inner tables.
+     *
+     * @param joinNode A parent join node.
+     * @param joinClauses The conjuncts of the join predicate.
+     * @return The hash join, or null if no join clause can key it.
+     */
+    private static HashJoinPlanNode getHashJoinNode(BranchNode joinNode, List<AbstractExpression> joinClauses) {
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression expr : joinClauses) {
+            if (expr.getExpressionType() != ExpressionType.COMPARE_EQUAL &&
+                    expr.getExpressionType() != ExpressionType.COMPARE_NOTDISTINCT) {
+                continue;
+            }
+            AbstractExpression outerExpr = expr.getLeft();
+            AbstractExpression innerExpr = expr.getRight();
+            if ( ! (isOnlyDependentOnTables(outerExpr, outerTables) &&
+                    isOnlyDependentOnTables(innerExpr, innerTables))) {
+                outerExpr = expr.getRight();
+                innerExpr = expr.getLeft();
+                if ( ! (isOnlyDependentOnTables(outerExpr, outerTables) &&
+                        isOnlyDependentOnTables(innerExpr, innerTables))) {
+                    continue;
+                }
+            }
+            // Equal values of different types may hash differently, and so may 0.0 and -0.0
+            if (outerExpr.getValueType() != innerExpr.getValueType() ||
+                    outerExpr.getValueType() == VoltType.FLOAT) {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashKey(outerExpr, innerExpr,
+                    expr.getExpressionType() == ExpressionType.COMPARE_NOTDISTINCT);
+        }
+        return hjNode;
+    }
+
+    /**
+     * @return true if the expression references columns, all of them from the given tables,
+     * and has no subqueries.
+     */
+    private static boolean isOnlyDependentOnTables(AbstractExpression expr, Collection<String> tableAliases) {
+        if (expr.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+            return false;
+        }
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
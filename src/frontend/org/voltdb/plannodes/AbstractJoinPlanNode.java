@@ -412,8 +412,8 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode implements I
         AbstractExpression predicate = null;
         if (childNode instanceof AbstractScanPlanNode) {
             predicate = ((AbstractScanPlanNode) childNode).getPredicate();
-        } else if (childNode instanceof NestLoopPlanNode) {
-            predicate = ((NestLoopPlanNode) childNode).getWherePredicate();
+        } else if (childNode instanceof NestLoopPlanNode || childNode instanceof HashJoinPlanNode) {
+            predicate = ((AbstractJoinPlanNode) childNode).getWherePredicate();
         } else if (childNode instanceof NestLoopIndexPlanNode) {
             AbstractPlanNode inlineIndexScan = ((NestLoopIndexPlanNode) childNode).getInlinePlanNode(PlanNodeType.INDEXSCAN);
             assert(inlineIndexScan != null);
@@ -0,0 +1,172 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join which hashes the inner (build) child on its join keys and probes the hash
+ * table with the keys of every outer row, so each outer row only visits the inner rows
+ * with the same keys. The join predicate, which includes the key equalities, is still
+ * evaluated on every candidate pair. Outer rows are processed in order, so the output
+ * keeps the order of the outer child like a nested loop join.
+ *
+ * The inner child is the one hashed, since the output has to keep the order of the outer
+ * child. The executor charges the hash table to the temp table memory limit. It scans the
+ * inner rows for every outer row, like a nested loop join, when the outer input has only
+ * a few rows or the hash table would not fit under the limit. The join order is chosen
+ * with nested loop costs.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS,
+        COMPARE_NOTDISTINCT;
+    }
+
+    // Pairwise equal key expressions of the outer and the inner child
+    private final List<AbstractExpression> m_outerHashExpressions = new ArrayList<>();
+    private final List<AbstractExpression> m_innerHashExpressions = new ArrayList<>();
+    // Whether a pair of keys is compared with IS NOT DISTINCT FROM, so null keys match
+    private final List<Boolean> m_compareNotDistinct = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    /**
+     * Add a pair of join keys which must be equal for an outer and an inner row to join
+     *
+     * @param compareNotDistinct true if null keys are equal to each other
+     */
+    public void addHashKey(AbstractExpression outerExpr, AbstractExpression innerExpr,
+            boolean compareNotDistinct) {
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+        m_compareNotDistinct.add(compareNotDistinct);
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    public List<Boolean> getCompareNotDistinctFlags() {
+        return m_compareNotDistinct;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size() ||
+                m_outerHashExpressions.size() != m_compareNotDistinct.size()) {
+            throw new Exception("ERROR: Hash join with " + m_outerHashExpressions.size() +
+                    " outer and " + m_innerHashExpressions.size() + " inner keys");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        // Costed like the nest loop join it replaces. The nest loop estimate doesn't charge for
+        // rescanning the inner child, so charging the hash join for building its table would make
+        // join orders through a cross join look cheaper than the ones joining on the hashed keys.
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount;
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array(m_outerHashExpressions);
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array(m_innerHashExpressions);
+        booleanArrayToJSONString(stringer, Members.COMPARE_NOTDISTINCT.name(), m_compareNotDistinct);
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+        loadBooleanArrayFromJSONObject(jobj, Members.COMPARE_NOTDISTINCT.name(), m_compareNotDistinct);
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                (m_sortDirection == SortDirectionType.INVALID ? "" : " (" + m_sortDirection + ")") +
+                explainFilters(indent);
+    }
+
+}
@@ -610,6 +610,13 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
         // FYI: Index scores should range between 2 and 800003 (I think)
 
         DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(m_targetTableName);
+        // A partial index may hold fewer entries than its table has rows,
+        // when the statistics of a running database tell how many.
+        long indexedTuples = tableEstimates.maxTuples;
+        Long indexEntries = estimates.getEntriesForIndex(m_catalogIndex.getTypeName());
+        if (indexEntries != null && indexEntries < indexedTuples) {
+            indexedTuples = indexEntries;
+        }
 
         // get the width of the index - number of columns or expression included in the index
         // need doubles for math
@@ -667,7 +674,7 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            tuplesToRead += (int) (indexedTuples * 0.90 * Math.pow(0.10, keyWidth));
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
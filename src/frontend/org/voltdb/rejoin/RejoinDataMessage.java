@@ -29,14 +29,15 @@ import org.voltdb.messaging.VoltDbMessageFactory;
  */
 public class RejoinDataMessage extends VoltMessage {
     private long m_targetId = -1;
-    // compressed snapshot data
-    private byte[] m_data = null;
+    // compressed snapshot data. On the sending side this is the sender's pooled
+    // buffer, on the receiving side a slice of the buffer the message arrived in.
+    private ByteBuffer m_data = null;
 
     public RejoinDataMessage() {
         m_subject = Subject.DEFAULT.getId();
     }
 
-    public RejoinDataMessage(long targetId, byte[] data) {
+    public RejoinDataMessage(long targetId, ByteBuffer data) {
         m_subject = Subject.DEFAULT.getId();
         m_targetId = targetId;
         m_data = data;
@@ -46,7 +47,7 @@ public class RejoinDataMessage extends VoltMessage {
         return m_targetId;
     }
 
-    public byte[] getData() {
+    public ByteBuffer getData() {
         return m_data;
     }
 
@@ -56,7 +57,7 @@ public class RejoinDataMessage extends VoltMessage {
         msgsize +=
                 8 + // m_targetId
                 4 + // data length
-                m_data.length;
+                m_data.remaining();
         return msgsize;
     }
 
@@ -64,16 +65,18 @@ public class RejoinDataMessage extends VoltMessage {
     protected void initFromBuffer(ByteBuffer buf) throws IOException {
         m_targetId = buf.getLong();
         int len = buf.getInt();
-        m_data = new byte[len];
-        buf.get(m_data);
+        m_data = buf.slice();
+        m_data.limit(len);
+        buf.position(buf.position() + len);
     }
 
     @Override
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
         buf.put(VoltDbMessageFactory.REJOIN_DATA_ID);
         buf.putLong(m_targetId);
-        buf.putInt(m_data.length);
-        buf.put(m_data);
+        buf.putInt(m_data.remaining());
+        // The same message may be flattened for several destinations concurrently
+        buf.put(m_data.duplicate());
         buf.limit(buf.position());
     }
 }
@@ -130,7 +130,8 @@ implements Runnable {
 
                     assert(msg instanceof RejoinDataMessage);
                     RejoinDataMessage dataMsg = (RejoinDataMessage) msg;
-                    byte[] data = dataMsg.getData();
+                    // Duplicated because a locally delivered message may be shared by several receivers
+                    ByteBuffer data = dataMsg.getData().duplicate();
 
                     // Only grab the buffer from the pool after receiving a message from the
                     // mailbox. If the buffer is grabbed before receiving the message,
@@ -143,19 +144,23 @@ implements Runnable {
                     ByteBuffer messageBuffer = container.b();
                     messageBuffer.clear();
 
-                    compressionBufferC = m_compressedDataBufferPool.poll();
-                    if (compressionBufferC == null) {
-                        compressionBufferC = new TrackedCompressedDataBBContainer(DBBPool.allocateDirect(SnapshotSiteProcessor.m_snapshotBufferCompressedLen));
+                    if (!data.isDirect()) {
+                        // Arrived over the network, stage it in a direct buffer for decompression.
+                        // A locally delivered message still references the sender's direct buffer,
+                        // which isn't released until this block is acked, so it is used in place.
+                        compressionBufferC = m_compressedDataBufferPool.poll();
+                        if (compressionBufferC == null) {
+                            compressionBufferC = new TrackedCompressedDataBBContainer(DBBPool.allocateDirect(SnapshotSiteProcessor.m_snapshotBufferCompressedLen));
+                        }
+                        compressionBuffer = compressionBufferC.b();
+                        compressionBuffer.clear();
+                        compressionBuffer.put(data);
+                        compressionBuffer.flip();
+                        data = compressionBuffer;
                     }
-                    compressionBuffer = compressionBufferC.b();
-                    compressionBuffer.clear();
-                    compressionBuffer.limit(data.length);
-                    compressionBuffer.put(data);
-                    compressionBuffer.flip();
-                    int uncompressedSize =
-                            CompressionService.decompressBuffer(
-                                    compressionBuffer,
-                                    messageBuffer);
+                    // The first byte is the codec the sender compressed the block with
+                    final CompressionService.Codec codec = CompressionService.Codec.get(data.get());
+                    int uncompressedSize = codec.decompress(data, messageBuffer);
                     messageBuffer.limit(uncompressedSize);
                     m_queue.offer(new StreamSnapshotSink.DecodedContainer(dataMsg.m_sourceHSId, dataMsg.getTargetId(), container));
                     success = true;
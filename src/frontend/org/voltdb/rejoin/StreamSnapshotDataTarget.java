@@ -19,9 +19,11 @@ package org.voltdb.rejoin;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -150,6 +152,9 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
      */
     public static class SendWork {
         BBContainer m_message;
+        // Pooled direct buffers holding the compressed message(s). They are handed to the
+        // messaging subsystem as is and released together with m_message once acked.
+        final List<BBContainer> m_compressed = new ArrayList<>(2);
         final StreamSnapshotMessageType m_type;
         final long m_targetId;
         final long m_destHSId;
@@ -198,6 +203,42 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 m_message.discard();
                 m_message = null;
             }
+            for (BBContainer compressed : m_compressed) {
+                compressed.discard();
+            }
+            m_compressed.clear();
+        }
+
+        /**
+         * Compress the given buffer into a pooled direct buffer owned by this work.
+         * The messages only reference the returned buffer, the messaging subsystem copies
+         * it straight into the network buffer of each destination. Acks are sent after the
+         * receiver has consumed the block, so the buffer is held until then.
+         * The block starts with the id of the codec, which the receiver decompresses it with.
+         */
+        private ByteBuffer compress(ByteBuffer uncompressed) throws IOException {
+            BBContainer input = null;
+            try {
+                if (!uncompressed.isDirect()) {
+                    // Only the small schema, hashinator and end of stream blocks are on heap
+                    input = DBBPool.allocateDirectAndPool(uncompressed.remaining());
+                    input.b().put(uncompressed.duplicate());
+                    input.b().flip();
+                    uncompressed = input.b();
+                }
+                BBContainer output = DBBPool.allocateDirectAndPool(
+                        CompressionService.maxCompressedLength(uncompressed.remaining()));
+                m_compressed.add(output);
+                final ByteBuffer block = output.b();
+                block.put(CompressionService.REJOIN_CODEC.getId());
+                CompressionService.REJOIN_CODEC.compress(uncompressed, block);
+                block.position(0);
+                return block;
+            } finally {
+                if (input != null) {
+                    input.discard();
+                }
+            }
         }
 
         /**
@@ -206,32 +247,15 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          * subsystem.
          */
         protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
-            final ByteBuffer messageBuffer = message.b();
-            if (messageBuffer.isDirect()) {
-                byte[] data = CompressionService.compressBuffer(messageBuffer);
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
-                return data.length;
-            } else {
-                byte compressedBytes[] =
-                    CompressionService.compressBytes(
-                            messageBuffer.array(), messageBuffer.position(),
-                            messageBuffer.remaining());
-
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressedBytes));
-                return compressedBytes.length;
-            }
+            final ByteBuffer compressed = compress(message.b());
+            final int compressedLength = compressed.remaining();
+            mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressed));
+            return compressedLength;
         }
 
-        private void sendReplicatedDataToNonLowestSites(Mailbox mb, MessageFactory msgFactory, ByteBuffer message, int len) throws IOException {
-            byte[] compressedBytes;
-            if (message.isDirect()) {
-                compressedBytes = CompressionService.compressBuffer(message);
-            }
-            else {
-                compressedBytes =
-                    CompressionService.compressBytes(message.array(), 0, len);
-            }
-            mb.send(Longs.toArray(m_otherDestHSIds), msgFactory.makeDataMessage(m_targetId, compressedBytes));
+        private void sendReplicatedDataToNonLowestSites(Mailbox mb, MessageFactory msgFactory, ByteBuffer message) throws IOException {
+            final ByteBuffer compressed = compress(message);
+            mb.send(Longs.toArray(m_otherDestHSIds), msgFactory.makeDataMessage(m_targetId, compressed));
         }
 
         public synchronized int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
@@ -254,18 +278,18 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                         dummyBuffer.position(ROW_COUNT_OFFSET);
                         dummyBuffer.putInt(0);  // Row Count
                         dummyBuffer.position(0);
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, dummyBuffer, DATA_HEADER_BYTES);
+                        sendReplicatedDataToNonLowestSites(mb, msgFactory, dummyBuffer);
                     }
                     else if (m_type == StreamSnapshotMessageType.END) {
                         // Special case for sending END messages to Non-Leader sites from the site that sent the replicated
                         // Tables. We do this because replicated tables can race with partitioned tables so the sending 2
                         // ENDs (one from the Replicated Table data target and one from the Partitioned tables data target)
                         // means that the sink can be deallocated.
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b(), m_message.b().limit());
+                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b());
                     }
                     else {
                         // Special case for sending schema for replicated table to all sites of host
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b(), m_message.b().remaining());
+                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b());
                     }
                 }
                 else {
@@ -20,7 +20,6 @@ package org.voltdb.sysprocs;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -46,6 +45,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -197,8 +197,24 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static volatile DuplicateRowHandler m_duplicateRowHandler = null;
 
     private final static String HASHINATOR_ALL_BAD = "All hashinator snapshots are bad (%s).";
+    /**
+     * Number of chunks a distributing site converts and partitions ahead of the load fragments
+     * it is waiting on, so that splitting the next chunks overlaps with loading the current one.
+     */
+    private static final int RESTORE_PIPELINE_DEPTH = Integer.getInteger("SNAPSHOT_RESTORE_PIPELINE_DEPTH", 2);
+
+    // Tuples restored for a table and when the first ones were reported, to log throughput.
+    static class TableRestoreProgress {
+        final AtomicLong m_tuples = new AtomicLong(0);
+        final long m_startTime = System.currentTimeMillis();
+
+        long tuplesPerSecond(long now) {
+            return m_tuples.get() * 1000 / Math.max(1, now - m_startTime);
+        }
+    }
+
     // These keep track of count per table that are reported restored by the snapshotrestore process.
-    static final Map<String, AtomicLong> m_reportStats = new HashMap<String, AtomicLong>();
+    static final Map<String, TableRestoreProgress> m_reportStats = new HashMap<String, TableRestoreProgress>();
     static final Map<String, Integer> m_selectedReportPartition = new HashMap<String, Integer>();
     static long m_nextReportTime = 0;
     //Report every minute.
@@ -237,14 +253,18 @@ public class SnapshotRestore extends VoltSystemProcedure {
             relevantPartitionSet.add(part_id);
         }
 
+        // All the files are read concurrently so split the read ahead budget between them
+        final int readAheadChunks = Math.max(4, (st.getLocalSites().length * 2) / originalHostIds.length);
         for (int originalHostId : originalHostIds) {
             final File f = getSaveFileForPartitionedTable(filePath, fileNonce,
                     tableName,
                     originalHostId);
             TableSaveFile savefile = getTableSaveFile(
                     f,
-                    st.getLocalSites().length * 2,
+                    readAheadChunks,
                     relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]));
+            savefile.enableParallelDecompression();
+            savefile.prefetch();
 
             m_saveFiles.offer(savefile);
             for (int part_id : savefile.getPartitionIds())
@@ -278,11 +298,13 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static synchronized BBContainer getNextChunk() throws IOException {
         BBContainer c = null;
         while (c == null && m_saveFiles.peek() != null) {
-            TableSaveFile f = m_saveFiles.peek();
+            TableSaveFile f = m_saveFiles.poll();
             c = f.getNextChunk();
             if (c == null) {
                 f.close();
-                m_saveFiles.poll();
+            } else {
+                // Take turns between files so they are all drained at the rate they are read
+                m_saveFiles.offer(f);
             }
         }
         return c;
@@ -1362,9 +1384,10 @@ public class SnapshotRestore extends VoltSystemProcedure {
         final PrintWriter pw = new PrintWriter(sw);
         pw.toString();
         pw.printf("%.2f", duration);
-        for (String tableName : m_reportStats.keySet()) {
-            SNAP_LOG.info("Table " + tableName + " "
-                    + m_reportStats.get(tableName) + " tuples restored from snapshot. (final)");
+        for (Map.Entry<String, TableRestoreProgress> e : m_reportStats.entrySet()) {
+            SNAP_LOG.info("Table " + e.getKey() + " "
+                    + e.getValue().m_tuples.get() + " tuples restored from snapshot at "
+                    + e.getValue().tuplesPerSecond(endTime) + " tuples/s. (final)");
         }
         m_reportStats.clear();
         m_selectedReportPartition.clear();
@@ -1629,10 +1652,9 @@ public class SnapshotRestore extends VoltSystemProcedure {
             int readAheadChunks,
             Integer relevantPartitionIds[]) throws IOException
             {
-        FileInputStream savefile_input = new FileInputStream(saveFile);
         TableSaveFile savefile =
                 new TableSaveFile(
-                        savefile_input,
+                        saveFile,
                         readAheadChunks,
                         relevantPartitionIds);
         return savefile;
@@ -1708,23 +1730,29 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 m_selectedReportPartition.put(tableName, partitionId);
             }
         }
-        AtomicLong counter;
+        TableRestoreProgress progress;
         synchronized (m_reportStats) {
-            counter = m_reportStats.get(tableName);
-            if (counter == null) {
-                counter = new AtomicLong(0);
-                m_reportStats.put(tableName, counter);
+            progress = m_reportStats.get(tableName);
+            if (progress == null) {
+                progress = new TableRestoreProgress();
+                m_reportStats.put(tableName, progress);
             }
         }
         if (count != 0) {
             //we add regardless of displaying....final count is displayed at the end.
-            count = counter.addAndGet(count);
+            progress.m_tuples.addAndGet(count);
             long curTime = System.currentTimeMillis();
             if (m_nextReportTime == 0 || curTime > m_nextReportTime) {
                 m_nextReportTime = curTime + m_reportInterval;
-                SNAP_LOG.info("Table " + tableName + ": " + count
-                        + " tuples restored from snapshot. Next progress report at "
-                        + m_reportDateFormat.format(new Date(m_nextReportTime)));
+                //Tables are restored concurrently by different sites so report all of them
+                synchronized (m_reportStats) {
+                    for (Map.Entry<String, TableRestoreProgress> e : m_reportStats.entrySet()) {
+                        SNAP_LOG.info("Table " + e.getKey() + ": " + e.getValue().m_tuples.get()
+                                + " tuples restored from snapshot at " + e.getValue().tuplesPerSecond(curTime)
+                                + " tuples/s. Next progress report at "
+                                + m_reportDateFormat.format(new Date(m_nextReportTime)));
+                    }
+                }
             }
         }
     }
@@ -2467,7 +2495,9 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
         Boolean needsConversion = null;
         org.voltcore.utils.DBBPool.BBContainer c = null;
-        TreeMap<Integer, VoltTable> partitioned_table_cache = new TreeMap<>();
+        final ArrayDeque<TreeMap<Integer, VoltTable>> partitioned_table_caches = new ArrayDeque<>();
+        final ArrayDeque<Future<PreparedChunk>> pipeline = new ArrayDeque<>();
+        final AtomicBoolean abandoned = new AtomicBoolean(false);
         SnapshotRestoreResultSet resultSet = new SnapshotRestoreResultSet();
         VoltTable firstResult = null;
 
@@ -2475,54 +2505,52 @@ public class SnapshotRestore extends VoltSystemProcedure {
             final Table new_catalog_table = getCatalogTable(tableName);
             final boolean shouldPreserveDRHiddenColumn =
                 DrRoleType.XDCR.value().equals(m_cluster.getDrrole()) && new_catalog_table.getIsdred();
-            while (hasMoreChunks()) {
-                VoltTable table = null;
-
-                c = null;
-                c = getNextChunk();
-                if (c == null) {
-                    continue;//Should be equivalent to break
-                }
-
-                // use if will load as partitioned table
-                Map<Integer, byte[]> partitioned_tables = null;
-                // use if will load as replicated table
-                byte compressedTable[] = null;
-                int[] dependencyIds = null;
-                SynthesizedPlanFragment[] pfs = null;
-                try {
+            while (true) {
+                /*
+                 * Keep up to RESTORE_PIPELINE_DEPTH chunks being converted and split on the
+                 * compression service while this thread waits on the load fragments. Chunks are
+                 * taken on this thread because getNextChunk() can block on the compression service.
+                 */
+                while (pipeline.size() < RESTORE_PIPELINE_DEPTH && hasMoreChunks()) {
+                    c = getNextChunk();
+                    if (c == null) {
+                        break;
+                    }
                     if (needsConversion == null) {
                         VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b().duplicate(), true);
                         needsConversion = SavedTableConverter.needsConversion(old_table, new_catalog_table,
                                                                               shouldPreserveDRHiddenColumn);
                     }
+                    pipeline.offer(CompressionService.submitCompressionTask(
+                            new PrepareChunkTask(c, tableName, new_catalog_table, needsConversion,
+                                    shouldPreserveDRHiddenColumn, asReplicated, partitionCount,
+                                    partitioned_table_caches, abandoned)));
+                    c = null;
+                }
+                if (pipeline.isEmpty()) {
+                    break;
+                }
 
-                    final VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
-                    if (needsConversion) {
-                        table = SavedTableConverter.convertTable(old_table, new_catalog_table,
-                                                                 shouldPreserveDRHiddenColumn);
-                    } else {
-                        table = old_table;
+                final PreparedChunk prepared = pipeline.poll().get();
+                // use if will load as partitioned table
+                final Map<Integer, byte[]> partitioned_tables = prepared.partitionedTables;
+                // use if will load as replicated table
+                final byte compressedTable[] = prepared.compressedTable;
+                int[] dependencyIds = null;
+                SynthesizedPlanFragment[] pfs = null;
+                if (asReplicated) {
+                    dependencyIds = new int[sites_to_partitions.size()];
+                    pfs = new SynthesizedPlanFragment[sites_to_partitions.size() + 1];
+                } else {
+                    if (partitioned_tables.isEmpty()) {
+                        continue;
                     }
-
-                    if (asReplicated) {
-                        compressedTable = TableCompressor.getCompressedTableBytes(table);
-                        dependencyIds = new int[sites_to_partitions.size()];
-                        pfs = new SynthesizedPlanFragment[sites_to_partitions.size() + 1];
-                    } else {
-                        partitioned_tables = createPartitionedTables(tableName, table, partitionCount, partitioned_table_cache);
-                        if (partitioned_tables.isEmpty()) {
-                            continue;
-                        }
-                        int depIdCnt = 0;
-                        for (int pid : partitioned_tables.keySet()) {
-                            depIdCnt += partition_to_siteCount.get(pid).getValue();
-                        }
-                        dependencyIds = new int[depIdCnt];
-                        pfs = new SynthesizedPlanFragment[depIdCnt + 1];
+                    int depIdCnt = 0;
+                    for (int pid : partitioned_tables.keySet()) {
+                        depIdCnt += partition_to_siteCount.get(pid).getValue();
                     }
-                } finally {
-                    c.discard();
+                    dependencyIds = new int[depIdCnt];
+                    pfs = new SynthesizedPlanFragment[depIdCnt + 1];
                 }
 
                 int pfs_index = 0;
@@ -2601,6 +2629,17 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
             return result;
         } finally {
+            if (c != null) {
+                c.discard();
+            }
+            // Let chunks still in the pipeline finish so their buffers are released before the files are closed
+            abandoned.set(true);
+            for (Future<PreparedChunk> f : pipeline) {
+                try {
+                    f.get();
+                } catch (Exception ignore) {
+                }
+            }
             synchronized (SnapshotRestore.class) {
                 TableSaveFile tsf = null;
                 while ((tsf = m_saveFiles.poll()) != null) {
@@ -2629,6 +2668,86 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return result;
     }
 
+    /**
+     * A chunk of a save file that has been converted to the current schema and either
+     * split by partition or compressed whole, ready to be sent to the sites that load it.
+     */
+    private static class PreparedChunk {
+        final Map<Integer, byte[]> partitionedTables;
+        final byte[] compressedTable;
+
+        PreparedChunk(Map<Integer, byte[]> partitionedTables, byte[] compressedTable) {
+            this.partitionedTables = partitionedTables;
+            this.compressedTable = compressedTable;
+        }
+    }
+
+    /**
+     * Convert and split one chunk off the distributing thread. Each task borrows one of the
+     * partitioned table caches so that concurrent tasks never share buffers.
+     */
+    private class PrepareChunkTask implements Callable<PreparedChunk> {
+        private final BBContainer m_chunk;
+        private final String m_tableName;
+        private final Table m_catalogTable;
+        private final boolean m_needsConversion;
+        private final boolean m_preserveDRHiddenColumn;
+        private final boolean m_asReplicated;
+        private final int m_partitionCount;
+        private final ArrayDeque<TreeMap<Integer, VoltTable>> m_caches;
+        private final AtomicBoolean m_abandoned;
+
+        PrepareChunkTask(BBContainer chunk, String tableName, Table catalogTable, boolean needsConversion,
+                boolean preserveDRHiddenColumn, boolean asReplicated, int partitionCount,
+                ArrayDeque<TreeMap<Integer, VoltTable>> caches, AtomicBoolean abandoned) {
+            m_chunk = chunk;
+            m_tableName = tableName;
+            m_catalogTable = catalogTable;
+            m_needsConversion = needsConversion;
+            m_preserveDRHiddenColumn = preserveDRHiddenColumn;
+            m_asReplicated = asReplicated;
+            m_partitionCount = partitionCount;
+            m_caches = caches;
+            m_abandoned = abandoned;
+        }
+
+        @Override
+        public PreparedChunk call() throws Exception {
+            try {
+                if (m_abandoned.get()) {
+                    return null;
+                }
+                final VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(m_chunk.b(), true);
+                final VoltTable table;
+                if (m_needsConversion) {
+                    table = SavedTableConverter.convertTable(old_table, m_catalogTable, m_preserveDRHiddenColumn);
+                } else {
+                    table = old_table;
+                }
+
+                if (m_asReplicated) {
+                    return new PreparedChunk(null, TableCompressor.getCompressedTableBytes(table));
+                }
+                TreeMap<Integer, VoltTable> cache;
+                synchronized (m_caches) {
+                    cache = m_caches.poll();
+                }
+                if (cache == null) {
+                    cache = new TreeMap<>();
+                }
+                try {
+                    return new PreparedChunk(createPartitionedTables(m_tableName, table, m_partitionCount, cache), null);
+                } finally {
+                    synchronized (m_caches) {
+                        m_caches.offer(cache);
+                    }
+                }
+            } finally {
+                m_chunk.discard();
+            }
+        }
+    }
+
     private HashMap<Integer, byte[]> createPartitionedTables(String tableName, VoltTable loadedTable,
             int number_of_partitions, TreeMap<Integer, VoltTable> partitioned_table_cache) throws Exception
     {
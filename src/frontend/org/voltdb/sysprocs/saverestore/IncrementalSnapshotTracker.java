@@ -0,0 +1,243 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.SnapshotDataTarget;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.catalog.Table;
+
+/**
+ * Finds the tables of a native snapshot which didn't change since the last snapshot
+ * that saved them on this host, so an incremental snapshot can link their data instead
+ * of writing it again.
+ *
+ * Every persistent table in the EE counts its inserts, updates and deletes, starting
+ * from a base unique to the table instance, so a truncated or recreated table never
+ * repeats the count of the table it replaced. The count of every table is recorded by
+ * every local site when a native snapshot starts. When the snapshot completes, the
+ * counts are kept with the data file of each table it saved. A later incremental snapshot
+ * with the same catalog and the same local sites links the data file of every table whose
+ * counts are all unchanged.
+ *
+ * Linked tables still get a file of their own which has a header naming the linked
+ * {@link SnapshotUtil#BASE_DATA_EXTENSION} file next to it, so every snapshot can be
+ * restored, scanned or deleted on its own.
+ */
+public class IncrementalSnapshotTracker {
+    private static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
+
+    /**
+     * The data saved for a table by a completed snapshot
+     */
+    private static class TableState {
+        private final File m_dataFile;
+        private final String m_nonce;
+        private final Map<Long, Long> m_changeCounts;
+
+        private TableState(File dataFile, String nonce, Map<Long, Long> changeCounts) {
+            m_dataFile = dataFile;
+            m_nonce = nonce;
+            m_changeCounts = changeCounts;
+        }
+    }
+
+    // Change counts by site and table, recorded by each local site as the snapshot starts
+    private static final Map<Long, Map<String, Long>> m_pendingChangeCounts = new HashMap<>();
+
+    // Protected by the class lock
+    private static long m_catalogCRC = 0;
+    private static Map<String, TableState> m_tables = new HashMap<>();
+
+    /**
+     * Record the change counts of the tables of the site as of the start of a native snapshot.
+     * Called from the site thread.
+     */
+    public static void recordChangeCounts(SystemProcedureExecutionContext context) {
+        final Map<String, Long> counts = new HashMap<>();
+        for (Table table : SnapshotUtil.getTablesToSave(context.getDatabase())) {
+            counts.put(table.getTypeName(), context.getTableChangeCount(table.getRelativeIndex()));
+        }
+        recordChangeCounts(context.getSiteId(), counts);
+    }
+
+    static synchronized void recordChangeCounts(long siteId, Map<String, Long> counts) {
+        m_pendingChangeCounts.put(siteId, counts);
+    }
+
+    /**
+     * Start tracking a native snapshot once every local site has recorded its change counts.
+     *
+     * @param incremental true to link the tables which didn't change
+     * @return The plan which tells which tables to link
+     */
+    public static synchronized Plan startSnapshot(String nonce, long catalogCRC, List<Long> localSites,
+            boolean incremental) {
+        final Map<String, Map<Long, Long>> counts = new HashMap<>();
+        for (Long site : localSites) {
+            final Map<String, Long> siteCounts = m_pendingChangeCounts.get(site);
+            if (siteCounts == null) {
+                // Can't tell what the tables hold, so nothing is linked or recorded
+                counts.clear();
+                break;
+            }
+            for (Map.Entry<String, Long> e : siteCounts.entrySet()) {
+                Map<Long, Long> tableCounts = counts.get(e.getKey());
+                if (tableCounts == null) {
+                    tableCounts = new HashMap<>();
+                    counts.put(e.getKey(), tableCounts);
+                }
+                tableCounts.put(site, e.getValue());
+            }
+        }
+        m_pendingChangeCounts.clear();
+
+        if (catalogCRC != m_catalogCRC) {
+            m_catalogCRC = catalogCRC;
+            m_tables = new HashMap<>();
+        }
+
+        final Map<String, TableState> inherited = new HashMap<>();
+        if (incremental) {
+            for (Map.Entry<String, TableState> e : m_tables.entrySet()) {
+                final TableState state = e.getValue();
+                if (state.m_changeCounts.equals(counts.get(e.getKey())) && state.m_dataFile.isFile()) {
+                    inherited.put(e.getKey(), state);
+                }
+            }
+        }
+        return new Plan(nonce, catalogCRC, counts, inherited);
+    }
+
+    /**
+     * The tables of a snapshot in progress
+     */
+    public static class Plan {
+        private final String m_nonce;
+        private final long m_catalogCRC;
+        private final Map<String, Map<Long, Long>> m_changeCounts;
+        private final Map<String, TableState> m_inherited;
+        private final Map<String, File> m_dataFiles = new HashMap<>();
+
+        private Plan(String nonce, long catalogCRC, Map<String, Map<Long, Long>> changeCounts,
+                Map<String, TableState> inherited) {
+            m_nonce = nonce;
+            m_catalogCRC = catalogCRC;
+            m_changeCounts = changeCounts;
+            m_inherited = inherited;
+        }
+
+        /**
+         * @return true if the data of the table is linked from an earlier snapshot
+         */
+        public boolean isInherited(String tableName) {
+            return m_inherited.containsKey(tableName);
+        }
+
+        /**
+         * @return The nonce of the snapshot which wrote the data of every linked table
+         */
+        public Map<String, String> getInheritedTables() {
+            final Map<String, String> tables = new HashMap<>();
+            for (Map.Entry<String, TableState> e : m_inherited.entrySet()) {
+                tables.put(e.getKey(), e.getValue().m_nonce);
+            }
+            return tables;
+        }
+
+        /**
+         * Remember the file the snapshot writes the data of a table to
+         */
+        public synchronized void dataWritten(String tableName, File dataFile) {
+            m_dataFiles.put(tableName, dataFile);
+        }
+
+        /**
+         * Link the data of an inherited table next to the file of the table in this snapshot,
+         * copying it if the file system can't link it.
+         *
+         * @return The name of the linked file
+         */
+        public String linkData(String tableName, File tableFile) throws IOException {
+            final File source = m_inherited.get(tableName).m_dataFile;
+            final File link = new File(tableFile.getPath() + SnapshotUtil.BASE_DATA_EXTENSION);
+            try {
+                Files.createLink(link.toPath(), source.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                SNAP_LOG.info("Copying " + source + " to " + link + " because it can't be linked: " + e);
+                Files.copy(source.toPath(), link.toPath());
+            }
+            synchronized (this) {
+                m_dataFiles.put(tableName, link);
+            }
+            return link.getName();
+        }
+
+        /**
+         * @return The completion task of the snapshot, which calls {@link #completed()} unless
+         *         one of the targets failed a write. A target which fails to close drops the task.
+         */
+        public Runnable completionTask(final Collection<SnapshotDataTarget> targets) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    for (SnapshotDataTarget target : targets) {
+                        if (target.getLastWriteException() != null) {
+                            SNAP_LOG.info("Snapshot " + m_nonce + " failed a write, it is no base for incremental snapshots");
+                            return;
+                        }
+                    }
+                    completed();
+                }
+            };
+        }
+
+        /**
+         * The snapshot completed, later incremental snapshots may link the data it holds
+         */
+        public void completed() {
+            synchronized (IncrementalSnapshotTracker.class) {
+                if (m_catalogCRC != IncrementalSnapshotTracker.m_catalogCRC) {
+                    return;
+                }
+                final Map<String, TableState> tables = new HashMap<>(m_tables);
+                synchronized (this) {
+                    for (Map.Entry<String, File> e : m_dataFiles.entrySet()) {
+                        final Map<Long, Long> counts = m_changeCounts.get(e.getKey());
+                        if (counts == null) {
+                            tables.remove(e.getKey());
+                        } else {
+                            final TableState previous = m_inherited.get(e.getKey());
+                            tables.put(e.getKey(), new TableState(e.getValue(),
+                                    previous == null ? m_nonce : previous.m_nonce, counts));
+                        }
+                    }
+                }
+                m_tables = tables;
+            }
+        }
+    }
+}
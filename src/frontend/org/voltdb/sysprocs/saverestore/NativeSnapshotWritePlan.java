@@ -55,7 +55,8 @@ import com.google_voltpatches.common.collect.Maps;
  * table per node.  Replicated tables are written on every node, but the
  * responsibility for writing them is spread round-robin across the sites on a
  * node.  Partitioned tables are written to the same target per table by every
- * site on a node.
+ * site on a node.  An incremental snapshot links the data of the tables which
+ * didn't change since they were last saved, see {@link IncrementalSnapshotTracker}.
  */
 public class NativeSnapshotWritePlan extends SnapshotWritePlan
 {
@@ -103,6 +104,9 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
         } else {
             tableArray = config.tables;
         }
+        final IncrementalSnapshotTracker.Plan incrementalPlan = IncrementalSnapshotTracker.startSnapshot(
+                file_nonce, context.getCatalogCRC(), tracker.getSitesForHost(context.getHostId()),
+                config.incremental);
 
         m_snapshotRecord =
             SnapshotRegistry.startSnapshot(
@@ -117,7 +121,19 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
             new ArrayList<SnapshotTableTask>();
         final ArrayList<SnapshotTableTask> replicatedSnapshotTasks =
             new ArrayList<SnapshotTableTask>();
+        final ArrayList<Table> inheritedTables = new ArrayList<Table>();
         for (final Table table : tableArray) {
+            if (incrementalPlan.isInherited(table.getTypeName())) {
+                // Unchanged since the last snapshot, its data is linked instead of written
+                inheritedTables.add(table);
+                result.addRow(context.getHostId(),
+                        CoreUtils.getHostnameOrAddress(),
+                        table.getTypeName(),
+                        "SUCCESS",
+                        "");
+                continue;
+            }
+
             final SnapshotTableTask task =
                     new SnapshotTableTask(
                             table,
@@ -140,7 +156,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     "");
         }
 
-        if (tableArray.length > 0 && replicatedSnapshotTasks.isEmpty() && partitionedSnapshotTasks.isEmpty()) {
+        if (tableArray.length > 0 && replicatedSnapshotTasks.isEmpty() && partitionedSnapshotTasks.isEmpty() &&
+                inheritedTables.isEmpty()) {
             SnapshotRegistry.discardSnapshot(m_snapshotRecord);
         }
 
@@ -158,7 +175,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
         return createDeferredSetup(file_path, pathType, file_nonce, txnId, partitionTransactionIds,
                 context, extraSnapshotData, tracker, hashinatorData, timestamp,
                 newPartitionCount, tableArray, m_snapshotRecord, partitionedSnapshotTasks,
-                replicatedSnapshotTasks, isTruncationSnapshot);
+                replicatedSnapshotTasks, inheritedTables, incrementalPlan, isTruncationSnapshot);
     }
 
     private Callable<Boolean> createDeferredSetup(final String file_path,
@@ -176,6 +193,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                   final SnapshotRegistry.Snapshot snapshotRecord,
                                                   final ArrayList<SnapshotTableTask> partitionedSnapshotTasks,
                                                   final ArrayList<SnapshotTableTask> replicatedSnapshotTasks,
+                                                  final ArrayList<Table> inheritedTables,
+                                                  final IncrementalSnapshotTracker.Plan incrementalPlan,
                                                   final boolean isTruncationSnapshot)
     {
         return new Callable<Boolean>() {
@@ -186,6 +205,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
             {
                 final AtomicInteger numTables = new AtomicInteger(tables.length);
 
+                extraSnapshotData.setInheritedTables(incrementalPlan.getInheritedTables());
                 NativeSnapshotWritePlan.createFileBasedCompletionTasks(file_path, pathType, file_nonce,
                         txnId, partitionTransactionIds, context, extraSnapshotData,
                         hashinatorData,
@@ -194,6 +214,18 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                         tables,
                         isTruncationSnapshot);
 
+                // The file of an inherited table only has a header, it is complete right away
+                for (Table table : inheritedTables) {
+                    final String baseDataFile = incrementalPlan.linkData(table.getTypeName(),
+                            SnapshotUtil.constructFileForTable(table, file_path, file_nonce,
+                                    SnapshotFormat.NATIVE, context.getHostId()));
+                    createDataTargetForTable(file_path, file_nonce, table, txnId,
+                            context.getHostId(), context.getCluster().getTypeName(),
+                            context.getDatabase().getTypeName(), context.getNumberOfPartitions(),
+                            DrRoleType.XDCR.value().equals(context.getCluster().getDrrole()),
+                            tracker, timestamp, numTables, snapshotRecord, baseDataFile).close();
+                }
+
                 for (SnapshotTableTask task : replicatedSnapshotTasks) {
                     SnapshotDataTarget target = getSnapshotDataTarget(numTables, task);
                     task.setTarget(target);
@@ -222,6 +254,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                         ExportManager.sync(false);
                     }
                 });
+                // Dropped if a target fails to close, skipped if a target failed a write
+                SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(incrementalPlan.completionTask(m_targets));
 
                 return true;
             }
@@ -235,8 +269,11 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                       context.getHostId(), context.getCluster().getTypeName(),
                                                       context.getDatabase().getTypeName(), context.getNumberOfPartitions(),
                                                       DrRoleType.XDCR.value().equals(context.getCluster().getDrrole()),
-                                                      tracker, timestamp, numTables, snapshotRecord);
+                                                      tracker, timestamp, numTables, snapshotRecord, null);
                     m_createdTargets.put(task.m_table.getRelativeIndex(), target);
+                    incrementalPlan.dataWritten(task.m_table.getTypeName(),
+                            SnapshotUtil.constructFileForTable(task.m_table, file_path, file_nonce,
+                                    SnapshotFormat.NATIVE, context.getHostId()));
                 }
                 return target;
             }
@@ -255,7 +292,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                         SiteTracker tracker,
                                                         long timestamp,
                                                         AtomicInteger numTables,
-                                                        SnapshotRegistry.Snapshot snapshotRecord)
+                                                        SnapshotRegistry.Snapshot snapshotRecord,
+                                                        String baseDataFile)
             throws IOException
     {
         SnapshotDataTarget sdt;
@@ -278,7 +316,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     tracker.getPartitionsForHost(hostId),
                     CatalogUtil.getVoltTable(table, CatalogUtil.DR_HIDDEN_COLUMN_INFO),
                     txnId,
-                    timestamp);
+                    timestamp,
+                    baseDataFile);
         }
         else {
             sdt = new DefaultSnapshotDataTarget(saveFilePath,
@@ -291,10 +330,13 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     tracker.getPartitionsForHost(hostId),
                     CatalogUtil.getVoltTable(table),
                     txnId,
-                    timestamp);
+                    timestamp,
+                    baseDataFile);
         }
 
-        m_targets.add(sdt);
+        if (baseDataFile == null) {
+            m_targets.add(sdt);
+        }
         final Runnable onClose = new TargetStatsClosure(sdt, table.getTypeName(), numTables, snapshotRecord);
         sdt.setOnCloseHandler(onClose);
 
@@ -37,6 +37,8 @@ public class SnapshotRequestConfig {
     protected static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
 
     public final Table[] tables;
+    // Link the data of the tables which didn't change since the last native snapshot
+    public final boolean incremental;
 
     /**
      * @param tables    Tables to snapshot, cannot be null.
@@ -45,11 +47,13 @@ public class SnapshotRequestConfig {
     {
         Preconditions.checkNotNull(tables);
         this.tables = tables.toArray(new Table[0]);
+        this.incremental = false;
     }
 
     public SnapshotRequestConfig(JSONObject jsData, Database catalogDatabase)
     {
         tables = getTablesToInclude(jsData, catalogDatabase);
+        incremental = jsData != null && jsData.optBoolean(SnapshotUtil.JSON_INCREMENTAL);
     }
 
     private static Table[] getTablesToInclude(JSONObject jsData,
@@ -131,5 +135,8 @@ public class SnapshotRequestConfig {
             }
             stringer.endArray();
         }
+        if (incremental) {
+            stringer.keySymbolValuePair(SnapshotUtil.JSON_INCREMENTAL, incremental);
+        }
     }
 }
@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.PrintStream;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * Periodically reports how many table files and bytes of table data an offline snapshot
+ * tool has processed and at what rate, so a scan of a large snapshot shows it is progressing.
+ */
+public class SnapshotScanProgress {
+    private final String m_action;
+    private final PrintStream m_out;
+    private final AtomicInteger m_totalFiles = new AtomicInteger();
+    private final AtomicInteger m_files = new AtomicInteger();
+    private final AtomicLong m_bytes = new AtomicLong();
+    private final long m_startNanos = System.nanoTime();
+    private ScheduledThreadPoolExecutor m_reporter;
+
+    /**
+     * @param action What is done to the files, e.g. "Verified"
+     */
+    public SnapshotScanProgress(String action, PrintStream out) {
+        m_action = action;
+        m_out = out;
+    }
+
+    public void start(long periodSeconds) {
+        m_reporter = CoreUtils.getScheduledThreadPoolExecutor("Snapshot progress", 1, CoreUtils.SMALL_STACK_SIZE);
+        m_reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                m_out.println(report());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop reporting and print the totals
+     */
+    public void stop() {
+        if (m_reporter != null) {
+            m_reporter.shutdownNow();
+            m_reporter = null;
+        }
+        m_out.println(report());
+    }
+
+    public void fileQueued() {
+        m_totalFiles.incrementAndGet();
+    }
+
+    public void fileDone() {
+        m_files.incrementAndGet();
+    }
+
+    public void addBytes(long bytes) {
+        m_bytes.addAndGet(bytes);
+    }
+
+    String report() {
+        final double seconds = Math.max(System.nanoTime() - m_startNanos, 1) / 1e9;
+        final double megabytes = m_bytes.get() / (1024.0 * 1024.0);
+        return String.format("%s %d of %d table files, %.1f MB of table data in %.1f s (%.1f MB/s)",
+                m_action, m_files.get(), m_totalFiles.get(), megabytes, seconds, megabytes / seconds);
+    }
+}
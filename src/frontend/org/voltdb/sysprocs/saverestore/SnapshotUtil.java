@@ -44,7 +44,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -85,6 +89,7 @@ import org.voltdb.client.ClientResponse;
 import org.voltdb.common.Constants;
 import org.voltdb.settings.NodeSettings;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.VoltFile;
 
 import com.google_voltpatches.common.base.Throwables;
@@ -94,7 +99,17 @@ import com.google_voltpatches.common.util.concurrent.SettableFuture;
 public class SnapshotUtil {
 
     public final static String HASH_EXTENSION = ".hash";
+
+    // Table files validated at once by retrieveSnapshotFiles, and chunks read ahead for each
+    public static final int VALIDATE_THREADS =
+            Integer.getInteger("SNAPSHOT_VALIDATE_THREADS", Math.min(CoreUtils.availableProcessors(), 8));
+    public static final int VALIDATE_READ_AHEAD_CHUNKS = Integer.getInteger("SNAPSHOT_VALIDATE_READ_AHEAD", 4);
     public final static String COMPLETION_EXTENSION = ".finished";
+    /**
+     * Data of a table which is unchanged since the previous incremental snapshot, linked
+     * to the file of that snapshot. The table file only has a header naming it.
+     */
+    public final static String BASE_DATA_EXTENSION = ".base";
 
     public static final String JSON_PATH = "path";
     public static final String JSON_PATH_TYPE = "pathType";
@@ -109,6 +124,10 @@ public class SnapshotUtil {
     public static final String JSON_SERVICE = "service";
     public static final String JSON_PARTITION_COUNT = "partitionCount";
     public static final String JSON_NEW_PARTITION_COUNT = "newPartitionCount";
+    public static final String JSON_COMPRESSION_CODEC = "compressionCodec";
+    public static final String JSON_INCREMENTAL = "incremental";
+    public static final String JSON_INHERITED_TABLES = "inheritedTables";
+    public static final String JSON_BASE_DATA_FILE = "baseDataFile";
     /**
      * milestone used to mark a shutdown save snapshot
      */
@@ -189,6 +208,7 @@ public class SnapshotUtil {
                 stringer.keySymbolValuePair("timestamp", timestamp);
                 stringer.keySymbolValuePair("timestampString", SnapshotUtil.formatHumanReadableDate(timestamp));
                 stringer.keySymbolValuePair("newPartitionCount", newPartitionCount);
+                stringer.keySymbolValuePair(JSON_COMPRESSION_CODEC, CompressionService.SNAPSHOT_CODEC.name());
                 stringer.key("tables").array();
                 for (int ii = 0; ii < tables.size(); ii++) {
                     stringer.value(tables.get(ii).getTypeName());
@@ -800,9 +820,118 @@ public class SnapshotUtil {
             boolean validate,
             SnapshotPathType stype,
             VoltLogger logger) {
+        retrieveSnapshotFiles(directory, namedSnapshotMap, filter, validate, stype, logger, null);
+    }
+
+    /**
+     * Validating reads every chunk of every table file. The table files are validated
+     * on {@link #VALIDATE_THREADS} threads, each reading a few chunks ahead and decompressing
+     * them on the {@link CompressionService} threads, which bounds the memory used.
+     *
+     * @param progress Counts the files and the table data validated, may be null
+     */
+    public static void retrieveSnapshotFiles(
+            File directory,
+            Map<String, Snapshot> namedSnapshotMap,
+            FileFilter filter,
+            boolean validate,
+            SnapshotPathType stype,
+            VoltLogger logger,
+            SnapshotScanProgress progress) {
 
         NamedSnapshots namedSnapshots = new NamedSnapshots(namedSnapshotMap, stype);
-        retrieveSnapshotFilesInternal(directory, namedSnapshots, filter, validate, stype, logger, 0);
+        final ExecutorService es = validate ?
+                CoreUtils.getListeningExecutorService("Snapshot validation", VALIDATE_THREADS) : null;
+        final List<Future<TableFileScan>> scans = new ArrayList<Future<TableFileScan>>();
+        try {
+            retrieveSnapshotFilesInternal(directory, namedSnapshots, filter, validate, stype, logger, 0,
+                    es, scans, progress);
+
+            // Record the table files in the order they were found
+            for (Future<TableFileScan> scan : scans) {
+                try {
+                    final TableFileScan tableFile = scan.get();
+                    if (tableFile != null) {
+                        tableFile.addTo(namedSnapshots);
+                    }
+                } catch (ExecutionException e) {
+                    System.err.println("Error: Unable to process a table file: " + e.getCause());
+                } catch (InterruptedException e) {
+                    System.err.println("Error: Interrupted while validating table files");
+                    return;
+                }
+            }
+        } finally {
+            if (es != null) {
+                es.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * What a table file holds
+     */
+    private static class TableFileScan {
+        private final File m_file;
+        private final long m_txnId;
+        private final String m_tableName;
+        private final boolean m_isReplicated;
+        private final boolean m_completed;
+        private final Set<Integer> m_validPartitionIds;
+        private final Set<Integer> m_corruptPartitionIds;
+        private final int m_totalPartitions;
+
+        private TableFileScan(File f, boolean validate, SnapshotScanProgress progress) throws IOException {
+            HashSet<Integer> partitionIds = new HashSet<Integer>();
+            TableSaveFile saveFile = new TableSaveFile(f, validate ? VALIDATE_READ_AHEAD_CHUNKS : 1, null, true);
+            try {
+                for (Integer partitionId : saveFile.getPartitionIds()) {
+                    partitionIds.add(partitionId);
+                }
+                if (validate && saveFile.getCompleted()) {
+                    saveFile.enableParallelDecompression();
+                    while (saveFile.hasMoreChunks()) {
+                        BBContainer cont = saveFile.getNextChunk();
+                        if (cont != null) {
+                            if (progress != null) {
+                                progress.addBytes(cont.b().remaining());
+                            }
+                            cont.discard();
+                        }
+                    }
+                }
+                partitionIds.removeAll(saveFile.getCorruptedPartitionIds());
+                m_file = f;
+                m_txnId = saveFile.getTxnId();
+                m_tableName = saveFile.getTableName();
+                m_isReplicated = saveFile.isReplicated();
+                m_completed = saveFile.getCompleted();
+                m_validPartitionIds = partitionIds;
+                m_corruptPartitionIds = saveFile.getCorruptedPartitionIds();
+                m_totalPartitions = saveFile.getTotalPartitions();
+            } finally {
+                saveFile.close();
+                if (progress != null) {
+                    progress.fileDone();
+                }
+            }
+        }
+
+        private void addTo(NamedSnapshots namedSnapshots) {
+            String nonce = parseNonceFromSnapshotFilename(m_file.getName());
+            Snapshot named_s = namedSnapshots.get(nonce);
+            named_s.setTxnId(m_txnId);
+            TableFiles namedTableFiles = named_s.m_tableFiles.get(m_tableName);
+            if (namedTableFiles == null) {
+                namedTableFiles = new TableFiles(m_isReplicated);
+                named_s.m_tableFiles.put(m_tableName, namedTableFiles);
+            }
+            namedTableFiles.m_files.add(m_file);
+            namedTableFiles.m_completed.add(m_completed);
+            namedTableFiles.m_validPartitionIds.add(m_validPartitionIds);
+            namedTableFiles.m_corruptParititionIds.add(m_corruptPartitionIds);
+            namedTableFiles.m_totalPartitionCounts.add(m_totalPartitions);
+        }
     }
 
     private static void retrieveSnapshotFilesInternal(
@@ -812,7 +941,10 @@ public class SnapshotUtil {
             boolean validate,
             SnapshotPathType stype,
             VoltLogger logger,
-            int recursion) {
+            int recursion,
+            ExecutorService es,
+            List<Future<TableFileScan>> scans,
+            SnapshotScanProgress progress) {
 
         if (recursion == 32) {
             return;
@@ -837,7 +969,8 @@ public class SnapshotUtil {
                     System.err.println("Warning: Skipping directory " + f.getPath()
                             + " due to lack of read permission");
                 } else {
-                    retrieveSnapshotFilesInternal(f, namedSnapshots, filter, validate, stype, logger, recursion++);
+                    retrieveSnapshotFilesInternal(f, namedSnapshots, filter, validate, stype, logger, recursion++,
+                            es, scans, progress);
                 }
                 continue;
             }
@@ -896,38 +1029,25 @@ public class SnapshotUtil {
                             continue;
                         }
                     }
-                } else {
-                    HashSet<Integer> partitionIds = new HashSet<Integer>();
-                    TableSaveFile saveFile = new TableSaveFile(fis, 1, null, true);
-                    try {
-                        for (Integer partitionId : saveFile.getPartitionIds()) {
-                            partitionIds.add(partitionId);
-                        }
-                        if (validate && saveFile.getCompleted()) {
-                            while (saveFile.hasMoreChunks()) {
-                                BBContainer cont = saveFile.getNextChunk();
-                                if (cont != null) {
-                                    cont.discard();
-                                }
+                } else if (es != null) {
+                    final File tableFile = f;
+                    if (progress != null) {
+                        progress.fileQueued();
+                    }
+                    scans.add(es.submit(new Callable<TableFileScan>() {
+                        @Override
+                        public TableFileScan call() {
+                            try {
+                                return new TableFileScan(tableFile, validate, progress);
+                            } catch (IOException e) {
+                                System.err.println(e.getMessage());
+                                System.err.println("Error: Unable to process " + tableFile.getPath());
+                                return null;
                             }
                         }
-                        partitionIds.removeAll(saveFile.getCorruptedPartitionIds());
-                        String nonce = parseNonceFromSnapshotFilename(f.getName());
-                        Snapshot named_s = namedSnapshots.get(nonce);
-                        named_s.setTxnId(saveFile.getTxnId());
-                        TableFiles namedTableFiles = named_s.m_tableFiles.get(saveFile.getTableName());
-                        if (namedTableFiles == null) {
-                            namedTableFiles = new TableFiles(saveFile.isReplicated());
-                            named_s.m_tableFiles.put(saveFile.getTableName(), namedTableFiles);
-                        }
-                        namedTableFiles.m_files.add(f);
-                        namedTableFiles.m_completed.add(saveFile.getCompleted());
-                        namedTableFiles.m_validPartitionIds.add(partitionIds);
-                        namedTableFiles.m_corruptParititionIds.add(saveFile.getCorruptedPartitionIds());
-                        namedTableFiles.m_totalPartitionCounts.add(saveFile.getTotalPartitions());
-                    } finally {
-                        saveFile.close();
-                    }
+                    }));
+                } else {
+                    new TableFileScan(f, validate, progress).addTo(namedSnapshots);
                 }
             } catch (IOException e) {
                 System.err.println(e.getMessage());
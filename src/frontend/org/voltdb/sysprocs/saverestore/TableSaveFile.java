@@ -18,6 +18,7 @@
 package org.voltdb.sysprocs.saverestore;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -26,8 +27,10 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -46,6 +49,7 @@ import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.CompressionService.Codec;
 import org.voltdb.utils.PosixAdvise;
 
 /**
@@ -97,15 +101,46 @@ public class TableSaveFile
         this(fis, readAheadChunks, relevantPartitionIds, false);
     }
 
-    // XXX maybe consider an IOException subclass at some point
     public TableSaveFile(
             FileInputStream fis,
             int readAheadChunks,
             Integer[] relevantPartitionIds,
+            boolean continueOnCorruptedChunk) throws IOException {
+        this(fis, null, false, readAheadChunks, relevantPartitionIds, continueOnCorruptedChunk);
+    }
+
+    /**
+     * Open the save file by name. Unlike a save file opened from a stream, it may keep
+     * its data in a base data file next to it, see {@link SnapshotUtil#BASE_DATA_EXTENSION}.
+     * The files are closed by {@link #close()}.
+     */
+    public TableSaveFile(
+            File file,
+            int readAheadChunks,
+            Integer[] relevantPartitionIds) throws IOException {
+        this(file, readAheadChunks, relevantPartitionIds, false);
+    }
+
+    public TableSaveFile(
+            File file,
+            int readAheadChunks,
+            Integer[] relevantPartitionIds,
+            boolean continueOnCorruptedChunk) throws IOException {
+        this(new FileInputStream(file), file.getAbsoluteFile().getParentFile(), true, readAheadChunks,
+                relevantPartitionIds, continueOnCorruptedChunk);
+    }
+
+    // XXX maybe consider an IOException subclass at some point
+    private TableSaveFile(
+            FileInputStream fis,
+            File directory,
+            boolean ownsInput,
+            int readAheadChunks,
+            Integer[] relevantPartitionIds,
             boolean continueOnCorruptedChunk) throws IOException
-            {
-                m_fd = fis.getFD();
-                FileChannel dataIn = fis.getChannel();
+    {
+        FileInputStream dataInput = fis;
+        boolean success = false;
         try {
             EELibraryLoader.loadExecutionEngineLibrary(true);
             if (relevantPartitionIds == null) {
@@ -117,211 +152,302 @@ public class TableSaveFile
                 }
             }
             m_chunkReads = new Semaphore(readAheadChunks);
-            m_saveFile = dataIn;
             m_continueOnCorruptedChunk = continueOnCorruptedChunk;
 
-            final PureJavaCrc32 crc = new PureJavaCrc32();
             /*
-             * If the CRC check fails because the file wasn't completed
+             * The file of a table which didn't change since an earlier incremental snapshot
+             * only has a header, the chunks and their format come from the base data file.
              */
-            final PureJavaCrc32 secondCRC = new PureJavaCrc32();
-
-            /*
-             * Get the header with the save restore specific information
-             */
-            final ByteBuffer lengthBuffer = ByteBuffer.allocate(8);
-            while (lengthBuffer.hasRemaining()) {
-                final int read = m_saveFile.read(lengthBuffer);
-                if (read == -1) {
-                    throw new EOFException();
+            final Header header = new Header(fis.getChannel());
+            Header dataHeader = header;
+            if (header.baseDataFile != null) {
+                if (directory == null) {
+                    throw new IOException("The save file of table " + header.tableName +
+                            " keeps its data in " + header.baseDataFile + " and has to be opened by name");
+                }
+                dataInput = new FileInputStream(new File(directory, header.baseDataFile));
+                dataHeader = new Header(dataInput.getChannel());
+                header.checkBaseData(dataHeader);
+                if (ownsInput) {
+                    fis.close();
                 }
-            }
-            lengthBuffer.flip();
-            final int originalCRC = lengthBuffer.getInt();
-            int length = lengthBuffer.getInt();
-            crc.update(lengthBuffer.array(), 4, 4);
-            secondCRC.update(lengthBuffer.array(), 4, 4);
-
-            if (length < 0) {
-                throw new IOException("Corrupted save file has negative header length");
-            }
-
-            if (length > 2097152) {
-                throw new IOException("Corrupted save file has unreasonable header length > 2 megs");
             }
 
-            final ByteBuffer saveRestoreHeader = ByteBuffer.allocate(length);
-            while (saveRestoreHeader.hasRemaining()) {
-                final int read = m_saveFile.read(saveRestoreHeader);
-                if (read == -1 || read < length) {
-                    throw new EOFException();
+            m_fd = dataInput.getFD();
+            m_saveFile = dataInput.getChannel();
+            m_ownedInput = ownsInput || dataInput != fis ? dataInput : null;
+            m_tableHeader = dataHeader.tableHeader;
+            m_completed = header.completed && dataHeader.completed;
+            System.arraycopy(dataHeader.versionNum, 0, m_versionNum, 0, m_versionNum.length);
+            m_isCompressed = dataHeader.isCompressed;
+            m_codec = dataHeader.codec;
+            m_checksumType = dataHeader.checksumType;
+            m_hasVersion2FormatChunks = dataHeader.hasVersion2FormatChunks;
+
+            m_txnId = header.txnId;
+            m_timestamp = header.timestamp;
+            m_hostId = header.hostId;
+            m_hostname = header.hostname;
+            m_clusterName = header.clusterName;
+            m_databaseName = header.databaseName;
+            m_tableName = header.tableName;
+            m_isReplicated = header.isReplicated;
+            m_partitionIds = header.partitionIds;
+            m_totalPartitions = header.totalPartitions;
+            if (!m_completed) {
+                for (Integer partitionId : m_partitionIds) {
+                    m_corruptedPartitions.add(partitionId);
                 }
             }
-            saveRestoreHeader.flip();
-            crc.update(saveRestoreHeader.array());
-            secondCRC.update(new byte[] { 1 });
-            secondCRC.update(saveRestoreHeader.array(), 1, saveRestoreHeader.array().length - 1);
-
-            /*
-             *  Get the template for the VoltTable serialization header.
-             *  It will have an extra length value preceded to it so that
-             *  it can be sucked straight into a buffer. This will not
-             *  contain a row count since that varies from chunk to chunk
-             *  and is supplied by the chunk
-             */
-            lengthBuffer.clear();
-            lengthBuffer.limit(4);
-            /*
-             * Why this stupidity and no while loop?
-             * Because java is broken and complains about a random final
-             * elsewhere if you do.
-             */
-            {
-                final int read = m_saveFile.read(lengthBuffer);
-                if (read == -1) {
-                    throw new EOFException();
+            success = true;
+        } finally {
+            if (!success) {
+                if (ownsInput) {
+                    fis.close();
+                }
+                if (dataInput != fis) {
+                    dataInput.close();
                 }
             }
-            crc.update(lengthBuffer.array(), 0, 4);
-            secondCRC.update(lengthBuffer.array(), 0, 4);
-            lengthBuffer.flip();
-            length = lengthBuffer.getInt();
+        }
+    }
 
-            if (length < 4) {
-                throw new IOException("Corrupted save file has negative length or too small length for VoltTable header");
-            }
+    /**
+     * The meta data at the start of a save file
+     */
+    private static class Header {
+        final ByteBuffer tableHeader;
+        final boolean completed;
+        final int versionNum[] = new int[4];
+        final long txnId;
+        final long timestamp;
+        final int hostId;
+        final String hostname;
+        final String clusterName;
+        final String databaseName;
+        final String tableName;
+        final boolean isReplicated;
+        final boolean isCompressed;
+        final Codec codec;
+        final ChecksumType checksumType;
+        final int partitionIds[];
+        final int totalPartitions;
+        final boolean hasVersion2FormatChunks;
+        final String baseDataFile;
+
+        Header(FileChannel saveFile) throws IOException {
+            try {
+                final PureJavaCrc32 crc = new PureJavaCrc32();
+                /*
+                 * If the CRC check fails because the file wasn't completed
+                 */
+                final PureJavaCrc32 secondCRC = new PureJavaCrc32();
 
-            if (length > 2097152) {
-                throw new IOException("Corrupted save file has unreasonable VoltTable header length > 2 megs");
-            }
+                /*
+                 * Get the header with the save restore specific information
+                 */
+                final ByteBuffer lengthBuffer = ByteBuffer.allocate(8);
+                while (lengthBuffer.hasRemaining()) {
+                    final int read = saveFile.read(lengthBuffer);
+                    if (read == -1) {
+                        throw new EOFException();
+                    }
+                }
+                lengthBuffer.flip();
+                final int originalCRC = lengthBuffer.getInt();
+                int length = lengthBuffer.getInt();
+                crc.update(lengthBuffer.array(), 4, 4);
+                secondCRC.update(lengthBuffer.array(), 4, 4);
+
+                if (length < 0) {
+                    throw new IOException("Corrupted save file has negative header length");
+                }
 
-            m_tableHeader = ByteBuffer.allocate(length + 4);
-            m_tableHeader.putInt(length);
-            while (m_tableHeader.hasRemaining()) {
-                final int read = m_saveFile.read(m_tableHeader);
-                if (read == -1) {
-                    throw new EOFException();
+                if (length > 2097152) {
+                    throw new IOException("Corrupted save file has unreasonable header length > 2 megs");
                 }
-            }
-            crc.update(m_tableHeader.array(), 4, length);
-            secondCRC.update(m_tableHeader.array(), 4, length);
 
-            boolean failedCRCDueToNotCompleted = false;
+                final ByteBuffer saveRestoreHeader = ByteBuffer.allocate(length);
+                while (saveRestoreHeader.hasRemaining()) {
+                    final int read = saveFile.read(saveRestoreHeader);
+                    if (read == -1 || read < length) {
+                        throw new EOFException();
+                    }
+                }
+                saveRestoreHeader.flip();
+                crc.update(saveRestoreHeader.array());
+                secondCRC.update(new byte[] { 1 });
+                secondCRC.update(saveRestoreHeader.array(), 1, saveRestoreHeader.array().length - 1);
 
-            final int actualCRC = (int)crc.getValue();
-            if (originalCRC != actualCRC) {
                 /*
-                 * Check if the CRC mismatch is due to the snapshot not being completed
+                 *  Get the template for the VoltTable serialization header.
+                 *  It will have an extra length value preceded to it so that
+                 *  it can be sucked straight into a buffer. This will not
+                 *  contain a row count since that varies from chunk to chunk
+                 *  and is supplied by the chunk
                  */
-                final int secondCRCValue = (int)secondCRC.getValue();
-                if (secondCRCValue == originalCRC) {
-                    failedCRCDueToNotCompleted = true;
-                } else {
-                    throw new IOException("Checksum mismatch");
+                lengthBuffer.clear();
+                lengthBuffer.limit(4);
+                /*
+                 * Why this stupidity and no while loop?
+                 * Because java is broken and complains about a random final
+                 * elsewhere if you do.
+                 */
+                {
+                    final int read = saveFile.read(lengthBuffer);
+                    if (read == -1) {
+                        throw new EOFException();
+                    }
                 }
-            }
+                crc.update(lengthBuffer.array(), 0, 4);
+                secondCRC.update(lengthBuffer.array(), 0, 4);
+                lengthBuffer.flip();
+                length = lengthBuffer.getInt();
 
-            FastDeserializer fd = new FastDeserializer(saveRestoreHeader);
-            byte completedByte = fd.readByte();
-            m_completed = failedCRCDueToNotCompleted ? false : (completedByte == 1 ? true : false);
-            for (int ii = 0; ii < 4; ii++) {
-                m_versionNum[ii] = fd.readInt();
-            }
+                if (length < 4) {
+                    throw new IOException("Corrupted save file has negative length or too small length for VoltTable header");
+                }
 
-            /*
-             * Support the original pre 1.3 header format as well as a new JSON format.
-             * JSON will make it possible to add info to a snapshot header without
-             * breaking backwards compatibility.
-             */
-            if (m_versionNum[3] == 0) {
-                m_txnId = fd.readLong();
-                m_timestamp = TransactionIdManager.getTimestampFromTransactionId(m_txnId);
-                m_hostId = fd.readInt();
-                m_hostname = fd.readString();
-                m_clusterName = fd.readString();
-                m_databaseName = fd.readString();
-                m_tableName = fd.readString();
-                m_isReplicated = fd.readBoolean();
-                m_isCompressed = false;
-                m_checksumType = ChecksumType.CRC32;
-                if (!m_isReplicated) {
-                    m_partitionIds = (int[])fd.readArray(int.class);
-                    if (!m_completed) {
-                        for (Integer partitionId : m_partitionIds) {
-                            m_corruptedPartitions.add(partitionId);
-                        }
-                    }
-                    m_totalPartitions = fd.readInt();
-                } else {
-                    m_partitionIds = new int[] {0};
-                    m_totalPartitions = 1;
-                    if (!m_completed) {
-                        m_corruptedPartitions.add(0);
+                if (length > 2097152) {
+                    throw new IOException("Corrupted save file has unreasonable VoltTable header length > 2 megs");
+                }
+
+                tableHeader = ByteBuffer.allocate(length + 4);
+                tableHeader.putInt(length);
+                while (tableHeader.hasRemaining()) {
+                    final int read = saveFile.read(tableHeader);
+                    if (read == -1) {
+                        throw new EOFException();
                     }
                 }
-                m_hasVersion2FormatChunks = false;
-            } else {
-                assert(m_versionNum[3] == 1 || m_versionNum[3] == 2);
-                if (m_versionNum[3] >= 2) {
-                    m_hasVersion2FormatChunks = true;
-                } else {
-                    m_hasVersion2FormatChunks = false;
+                crc.update(tableHeader.array(), 4, length);
+                secondCRC.update(tableHeader.array(), 4, length);
+
+                boolean failedCRCDueToNotCompleted = false;
+
+                final int actualCRC = (int)crc.getValue();
+                if (originalCRC != actualCRC) {
+                    /*
+                     * Check if the CRC mismatch is due to the snapshot not being completed
+                     */
+                    final int secondCRCValue = (int)secondCRC.getValue();
+                    if (secondCRCValue == originalCRC) {
+                        failedCRCDueToNotCompleted = true;
+                    } else {
+                        throw new IOException("Checksum mismatch");
+                    }
                 }
-                int numJSONBytes = fd.readInt();
-                byte jsonBytes[] = new byte[numJSONBytes];
-                fd.readFully(jsonBytes);
-                String jsonString = new String(jsonBytes, "UTF-8");
-                JSONObject obj = new JSONObject(jsonString);
-
-                m_txnId = obj.getLong("txnId");
-                //Timestamp field added for 3.0, might not be there
-                if (obj.has("timestamp")) {
-                    m_timestamp = obj.getLong("timestamp");
-                } else {
-                    //Pre 3.0/IV2 the timestamp was in the transactionid
-                    m_timestamp = TransactionIdManager.getTimestampFromTransactionId(m_txnId);
+
+                FastDeserializer fd = new FastDeserializer(saveRestoreHeader);
+                byte completedByte = fd.readByte();
+                completed = failedCRCDueToNotCompleted ? false : (completedByte == 1 ? true : false);
+                for (int ii = 0; ii < 4; ii++) {
+                    versionNum[ii] = fd.readInt();
                 }
-                m_hostId = obj.getInt("hostId");
-                m_hostname = obj.getString("hostname");
-                m_clusterName = obj.getString("clusterName");
-                m_databaseName = obj.getString("databaseName");
-                m_tableName = obj.getString("tableName");
-                m_isReplicated = obj.getBoolean("isReplicated");
-                m_isCompressed = obj.optBoolean("isCompressed", false);
-                m_checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
-                if (!m_isReplicated) {
-                    JSONArray partitionIds = obj.getJSONArray("partitionIds");
-                    m_partitionIds = new int[partitionIds.length()];
-                    for (int ii = 0; ii < m_partitionIds.length; ii++) {
-                        m_partitionIds[ii] = partitionIds.getInt(ii);
-                    }
 
-                    if (!m_completed) {
-                        for (Integer partitionId : m_partitionIds) {
-                            m_corruptedPartitions.add(partitionId);
-                        }
+                /*
+                 * Support the original pre 1.3 header format as well as a new JSON format.
+                 * JSON will make it possible to add info to a snapshot header without
+                 * breaking backwards compatibility.
+                 */
+                if (versionNum[3] == 0) {
+                    txnId = fd.readLong();
+                    timestamp = TransactionIdManager.getTimestampFromTransactionId(txnId);
+                    hostId = fd.readInt();
+                    hostname = fd.readString();
+                    clusterName = fd.readString();
+                    databaseName = fd.readString();
+                    tableName = fd.readString();
+                    isReplicated = fd.readBoolean();
+                    isCompressed = false;
+                    codec = Codec.SNAPPY;
+                    checksumType = ChecksumType.CRC32;
+                    if (!isReplicated) {
+                        partitionIds = (int[])fd.readArray(int.class);
+                        totalPartitions = fd.readInt();
+                    } else {
+                        partitionIds = new int[] {0};
+                        totalPartitions = 1;
                     }
-                    m_totalPartitions = obj.getInt("numPartitions");
+                    hasVersion2FormatChunks = false;
+                    baseDataFile = null;
                 } else {
-                    m_partitionIds = new int[] {0};
-                    m_totalPartitions = 1;
-                    if (!m_completed) {
-                        m_corruptedPartitions.add(0);
+                    assert(versionNum[3] == 1 || versionNum[3] == 2);
+                    if (versionNum[3] >= 2) {
+                        hasVersion2FormatChunks = true;
+                    } else {
+                        hasVersion2FormatChunks = false;
+                    }
+                    int numJSONBytes = fd.readInt();
+                    byte jsonBytes[] = new byte[numJSONBytes];
+                    fd.readFully(jsonBytes);
+                    String jsonString = new String(jsonBytes, "UTF-8");
+                    JSONObject obj = new JSONObject(jsonString);
+
+                    txnId = obj.getLong("txnId");
+                    //Timestamp field added for 3.0, might not be there
+                    if (obj.has("timestamp")) {
+                        timestamp = obj.getLong("timestamp");
+                    } else {
+                        //Pre 3.0/IV2 the timestamp was in the transactionid
+                        timestamp = TransactionIdManager.getTimestampFromTransactionId(txnId);
+                    }
+                    hostId = obj.getInt("hostId");
+                    hostname = obj.getString("hostname");
+                    clusterName = obj.getString("clusterName");
+                    databaseName = obj.getString("databaseName");
+                    tableName = obj.getString("tableName");
+                    isReplicated = obj.getBoolean("isReplicated");
+                    isCompressed = obj.optBoolean("isCompressed", false);
+                    //Files written before the codec was recorded are compressed with Snappy
+                    codec = getCodec(obj.optString("compressionCodec", Codec.SNAPPY.name()));
+                    checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
+                    if (!isReplicated) {
+                        JSONArray partitionIdsArray = obj.getJSONArray("partitionIds");
+                        partitionIds = new int[partitionIdsArray.length()];
+                        for (int ii = 0; ii < partitionIds.length; ii++) {
+                            partitionIds[ii] = partitionIdsArray.getInt(ii);
+                        }
+                        totalPartitions = obj.getInt("numPartitions");
+                    } else {
+                        partitionIds = new int[] {0};
+                        totalPartitions = 1;
                     }
+                    baseDataFile = obj.optString(SnapshotUtil.JSON_BASE_DATA_FILE, null);
                 }
+                /*
+                 * Several runtime exceptions can be thrown in valid failure cases where
+                 * a corrupt save file is being detected.
+                 */
+            } catch (BufferUnderflowException e) {
+                throw new IOException(e);
+            } catch (BufferOverflowException e) {
+                throw new IOException(e);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException(e);
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Check that a base data file holds the rows this header describes
+         */
+        void checkBaseData(Header data) throws IOException {
+            if (data.baseDataFile != null) {
+                throw new IOException("Base data file " + baseDataFile + " of table " + tableName +
+                        " refers to another base data file");
+            }
+            int sortedPartitionIds[] = partitionIds.clone();
+            int sortedDataPartitionIds[] = data.partitionIds.clone();
+            Arrays.sort(sortedPartitionIds);
+            Arrays.sort(sortedDataPartitionIds);
+            if (!tableName.equals(data.tableName) || isReplicated != data.isReplicated ||
+                    totalPartitions != data.totalPartitions ||
+                    !Arrays.equals(sortedPartitionIds, sortedDataPartitionIds)) {
+                throw new IOException("Base data file " + baseDataFile + " doesn't hold the partitions " +
+                        Arrays.toString(partitionIds) + " of table " + tableName);
             }
-            /*
-             * Several runtime exceptions can be thrown in valid failure cases where
-             * a corrupt save file is being detected.
-             */
-        } catch (BufferUnderflowException e) {
-            throw new IOException(e);
-        } catch (BufferOverflowException e) {
-            throw new IOException(e);
-        } catch (IndexOutOfBoundsException e) {
-            throw new IOException(e);
-        } catch (JSONException e) {
-            throw new IOException(e);
         }
     }
 
@@ -368,6 +494,18 @@ public class TableSaveFile
         return m_isCompressed;
     }
 
+    public Codec getCompressionCodec() {
+        return m_codec;
+    }
+
+    private static Codec getCodec(String name) throws IOException {
+        try {
+            return Codec.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported snapshot compression codec " + name);
+        }
+    }
+
     public int getTotalPartitions() {
         return m_totalPartitions;
     }
@@ -384,10 +522,33 @@ public class TableSaveFile
         return m_timestamp;
     }
 
+    /**
+     * Decompress chunks on the {@link CompressionService} threads instead of the thread
+     * reading the file. Chunks may then become available in a different order than they
+     * appear in the file. Must be called before the first chunk is read.
+     */
+    public synchronized void enableParallelDecompression() {
+        assert(m_chunkReader == null);
+        m_parallelDecompression = m_hasVersion2FormatChunks;
+    }
+
+    /**
+     * Start reading chunks from disk without waiting for the first call to {@link #getNextChunk()}.
+     * Read ahead is still bounded by the number of chunks passed to the constructor.
+     */
+    public synchronized void prefetch() {
+        if (m_chunkReader == null && m_hasMoreChunks.get()) {
+            m_chunkReader = new ChunkReader();
+            m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
+            m_chunkReaderThread.start();
+        }
+    }
+
     public void close() throws IOException {
         Thread chunkReader;
         synchronized (this) {
             m_hasMoreChunks.set(false);
+            m_closed = true;
             chunkReader = m_chunkReaderThread;
         }
 
@@ -414,6 +575,15 @@ public class TableSaveFile
         while ((cont = m_buffers.poll()) != null) {
             cont.discard();
         }
+        synchronized (this) {
+            while ((cont = m_compressedBuffers.poll()) != null) {
+                cont.discard();
+            }
+        }
+
+        if (m_ownedInput != null) {
+            m_ownedInput.close();
+        }
     }
 
     public Set<Integer> getCorruptedPartitionIds() {
@@ -430,19 +600,15 @@ public class TableSaveFile
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        if (!m_hasMoreChunks.get()) {
+        if (!m_hasMoreChunks.get() && m_pendingDecompressions == 0) {
             final Container c = m_availableChunks.poll();
             return c;
         }
 
-        if (m_chunkReader == null) {
-            m_chunkReader = new ChunkReader();
-            m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
-            m_chunkReaderThread.start();
-        }
+        prefetch();
 
         Container c = null;
-        while (c == null && (m_hasMoreChunks.get() || !m_availableChunks.isEmpty())) {
+        while (c == null && (m_hasMoreChunks.get() || m_pendingDecompressions > 0 || !m_availableChunks.isEmpty())) {
             c = m_availableChunks.poll();
             if (c == null) {
                 try {
@@ -467,12 +633,14 @@ public class TableSaveFile
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        return m_hasMoreChunks.get() || !m_availableChunks.isEmpty();
+        return m_hasMoreChunks.get() || m_pendingDecompressions > 0 || !m_availableChunks.isEmpty();
     }
 
     // thread safe file channels
     private final FileChannel m_saveFile;
     private final FileDescriptor m_fd;
+    // Stream of m_saveFile if it was opened here rather than by the caller
+    private final FileInputStream m_ownedInput;
     private final ByteBuffer m_tableHeader;
     private final boolean m_completed;
     private final int m_versionNum[] = new int[4];
@@ -483,6 +651,7 @@ public class TableSaveFile
     private final String m_tableName;
     private final boolean m_isReplicated;
     private final boolean m_isCompressed;
+    private final Codec m_codec;
     private final int m_partitionIds[];
     private final int m_totalPartitions;
     private final long m_txnId;
@@ -520,6 +689,15 @@ public class TableSaveFile
     private Thread m_chunkReaderThread = null;
     private IOException m_chunkReaderException = null;
 
+    /*
+     * State for decompressing chunks on the compression service, all guarded by this.
+     * Compressed buffers are recycled and their number is bounded by m_chunkReads.
+     */
+    private boolean m_parallelDecompression = false;
+    private int m_pendingDecompressions = 0;
+    private boolean m_closed = false;
+    private final ArrayDeque<BBContainer> m_compressedBuffers = new ArrayDeque<BBContainer>();
+
     /**
      * Thread to read chunks from the disk
      */
@@ -658,7 +836,7 @@ public class TableSaveFile
                         sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                    nextChunkLength = m_codec.uncompressedLength(fileInputBuffer);
 
                     /*
                      * Validate the rest of the chunk. This can fail if the data is corrupted
@@ -676,6 +854,20 @@ public class TableSaveFile
                         }
                     }
 
+                    if (m_parallelDecompression) {
+                        /*
+                         * The CRC has been checked so irrelevant chunks can be dropped
+                         * before paying for decompression
+                         */
+                        if (m_relevantPartitionIds != null &&
+                                !m_relevantPartitionIds.contains(nextChunkPartitionId)) {
+                            m_chunkReads.release();
+                            continue;
+                        }
+                        submitDecompression(fileInputBuffer, nextChunkLength, nextChunkPartitionId);
+                        continue;
+                    }
+
                     /*
                      * Now allocate space to store the chunk using the VoltTable serialization representation.
                      * The chunk will contain an integer row count preceding it so it can
@@ -704,7 +896,7 @@ public class TableSaveFile
                         m_tableHeader.position(0);
                         buf.put(m_tableHeader);
                         //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
+                        m_codec.decompress(fileInputBuffer, buf);
                         completedRead = true;
                     } finally {
                         if (!completedRead) {
@@ -880,7 +1072,7 @@ public class TableSaveFile
                             }
                         }
                         fileInputBuffer.flip();
-                        nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                        nextChunkLength = m_codec.uncompressedLength(fileInputBuffer);
                     }
 
                     /*
@@ -926,7 +1118,7 @@ public class TableSaveFile
                         c.b().position(c.b().position() + 4);//Leave space for row count to be moved into
                         checksumStartPosition = c.b().position();
                         if (isCompressed()) {
-                            CompressionService.decompressBuffer(fileInputBuffer, c.b());
+                            m_codec.decompress(fileInputBuffer, c.b());
                             c.b().position(c.b().limit());
                         } else {
                             while (c.b().hasRemaining()) {
@@ -1044,6 +1236,74 @@ public class TableSaveFile
             }
             fileInputBufferC.discard();
         }
+        /*
+         * Copy the compressed chunk out of the shared input buffer and decompress it
+         * on the compression service. The chunk is made available when that completes.
+         */
+        private void submitDecompression(
+                ByteBuffer fileInputBuffer, final int uncompressedLength, final int partitionId) {
+            BBContainer compressedC;
+            synchronized (TableSaveFile.this) {
+                compressedC = m_compressedBuffers.poll();
+                m_pendingDecompressions++;
+            }
+            if (compressedC == null) {
+                compressedC = DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+            }
+            final BBContainer compressed = compressedC;
+            compressed.b().clear();
+            compressed.b().put(fileInputBuffer);
+            compressed.b().flip();
+            final Container c = getOutputBuffer(partitionId);
+
+            CompressionService.submitCompressionTask(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    boolean decompressed = false;
+                    try {
+                        final ByteBuffer buf = c.b();
+                        buf.clear();
+                        buf.limit(uncompressedLength + m_tableHeader.capacity());
+                        final ByteBuffer header = m_tableHeader.duplicate();
+                        header.position(0);
+                        buf.put(header);
+                        m_codec.decompress(compressed.b(), buf);
+                        buf.position(0);
+                        decompressed = true;
+                    } catch (Throwable t) {
+                        new VoltLogger("SNAPSHOT").warn("Failed decompression of saved table chunk", t);
+                    }
+
+                    synchronized (TableSaveFile.this) {
+                        m_pendingDecompressions--;
+                        if (m_closed) {
+                            compressed.discard();
+                        } else {
+                            m_compressedBuffers.offer(compressed);
+                        }
+                        if (decompressed && !m_closed) {
+                            m_availableChunks.offer(c);
+                        } else {
+                            c.discard();
+                            if (!decompressed) {
+                                for (int partitionId : m_partitionIds) {
+                                    m_corruptedPartitions.add(partitionId);
+                                }
+                                if (!m_continueOnCorruptedChunk && m_chunkReaderException == null) {
+                                    m_hasMoreChunks.set(false);
+                                    m_chunkReaderException =
+                                            new IOException("Failed decompression of saved table chunk");
+                                }
+                            }
+                            m_chunkReads.release();
+                        }
+                        TableSaveFile.this.notifyAll();
+                    }
+                    return null;
+                }
+            });
+        }
+
         private Container getOutputBuffer(final int nextChunkPartitionId) {
             BBContainer c = m_buffers.poll();
             if (c == null) {
@@ -36,6 +36,14 @@ public interface BinaryDeque {
      */
     public static interface OutputContainerFactory {
         public BBContainer getContainer(int minimumSize);
+
+        /**
+         * Return true if the caller never writes to the returned buffers, in which case
+         * the deque may hand out a read only slice of its storage instead of a copy.
+         */
+        public default boolean acceptsReadOnlySlices() {
+            return false;
+        }
     }
 
     /**
@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.supercsv.exception.SuperCsvException;
 import org.supercsv.io.ICsvListReader;
 import org.voltcore.logging.VoltLogger;
+import org.voltdb.ParameterConverter;
 import org.voltdb.VoltType;
 import org.voltdb.client.Client;
 import org.voltdb.common.Constants;
@@ -37,7 +38,7 @@ import com.google_voltpatches.common.collect.HashBiMap;
 /**
  *
  * This is a single thread reader which feeds the lines after validating syntax
- * to CSVDataLoader.
+ * to CSVDataLoader. {@link CSVParallelFileReader} runs one per chunk of the input.
  *
  */
 class CSVFileReader implements Runnable {
@@ -66,6 +67,11 @@ class CSVFileReader implements Runnable {
     private final BulkLoaderErrorHandler m_errHandler;
     private final VoltType[] m_columnTypes;
     private final int m_columnCount;
+    private final ICsvListReader m_reader;
+    // Number of input lines before the first line read by m_reader
+    private final long m_lineOffset;
+    private final boolean m_convertValues;
+    private long m_skipLines = 0;
     private int headerlen;
     private Integer[] order;
 
@@ -88,22 +94,42 @@ class CSVFileReader implements Runnable {
     }
 
     public CSVFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler)    {
+        this(loader, errorHandler, m_listReader, 0, false);
+    }
+
+    private CSVFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler, ICsvListReader reader,
+            long lineOffset, boolean convertValues) {
         m_loader = loader;
         m_errHandler = errorHandler;
         m_columnTypes = m_loader.getColumnTypes();
         m_columnCount = m_columnTypes.length;
+        m_reader = reader;
+        m_lineOffset = lineOffset;
+        m_convertValues = convertValues;
+    }
+
+    /**
+     * Create a reader for one chunk of the input, which sees the lines after line
+     * <code>lineOffset</code> of the input as its first lines and skips the first
+     * <code>skipLines</code> of them. The chunk reader uses the
+     * header mapping of this reader, and converts the values to the column types before
+     * inserting them when the table is loaded directly, so that the conversion runs on the
+     * parsing threads instead of the loader threads.
+     */
+    CSVFileReader newChunkReader(ICsvListReader reader, long lineOffset, long skipLines) {
+        CSVFileReader chunkReader = new CSVFileReader(m_loader, m_errHandler, reader, lineOffset,
+                !m_config.useSuppliedProcedure);
+        chunkReader.m_skipLines = skipLines;
+        chunkReader.headerlen = headerlen;
+        chunkReader.order = order;
+        return chunkReader;
     }
 
     @Override
     public void run() {
-        List<String> lineList;
         //if header option is true, check whether csv first line is valid
         if (m_config.header) {
-            if (!checkHeader()) {
-                m_log.error("In the CSV file " + m_config.file + ", the header "+ m_listReader.getUntokenizedRow() +" does not match "
-                        + "an existing column in the table " + m_config.table + ".");
-                System.exit(-1);
-            }
+            checkHeaderOrExit();
         }
 
         while ((m_config.limitrows-- > 0)) {
@@ -111,68 +137,111 @@ class CSVFileReader implements Runnable {
                 break;
             }
 
-            try {
-                //Initial setting of m_totalLineCount
-                if (m_listReader.getLineNumber() == 0) {
-                    m_totalLineCount.set(m_config.skip);
-                } else {
-                    m_totalLineCount.set(m_listReader.getLineNumber());
-                }
-                long st = System.nanoTime();
-                lineList = m_listReader.read();
-                long end = System.nanoTime();
-                m_parsingTime += (end - st);
-                if (lineList == null) {
-                    if (m_totalLineCount.get() > m_listReader.getLineNumber()) {
-                        m_totalLineCount.set(m_listReader.getLineNumber());
-                    }
-                    break;
+            //Initial setting of m_totalLineCount
+            if (m_reader.getLineNumber() == 0) {
+                m_totalLineCount.set(m_config.skip);
+            } else {
+                m_totalLineCount.set(m_reader.getLineNumber());
+            }
+            if (!loadNextRow(m_totalLineCount.get())) {
+                if (m_totalLineCount.get() > m_reader.getLineNumber()) {
+                    m_totalLineCount.set(m_reader.getLineNumber());
                 }
-                m_totalRowCount.incrementAndGet();
+                break;
+            }
+        }
 
-                if (lineList.isEmpty()) {
-                    continue;
-                }
+        closeLoader(m_loader);
+    }
 
-                String[] lineValues = lineList.toArray(new String[0]);
-                String lineCheckResult;
-                String[] reorderValues = new String[m_columnCount];
-                if ((lineCheckResult = checkparams_trimspace_reorder(lineValues, reorderValues)) != null) {
-                    final RowWithMetaData metaData
-                            = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                    m_totalLineCount.get() + 1);
-                    if (m_errHandler.handleError(metaData, null, lineCheckResult)) {
-                        break;
-                    }
-                    continue;
-                }
+    /**
+     * Load all the rows of the chunk read by this reader, until the chunk is exhausted or
+     * the error limit is reached.
+     */
+    void readChunk() {
+        while (!m_errHandler.hasReachedErrorLimit()) {
+            long linesRead = m_reader.getLineNumber() == 0 ? m_skipLines : m_reader.getLineNumber();
+            if (!loadNextRow(m_lineOffset + linesRead)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Read the next row, check it and hand it to the loader.
+     *
+     * @param previousLine The number of the last line read before this row, used to report
+     *                     rows which can't be parsed.
+     * @return false if there are no more rows or loading has to stop.
+     */
+    private boolean loadNextRow(long previousLine) {
+        try {
+            long st = System.nanoTime();
+            List<String> lineList = m_reader.read();
+            long end = System.nanoTime();
+            m_parsingTime += (end - st);
+            if (lineList == null) {
+                return false;
+            }
+            m_totalRowCount.incrementAndGet();
+
+            if (lineList.isEmpty()) {
+                return true;
+            }
 
-                RowWithMetaData lineData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_listReader.getLineNumber());
-                m_loader.insertRow(lineData, reorderValues);
-            } catch (SuperCsvException e) {
-                //Catch rows that can not be read by superCSV m_listReader.
-                // e.g. items without quotes when strictquotes is enabled.
+            String[] lineValues = lineList.toArray(new String[0]);
+            String lineCheckResult;
+            String[] reorderValues = new String[m_columnCount];
+            if ((lineCheckResult = checkparams_trimspace_reorder(lineValues, reorderValues)) != null) {
                 final RowWithMetaData metaData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_totalLineCount.get() + 1);
-                if (m_errHandler.handleError(metaData, null, e.getMessage())) {
-                    break;
-                }
-            } catch (IOException ex) {
-                m_log.error("Failed to read CSV line from file: " + ex);
-                break;
-            } catch (InterruptedException e) {
-                m_log.error("CSVLoader interrupted: " + e);
-                break;
+                        = new RowWithMetaData(m_reader.getUntokenizedRow(), previousLine + 1);
+                return !m_errHandler.handleError(metaData, null, lineCheckResult);
             }
+
+            RowWithMetaData lineData
+                    = new RowWithMetaData(m_reader.getUntokenizedRow(),
+                            m_lineOffset + m_reader.getLineNumber());
+            m_loader.insertRow(lineData, m_convertValues ? convertValues(reorderValues) : reorderValues);
+            return true;
+        } catch (SuperCsvException e) {
+            //Catch rows that can not be read by superCSV m_listReader.
+            // e.g. items without quotes when strictquotes is enabled.
+            final RowWithMetaData metaData
+                    = new RowWithMetaData(m_reader.getUntokenizedRow(), previousLine + 1);
+            return !m_errHandler.handleError(metaData, null, e.getMessage());
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+            return false;
+        } catch (InterruptedException e) {
+            m_log.error("CSVLoader interrupted: " + e);
+            return false;
         }
+    }
 
-        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
+    /**
+     * Convert the values to the types of their columns. A value which can't be converted is
+     * left as it is, the loader fails to convert it again and reports the row.
+     */
+    private Object[] convertValues(String[] values) {
+        Object[] converted = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            try {
+                converted[i] = ParameterConverter.tryToMakeCompatible(m_columnTypes[i].classFromType(), values[i]);
+            } catch (RuntimeException e) {
+                converted[i] = values[i];
+            }
+        }
+        return converted;
+    }
+
+    //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
+    static void closeLoader(CSVDataLoader loader) {
         try {
             m_log.debug("Waiting for CSVDataLoader to finish.");
-            m_loader.close();
+            loader.close();
             m_log.debug("CSVDataLoader Done.");
         } catch (Exception ex) {
             m_log.warn("Stopped processing because of connection error. "
@@ -180,9 +249,17 @@ class CSVFileReader implements Runnable {
         }
     }
 
+    void checkHeaderOrExit() {
+        if (!checkHeader()) {
+            m_log.error("In the CSV file " + m_config.file + ", the header "+ m_reader.getUntokenizedRow() +" does not match "
+                    + "an existing column in the table " + m_config.table + ".");
+            System.exit(-1);
+        }
+    }
+
     private boolean checkHeader() {
         try {
-            String[] firstline = m_listReader.getHeader(false);
+            String[] firstline = m_reader.getHeader(false);
             Set<String> firstset = new HashSet<String>();
             BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
             headerlen = firstline.length;
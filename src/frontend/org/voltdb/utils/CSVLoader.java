@@ -16,16 +16,19 @@
  */
 package org.voltdb.utils;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.TimeZone;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPInputStream;
 
 import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
@@ -117,6 +120,10 @@ public class CSVLoader implements BulkLoaderErrorHandler {
      * Stop when all connections are lost?
      */
     public static final boolean DEFAULT_STOP_ON_DISCONNECT = false;
+    /**
+     * Number of threads parsing the input, parsing on several threads is opt-in
+     */
+    public static final int DEFAULT_PARSER_THREADS = 1;
     /**
      * Used for testing only.
      */
@@ -131,6 +138,7 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         }
     }
 
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
     private static final int ERROR_INFO_QUEUE_SIZE = Integer.getInteger("ERROR_INFO_QUEUE_SIZE", 500);
     //Errors we keep track only upto maxerrors
     private final LinkedBlockingQueue<ErrorInfoItem> m_errorInfo = new LinkedBlockingQueue<ErrorInfoItem>(ERROR_INFO_QUEUE_SIZE);
@@ -333,6 +341,10 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
         @Option(desc = "Stop when all connections are lost", hasArg = false)
         boolean stopondisconnect = DEFAULT_STOP_ON_DISCONNECT;
+
+        @Option(desc = "number of threads parsing the input, more than 1 parses chunks of the input in parallel "
+                + "and may load the rows out of order (default: 1)")
+        int parserthreads = DEFAULT_PARSER_THREADS;
         /**
          * Validate command line options.
          */
@@ -359,6 +371,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (parserthreads < 1) {
+                exitWithMessageAndUsage("parserthreads must be >= 1");
+            }
             if(!customNullString.isEmpty() && !blank.equals("error")){
                 blank = "empty";
             }
@@ -424,30 +439,36 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
         configuration();
 
-        final Tokenizer tokenizer;
-        ICsvListReader listReader = null;
+        InputStream input = null;
+        Charset charset = null;
         try {
             if (CSVLoader.standin) {
-                tokenizer = new Tokenizer(new BufferedReader(new InputStreamReader(System.in)), csvPreference,
-                        config.strictquotes, config.escape, config.columnsizelimit,
-                        config.skip, config.header);
-                listReader = new CsvListReader(tokenizer, csvPreference);
+                input = openInput(System.in);
+                charset = Charset.defaultCharset();
             } else {
-                FileInputStream fis = new FileInputStream(config.file);
-                InputStreamReader isr = new InputStreamReader(fis, config.charset);
-                tokenizer = new Tokenizer(isr,
-                          csvPreference,
-                          config.strictquotes,
-                          config.escape,
-                          config.columnsizelimit,
-                          config.skip,
-                          config.header);
-
-                   listReader = new CsvListReader(tokenizer, csvPreference);
+                input = openInput(new FileInputStream(config.file));
+                charset = Charset.forName(config.charset);
             }
         } catch (FileNotFoundException e) {
             m_log.error("CSV file '" + config.file + "' could not be found.");
             System.exit(-1);
+        } catch (IOException e) {
+            m_log.error("Failed to open the CSV input: " + e.getMessage());
+            System.exit(-1);
+        }
+        // Rows have to be read in order to stop after limitrows
+        final boolean parallel = config.parserthreads > 1 && config.limitrows == Integer.MAX_VALUE
+                && CSVParallelFileReader.canSplit(charset, config.quotechar, config.escape);
+        ICsvListReader listReader = null;
+        if (!parallel) {
+            final Tokenizer tokenizer = new Tokenizer(new InputStreamReader(input, charset),
+                    csvPreference,
+                    config.strictquotes,
+                    config.escape,
+                    config.columnsizelimit,
+                    config.skip,
+                    config.header);
+            listReader = new CsvListReader(tokenizer, csvPreference);
         }
         // Split server list
         final String[] serverlist = config.servers.split(",");
@@ -504,7 +525,13 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             CSVFileReader.initializeReader(cfg, csvClient, listReader);
 
-            CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
+            final Runnable csvReader;
+            if (parallel) {
+                csvReader = new CSVParallelFileReader(dataLoader, errHandler, input, charset, csvPreference,
+                        config.parserthreads);
+            } else {
+                csvReader = new CSVFileReader(dataLoader, errHandler);
+            }
 
             Thread readerThread = new Thread(csvReader);
             readerThread.setName("CSVFileReader");
@@ -520,14 +547,18 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             errHandler.waitForErrorFlushComplete();
 
-            readerTime = (csvReader.m_parsingTime) / 1000000;
+            if (parallel) {
+                readerTime = ((CSVParallelFileReader) csvReader).m_parsingTime / 1000000;
+            } else {
+                readerTime = ((CSVFileReader) csvReader).m_parsingTime / 1000000;
+            }
             insertCount = dataLoader.getProcessedRows();
             ackCount = insertCount - dataLoader.getFailedRows();
             rowsQueued = CSVFileReader.m_totalRowCount.get();
 
             //Close the reader.
             try {
-               listReader.close();
+               input.close();
             } catch (Exception ex) {
                 m_log.error("Error closing reader: " + ex);
             } finally {
@@ -555,6 +586,28 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         }
     }
 
+    /**
+     * Wrap the input in a decompressing stream if it is compressed with gzip. zstd input is
+     * detected, but has to be decompressed before it is passed to the loader.
+     */
+    static InputStream openInput(InputStream in) throws IOException {
+        final BufferedInputStream input = new BufferedInputStream(in, INPUT_BUFFER_SIZE);
+        input.mark(4);
+        final int b0 = input.read();
+        final int b1 = input.read();
+        final int b2 = input.read();
+        final int b3 = input.read();
+        input.reset();
+        if (b0 == 0x1f && b1 == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(input, INPUT_BUFFER_SIZE), INPUT_BUFFER_SIZE);
+        }
+        if (b0 == 0x28 && b1 == 0xb5 && b2 == 0x2f && b3 == 0xfd) {
+            throw new IOException("zstd compressed input is not supported, decompress it with "
+                    + "\"zstd -dc\" and pipe it to csvloader instead");
+        }
+        return input;
+    }
+
     private static void configuration() {
         csvPreference = new CsvPreference.Builder(config.quotechar, config.separator, "\n").build();
         if (config.file.equals("")) {
@@ -0,0 +1,345 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.supercsv.io.CsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Reads the CSV input on several threads. The input is cut into chunks of about
+ * {@link #CHUNK_SIZE} bytes which end on a record boundary, and every chunk is parsed by a
+ * {@link CSVFileReader} on one of the parser threads, which feed the loader concurrently.
+ * Each chunk knows how many lines precede it, so errors are still reported with the line
+ * number in the input.
+ *
+ * Finding the record boundaries only needs a scan of the bytes for newlines, quotes and
+ * escapes, so the input is read as a stream and may be compressed. The scan requires a
+ * charset in which these characters are single bytes that can't be part of another
+ * character, see {@link #canSplit(Charset, char, char)}.
+ */
+class CSVParallelFileReader implements Runnable {
+
+    static final int CHUNK_SIZE = Integer.getInteger("CSV_CHUNK_SIZE", 4 * 1024 * 1024);
+
+    private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
+
+    private final CSVDataLoader m_loader;
+    private final BulkLoaderErrorHandler m_errHandler;
+    private final InputStream m_input;
+    private final Charset m_charset;
+    private final CsvPreference m_csvPreference;
+    private final int m_parserCount;
+    private final BlockingQueue<CSVFileReader> m_chunks;
+    // Tells a parser thread that the input is exhausted
+    private final CSVFileReader m_noMoreChunks;
+    long m_parsingTime = 0;
+
+    /**
+     * A chunk of the input ending on a record boundary.
+     */
+    static class Chunk {
+        final byte[] m_data;
+        final int m_length;
+        // Number of input lines before the chunk
+        final long m_lineOffset;
+
+        Chunk(byte[] data, int length, long lineOffset) {
+            m_data = data;
+            m_length = length;
+            m_lineOffset = lineOffset;
+        }
+    }
+
+    /**
+     * Cuts the input into chunks on line terminators (\n, \r or \r\n) which are not quoted,
+     * following the rules of the {@link Tokenizer}, and counts the lines the way its reader does.
+     */
+    static class ChunkSplitter {
+        private final InputStream m_input;
+        private final int m_quote;
+        private final int m_escape;
+        private final long m_columnSizeLimit;
+        private final int m_chunkSize;
+
+        private byte[] m_buffer;
+        // Bytes of the next chunk already in m_buffer, and how many of them were scanned
+        private int m_length = 0;
+        private int m_scanned = 0;
+        private boolean m_eof = false;
+
+        // Scanner state at m_scanned
+        private boolean m_inQuotes = false;
+        private boolean m_escaped = false;
+        private boolean m_sawCR = false;
+        private long m_quotedBytes = 0;
+        // Lines terminated before m_scanned, and before the start of the next chunk
+        private long m_lines = 0;
+        private long m_chunkLineOffset = 0;
+
+        ChunkSplitter(InputStream input, char quote, char escape, long columnSizeLimit, int chunkSize) {
+            m_input = input;
+            m_quote = quote;
+            m_escape = escape;
+            m_columnSizeLimit = columnSizeLimit;
+            m_chunkSize = chunkSize;
+            m_buffer = new byte[chunkSize];
+        }
+
+        /**
+         * @return The next chunk, or null at the end of the input
+         */
+        Chunk next() throws IOException {
+            int boundary = -1;
+            long boundaryLines = 0;
+            while (true) {
+                // Scan what hasn't been scanned yet, up to the first record boundary past the chunk size
+                for (; m_scanned < m_length; m_scanned++) {
+                    final byte b = m_buffer[m_scanned];
+                    if (m_sawCR) {
+                        m_sawCR = false;
+                        if (b == '\n') {
+                            // Second half of a \r\n, the line already ended at the \r
+                            if (boundary == m_scanned) {
+                                boundary = m_scanned + 1;
+                                if (boundary >= m_chunkSize) {
+                                    m_scanned++;
+                                    return cut(boundary, boundaryLines);
+                                }
+                            }
+                            continue;
+                        }
+                        if (boundary == m_scanned && boundary >= m_chunkSize) {
+                            // The record ended with a bare \r
+                            return cut(boundary, boundaryLines);
+                        }
+                    }
+                    if (b == '\n' || b == '\r') {
+                        // \n, \r and \r\n all end a line, like they do for the tokenizer's reader
+                        m_lines++;
+                        m_sawCR = b == '\r';
+                        if (m_escaped) {
+                            m_escaped = false;
+                        }
+                        else if (m_inQuotes) {
+                            if (m_quotedBytes > m_columnSizeLimit) {
+                                // The tokenizer gives up on an oversized quoted column at the end of a line
+                                m_inQuotes = false;
+                            }
+                            else {
+                                // and otherwise appends a newline to the column
+                                m_quotedBytes++;
+                            }
+                        }
+                        if (!m_inQuotes) {
+                            boundary = m_scanned + 1;
+                            boundaryLines = m_lines;
+                            // Wait for the next byte to tell a bare \r from a \r\n
+                            if (!m_sawCR && boundary >= m_chunkSize) {
+                                m_scanned++;
+                                return cut(boundary, boundaryLines);
+                            }
+                        }
+                        continue;
+                    }
+                    if (m_inQuotes) {
+                        if (b == m_quote) {
+                            m_inQuotes = false;
+                        }
+                        else {
+                            m_quotedBytes++;
+                        }
+                    }
+                    else if (m_escaped) {
+                        m_escaped = false;
+                    }
+                    else if (b == m_escape) {
+                        m_escaped = true;
+                    }
+                    else if (b == m_quote) {
+                        m_inQuotes = true;
+                        m_quotedBytes = 0;
+                    }
+                }
+
+                // Unless the record ends with a \r whose \n may not have been read yet
+                if (m_length >= m_chunkSize && boundary > 0 && !(boundary == m_length && m_sawCR)) {
+                    return cut(boundary, boundaryLines);
+                }
+                if (m_eof) {
+                    if (m_length == 0) {
+                        return null;
+                    }
+                    // The last line is counted even without a line terminator
+                    if (m_buffer[m_length - 1] != '\n' && m_buffer[m_length - 1] != '\r') {
+                        m_lines++;
+                    }
+                    return cut(m_length, m_lines);
+                }
+                if (m_length == m_buffer.length) {
+                    // A single record is larger than the buffer
+                    m_buffer = Arrays.copyOf(m_buffer, m_buffer.length * 2);
+                }
+                int read = m_input.read(m_buffer, m_length, m_buffer.length - m_length);
+                if (read < 0) {
+                    m_eof = true;
+                }
+                else {
+                    m_length += read;
+                }
+            }
+        }
+
+        /**
+         * @return The number of lines in the input read so far
+         */
+        long getLineCount() {
+            return m_chunkLineOffset;
+        }
+
+        private Chunk cut(int length, long lines) {
+            Chunk chunk = new Chunk(m_buffer, length, m_chunkLineOffset);
+            m_buffer = new byte[Math.max(m_chunkSize, m_length - length)];
+            System.arraycopy(chunk.m_data, length, m_buffer, 0, m_length - length);
+            m_length -= length;
+            m_scanned -= length;
+            m_chunkLineOffset = lines;
+            return chunk;
+        }
+    }
+
+    /**
+     * @return true if the input can be cut into chunks by looking at its bytes, which
+     * requires the quote, escape and line terminator characters to be single bytes that
+     * never occur inside a multi-byte character.
+     */
+    static boolean canSplit(Charset charset, char quote, char escape) {
+        final String name = charset.name();
+        final boolean asciiCompatible = name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-");
+        return asciiCompatible && quote < 0x80 && escape < 0x80;
+    }
+
+    CSVParallelFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler, InputStream input,
+            Charset charset, CsvPreference csvPreference, int parserCount) {
+        m_loader = loader;
+        m_errHandler = errorHandler;
+        m_input = input;
+        m_charset = charset;
+        m_csvPreference = csvPreference;
+        m_parserCount = parserCount;
+        // Keep a chunk ready for every parser but don't buffer much more of the input
+        m_chunks = new ArrayBlockingQueue<CSVFileReader>(parserCount);
+        m_noMoreChunks = new CSVFileReader(loader, errorHandler);
+    }
+
+    @Override
+    public void run() {
+        final CSVLoader.CSVConfig config = CSVFileReader.m_config;
+        final ChunkSplitter splitter = new ChunkSplitter(m_input, config.quotechar, config.escape,
+                config.columnsizelimit, CHUNK_SIZE);
+
+        final ChunkParser[] parsers = new ChunkParser[m_parserCount];
+        for (int i = 0; i < m_parserCount; i++) {
+            parsers[i] = new ChunkParser();
+            parsers[i].setName("CSVChunkParser-" + i);
+            parsers[i].setDaemon(true);
+            parsers[i].start();
+        }
+
+        try {
+            // The first chunk is read with the skip and header settings of the whole input. The
+            // header gives the column mapping of all chunks, which count the header as a skipped line.
+            Chunk chunk = splitter.next();
+            if (chunk != null) {
+                CSVFileReader firstReader = new CSVFileReader(m_loader, m_errHandler)
+                        .newChunkReader(newListReader(chunk, config.skip, config.header), 0, config.skip);
+                if (config.header) {
+                    firstReader.checkHeaderOrExit();
+                }
+                m_chunks.put(firstReader);
+
+                final long skip = config.skip + (config.header ? 1 : 0);
+                while (!m_errHandler.hasReachedErrorLimit() && (chunk = splitter.next()) != null) {
+                    final long chunkSkip = Math.max(0, skip - chunk.m_lineOffset);
+                    m_chunks.put(firstReader.newChunkReader(newListReader(chunk, chunkSkip, false),
+                            chunk.m_lineOffset, chunkSkip));
+                }
+            }
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+        } catch (InterruptedException e) {
+            m_log.error("CSVLoader interrupted: " + e);
+        }
+        CSVFileReader.m_totalLineCount.set(splitter.getLineCount());
+
+        try {
+            for (int i = 0; i < m_parserCount; i++) {
+                m_chunks.put(m_noMoreChunks);
+            }
+            for (ChunkParser parser : parsers) {
+                parser.join();
+                m_parsingTime = Math.max(m_parsingTime, parser.m_parsingTime);
+            }
+        } catch (InterruptedException e) {
+            m_log.error("CSVLoader interrupted: " + e);
+        }
+
+        CSVFileReader.closeLoader(m_loader);
+    }
+
+    private CsvListReader newListReader(Chunk chunk, long skip, boolean header) {
+        Tokenizer tokenizer = new Tokenizer(
+                new InputStreamReader(new ByteArrayInputStream(chunk.m_data, 0, chunk.m_length), m_charset),
+                m_csvPreference,
+                CSVFileReader.m_config.strictquotes,
+                CSVFileReader.m_config.escape,
+                CSVFileReader.m_config.columnsizelimit,
+                skip,
+                header);
+        return new CsvListReader(tokenizer, m_csvPreference);
+    }
+
+    private class ChunkParser extends Thread {
+        long m_parsingTime = 0;
+
+        @Override
+        public void run() {
+            try {
+                CSVFileReader reader;
+                while ((reader = m_chunks.take()) != m_noMoreChunks) {
+                    // Keep taking chunks after the error limit so the splitter isn't blocked
+                    if (!m_errHandler.hasReachedErrorLimit()) {
+                        reader.readChunk();
+                        m_parsingTime += reader.m_parsingTime;
+                    }
+                }
+            } catch (InterruptedException e) {
+                m_log.error("CSVLoader interrupted: " + e);
+            }
+        }
+    }
+}
@@ -18,7 +18,6 @@
 package org.voltdb.utils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -29,27 +28,49 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.VoltTable;
+import org.voltdb.sysprocs.saverestore.SnapshotScanProgress;
 import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.Pair;
 
 public class CSVTableSaveFile {
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 16777216;
+
     private final AtomicInteger m_availableBytes = new AtomicInteger(0);
-    private final int m_maxAvailableBytes = 16777216;
+    private final int m_maxAvailableBytes;
     private final LinkedBlockingQueue<byte[]> m_available = new LinkedBlockingQueue<byte[]>();
-    private final Thread m_converterThreads[] = new Thread[CoreUtils.availableProcessors()];
+    private final Thread m_converterThreads[];
     private final AtomicReference<IOException> m_exception = new AtomicReference<IOException>(
             null);
-    private final AtomicInteger m_activeConverters = new AtomicInteger(CoreUtils.availableProcessors());
+    private final AtomicInteger m_activeConverters;
     private final TableSaveFile m_saveFile;
     private final char m_delimiter;
+    private final SnapshotScanProgress m_progress;
 
     public CSVTableSaveFile(File saveFile, char delimiter, Integer partitions[])
             throws IOException {
+        this(saveFile, delimiter, partitions, CoreUtils.availableProcessors(), DEFAULT_MAX_BUFFERED_BYTES, null);
+    }
+
+    /**
+     * Memory use is bounded by the chunks read ahead, two per converter thread, and by the
+     * CSV data converted but not read yet.
+     *
+     * @param converterThreads Threads converting chunks to CSV
+     * @param maxBufferedBytes CSV data to convert ahead of {@link #read()}
+     * @param progress Counts the CSV data converted, may be null
+     */
+    public CSVTableSaveFile(File saveFile, char delimiter, Integer partitions[], int converterThreads,
+            int maxBufferedBytes, SnapshotScanProgress progress) throws IOException {
         m_delimiter = delimiter;
-        final FileInputStream fis = new FileInputStream(saveFile);
-        m_saveFile = new TableSaveFile(fis, 10, partitions);
+        m_maxAvailableBytes = maxBufferedBytes;
+        m_progress = progress;
+        m_saveFile = new TableSaveFile(saveFile, converterThreads * 2, partitions);
+        // The chunks are converted in any order, so they can be decompressed in any order too
+        m_saveFile.enableParallelDecompression();
+        m_converterThreads = new Thread[converterThreads];
+        m_activeConverters = new AtomicInteger(converterThreads);
         for (int ii = 0; ii < m_converterThreads.length; ii++) {
             m_converterThreads[ii] = new Thread(new ConverterThread());
             m_converterThreads[ii].start();
@@ -118,6 +139,9 @@ public class CSVTableSaveFile {
                     if (csvBytes.length > 0) {
                         m_availableBytes.addAndGet(csvBytes.length);
                         m_available.offer(csvBytes);
+                        if (m_progress != null) {
+                            m_progress.addBytes(csvBytes.length);
+                        }
                     }
                 } finally {
                     c.discard();
@@ -203,10 +227,19 @@ public class CSVTableSaveFile {
             Integer[] partitions, final File outfile, final File infile)
             throws FileNotFoundException, IOException, InterruptedException,
             SyncFailedException {
+        convertTableSaveFile(delimiter, partitions, outfile, infile, CoreUtils.availableProcessors(),
+                DEFAULT_MAX_BUFFERED_BYTES, null);
+    }
+
+    public static void convertTableSaveFile(char delimiter,
+            Integer[] partitions, final File outfile, final File infile,
+            int converterThreads, int maxBufferedBytes, SnapshotScanProgress progress)
+            throws FileNotFoundException, IOException, InterruptedException,
+            SyncFailedException {
         final FileOutputStream fos = new FileOutputStream(outfile, true);
         try {
             final CSVTableSaveFile converter = new CSVTableSaveFile(infile,
-                    delimiter, partitions);
+                    delimiter, partitions, converterThreads, maxBufferedBytes, progress);
             try {
                 while (true) {
                     final byte bytes[] = converter.read();
@@ -24,9 +24,18 @@ import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterOutputStream;
 
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
@@ -41,6 +50,8 @@ import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 
 public final class CompressionService {
 
+    private static final VoltLogger m_log = new VoltLogger("HOST");
+
     static {
         CoreUtils.m_threadLocalDeallocator = new Runnable() {
             @Override
@@ -70,8 +81,301 @@ public final class CompressionService {
         m_buffers.get().input.discard();
         m_buffers.get().output.discard();
         m_buffers.remove();
+        m_heapBuffers.get().release();
+        m_heapBuffers.remove();
     }
 
+    /**
+     * Heap buffers and zlib streams for the codecs whose libraries only work on arrays.
+     */
+    private static class HeapBuffers {
+        private byte[] input = new byte[1024 * 32];
+        private byte[] output = new byte[1024 * 32];
+        // Indexed by compression level
+        private final Deflater[] deflaters = new Deflater[Deflater.BEST_COMPRESSION + 1];
+        private Inflater inflater;
+
+        private byte[] input(int length) {
+            if (input.length < length) {
+                input = new byte[Math.max(input.length * 2, length)];
+            }
+            return input;
+        }
+
+        private byte[] output(int length) {
+            if (output.length < length) {
+                output = new byte[Math.max(output.length * 2, length)];
+            }
+            return output;
+        }
+
+        private Deflater deflater(int level) {
+            if (deflaters[level] == null) {
+                deflaters[level] = new Deflater(level, true);
+            }
+            return deflaters[level];
+        }
+
+        private Inflater inflater() {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            return inflater;
+        }
+
+        private void release() {
+            for (Deflater deflater : deflaters) {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+    private static ThreadLocal<HeapBuffers> m_heapBuffers = new ThreadLocal<HeapBuffers>() {
+        @Override
+        protected HeapBuffers initialValue() {
+            return new HeapBuffers();
+        }
+    };
+
+    // The pure Java implementation doesn't extract a native library, the safe decompressor
+    // never reads past the block when it is corrupt
+    private static final LZ4Compressor m_lz4Compressor = LZ4Factory.fastestJavaInstance().fastCompressor();
+    private static final LZ4SafeDecompressor m_lz4Decompressor = LZ4Factory.fastestJavaInstance().safeDecompressor();
+
+    /**
+     * Block compression codecs. A compressed block can be decompressed knowing only its
+     * codec, so the codec is recorded next to the data: in the header of snapshot table files
+     * and in the snapshot digest, in the first byte of rejoin stream blocks and in the entry
+     * flags of PBD segments. The ids are persisted and must never change.
+     *
+     * Compression reads the remaining bytes of the input and writes at the position of the
+     * output, decompression writes at the position of the output. Neither moves the positions,
+     * the limit of the output is set to the end of the result, like Snappy does.
+     *
+     * SNAPPY is the default and the only codec older versions can read. LZ4 compresses about
+     * as well and decompresses faster. The DEFLATE codecs trade throughput for ratio, which is
+     * what cold, string heavy tables need when disk or network bandwidth is the bottleneck.
+     */
+    public static enum Codec {
+        SNAPPY(0) {
+            @Override
+            public int compress(ByteBuffer input, ByteBuffer output) throws IOException {
+                return Snappy.compress(input, output);
+            }
+
+            @Override
+            public int uncompressedLength(ByteBuffer compressed) throws IOException {
+                return Snappy.uncompressedLength(compressed);
+            }
+
+            @Override
+            public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+                return Snappy.uncompress(compressed, uncompressed);
+            }
+
+            @Override
+            public int maxCompressedLength(int uncompressedLength) {
+                return Snappy.maxCompressedLength(uncompressedLength);
+            }
+        },
+        LZ4(1) {
+            @Override
+            int compress(byte[] input, int length, byte[] output, int offset) {
+                return m_lz4Compressor.compress(input, 0, length, output, offset, output.length - offset);
+            }
+
+            @Override
+            void decompress(byte[] input, int length, byte[] output, int uncompressedLength) throws IOException {
+                final int decompressed;
+                try {
+                    decompressed = m_lz4Decompressor.decompress(input, LENGTH_PREFIX_BYTES,
+                            length - LENGTH_PREFIX_BYTES, output, 0, uncompressedLength);
+                } catch (LZ4Exception e) {
+                    throw new IOException("Corrupt LZ4 block", e);
+                }
+                if (decompressed != uncompressedLength) {
+                    throw new IOException("Corrupt LZ4 block of " + decompressed + " bytes, expected " +
+                            uncompressedLength);
+                }
+            }
+
+            @Override
+            public int maxCompressedLength(int uncompressedLength) {
+                return LENGTH_PREFIX_BYTES + m_lz4Compressor.maxCompressedLength(uncompressedLength);
+            }
+        },
+        DEFLATE_FAST(2, Deflater.BEST_SPEED),
+        DEFLATE(3, Deflater.DEFAULT_COMPRESSION),
+        DEFLATE_BEST(4, Deflater.BEST_COMPRESSION);
+
+        // The codecs other than Snappy prefix the block with its uncompressed length
+        private static final int LENGTH_PREFIX_BYTES = 4;
+
+        private final byte m_id;
+        private final int m_level;
+
+        private Codec(int id) {
+            this(id, 0);
+        }
+
+        private Codec(int id, int level) {
+            m_id = (byte) id;
+            m_level = level == Deflater.DEFAULT_COMPRESSION ? 6 : level;
+        }
+
+        public byte getId() {
+            return m_id;
+        }
+
+        public static Codec get(int id) throws IOException {
+            for (Codec codec : values()) {
+                if (codec.m_id == id) {
+                    return codec;
+                }
+            }
+            throw new IOException("Unknown compression codec " + id);
+        }
+
+        /**
+         * @return The codec named by the system property, or Snappy if it isn't set
+         */
+        public static Codec fromProperty(String property) {
+            final String name = System.getProperty(property);
+            if (name == null) {
+                return SNAPPY;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                m_log.warn("Unknown compression codec " + name + " for " + property + ", using " + SNAPPY);
+                return SNAPPY;
+            }
+        }
+
+        /**
+         * Compress the remaining bytes of input at the position of output.
+         * @return The compressed length
+         */
+        public int compress(ByteBuffer input, ByteBuffer output) throws IOException {
+            final int length = input.remaining();
+            final int maxCompressedLength = maxCompressedLength(length);
+            if (output.remaining() < maxCompressedLength) {
+                throw new IOException("Output buffer of " + output.remaining() +
+                        " bytes may not fit " + maxCompressedLength + " compressed bytes");
+            }
+            final HeapBuffers buffers = m_heapBuffers.get();
+            final byte[] in = buffers.input(length);
+            final byte[] out = buffers.output(maxCompressedLength);
+            input.duplicate().get(in, 0, length);
+
+            final int compressedLength = LENGTH_PREFIX_BYTES + compress(in, length, out, LENGTH_PREFIX_BYTES);
+            final ByteBuffer result = output.duplicate();
+            result.putInt(length);
+            result.put(out, LENGTH_PREFIX_BYTES, compressedLength - LENGTH_PREFIX_BYTES);
+            output.limit(output.position() + compressedLength);
+            return compressedLength;
+        }
+
+        /**
+         * @return The uncompressed length of the block at the position of compressed
+         */
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            if (compressed.remaining() < LENGTH_PREFIX_BYTES) {
+                throw new IOException("Truncated " + this + " block");
+            }
+            final int length = compressed.getInt(compressed.position());
+            if (length < 0) {
+                throw new IOException("Corrupt " + this + " block length " + length);
+            }
+            return length;
+        }
+
+        /**
+         * Decompress the remaining bytes of compressed at the position of uncompressed.
+         * @return The uncompressed length
+         */
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            final int uncompressedLength = uncompressedLength(compressed);
+            if (uncompressed.remaining() < uncompressedLength) {
+                throw new IOException("Output buffer of " + uncompressed.remaining() +
+                        " bytes is too small for " + uncompressedLength + " uncompressed bytes");
+            }
+            final int length = compressed.remaining();
+            final HeapBuffers buffers = m_heapBuffers.get();
+            final byte[] in = buffers.input(length);
+            final byte[] out = buffers.output(uncompressedLength);
+            compressed.duplicate().get(in, 0, length);
+
+            decompress(in, length, out, uncompressedLength);
+            uncompressed.duplicate().put(out, 0, uncompressedLength);
+            uncompressed.limit(uncompressed.position() + uncompressedLength);
+            return uncompressedLength;
+        }
+
+        public int maxCompressedLength(int uncompressedLength) {
+            // Stored blocks of raw deflate add 5 bytes per 16K
+            return LENGTH_PREFIX_BYTES + uncompressedLength + (uncompressedLength >> 8) + 64;
+        }
+
+        /**
+         * Array based compression for the codecs other than Snappy, the output starts at offset.
+         */
+        int compress(byte[] input, int length, byte[] output, int offset) throws IOException {
+            final Deflater deflater = m_heapBuffers.get().deflater(m_level);
+            try {
+                deflater.setInput(input, 0, length);
+                deflater.finish();
+                int compressedLength = 0;
+                while (!deflater.finished()) {
+                    if (offset + compressedLength == output.length) {
+                        throw new IOException("Deflate output exceeded its bound");
+                    }
+                    compressedLength += deflater.deflate(output, offset + compressedLength,
+                            output.length - offset - compressedLength);
+                }
+                return compressedLength;
+            } finally {
+                deflater.reset();
+            }
+        }
+
+        /**
+         * Array based decompression of a whole block, including the length prefix.
+         */
+        void decompress(byte[] input, int length, byte[] output, int uncompressedLength) throws IOException {
+            final Inflater inflater = m_heapBuffers.get().inflater();
+            try {
+                inflater.setInput(input, LENGTH_PREFIX_BYTES, length - LENGTH_PREFIX_BYTES);
+                int inflated = 0;
+                while (inflated < uncompressedLength) {
+                    final int count = inflater.inflate(output, inflated, uncompressedLength - inflated);
+                    if (count == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated " + this + " block");
+                    }
+                    inflated += count;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt " + this + " block", e);
+            } finally {
+                inflater.reset();
+            }
+        }
+    }
+
+    /*
+     * Codecs of the compressed data written by the snapshot, the rejoin stream and PBD segments.
+     * Readers look up the codec recorded with the data, so these can differ between nodes.
+     * Not final so tests can switch them.
+     */
+    public static volatile Codec SNAPSHOT_CODEC = Codec.fromProperty("SNAPSHOT_COMPRESSION_CODEC");
+    public static volatile Codec REJOIN_CODEC = Codec.fromProperty("REJOIN_COMPRESSION_CODEC");
+    public static volatile Codec PBD_CODEC = Codec.fromProperty("PBD_COMPRESSION_CODEC");
+    private static final Codec[] m_codecs = Codec.values();
+
     /*
      * The executor service is only used if the VoltDB computation service is not available.
      */
@@ -129,6 +433,11 @@ public final class CompressionService {
     }
 
     public static Future<BBContainer> compressAndCRC32cBufferAsync(final ByteBuffer inBuffer, final BBContainer outBufferC) {
+        return compressAndCRC32cBufferAsync(inBuffer, outBufferC, Codec.SNAPPY);
+    }
+
+    public static Future<BBContainer> compressAndCRC32cBufferAsync(final ByteBuffer inBuffer, final BBContainer outBufferC,
+            final Codec codec) {
         assert(inBuffer.isDirect());
         assert(outBufferC.b().isDirect());
         return submitCompressionTask(new Callable<BBContainer>() {
@@ -140,7 +449,7 @@ public final class CompressionService {
                 final int crcPosition = outBuffer.position();
                 outBuffer.position(outBuffer.position() + 4);
                 final int crcCalcStart = outBuffer.position();
-                compressBuffer(inBuffer, outBuffer);
+                codec.compress(inBuffer, outBuffer);
                 final int crc32c =
                         DBBPool.getCRC32C( outBufferC.address(), crcCalcStart, outBuffer.limit() - crcCalcStart);
                 outBuffer.putInt(crcPosition, crc32c);
@@ -217,8 +526,16 @@ public final class CompressionService {
         return result;
     }
 
+    /**
+     * @return A length that fits the data compressed with any of the codecs, plus a byte
+     * to record the codec
+     */
     public static int maxCompressedLength(int uncompressedSize) {
-        return Snappy.maxCompressedLength(uncompressedSize);
+        int maxCompressedLength = 0;
+        for (Codec codec : m_codecs) {
+            maxCompressedLength = Math.max(maxCompressedLength, codec.maxCompressedLength(uncompressedSize));
+        }
+        return maxCompressedLength + 1;
     }
 
     public static int uncompressedLength(ByteBuffer compressed) throws IOException {
@@ -22,6 +22,7 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
+import org.voltdb.utils.CompressionService.Codec;
 
 import com.google_voltpatches.common.base.Preconditions;
 
@@ -30,18 +31,64 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Objects placed in the deque are stored in file segments that are up to 64 megabytes.
  * Segments only support appending objects. A segment will throw an IOException if an attempt
  * to insert an object that exceeds the remaining space is made. A segment can be used
  * for reading and writing, but not both at the same time.
+ *
+ * With {@link #MMAP_SEALED_SEGMENTS} a segment that is opened only for reading is memory mapped.
+ * Entries are then read from the page cache without a system call and, for callers whose
+ * {@link OutputContainerFactory} accepts read only slices, uncompressed entries are returned
+ * without being copied.
  */
 public class PBDRegularSegment extends PBDSegment {
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
+    public static volatile boolean MMAP_SEALED_SEGMENTS = Boolean.getBoolean("PBD_MMAP_SEALED_SEGMENTS");
+
+    // Number of mappings which have not been released yet
+    private static final AtomicInteger s_mappedRegions = new AtomicInteger();
+
+    /**
+     * Read only mapping of a sealed segment file. The segment holds one reference and every
+     * slice handed out holds another, so the mapping outlives the segment until all slices
+     * have been discarded.
+     */
+    private static class MappedRegion {
+        private final DBBPool.MBBContainer m_container;
+        private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+        MappedRegion(DBBPool.MBBContainer container) {
+            m_container = container;
+            s_mappedRegions.incrementAndGet();
+        }
+
+        ByteBuffer view() {
+            return m_container.b().duplicate();
+        }
+
+        void retain() {
+            m_refCount.incrementAndGet();
+        }
+
+        void release() {
+            if (m_refCount.decrementAndGet() == 0) {
+                m_container.discard();
+                s_mappedRegions.decrementAndGet();
+            }
+        }
+    }
+
+    static int getMappedRegionCount() {
+        return s_mappedRegions.get();
+    }
+
     private final Map<String, SegmentReader> m_readCursors = new HashMap<>();
     private final Map<String, SegmentReader> m_closedCursors = new HashMap<>();
 
@@ -53,6 +100,9 @@ public class PBDRegularSegment extends PBDSegment {
 
     private DBBPool.BBContainer m_tmpHeaderBuf = null;
 
+    // Only set when the segment is sealed and opened for reading
+    private MappedRegion m_mapping = null;
+
     public PBDRegularSegment(Long index, File file) {
         super(file);
         m_index = index;
@@ -123,6 +173,9 @@ public class PBDRegularSegment extends PBDSegment {
 
         if (m_closed) {
             open(false, false);
+            if (MMAP_SEALED_SEGMENTS) {
+                m_mapping = new MappedRegion(DBBPool.wrapMBB(m_fc.map(MapMode.READ_ONLY, 0, m_fc.size())));
+            }
         }
         SegmentReader reader = new SegmentReader(cursorId);
         m_readCursors.put(cursorId, reader);
@@ -223,6 +276,10 @@ public class PBDRegularSegment extends PBDSegment {
 
     private void closeReadersAndFile() throws IOException {
         m_readCursors.clear();
+        if (m_mapping != null) {
+            m_mapping.release();
+            m_mapping = null;
+        }
         try {
             if (m_ras != null) {
                 m_ras.close();
@@ -277,11 +334,12 @@ public class PBDRegularSegment extends PBDSegment {
 
             if (compress) {
                 destBuf = DBBPool.allocateDirectAndPool(maxCompressedSize);
-                final int compressedSize = CompressionService.compressBuffer(buf, destBuf.b());
+                final Codec codec = CompressionService.PBD_CODEC;
+                final int compressedSize = codec.compress(buf, destBuf.b());
                 destBuf.b().limit(compressedSize);
 
                 m_tmpHeaderBuf.b().putInt(compressedSize);
-                m_tmpHeaderBuf.b().putInt(FLAG_COMPRESSED);
+                m_tmpHeaderBuf.b().putInt(FLAG_COMPRESSED | (codec.getId() << CODEC_SHIFT));
             } else {
                 destBuf = cont;
                 m_tmpHeaderBuf.b().putInt(remaining);
@@ -364,6 +422,8 @@ public class PBDRegularSegment extends PBDSegment {
         private int m_bytesRead = 0;
         private int m_discardCount = 0;
         private boolean m_closed = false;
+        // Each reader has its own header buffer so that cursors can read concurrently
+        private final ByteBuffer m_entryHeaderBuf = ByteBuffer.allocate(OBJECT_HEADER_BYTES);
 
         public SegmentReader(String cursorId) {
             assert(cursorId != null);
@@ -395,21 +455,21 @@ public class PBDRegularSegment extends PBDSegment {
                 return null;
             }
 
-            final long writePos = m_fc.position();
-            m_fc.position(m_readOffset);
+            if (m_mapping != null) {
+                return wrapForDiscard(pollMapped(factory));
+            }
+
+            // Use positional reads so that neither the writer's position nor
+            // other cursors reading this segment are disturbed
+            long readPos = m_readOffset;
 
             try {
                 //Get the length and size prefix and then read the object
-                m_tmpHeaderBuf.b().clear();
-                while (m_tmpHeaderBuf.b().hasRemaining()) {
-                    int read = m_fc.read(m_tmpHeaderBuf.b());
-                    if (read == -1) {
-                        throw new EOFException();
-                    }
-                }
-                m_tmpHeaderBuf.b().flip();
-                final int length = m_tmpHeaderBuf.b().getInt();
-                final int flags = m_tmpHeaderBuf.b().getInt();
+                m_entryHeaderBuf.clear();
+                readPos = readFully(m_entryHeaderBuf, readPos);
+                m_entryHeaderBuf.flip();
+                final int length = m_entryHeaderBuf.getInt();
+                final int flags = m_entryHeaderBuf.getInt();
                 final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
                 final int uncompressedLen;
 
@@ -421,18 +481,14 @@ public class PBDRegularSegment extends PBDSegment {
                 if (compressed) {
                     final DBBPool.BBContainer compressedBuf = DBBPool.allocateDirectAndPool(length);
                     try {
-                        while (compressedBuf.b().hasRemaining()) {
-                            int read = m_fc.read(compressedBuf.b());
-                            if (read == -1) {
-                                throw new EOFException();
-                            }
-                        }
+                        readPos = readFully(compressedBuf.b(), readPos);
                         compressedBuf.b().flip();
 
-                        uncompressedLen = CompressionService.uncompressedLength(compressedBuf.bDR());
+                        final Codec codec = getCodec(flags);
+                        uncompressedLen = codec.uncompressedLength(compressedBuf.bDR());
                         retcont = factory.getContainer(uncompressedLen);
                         retcont.b().limit(uncompressedLen);
-                        CompressionService.decompressBuffer(compressedBuf.bDR(), retcont.b());
+                        codec.decompress(compressedBuf.bDR(), retcont.b());
                     } finally {
                         compressedBuf.discard();
                     }
@@ -440,38 +496,103 @@ public class PBDRegularSegment extends PBDSegment {
                     uncompressedLen = length;
                     retcont = factory.getContainer(length);
                     retcont.b().limit(length);
-                    while (retcont.b().hasRemaining()) {
-                        int read = m_fc.read(retcont.b());
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
+                    readPos = readFully(retcont.b(), readPos);
                     retcont.b().flip();
                 }
 
                 m_bytesRead += uncompressedLen;
                 m_objectReadIndex++;
 
-                return new DBBPool.BBContainer(retcont.b()) {
-                    private boolean m_discarded = false;
+                return wrapForDiscard(retcont);
+            } finally {
+                m_readOffset = readPos;
+            }
+        }
+
+        /**
+         * Read the next entry out of the mapping. Compressed entries are decompressed straight
+         * from the mapped pages, uncompressed ones are either sliced or copied depending on the factory.
+         */
+        private DBBPool.BBContainer pollMapped(OutputContainerFactory factory) throws IOException {
+            final ByteBuffer view = m_mapping.view();
+            view.position((int)m_readOffset);
+            if (view.remaining() < OBJECT_HEADER_BYTES) {
+                throw new EOFException();
+            }
+            final int length = view.getInt();
+            final int flags = view.getInt();
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
 
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+            if (view.remaining() < length) {
+                throw new EOFException();
+            }
+            view.limit(view.position() + length);
+            final ByteBuffer entry = view.slice();
+
+            final DBBPool.BBContainer retcont;
+            final int uncompressedLen;
+            if (compressed) {
+                final Codec codec = getCodec(flags);
+                uncompressedLen = codec.uncompressedLength(entry.duplicate());
+                retcont = factory.getContainer(uncompressedLen);
+                retcont.b().limit(uncompressedLen);
+                codec.decompress(entry, retcont.b());
+            } else if (factory.acceptsReadOnlySlices()) {
+                uncompressedLen = length;
+                final MappedRegion mapping = m_mapping;
+                mapping.retain();
+                retcont = new DBBPool.BBContainer(entry.asReadOnlyBuffer()) {
                     @Override
                     public void discard() {
                         checkDoubleFree();
-                        if (m_discarded) {
-                            LOG.error("PBD Container discarded more than once");
-                            return;
-                        }
-
-                        m_discarded = true;
-                        retcont.discard();
-                        m_discardCount++;
+                        mapping.release();
                     }
                 };
-            } finally {
-                m_readOffset = m_fc.position();
-                m_fc.position(writePos);
+            } else {
+                uncompressedLen = length;
+                retcont = factory.getContainer(length);
+                retcont.b().limit(length);
+                retcont.b().put(entry);
+                retcont.b().flip();
+            }
+
+            m_readOffset += OBJECT_HEADER_BYTES + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+            return retcont;
+        }
+
+        private DBBPool.BBContainer wrapForDiscard(final DBBPool.BBContainer retcont) {
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
+        }
+
+        private long readFully(ByteBuffer buf, long position) throws IOException {
+            while (buf.hasRemaining()) {
+                int read = m_fc.read(buf, position);
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                position += read;
             }
+            return position;
         }
 
         @Override
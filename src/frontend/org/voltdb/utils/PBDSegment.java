@@ -99,6 +99,14 @@ public abstract class PBDSegment {
     private static final String TRUNCATOR_CURSOR = "__truncator__";
     static final int NO_FLAGS = 0;
     static final int FLAG_COMPRESSED = 1;
+    // Compressed entries have the id of their codec in these bits of the flags, entries
+    // written before codecs were recorded have 0 which is Snappy
+    static final int CODEC_SHIFT = 8;
+    static final int CODEC_MASK = 0xff;
+
+    static CompressionService.Codec getCodec(int flags) throws IOException {
+        return CompressionService.Codec.get((flags >>> CODEC_SHIFT) & CODEC_MASK);
+    }
 
     static final int COUNT_OFFSET = 0;
     static final int SIZE_OFFSET = 4;
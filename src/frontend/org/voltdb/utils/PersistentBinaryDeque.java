@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool;
@@ -49,6 +50,10 @@ import com.google_voltpatches.common.base.Throwables;
  * once all objects from the segment have been polled and all the containers returned by poll have been discarded.
  * Push is implemented by creating new segments at the head of the deque containing the objects to be pushed.
  *
+ * When {@link #CONCURRENT_READS} is enabled cursors read entries from segments that are no longer
+ * being written without holding the deque lock, so readers don't block the writer (or each other)
+ * while doing file I/O and decompression. The deque lock is then only held to pick the segment to
+ * read from and to update the bookkeeping.
  */
 public class PersistentBinaryDeque implements BinaryDeque {
     private static final VoltLogger LOG = new VoltLogger("HOST");
@@ -76,8 +81,9 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     /**
-     * Used to read entries from the PBD. Multiple readers may be active at the same time,
-     * but only one read or write may happen concurrently.
+     * Used to read entries from the PBD. Multiple readers may be active at the same time.
+     * Without {@link #CONCURRENT_READS} only one read or write may happen concurrently.
+     * Object and byte counts are kept per cursor so they can be read without the deque lock.
      */
     private class ReadCursor implements BinaryDequeReader {
         private final String m_cursorId;
@@ -85,45 +91,106 @@ public class PersistentBinaryDeque implements BinaryDeque {
         // Number of objects out of the total
         //that were deleted at the time this cursor was created
         private final int m_numObjectsDeleted;
-        private int m_numRead;
-
-        public ReadCursor(String cursorId, int numObjectsDeleted) throws IOException {
+        // Same as above, in bytes
+        private final long m_bytesDeleted;
+        private volatile int m_numRead;
+        private volatile long m_bytesRead;
+        // Set while this cursor reads a sealed segment without holding the deque lock
+        private volatile boolean m_pollingUnlocked = false;
+
+        public ReadCursor(String cursorId, int numObjectsDeleted, long bytesDeleted) throws IOException {
             m_cursorId = cursorId;
             m_numObjectsDeleted = numObjectsDeleted;
+            m_bytesDeleted = bytesDeleted;
         }
 
         @Override
         public BBContainer poll(OutputContainerFactory ocf) throws IOException {
-            synchronized (PersistentBinaryDeque.this) {
-                if (m_closed) {
-                    throw new IOException("PBD.ReadCursor.poll(): " + m_cursorId + " - Reader has been closed");
+            if (!CONCURRENT_READS) {
+                synchronized (PersistentBinaryDeque.this) {
+                    PBDSegmentReader segmentReader = nextSegmentReader();
+                    if (segmentReader == null) {
+                        return null;
+                    }
+                    return pollLocked(segmentReader, ocf);
                 }
-                assertions();
+            }
 
-                moveToValidSegment();
-                PBDSegmentReader segmentReader = m_segment.getReader(m_cursorId);
-                if (segmentReader == null) {
-                    segmentReader = m_segment.openForRead(m_cursorId);
-                }
-                long lastSegmentId = peekLastSegment().segmentId();
-                while (!segmentReader.hasMoreEntries()) {
-                    if (m_segment.segmentId() == lastSegmentId) { // nothing more to read
+            // Serializes concurrent polls of the same cursor
+            synchronized (this) {
+                final PBDSegment segment;
+                final PBDSegmentReader segmentReader;
+                synchronized (PersistentBinaryDeque.this) {
+                    segmentReader = nextSegmentReader();
+                    if (segmentReader == null) {
                         return null;
                     }
+                    if (m_segment == peekLastSegment()) {
+                        // The writer may be appending to this segment
+                        return pollLocked(segmentReader, ocf);
+                    }
+                    segment = m_segment;
+                    m_pollingUnlocked = true;
+                }
 
-                    segmentReader.close();
-                    m_segment = m_segments.higherEntry(m_segment.segmentId()).getValue();
-                    // push to PBD will rewind cursors. So, this cursor may have already opened this segment
-                    segmentReader = m_segment.getReader(m_cursorId);
-                    if (segmentReader == null) segmentReader = m_segment.openForRead(m_cursorId);
+                m_segmentLifecycleLock.readLock().lock();
+                try {
+                    // The deque or this cursor may have been closed after the deque lock was released
+                    if (m_closed || segmentReader.isClosed()) {
+                        throw new IOException("PBD.ReadCursor.poll(): " + m_cursorId + " - Reader has been closed");
+                    }
+                    final int bytesToRead = segmentReader.uncompressedBytesToRead();
+                    BBContainer retcont = segmentReader.poll(ocf);
+                    m_bytesRead += bytesToRead - segmentReader.uncompressedBytesToRead();
+                    m_numRead++;
+                    assert (retcont.b() != null);
+                    return wrapRetCont(segment, retcont);
+                } finally {
+                    m_pollingUnlocked = false;
+                    m_segmentLifecycleLock.readLock().unlock();
                 }
-                BBContainer retcont = segmentReader.poll(ocf);
+            }
+        }
 
-                m_numRead++;
-                assertions();
-                assert (retcont.b() != null);
-                return wrapRetCont(m_segment, retcont);
+        /**
+         * Position this cursor on the segment holding the next entry to read.
+         * Must be called while holding the deque lock.
+         * @return the reader of that segment or null if there is nothing to read
+         */
+        private PBDSegmentReader nextSegmentReader() throws IOException {
+            if (m_closed) {
+                throw new IOException("PBD.ReadCursor.poll(): " + m_cursorId + " - Reader has been closed");
             }
+            assertions();
+
+            moveToValidSegment();
+            PBDSegmentReader segmentReader = m_segment.getReader(m_cursorId);
+            if (segmentReader == null) {
+                segmentReader = m_segment.openForRead(m_cursorId);
+            }
+            long lastSegmentId = peekLastSegment().segmentId();
+            while (!segmentReader.hasMoreEntries()) {
+                if (m_segment.segmentId() == lastSegmentId) { // nothing more to read
+                    return null;
+                }
+
+                segmentReader.close();
+                m_segment = m_segments.higherEntry(m_segment.segmentId()).getValue();
+                // push to PBD will rewind cursors. So, this cursor may have already opened this segment
+                segmentReader = m_segment.getReader(m_cursorId);
+                if (segmentReader == null) segmentReader = m_segment.openForRead(m_cursorId);
+            }
+            return segmentReader;
+        }
+
+        private BBContainer pollLocked(PBDSegmentReader segmentReader, OutputContainerFactory ocf) throws IOException {
+            final int bytesToRead = segmentReader.uncompressedBytesToRead();
+            BBContainer retcont = segmentReader.poll(ocf);
+            m_bytesRead += bytesToRead - segmentReader.uncompressedBytesToRead();
+            m_numRead++;
+            assertions();
+            assert (retcont.b() != null);
+            return wrapRetCont(m_segment, retcont);
         }
 
         private void moveToValidSegment() {
@@ -136,12 +203,12 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         @Override
         public int getNumObjects() throws IOException {
-            synchronized(PersistentBinaryDeque.this) {
-                if (m_closed) {
-                    throw new IOException("Cannot compute object count of " + m_cursorId + " - Reader has been closed");
-                }
-                return m_numObjects - m_numObjectsDeleted - m_numRead;
+            if (m_closed) {
+                throw new IOException("Cannot compute object count of " + m_cursorId + " - Reader has been closed");
             }
+            // Read this cursor's progress first, every object it has read is already in the total
+            final int numRead = m_numRead;
+            return m_numObjects - m_numObjectsDeleted - numRead;
         }
 
         /*
@@ -151,50 +218,19 @@ public class PersistentBinaryDeque implements BinaryDeque {
          */
         @Override
         public long sizeInBytes() throws IOException {
-            synchronized(PersistentBinaryDeque.this) {
-                if (m_closed) {
-                    throw new IOException("Cannot compute size of " + m_cursorId + " - Reader has been closed");
-                }
-                assertions();
-
-                moveToValidSegment();
-                long size = 0;
-                boolean inclusive = true;
-                if (m_segment.isOpenForReading(m_cursorId)) { //this reader has started reading from curr segment.
-                    // Find out how much is left to read.
-                    size = m_segment.getReader(m_cursorId).uncompressedBytesToRead();
-                    inclusive = false;
-                }
-                // Get the size of all unread segments
-                for (PBDSegment currSegment : m_segments.tailMap(m_segment.segmentId(), inclusive).values()) {
-                    size += currSegment.size();
-                }
-                return size;
+            if (m_closed) {
+                throw new IOException("Cannot compute size of " + m_cursorId + " - Reader has been closed");
             }
+            final long bytesRead = m_bytesRead;
+            return m_sizeInBytes - m_bytesDeleted - bytesRead;
         }
 
         @Override
         public boolean isEmpty() throws IOException {
-            synchronized(PersistentBinaryDeque.this) {
-                if (m_closed) {
-                    throw new IOException("Closed");
-                }
-                assertions();
-
-                moveToValidSegment();
-                boolean inclusive = true;
-                if (m_segment.isOpenForReading(m_cursorId)) { //this reader has started reading from curr segment.
-                    // Check if there are more to read.
-                    if (m_segment.getReader(m_cursorId).hasMoreEntries()) return false;
-                    inclusive = false;
-                }
-
-                for (PBDSegment currSegment : m_segments.tailMap(m_segment.segmentId(), inclusive).values()) {
-                    if (currSegment.getNumEntries() > 0)  return false;
-                }
-
-                return true;
+            if (m_closed) {
+                throw new IOException("Closed");
             }
+            return getNumObjects() == 0;
         }
 
         private BBContainer wrapRetCont(PBDSegment segment, final BBContainer retcont) {
@@ -237,6 +273,22 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     public static final OutputContainerFactory UNSAFE_CONTAINER_FACTORY = new UnsafeOutputContainerFactory();
 
+    /**
+     * For readers that don't modify the polled buffers. Uncompressed entries of memory mapped
+     * segments are returned as slices, everything else is copied as with {@link #UNSAFE_CONTAINER_FACTORY}.
+     */
+    public static final OutputContainerFactory READ_ONLY_CONTAINER_FACTORY = new UnsafeOutputContainerFactory() {
+        @Override
+        public boolean acceptsReadOnlySlices() {
+            return true;
+        }
+    };
+
+    /**
+     * Let cursors read sealed segments without holding the deque lock
+     */
+    public static final boolean CONCURRENT_READS = Boolean.getBoolean("PBD_CONCURRENT_READS");
+
     /**
      * Processors also log using this facility.
      */
@@ -252,8 +304,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private final TreeMap<Long, PBDSegment> m_segments = new TreeMap<>();
     private volatile boolean m_closed = false;
     private final HashMap<String, ReadCursor> m_readCursors = new HashMap<>();
-    private int m_numObjects;
-    private int m_numDeleted;
+    // Only modified while holding the deque lock, volatile so cursors can compute their counts without it
+    private volatile int m_numObjects;
+    private volatile int m_numDeleted;
+    // Uncompressed bytes, maintained like the object counts above
+    private volatile long m_sizeInBytes;
+    private volatile long m_bytesDeleted;
+    // Held for write while segments may be closed or truncated out from under a cursor that
+    // reads without the deque lock. Always acquired after the deque lock.
+    private final ReentrantReadWriteLock m_segmentLifecycleLock = new ReentrantReadWriteLock();
 
     /**
      * Create a persistent binary deque with the specified nonce and storage
@@ -391,6 +450,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
         writeSegment.openForWrite(true);
 
         m_numObjects = countNumObjects();
+        m_sizeInBytes = countSizeInBytes();
         assertions();
     }
 
@@ -403,8 +463,28 @@ public class PersistentBinaryDeque implements BinaryDeque {
         return numObjects;
     }
 
+    private long countSizeInBytes() {
+        long size = 0;
+        for (PBDSegment segment : m_segments.values()) {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
     @Override
     public synchronized void parseAndTruncate(BinaryDequeTruncator truncator) throws IOException {
+        m_segmentLifecycleLock.writeLock().lock();
+        try {
+            truncate(truncator);
+        } finally {
+            // Truncation may have shrunk or removed segments
+            m_sizeInBytes = countSizeInBytes() + m_bytesDeleted;
+            m_segmentLifecycleLock.writeLock().unlock();
+        }
+    }
+
+    private void truncate(BinaryDequeTruncator truncator) throws IOException {
         if (m_closed) {
             throw new IOException("Cannot parseAndTruncate(): PBD has been closed");
         }
@@ -546,6 +626,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         PBDSegment tail = peekLastSegment();
         final boolean compress = object.b().isDirect() && allowCompression;
+        // The object is discarded by the segment, so size it first
+        final int size = object.b().remaining();
         if (!tail.offer(object, compress)) {
             tail = addSegment(tail);
             final boolean success = tail.offer(object, compress);
@@ -554,6 +636,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
         }
         m_numObjects++;
+        m_sizeInBytes += size;
         assertions();
     }
 
@@ -574,6 +657,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
         }
         m_numObjects++;
+        m_sizeInBytes += written;
         assertions();
         return written;
     }
@@ -599,8 +683,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     private void closeAndDeleteSegment(PBDSegment segment) throws IOException {
         int toDelete = segment.getNumEntries();
+        int bytesToDelete = segment.size();
         segment.closeAndDelete();
         m_numDeleted += toDelete;
+        m_bytesDeleted += bytesToDelete;
     }
 
     @Override
@@ -659,6 +745,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 m_numObjects++;
             }
 
+            m_sizeInBytes += writeSegment.size();
             // Don't close the last one, it'll be used for writes
             if (!m_segments.isEmpty()) {
                 writeSegment.close();
@@ -686,7 +773,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         ReadCursor reader = m_readCursors.get(cursorId);
         if (reader == null) {
-            reader = new ReadCursor(cursorId, m_numDeleted);
+            reader = new ReadCursor(cursorId, m_numDeleted, m_bytesDeleted);
             m_readCursors.put(cursorId, reader);
         }
 
@@ -698,6 +785,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             return;
         }
+        m_segmentLifecycleLock.writeLock().lock();
+        try {
+            closeCursorImpl(cursorId);
+        } finally {
+            m_segmentLifecycleLock.writeLock().unlock();
+        }
+    }
+
+    private void closeCursorImpl(String cursorId) {
         ReadCursor reader = m_readCursors.remove(cursorId);
         // If we never did a poll from this segment for this cursor,
         // there is no reader initialized for this cursor.
@@ -772,12 +868,17 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             return;
         }
-        m_readCursors.clear();
+        m_segmentLifecycleLock.writeLock().lock();
+        try {
+            m_readCursors.clear();
 
-        for (PBDSegment segment : m_segments.values()) {
-            segment.close();
+            for (PBDSegment segment : m_segments.values()) {
+                segment.close();
+            }
+            m_closed = true;
+        } finally {
+            m_segmentLifecycleLock.writeLock().unlock();
         }
-        m_closed = true;
     }
 
     @Override
@@ -796,14 +897,19 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             return;
         }
-        m_readCursors.clear();
+        m_segmentLifecycleLock.writeLock().lock();
+        try {
+            m_readCursors.clear();
 
-        for (PBDSegment qs : m_segments.values()) {
-            m_usageSpecificLog.debug("Segment " + qs.file() + " has been closed and deleted due to delete all");
-            closeAndDeleteSegment(qs);
+            for (PBDSegment qs : m_segments.values()) {
+                m_usageSpecificLog.debug("Segment " + qs.file() + " has been closed and deleted due to delete all");
+                closeAndDeleteSegment(qs);
+            }
+            m_segments.clear();
+            m_closed = true;
+        } finally {
+            m_segmentLifecycleLock.writeLock().unlock();
         }
-        m_segments.clear();
-        m_closed = true;
     }
 
     public static class ByteBufferTruncatorResponse extends TruncatorResponse {
@@ -868,17 +974,27 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private void assertions() {
         if (!assertionsOn || m_closed) return;
         for (ReadCursor cursor : m_readCursors.values()) {
+            if (cursor.m_pollingUnlocked) {
+                // Counts are in flux until the unlocked read completes
+                continue;
+            }
             int numObjects = 0;
+            long size = 0;
             try {
                 for (PBDSegment segment : m_segments.values()) {
                     PBDSegmentReader reader = segment.getReader(cursor.m_cursorId);
                     if (reader == null) {
                         numObjects += segment.getNumEntries();
+                        size += segment.size();
                     } else {
                         numObjects += segment.getNumEntries() - reader.readIndex();
+                        if (!reader.isClosed()) {
+                            size += reader.uncompressedBytesToRead();
+                        }
                     }
                 }
                 assert numObjects == cursor.getNumObjects() : numObjects + " != " + cursor.getNumObjects();
+                assert size == cursor.sizeInBytes() : size + " != " + cursor.sizeInBytes();
             } catch (Exception e) {
                 Throwables.propagate(e);
             }
@@ -22,22 +22,32 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
+import org.voltdb.sysprocs.saverestore.SnapshotScanProgress;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.SpecificSnapshotFilter;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.TableFiles;
 
 public class SnapshotConverter {
     private static final VoltLogger CONSOLE_LOG = new VoltLogger("CONSOLE");
 
+    // Tables converted at once
+    static final int CONVERT_TABLES = Integer.getInteger("SNAPSHOT_CONVERT_TABLES", 4);
+    static final long PROGRESS_REPORT_SECONDS = Long.getLong("SNAPSHOT_PROGRESS_SECONDS", 10);
+
     /**
      * @param args
      */
@@ -271,38 +281,83 @@ public class SnapshotConverter {
         }
 
         /*
-         * Actually convert the tables and write the data to the appropriate destination
+         * Actually convert the tables and write the data to the appropriate destination.
+         * Several tables are converted at once, the files of a table one after the other,
+         * and the processors and the buffer budget are split among the tables in progress.
          */
+        final int parallelTables = Math.max(1, Math.min(CONVERT_TABLES, tableToFilesWithPartitions.size()));
+        final int converterThreads = Math.max(1, CoreUtils.availableProcessors() / parallelTables);
+        final int maxBufferedBytes = Math.max(1024 * 1024, CSVTableSaveFile.DEFAULT_MAX_BUFFERED_BYTES / parallelTables);
+        final SnapshotScanProgress progress = new SnapshotScanProgress("Converted", System.out);
+        final ExecutorService es = CoreUtils.getListeningExecutorService("Snapshot converter", parallelTables);
+        final List<Future<Boolean>> conversions = new ArrayList<Future<Boolean>>();
+        progress.start(PROGRESS_REPORT_SECONDS);
         for (Map.Entry<String, Map<File, Set<Integer>>> entry : tableToFilesWithPartitions.entrySet()) {
-            String tableName = entry.getKey();
-            File outfile = new File(outdir.getPath() + File.separator + tableName + "." + type.toLowerCase());
-
-            Map<File, Set<Integer>> partitionsFromFile = entry.getValue();
-            for (Map.Entry<File, Set<Integer>> e2 : partitionsFromFile.entrySet()) {
-                File infile = e2.getKey();
-                Set<Integer> partitionSet = e2.getValue();
-                Integer partitions[] = null;
-                if (partitionSet != null) {
-                    partitions = new Integer[partitionSet.size()];
-                    int ii = 0;
-                    for (Integer partition : partitionSet) {
-                        partitions[ii++] = partition;
-                    }
+            final String tableName = entry.getKey();
+            final File outfile = new File(outdir.getPath() + File.separator + tableName + "." + type.toLowerCase());
+            final Map<File, Set<Integer>> partitionsFromFile = entry.getValue();
+            for (int ii = 0; ii < partitionsFromFile.size(); ii++) {
+                progress.fileQueued();
+            }
+            final char tableDelimiter = delimiter;
+            conversions.add(es.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return convertTable(tableDelimiter, outfile, partitionsFromFile, converterThreads,
+                            maxBufferedBytes, progress);
                 }
-                try {
-                    CSVTableSaveFile.convertTableSaveFile(delimiter, partitions, outfile, infile);
-                } catch (Exception e) {
-                    System.err.println(e.getMessage());
-                    System.err.println("Error: Failed to convert " + infile.getPath() + " to " + outfile.getPath());
+            }));
+        }
+        for (Future<Boolean> conversion : conversions) {
+            try {
+                if (!conversion.get()) {
+                    fail = true;
                 }
+            } catch (Exception e) {
+                System.err.println("Error: " + e.getMessage());
+                fail = true;
             }
         }
+        es.shutdown();
+        progress.stop();
 
         if (fail) {
             System.exit(-1);
         }
     }
 
+    /**
+     * Convert the files of a table one after the other, and keep going when one fails.
+     *
+     * @return false if any of the files could not be converted
+     */
+    private static boolean convertTable(char delimiter, File outfile, Map<File, Set<Integer>> partitionsFromFile,
+            int converterThreads, int maxBufferedBytes, SnapshotScanProgress progress) {
+        boolean converted = true;
+        for (Map.Entry<File, Set<Integer>> e2 : partitionsFromFile.entrySet()) {
+            File infile = e2.getKey();
+            Set<Integer> partitionSet = e2.getValue();
+            Integer partitions[] = null;
+            if (partitionSet != null) {
+                partitions = new Integer[partitionSet.size()];
+                int ii = 0;
+                for (Integer partition : partitionSet) {
+                    partitions[ii++] = partition;
+                }
+            }
+            try {
+                CSVTableSaveFile.convertTableSaveFile(delimiter, partitions, outfile, infile,
+                        converterThreads, maxBufferedBytes, progress);
+            } catch (Exception e) {
+                System.err.println(e.getMessage());
+                System.err.println("Error: Failed to convert " + infile.getPath() + " to " + outfile.getPath());
+                converted = false;
+            }
+            progress.fileDone();
+        }
+        return converted;
+    }
+
     private static void printHelpAndQuit( int code) {
         System.out.println("Usage: snapshotconverter --help");
         System.out.println("snapshotconverter --dir dir1 --dir dir2 --dir dir3 " +
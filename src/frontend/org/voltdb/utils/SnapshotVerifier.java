@@ -31,6 +31,7 @@ import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.SnapshotFilter;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
+import org.voltdb.sysprocs.saverestore.SnapshotScanProgress;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.SpecificSnapshotFilter;
 
 /**
@@ -92,9 +93,13 @@ public class SnapshotVerifier {
         }
 
         Map<String, Snapshot> snapshots = new HashMap<String, Snapshot>();
+        SnapshotScanProgress progress = new SnapshotScanProgress("Verified", System.out);
+        progress.start(SnapshotConverter.PROGRESS_REPORT_SECONDS);
         for (String directory : directories) {
-            SnapshotUtil.retrieveSnapshotFiles(new File(directory), snapshots, filter, true, SnapshotPathType.SNAP_PATH, CONSOLE_LOG);
+            SnapshotUtil.retrieveSnapshotFiles(new File(directory), snapshots, filter, true, SnapshotPathType.SNAP_PATH,
+                    CONSOLE_LOG, progress);
         }
+        progress.stop();
 
         if (snapshots.isEmpty()) {
             System.out.println("Snapshot corrupted");
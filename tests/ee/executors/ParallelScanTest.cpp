@@ -0,0 +1,357 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "test_utils/Tools.hpp"
+#include "test_utils/UniqueEngine.hpp"
+
+#include "common/executorcontext.hpp"
+#include "common/PlannerDomValue.h"
+#include "common/SerializableEEException.h"
+#include "common/tabletuple.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+
+#include "executors/parallelscan.h"
+
+#include "expressions/constantvalueexpression.h"
+#include "expressions/expressionutil.h"
+#include "expressions/operatorexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+#include "storage/persistenttable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <atomic>
+#include <chrono>
+#include <string>
+#include <thread>
+#include <vector>
+
+using namespace voltdb;
+
+namespace {
+
+const int HELPER_THREADS = 2;
+// Small blocks give every scan many morsels
+const int BLOCK_SIZE = 64 * 1024;
+// Large enough to pass the tuple count threshold of canScanInParallel()
+const int64_t LARGE_TABLE_TUPLES = 120000;
+
+/**
+ * Passes the tuples with an even ID and throws on one ID. Counts its evaluations,
+ * and sleeps now and then so that the morsels take a while to scan.
+ */
+class ProbeExpression : public AbstractExpression {
+public:
+    ProbeExpression(int64_t throwOnId, bool slow)
+        : AbstractExpression(EXPRESSION_TYPE_COMPARE_EQUAL)
+        , m_throwOnId(throwOnId)
+        , m_slow(slow)
+        , m_evaluations(0)
+    {
+    }
+
+    NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const {
+        int64_t id = ValuePeeker::peekBigInt(tuple1->getNValue(0));
+        ++m_evaluations;
+        if (id == m_throwOnId) {
+            throw SerializableEEException("probe failed");
+        }
+        if (m_slow && id % 100 == 0) {
+            std::this_thread::sleep_for(std::chrono::milliseconds(1));
+        }
+        return id % 2 == 0 ? NValue::getTrue() : NValue::getFalse();
+    }
+
+    std::string debugInfo(const std::string &spacer) const {
+        return spacer + "ProbeExpression\n";
+    }
+
+    int64_t evaluations() const {
+        return m_evaluations.load();
+    }
+
+private:
+    const int64_t m_throwOnId;
+    const bool m_slow;
+    mutable std::atomic<int64_t> m_evaluations;
+};
+
+} // anonymous namespace
+
+class ParallelScanTest : public Test {
+public:
+    ParallelScanTest() {
+        ParallelScan::startHelperThreads(HELPER_THREADS);
+    }
+
+    ~ParallelScanTest() {
+        voltdb::globalDestroyOncePerProcess();
+    }
+
+protected:
+    /**
+     * A table of (ID BIGINT, VAL BIGINT, NAME VARCHAR(16)) with the IDs 0 to tupleCount - 1
+     */
+    static PersistentTable* createTable(int64_t tupleCount) {
+        TupleSchema* schema = Tools::buildSchema(VALUE_TYPE_BIGINT,
+                                                 VALUE_TYPE_BIGINT,
+                                                 std::make_pair(VALUE_TYPE_VARCHAR, 16));
+        std::vector<std::string> columnNames;
+        columnNames.push_back("ID");
+        columnNames.push_back("VAL");
+        columnNames.push_back("NAME");
+        char signature[20];
+        PersistentTable* table = static_cast<PersistentTable*>(
+                TableFactory::getPersistentTable(0, "T", schema, columnNames, signature,
+                                                 false, 0, false, false, BLOCK_SIZE));
+        TableTuple tuple = table->tempTuple();
+        for (int64_t id = 0; id < tupleCount; ++id) {
+            Tools::setTupleValues(&tuple, id, id % 10, "name");
+            table->insertTuple(tuple);
+        }
+        return table;
+    }
+
+    static AbstractExpression* column(int index, ValueType type) {
+        AbstractExpression* tve = new TupleValueExpression(0, index);
+        tve->setValueType(type);
+        return tve;
+    }
+
+    static AbstractExpression* bigint(int64_t value) {
+        AbstractExpression* constant = new ConstantValueExpression(ValueFactory::getBigIntValue(value));
+        constant->setValueType(VALUE_TYPE_BIGINT);
+        return constant;
+    }
+
+    static AbstractExpression* compare(ExpressionType type, AbstractExpression* left, AbstractExpression* right) {
+        return ExpressionUtil::comparisonFactory(s_emptyRoot.rootObject(), type, left, right);
+    }
+
+    /** ID < 30000 OR VAL >= 7 */
+    static AbstractExpression* fixedSizePredicate() {
+        return ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_OR,
+                compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(0, VALUE_TYPE_BIGINT), bigint(30000)),
+                compare(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, column(1, VALUE_TYPE_BIGINT), bigint(7)));
+    }
+
+    /** The addresses of the tuples which pass the predicate, in the order of a serial scan */
+    static std::vector<char*> scanSerially(PersistentTable* table, const AbstractExpression* predicate) {
+        std::vector<char*> matches;
+        TableTuple tuple(table->schema());
+        TableIterator iterator = table->iterator();
+        while (iterator.next(tuple)) {
+            if (predicate->eval(&tuple, NULL).isTrue()) {
+                matches.push_back(tuple.address());
+            }
+        }
+        return matches;
+    }
+
+    static std::vector<char*> scanInParallel(PersistentTable* table, const AbstractExpression* predicate,
+                                             int64_t& skipped) {
+        std::vector<char*> matches;
+        TableTuple tuple(table->schema());
+        ParallelScan scan(table, predicate);
+        while (scan.next(tuple, skipped)) {
+            matches.push_back(tuple.address());
+        }
+        return matches;
+    }
+
+    static PlannerDomRoot s_emptyRoot;
+};
+
+PlannerDomRoot ParallelScanTest::s_emptyRoot("{}");
+
+TEST_F(ParallelScanTest, MatchesSerialScan)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    boost::scoped_ptr<PersistentTable> table(createTable(LARGE_TABLE_TUPLES));
+    boost::scoped_ptr<AbstractExpression> predicate(fixedSizePredicate());
+    ASSERT_GT(table->allocatedBlockCount(), HELPER_THREADS * 2);
+    ASSERT_TRUE(ParallelScan::canScanInParallel(table.get(), predicate.get()));
+
+    std::vector<char*> expected = scanSerially(table.get(), predicate.get());
+    int64_t skipped = 0;
+    std::vector<char*> actual = scanInParallel(table.get(), predicate.get(), skipped);
+
+    // 30000 IDs below 30000, plus 3 in 10 of the other 90000
+    EXPECT_EQ(57000, expected.size());
+    EXPECT_TRUE(expected == actual);
+    EXPECT_EQ(LARGE_TABLE_TUPLES - static_cast<int64_t>(expected.size()), skipped);
+}
+
+TEST_F(ParallelScanTest, SkipsPendingDeleteTuples)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    boost::scoped_ptr<PersistentTable> table(createTable(LARGE_TABLE_TUPLES));
+    boost::scoped_ptr<AbstractExpression> predicate(fixedSizePredicate());
+
+    // Tuples deleted by a transaction stay in their blocks until its undo is released
+    ExecutorContext::getExecutorContext()->setupForPlanFragments(engine->getCurrentUndoQuantum());
+    std::vector<char*> deleted;
+    TableTuple tuple(table->schema());
+    TableIterator iterator = table->iterator();
+    while (iterator.next(tuple)) {
+        if (ValuePeeker::peekBigInt(tuple.getNValue(0)) % 3 == 0) {
+            deleted.push_back(tuple.address());
+        }
+    }
+    for (size_t i = 0; i < deleted.size(); ++i) {
+        tuple.move(deleted[i]);
+        table->deleteTuple(tuple, true);
+        ASSERT_TRUE(tuple.isPendingDeleteOnUndoRelease());
+    }
+
+    std::vector<char*> expected = scanSerially(table.get(), predicate.get());
+    int64_t skipped = 0;
+    std::vector<char*> actual = scanInParallel(table.get(), predicate.get(), skipped);
+    EXPECT_TRUE(expected == actual);
+    // 57000 matches, of which a third have an ID divisible by 3
+    EXPECT_EQ(38000, actual.size());
+    for (size_t i = 0; i < actual.size(); ++i) {
+        tuple.move(actual[i]);
+        EXPECT_NE(0, ValuePeeker::peekBigInt(tuple.getNValue(0)) % 3);
+    }
+
+    engine->releaseUndoToken(0);
+}
+
+TEST_F(ParallelScanTest, RethrowsHelperException)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    boost::scoped_ptr<PersistentTable> table(createTable(LARGE_TABLE_TUPLES));
+    // The ID is in a morsel in the middle of the table
+    ProbeExpression predicate(LARGE_TABLE_TUPLES / 2, false);
+
+    TableTuple tuple(table->schema());
+    int64_t skipped = 0;
+    int64_t consumed = 0;
+    bool thrown = false;
+    {
+        ParallelScan scan(table.get(), &predicate);
+        try {
+            while (scan.next(tuple, skipped)) {
+                ++consumed;
+            }
+        }
+        catch (SerializableEEException& e) {
+            thrown = true;
+            EXPECT_EQ(std::string("probe failed"), e.message());
+        }
+    }
+    EXPECT_TRUE(thrown);
+    // Neither the matches of the failed morsel nor those after it were handed out
+    EXPECT_LT(consumed, LARGE_TABLE_TUPLES / 2);
+}
+
+TEST_F(ParallelScanTest, AbandonedScanWaitsForHelpers)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    boost::scoped_ptr<PersistentTable> table(createTable(LARGE_TABLE_TUPLES));
+    ProbeExpression predicate(-1, true);
+
+    TableTuple tuple(table->schema());
+    int64_t skipped = 0;
+    {
+        // Like a scan whose executor failed after the first tuple
+        ParallelScan scan(table.get(), &predicate);
+        ASSERT_TRUE(scan.next(tuple, skipped));
+    }
+
+    // No helper thread still evaluates the predicate of the destroyed scan
+    int64_t evaluations = predicate.evaluations();
+    std::this_thread::sleep_for(std::chrono::milliseconds(200));
+    EXPECT_EQ(evaluations, predicate.evaluations());
+    // Only the morsels in flight were scanned
+    EXPECT_LT(evaluations, LARGE_TABLE_TUPLES);
+}
+
+TEST_F(ParallelScanTest, DestroyRightAfterLastMorsel)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    // A few blocks, so that the helper finishing the last morsel races with the
+    // site thread consuming it and destroying the scan
+    boost::scoped_ptr<PersistentTable> table(createTable(2000));
+    boost::scoped_ptr<AbstractExpression> predicate(fixedSizePredicate());
+    ASSERT_GT(table->allocatedBlockCount(), 1);
+
+    TableTuple tuple(table->schema());
+    for (int i = 0; i < 2000; ++i) {
+        int64_t skipped = 0;
+        int64_t consumed = 0;
+        ParallelScan* scan = new ParallelScan(table.get(), predicate.get());
+        while (scan->next(tuple, skipped)) {
+            ++consumed;
+        }
+        // Valgrind reports a helper thread which still notifies the freed scan
+        delete scan;
+        ASSERT_EQ(2000, consumed + skipped);
+    }
+}
+
+TEST_F(ParallelScanTest, FallbackRulesKeepScansSerial)
+{
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    boost::scoped_ptr<PersistentTable> table(createTable(LARGE_TABLE_TUPLES));
+    boost::scoped_ptr<PersistentTable> smallTable(createTable(1000));
+    boost::scoped_ptr<AbstractExpression> predicate(fixedSizePredicate());
+
+    EXPECT_TRUE(ParallelScan::canScanInParallel(table.get(), predicate.get()));
+    EXPECT_TRUE(ParallelScan::canSplitSeqScan(table.get(), predicate.get(), true, false, false));
+
+    // Too small, or nothing for the helper threads to evaluate
+    EXPECT_FALSE(ParallelScan::canScanInParallel(smallTable.get(), predicate.get()));
+    EXPECT_FALSE(ParallelScan::canScanInParallel(table.get(), NULL));
+
+    // Strings may be allocated from the thread local pools of the site thread
+    boost::scoped_ptr<AbstractExpression> varcharPredicate(
+            compare(EXPRESSION_TYPE_COMPARE_EQUAL,
+                    column(2, VALUE_TYPE_VARCHAR), column(2, VALUE_TYPE_VARCHAR)));
+    EXPECT_FALSE(ParallelScan::canScanInParallel(table.get(), varcharPredicate.get()));
+
+    // Only comparisons and logical operators are evaluated on helper threads
+    AbstractExpression* plus = new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+                                                              column(0, VALUE_TYPE_BIGINT), bigint(1));
+    plus->setValueType(VALUE_TYPE_BIGINT);
+    boost::scoped_ptr<AbstractExpression> arithmeticPredicate(
+            compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, plus, bigint(30000)));
+    EXPECT_FALSE(ParallelScan::canScanInParallel(table.get(), arithmeticPredicate.get()));
+
+    // A predicate which is fine on its own does not save a scan which is not read-only,
+    // which a limit may stop early, or which feeds an inline insert
+    EXPECT_FALSE(ParallelScan::canSplitSeqScan(table.get(), predicate.get(), false, false, false));
+    EXPECT_FALSE(ParallelScan::canSplitSeqScan(table.get(), predicate.get(), true, true, false));
+    EXPECT_FALSE(ParallelScan::canSplitSeqScan(table.get(), predicate.get(), true, false, true));
+    EXPECT_FALSE(ParallelScan::canSplitSeqScan(table.get(), varcharPredicate.get(), true, false, false));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
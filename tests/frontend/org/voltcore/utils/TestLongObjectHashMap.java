@@ -0,0 +1,85 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestLongObjectHashMap extends TestCase {
+
+    public void testBasicOperations() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-1, "minus one"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals(3, map.size());
+        assertEquals("uno", map.get(1));
+        assertEquals("minus one", map.get(-1));
+        assertTrue(map.containsKey(Long.MAX_VALUE));
+        assertFalse(map.containsKey(2));
+        assertEquals("max", map.remove(Long.MAX_VALUE));
+        assertNull(map.remove(Long.MAX_VALUE));
+        assertEquals(2, map.size());
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new long[] { -1, 1 }, keys));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    /**
+     * Compare against a HashMap with a workload of mostly increasing keys,
+     * which is what transaction handles look like
+     */
+    public void testRandomizedAgainstHashMap() {
+        Random r = new Random(0);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        long next = 0;
+        for (int ii = 0; ii < 200000; ii++) {
+            int op = r.nextInt(10);
+            if (op < 5) {
+                long key = next++ * 16 + r.nextInt(16);
+                assertEquals(expected.put(key, key), map.put(key, key));
+            } else {
+                long key = Math.max(0, next - r.nextInt(64)) * 16 + r.nextInt(16);
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+}
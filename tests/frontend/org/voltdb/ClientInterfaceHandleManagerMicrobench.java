@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import static org.mockito.Mockito.mock;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.voltcore.network.Connection;
+
+/**
+ * Bytes allocated and time spent per transaction in the client interface handle
+ * bookkeeping: issue a handle when a transaction is initiated and claim it when the
+ * response comes back. A window of transactions is kept in flight and one in
+ * every <i>reorder</i> completes late, to resemble a partition with a few slow
+ * transactions. The HashMap&lt;Long, ...&gt; run is the structure the trackers used
+ * before, for comparison. The transaction data itself (Iv2InFlight) is allocated in
+ * every case and is included in the numbers.
+ *
+ * ProcedureCallMicrobench measures the end to end path but needs the native EE.
+ *
+ * Arguments: [iterations] [in flight window] [reorder]
+ */
+public class ClientInterfaceHandleManagerMicrobench {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 2000000;
+        final int window = args.length >= 2 ? Integer.parseInt(args[1]) : 64;
+        final int reorder = args.length >= 3 ? Integer.parseInt(args[2]) : 50;
+
+        for (int round = 0; round < 2; round++) {
+            // the first round is warm up
+            final boolean report = round == 1;
+            runHashMap(iterations, window, reorder, report);
+            runCIHM(ClientInterfaceHandleManager.makeThreadSafeCIHM(false, mock(Connection.class), null,
+                    AdmissionControlGroup.getDummy()), "thread safe CIHM", iterations, window, reorder, report);
+        }
+    }
+
+    private static void runCIHM(ClientInterfaceHandleManager cihm, String name,
+            int iterations, int window, int reorder, boolean report) {
+        final long[] inFlight = new long[window];
+        for (int ii = 0; ii < window; ii++) {
+            inFlight[ii] = cihm.getHandle(true, 3, ii, 100, 0, "proc", 0, false);
+        }
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int ii = window; ii < iterations + window; ii++) {
+            // a late transaction is claimed a full window after the one issued next to it
+            final int slot = ii % window;
+            final int claim = (ii % reorder == 0) ? (slot + window / 2) % window : slot;
+            cihm.findHandle(inFlight[claim]);
+            inFlight[claim] = cihm.getHandle(true, 3, ii, 100, 0, "proc", 0, false);
+        }
+        report(name, iterations, startBytes, start, report);
+    }
+
+    private static void runHashMap(int iterations, int window, int reorder, boolean report) {
+        final Map<Long, ClientInterfaceHandleManager.Iv2InFlight> map =
+                new HashMap<Long, ClientInterfaceHandleManager.Iv2InFlight>();
+        final long[] inFlight = new long[window];
+        long next = 1L << 40;
+        for (int ii = 0; ii < window; ii++) {
+            inFlight[ii] = next;
+            map.put(next, new ClientInterfaceHandleManager.Iv2InFlight(next, ii, 100, 0, "proc", 0));
+            next++;
+        }
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int ii = window; ii < iterations + window; ii++) {
+            final int slot = ii % window;
+            final int claim = (ii % reorder == 0) ? (slot + window / 2) % window : slot;
+            synchronized (map) {
+                map.remove(inFlight[claim]);
+            }
+            inFlight[claim] = next;
+            synchronized (map) {
+                map.put(next, new ClientInterfaceHandleManager.Iv2InFlight(next, ii, 100, 0, "proc", 0));
+            }
+            next++;
+        }
+        report("synchronized HashMap<Long, ...>", iterations, startBytes, start, report);
+    }
+
+    private static void report(String name, int iterations, long startBytes, long start, boolean report) {
+        final long elapsed = System.nanoTime() - start;
+        final long bytes = allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%-32s %6.1f bytes/txn %6.1f ns/txn%n",
+                    name, (double) bytes / iterations, (double) elapsed / iterations);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import java.util.Random;
+
+/**
+ * Time per value to find the partition of a hash with the binary search over the token
+ * array and with the token lookup table, and to route a BIGINT value end to end one at a
+ * time and as a batch, for rings with 6, 48 and 240 partitions and the default number of
+ * tokens. Every run is repeated and the best one is reported.
+ *
+ * Arguments: [values per run] [runs]
+ */
+public class ElasticHashinatorMicrobench {
+
+    private static final int[] PARTITION_COUNTS = { 6, 48, 240 };
+
+    // Keeps the JIT from dropping the loops
+    private static long m_sink;
+
+    public static void main(String[] args) {
+        final int count = args.length >= 1 ? Integer.parseInt(args[0]) : 1 << 20;
+        final int runs = args.length >= 2 ? Integer.parseInt(args[1]) : 20;
+
+        final Random random = new Random(0);
+        final int[] hashes = new int[count];
+        final long[] values = new long[count];
+        for (int ii = 0; ii < count; ii++) {
+            hashes[ii] = random.nextInt();
+            values[ii] = random.nextLong();
+        }
+        final int[] partitions = new int[count];
+
+        System.out.printf("%-10s %14s %14s %14s %14s %14s%n", "partitions", "search ns", "table ns",
+                "long ns", "table long ns", "batch long ns");
+        for (int partitionCount : PARTITION_COUNTS) {
+            final byte[] config = ElasticHashinator.getConfigureBytes(partitionCount,
+                    ElasticHashinator.DEFAULT_TOTAL_TOKENS);
+            ElasticHashinator.USE_TOKEN_LOOKUP_TABLE = false;
+            final ElasticHashinator search = new ElasticHashinator(config, false);
+            ElasticHashinator.USE_TOKEN_LOOKUP_TABLE = true;
+            final ElasticHashinator table = new ElasticHashinator(config, false);
+
+            double searchNs = Double.MAX_VALUE;
+            double tableNs = Double.MAX_VALUE;
+            double searchLongNs = Double.MAX_VALUE;
+            double tableLongNs = Double.MAX_VALUE;
+            double batchLongNs = Double.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                searchNs = Math.min(searchNs, tokens(search, hashes));
+                tableNs = Math.min(tableNs, tokens(table, hashes));
+                searchLongNs = Math.min(searchLongNs, longs(search, values));
+                tableLongNs = Math.min(tableLongNs, longs(table, values));
+                batchLongNs = Math.min(batchLongNs, batchLongs(table, values, partitions));
+            }
+            System.out.printf("%-10d %14.2f %14.2f %14.2f %14.2f %14.2f%n", partitionCount, searchNs, tableNs,
+                    searchLongNs, tableLongNs, batchLongNs);
+        }
+        if (m_sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static double tokens(ElasticHashinator hashinator, int[] hashes) {
+        final long start = System.nanoTime();
+        long sum = 0;
+        for (int hash : hashes) {
+            sum += hashinator.partitionForToken(hash);
+        }
+        final long elapsed = System.nanoTime() - start;
+        m_sink += sum;
+        return (double) elapsed / hashes.length;
+    }
+
+    private static double longs(ElasticHashinator hashinator, long[] values) {
+        final long start = System.nanoTime();
+        long sum = 0;
+        for (long value : values) {
+            sum += hashinator.pHashinateLong(value);
+        }
+        final long elapsed = System.nanoTime() - start;
+        m_sink += sum;
+        return (double) elapsed / values.length;
+    }
+
+    private static double batchLongs(ElasticHashinator hashinator, long[] values, int[] partitions) {
+        final long start = System.nanoTime();
+        hashinator.pHashinateLongs(values, partitions, values.length);
+        final long elapsed = System.nanoTime() - start;
+        m_sink += partitions[values.length - 1];
+        return (double) elapsed / values.length;
+    }
+}
@@ -117,4 +117,75 @@ public class TestClientInterfaceHandleManager {
             assertEquals(31337 + i, inf.m_clientHandle);
         }
     }
+
+    @Test
+    public void testPeekThenFind() throws Exception
+    {
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mock(org.voltcore.network.WriteStream.class)).when(mockConnection).writeStream();
+        ClientInterfaceHandleManager dut =
+                new ClientInterfaceHandleManager(
+                        false,
+                        mockConnection,
+                        null,
+                        AdmissionControlGroup.getDummy());
+        List<Long> handles = new ArrayList<Long>();
+        for (int i = 0; i < 10; i++) {
+            handles.add(dut.getHandle(false, 7, 31337 + i, 10, 10l, "yankeefoo", 0, false));
+        }
+        // peeking, as for the chunks of streamed results, leaves the handles in flight
+        for (int i = 0; i < 10; i++) {
+            assertEquals(31337 + i, dut.peekHandle(handles.get(i)).m_clientHandle);
+            assertEquals(31337 + i, dut.peekHandle(handles.get(i)).m_clientHandle);
+        }
+        assertEquals(10, dut.getOutstandingTxns());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(31337 + i, dut.findHandle(handles.get(i)).m_clientHandle);
+            assertTrue(dut.peekHandle(handles.get(i)) == null);
+        }
+        assertEquals(0, dut.getOutstandingTxns());
+    }
+
+    @Test
+    public void testOutOfOrderCompletionPastRingSize() throws Exception
+    {
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mock(org.voltcore.network.WriteStream.class)).when(mockConnection).writeStream();
+        ClientInterfaceHandleManager dut =
+                new ClientInterfaceHandleManager(
+                        false,
+                        mockConnection,
+                        null,
+                        AdmissionControlGroup.getDummy());
+        // One slow transaction at the front holds up a lot more than fit in the ring
+        final int count = ClientInterfaceHandleManager.PartitionInFlightTracker.MAX_RING_SIZE * 3;
+        List<Long> handles = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            handles.add(dut.getHandle(true, 7, i, 10, 10l, "yankeefoo", i % 2, false));
+            // complete everything but the first and every 100th transaction right away
+            if (i > 0 && i % 100 != 0) {
+                assertEquals(i, dut.findHandle(handles.get(i)).m_clientHandle);
+            }
+        }
+        assertEquals((count + 99) / 100, dut.getOutstandingTxns());
+
+        // Initiator 1 failed, only transactions from initiator 0 are left
+        List<ClientInterfaceHandleManager.Iv2InFlight> removed =
+                dut.removeHandlesForPartitionAndInitiator(7, 0L);
+        assertTrue(removed.isEmpty());
+        assertEquals((count + 99) / 100, dut.getOutstandingTxns());
+
+        for (int i = ((count - 1) / 100) * 100; i >= 0; i -= 100) {
+            ClientInterfaceHandleManager.Iv2InFlight inf = dut.findHandle(handles.get(i));
+            assertEquals(i, inf.m_clientHandle);
+            assertTrue(dut.findHandle(handles.get(i)) == null);
+        }
+        assertEquals(0, dut.getOutstandingTxns());
+
+        // Still works once the partition drained
+        long handle = dut.getHandle(true, 7, 42, 10, 10l, "yankeefoo", 1, false);
+        assertEquals(count, ClientInterfaceHandleManager.getSeqNumFromHandle(handle));
+        assertEquals(1, dut.removeHandlesForPartitionAndInitiator(7, 0L).size());
+        assertEquals(0, dut.getOutstandingTxns());
+    }
 }
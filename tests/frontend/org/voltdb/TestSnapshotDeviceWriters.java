@@ -0,0 +1,55 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.voltdb.utils.VoltFile;
+
+public class TestSnapshotDeviceWriters {
+
+    @Test
+    public void testFilesOnSameDeviceShareWriters() throws Exception {
+        File dir = Files.createTempDirectory("TestSnapshotDeviceWriters").toFile();
+        try {
+            File subdir = new File(dir, "sub");
+            subdir.mkdir();
+            SnapshotDeviceWriters writers = SnapshotDeviceWriters.forFile(new File(dir, "a.vpt"));
+            assertSame(writers, SnapshotDeviceWriters.forFile(new File(dir, "b.vpt")));
+            assertSame(writers, SnapshotDeviceWriters.forFile(new File(subdir, "c.vpt")));
+
+            // New files are spread over the write threads of the device
+            if (SnapshotDeviceWriters.SNAPSHOT_WRITE_THREADS_PER_DEVICE > 1) {
+                assertNotSame(writers.nextWriter(), writers.nextWriter());
+            }
+        } finally {
+            VoltFile.recursivelyDelete(dir);
+        }
+    }
+}
@@ -681,6 +681,84 @@ public class TestTheHashinator {
         assertEquals( 2, hashinator.partitionForToken(Integer.MAX_VALUE - 1));
     }
 
+    @Test
+    public void testTokenLookupTable() throws Exception {
+        // A ring with a run of tokens in the first bucket, which is too wide to scan
+        TreeMap<Integer, Integer> dense = new TreeMap<Integer, Integer>();
+        for (int ii = 0; ii < 100; ii++) {
+            dense.put(Integer.MIN_VALUE + ii * 7, ii % 3);
+        }
+        dense.put(-1, 4);
+        dense.put(0, 5);
+        dense.put(1 << 16, 6);
+        dense.put(Integer.MAX_VALUE, 7);
+        ByteBuffer denseConfig = ByteBuffer.allocate(4 + 8 * dense.size());
+        denseConfig.putInt(dense.size());
+        for (Map.Entry<Integer, Integer> e : dense.entrySet()) {
+            denseConfig.putInt(e.getKey());
+            denseConfig.putInt(e.getValue());
+        }
+
+        final ElasticHashinator sixPartitions = new ElasticHashinator(
+                ElasticHashinator.getConfigureBytes(6, ElasticHashinator.DEFAULT_TOTAL_TOKENS), false);
+        final byte[][] configs = {
+                sixPartitions.getConfigBytes(),
+                ElasticHashinator.addPartitions(sixPartitions, 6),
+                denseConfig.array() };
+        final int[] edges = { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, 1, 1 << 16, (1 << 16) - 1,
+                Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+        for (byte[] config : configs) {
+            ElasticHashinator withTable = new ElasticHashinator(config, false);
+            ElasticHashinator.USE_TOKEN_LOOKUP_TABLE = false;
+            ElasticHashinator withoutTable;
+            try {
+                withoutTable = new ElasticHashinator(config, false);
+            } finally {
+                ElasticHashinator.USE_TOKEN_LOOKUP_TABLE = true;
+            }
+
+            for (int hash : edges) {
+                assertEquals(withoutTable.partitionForToken(hash), withTable.partitionForToken(hash));
+            }
+            for (int token : withTable.getTokens().keySet()) {
+                for (int delta = -1; delta <= 1; delta++) {
+                    assertEquals(withoutTable.partitionForToken(token + delta),
+                            withTable.partitionForToken(token + delta));
+                }
+            }
+            final int[] hashes = new int[100000];
+            for (int ii = 0; ii < hashes.length; ii++) {
+                hashes[ii] = r.nextInt();
+                assertEquals(withoutTable.partitionForToken(hashes[ii]), withTable.partitionForToken(hashes[ii]));
+            }
+
+            // The batch calls route like the one value calls
+            final int[] partitions = new int[hashes.length];
+            withTable.partitionsForTokens(hashes, partitions, hashes.length);
+            for (int ii = 0; ii < hashes.length; ii++) {
+                assertEquals(withoutTable.partitionForToken(hashes[ii]), partitions[ii]);
+            }
+
+            final long[] longs = new long[1000];
+            final byte[][] bytes = new byte[longs.length][];
+            for (int ii = 0; ii < longs.length; ii++) {
+                longs[ii] = r.nextLong();
+                bytes[ii] = Long.toString(longs[ii]).getBytes("UTF-8");
+            }
+            longs[0] = Long.MIN_VALUE;
+            bytes[0] = null;
+            withTable.pHashinateLongs(longs, partitions, longs.length);
+            for (int ii = 0; ii < longs.length; ii++) {
+                assertEquals(withoutTable.getHashedPartitionForParameter(VoltType.BIGINT, longs[ii]), partitions[ii]);
+            }
+            withTable.pHashinateBytes(bytes, partitions, bytes.length);
+            for (int ii = 0; ii < bytes.length; ii++) {
+                assertEquals(withoutTable.getHashedPartitionForParameter(VoltType.VARBINARY, bytes[ii]), partitions[ii]);
+            }
+        }
+    }
+
     @Test
     public void testElasticAddPartitions() throws Exception {
         ElasticHashinator hashinator = new ElasticHashinator(ElasticHashinator.getConfigureBytes(3,
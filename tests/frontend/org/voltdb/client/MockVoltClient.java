@@ -68,6 +68,8 @@ import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderSuccessCallback;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /** Hack subclass of VoltClient that fakes callProcedure. */
 public class MockVoltClient implements Client {
     public MockVoltClient() {
@@ -368,4 +370,40 @@ public class MockVoltClient implements Client {
         // TODO Auto-generated method stub
         return false;
     }
+
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+            throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ResultChunkIterator callProcedureWithStreamedResults(String procName, Object... parameters)
+            throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public boolean callProcedureBatch(ProcedureBatch batch)
+            throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return false;
+    }
+
+    @Override
+    public boolean getPartitionsForLongs(long[] values, int[] partitions, int count) {
+        return false;
+    }
+
+    @Override
+    public boolean getPartitionsForStrings(String[] values, int[] partitions, int count) {
+        return false;
+    }
+
+    @Override
+    public boolean getPartitionsForBytes(byte[][] values, int[] partitions, int count) {
+        return false;
+    }
 }
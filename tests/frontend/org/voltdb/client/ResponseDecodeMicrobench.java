@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.client;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+/**
+ * Measures bytes allocated per response on the client receive path: decoding the
+ * response and claiming its callback from the in-flight map. Compares eager and lazy
+ * result decoding, and the old ConcurrentHashMap&lt;Long, ...&gt; with {@link StripedHandleMap}.
+ * The receive buffer itself is allocated by the network layer and is not counted.
+ *
+ * Arguments: [iterations] [rows per result]
+ */
+public class ResponseDecodeMicrobench {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 1000000;
+        final int rows = args.length >= 2 ? Integer.parseInt(args[1]) : 1;
+
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("NAME", VoltType.STRING));
+        for (int ii = 0; ii < rows; ii++) {
+            table.addRow(ii, "row" + ii);
+        }
+        ClientResponseImpl template = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null, 0);
+        final ByteBuffer message = ByteBuffer.allocate(template.getSerializedSize());
+        template.flattenToBuffer(message);
+        message.flip();
+
+        final Object bookkeeping = new Object();
+        for (int round = 0; round < 2; round++) {
+            // the first round is warm up
+            final boolean report = round == 1;
+            run("eager decode, ConcurrentHashMap", iterations, message, false, false, bookkeeping, report);
+            run("eager decode, StripedHandleMap", iterations, message, false, true, bookkeeping, report);
+            run("lazy decode, StripedHandleMap", iterations, message, true, true, bookkeeping, report);
+        }
+    }
+
+    private static void run(String name, int iterations, ByteBuffer message, boolean lazy, boolean striped,
+            Object bookkeeping, boolean report) throws Exception {
+        final ConcurrentMap<Long, Object> chm = new ConcurrentHashMap<>();
+        final StripedHandleMap<Object> shm = new StripedHandleMap<>();
+        // Keep some calls outstanding like a client with max outstanding > 1
+        final int outstanding = 100;
+        long handle = 1000;
+        for (int ii = 0; ii < outstanding; ii++) {
+            if (striped) {
+                shm.put(handle++, bookkeeping);
+            } else {
+                chm.put(handle++, bookkeeping);
+            }
+        }
+
+        long checksum = 0;
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int ii = 0; ii < iterations; ii++) {
+            final long completed = handle - outstanding;
+            final Object claimed;
+            if (striped) {
+                shm.put(handle, bookkeeping);
+                claimed = shm.remove(completed);
+            } else {
+                chm.put(handle, bookkeeping);
+                claimed = chm.remove(completed);
+            }
+            handle++;
+            assert(claimed != null);
+
+            final ClientResponseImpl response = new ClientResponseImpl();
+            response.initFromBuffer(message.duplicate(), lazy);
+            checksum += response.getStatus();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long bytes = allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%-34s %6.1f bytes/response %6.1f ns/response (%d)%n",
+                    name, (double) bytes / iterations, (double) elapsed / iterations, checksum);
+        }
+    }
+}
@@ -48,6 +48,8 @@ import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 import junit.framework.TestCase;
 
 public class TestDistributer extends TestCase {
@@ -91,6 +93,20 @@ public class TestDistributer extends TestCase {
                         vt[0] = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
                         vt[0].addRow(1);
                     }
+                    if (spi.getStreamResults()) {
+                        // two chunks of results ahead of the response
+                        for (long value : new long[] { 10, 20 }) {
+                            VoltTable chunk = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
+                            chunk.addRow(value);
+                            ClientResponseImpl chunkResponse = new ClientResponseImpl(ClientResponse.RESULT_CHUNK,
+                                    new VoltTable[] { chunk }, null, spi.getClientHandle());
+                            ByteBuffer buf = ByteBuffer.allocate(4 + chunkResponse.getSerializedSize());
+                            buf.putInt(buf.capacity() - 4);
+                            chunkResponse.flattenToBuffer(buf);
+                            buf.clear();
+                            c.writeStream().enqueue(buf);
+                        }
+                    }
                     ClientResponseImpl response;
                     if (sendProcTimeout.get()) {
                         response = new ClientResponseImpl(ClientResponseImpl.CONNECTION_TIMEOUT, vt,
@@ -890,6 +906,81 @@ public class TestDistributer extends TestCase {
        }
     }
 
+    @Test
+    public void testClientBatchAndFuture() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           volt = new MockVolt(21212);
+           volt.start();
+
+           Client clt = ClientFactory.createClient();
+           clt.createConnection("localhost");
+           clt.drain();
+           int roundTrips = volt.handler.roundTrips.get();
+
+           ListenableFuture<ClientResponse> future = clt.callProcedureAsync("Foo", new Integer(1));
+           assertEquals(ClientResponse.SUCCESS, future.get(10, TimeUnit.SECONDS).getStatus());
+           assertEquals(roundTrips + 1, volt.handler.roundTrips.get());
+
+           ProcedureBatch batch = new ProcedureBatch();
+           ListenableFuture<ClientResponse> first = batch.add("Foo", new Integer(1));
+           batch.add(new ProcCallback(), "Bar", new Integer(2));
+           ListenableFuture<ClientResponse> last = batch.add("Baz", new Integer(3));
+           assertEquals(3, batch.size());
+           assertTrue(clt.callProcedureBatch(batch));
+           clt.drain();
+           assertEquals(roundTrips + 4, volt.handler.roundTrips.get());
+           assertEquals(ClientResponse.SUCCESS, first.get().getStatus());
+           assertEquals(1, last.get().getResults()[0].asScalarLong());
+
+           clt.close();
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
+    @Test
+    public void testClientStreamedResults() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           volt = new MockVolt(21212);
+           volt.start();
+
+           Client clt = ClientFactory.createClient();
+           clt.createConnection("localhost");
+           clt.drain();
+
+           // the streamed chunks come first, then the tables of the response
+           ResultChunkIterator results = clt.callProcedureWithStreamedResults("Foo", new Integer(1));
+           long[] expected = { 10, 20, 1 };
+           for (long value : expected) {
+               assertTrue(results.hasNext());
+               assertEquals(value, results.next().asScalarLong());
+           }
+           assertFalse(results.hasNext());
+           assertFalse(results.hasNext());
+           assertEquals(ClientResponse.SUCCESS, results.getResponse().getStatus());
+
+           // the callback stays in place for the response, nothing is outstanding after it
+           clt.drain();
+           clt.close();
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
     @Test
     public void testClientBlockedOnMaxOutstanding() throws Exception {
         // TODO: write a mock server that can grock ssl
@@ -352,4 +352,82 @@ public class TestHashinatorLite extends TestCase {
         assertTrue(hash1 < partitionCount);
         assertTrue(hash1 >= 0);
     }
+
+    @Test
+    public void testTypedPartitionLookups() throws Exception {
+        byte[] configBytes = ElasticHashinator.getConfigureBytes(7, ElasticHashinator.DEFAULT_TOTAL_TOKENS);
+        HashinatorLite h = new HashinatorLite(configBytes, false);
+
+        for (int i = 0; i < 1000; i++) {
+            long value = r.nextLong();
+            if (value == Long.MIN_VALUE) {
+                continue;
+            }
+            assertEquals(h.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), value),
+                         h.getHashedPartitionForLong(value));
+            assertEquals(h.getHashedPartitionForParameter(VoltType.INTEGER.getValue(), (int) value),
+                         h.getHashedPartitionForLong((int) value));
+
+            // string bytes in the middle of a bigger buffer
+            String str = "key" + value;
+            byte[] strBytes = str.getBytes("UTF-8");
+            ByteBuffer buf = ByteBuffer.allocate(strBytes.length + 10);
+            buf.position(6);
+            buf.put(strBytes);
+            assertEquals(h.getHashedPartitionForParameter(VoltType.STRING.getValue(), str),
+                         h.getHashedPartitionForBytes(buf, 6, strBytes.length));
+        }
+    }
+
+    @Test
+    public void testBatchPartitionLookups() throws Exception {
+        byte[] configBytes = ElasticHashinator.getConfigureBytes(11, ElasticHashinator.DEFAULT_TOTAL_TOKENS);
+        HashinatorLite h = new HashinatorLite(configBytes, false);
+
+        final int count = 1000;
+        long[] longs = new long[count + 5];
+        String[] strings = new String[count + 5];
+        byte[][] bytes = new byte[count + 5][];
+        for (int i = 0; i < count; i++) {
+            longs[i] = r.nextLong();
+            // ASCII, multi-byte characters, an unpaired surrogate, long strings growing the scratch buffer
+            switch (i % 5) {
+            case 0: strings[i] = "key" + longs[i]; break;
+            case 1: strings[i] = "cl\u00e9" + i + "\u6f22\u5b57"; break;
+            case 2: strings[i] = "bad\ud800" + i; break;
+            case 3: strings[i] = new String(new char[100 + i]).replace('\0', 'x'); break;
+            default: strings[i] = ""; break;
+            }
+            bytes[i] = strings[i].getBytes("UTF-8");
+        }
+        longs[0] = Long.MIN_VALUE;
+        longs[1] = Integer.MAX_VALUE;
+        strings[2] = null;
+        bytes[3] = null;
+
+        int[] partitions = new int[count + 5];
+        // entries past count are left alone
+        partitions[count] = -1;
+
+        h.getHashedPartitionsForLongs(longs, partitions, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(h.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), longs[i]), partitions[i]);
+        }
+        assertEquals(0, partitions[0]);
+        assertEquals(-1, partitions[count]);
+
+        h.getHashedPartitionsForStrings(strings, partitions, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(h.getHashedPartitionForParameter(VoltType.STRING.getValue(), strings[i]), partitions[i]);
+        }
+        assertEquals(0, partitions[2]);
+        assertEquals(-1, partitions[count]);
+
+        h.getHashedPartitionsForBytes(bytes, partitions, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(h.getHashedPartitionForParameter(VoltType.VARBINARY.getValue(), bytes[i]), partitions[i]);
+        }
+        assertEquals(0, partitions[3]);
+        assertEquals(-1, partitions[count]);
+    }
 }
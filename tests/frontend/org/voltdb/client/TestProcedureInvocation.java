@@ -225,4 +225,38 @@ public class TestProcedureInvocation extends TestCase{
 
         verifySpi(spi);
     }
+
+    /** The request to stream the results must survive client to CI and CI to site */
+    public void testStreamResultsRoundTrip() throws Exception {
+        ProcedureInvocation streamed = new ProcedureInvocation(11, BatchTimeoutOverrideType.NO_TIMEOUT,
+                false, true, "@AdHoc", "select * from t;");
+        assertTrue(streamed.getStreamResults());
+        ByteBuffer buf = ByteBuffer.allocate(streamed.getSerializedSize());
+        streamed.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(buf);
+        assertEquals(11, spi.getClientHandle());
+        assertEquals("@AdHoc", spi.getProcName());
+        assertTrue(spi.getStreamResults());
+
+        ByteBuffer spiBuf = ByteBuffer.allocate(spi.getSerializedSize());
+        spi.flattenToBuffer(spiBuf);
+        assertFalse(spiBuf.hasRemaining());
+        spiBuf.flip();
+        StoredProcedureInvocation copy = new StoredProcedureInvocation();
+        copy.initFromBuffer(spiBuf);
+        assertTrue(copy.getStreamResults());
+        assertEquals("select * from t;", copy.getParams().toArray()[0]);
+
+        // reusing the instance must not keep the flag
+        buf = ByteBuffer.allocate(pi.getSerializedSize());
+        pi.flattenToBuffer(buf);
+        buf.flip();
+        copy.initFromBuffer(buf);
+        assertFalse(copy.getStreamResults());
+        verifySpi(copy);
+    }
 }
@@ -0,0 +1,129 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.PlannerStatsCollector;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+public class TestAdHocCompilerCache extends TestCase {
+
+    private static byte[] hash(int seed) {
+        byte[] hash = new byte[20];
+        Arrays.fill(hash, (byte) seed);
+        return hash;
+    }
+
+    private static AdHocPlannedStatement statement(String sql, byte[] catalogHash, Object partitionValue) {
+        CorePlan core = new CorePlan(
+                sql.getBytes(Constants.UTF8ENCODING), null,
+                hash(sql.hashCode()), null,
+                false, true,
+                new VoltType[] { VoltType.BIGINT },
+                catalogHash);
+        core.setPartitioningParamIndex(0);
+        core.setPartitioningParamValue(partitionValue);
+        return new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING), core,
+                ParameterSet.fromArrayNoCopy(5L), null);
+    }
+
+    public void testPersistAndReload() throws Exception {
+        byte[] catalogHash = hash(1);
+        AdHocCompilerCache cache = new AdHocCompilerCache(10, 10);
+        AdHocPlannedStatement stmt = statement("select * from t where a = 5;", catalogHash, 5L);
+        cache.put("select * from t where a = 5;", "select * from t where a = ?;", stmt,
+                new String[] { "5" }, false, false);
+
+        File file = File.createTempFile("adhoc_plan_cache", ".bin");
+        try {
+            assertTrue(cache.writeToFile(file, catalogHash));
+            // nothing changed since the last write
+            assertFalse(cache.writeToFile(file, catalogHash));
+
+            AdHocCompilerCache reloaded = new AdHocCompilerCache(10, 10);
+            assertEquals(2, reloaded.loadFromFile(file, catalogHash));
+            assertEquals(1, reloaded.getLiteralCacheSize());
+            assertEquals(1, reloaded.getCoreCacheSize());
+
+            AdHocPlannedStatement cached = reloaded.getWithSQL("select * from t where a = 5;");
+            assertEquals(stmt, cached);
+            assertEquals(0, cached.core.getPartitioningParamIndex());
+            assertEquals(5L, cached.core.getPartitioningParamValue());
+
+            List<BoundPlan> bound = reloaded.getWithParsedToken("select * from t where a = ?;");
+            assertEquals(1, bound.size());
+            assertEquals(cache.getWithParsedToken("select * from t where a = ?;").get(0), bound.get(0));
+
+            // A cache written for another catalog is ignored
+            AdHocCompilerCache other = new AdHocCompilerCache(10, 10);
+            assertEquals(0, other.loadFromFile(file, hash(2)));
+            assertEquals(0, other.getLiteralCacheSize());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testEvictionCounts() throws Exception {
+        byte[] catalogHash = hash(1);
+        AdHocCompilerCache cache = new AdHocCompilerCache(1, 1);
+        for (int ii = 0; ii < 3; ii++) {
+            String sql = "select * from t where a = " + ii + ";";
+            cache.put(sql, "token" + ii, statement(sql, catalogHash, null), null, false, false);
+        }
+        assertEquals(2, cache.getLiteralCacheEvictions());
+        assertEquals(2, cache.getCoreCacheEvictions());
+    }
+
+    public void testEvictionsReportedByPut() throws Exception {
+        byte[] catalogHash = hash(1);
+        AdHocCompilerCache cache = new AdHocCompilerCache(1, 1);
+        PlannerStatsCollector mine = mock(PlannerStatsCollector.class);
+        cache.put("select * from t where a = 0;", "token0",
+                statement("select * from t where a = 0;", catalogHash, null), null, false, false, mine);
+        // Another planner sharing the cache evicts the first entry
+        cache.put("select * from t where a = 1;", "token1",
+                statement("select * from t where a = 1;", catalogHash, null), null, false, false);
+        cache.put("select * from t where a = 2;", "token2",
+                statement("select * from t where a = 2;", catalogHash, null), null, false, false, mine);
+        // Only the evictions caused by this planner's insertions are reported to it
+        verify(mine, times(1)).updateCacheEvictions(0, 0);
+        verify(mine, times(1)).updateCacheEvictions(1, 1);
+        verifyNoMoreInteractions(mine);
+        assertEquals(2, cache.getLiteralCacheEvictions());
+    }
+}
@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestDatabaseStatistics extends TestCase {
+
+    private static Map<String, Long> counts(Object... nameAndCount) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < nameAndCount.length; i += 2) {
+            counts.put((String) nameAndCount[i], ((Number) nameAndCount[i + 1]).longValue());
+        }
+        return counts;
+    }
+
+    public void testEstimatesAverageTheSites() {
+        DatabaseStatistics stats = new DatabaseStatistics();
+        stats.updateSite(1, counts("P", 3000, "R", 50), counts("P_IDX", 1000));
+        stats.updateSite(2, counts("P", 5000, "R", 50), counts("P_IDX", 3000));
+
+        DatabaseEstimates estimates = stats.getEstimates();
+        assertEquals(4000, estimates.getEstimatesForTable("P").maxTuples);
+        // Small tables are costed as if they had a few rows more
+        assertEquals(DatabaseStatistics.MIN_ESTIMATED_TUPLES, estimates.getEstimatesForTable("R").maxTuples);
+        assertEquals(Long.valueOf(2000), estimates.getEntriesForIndex("P_IDX"));
+        assertNull(estimates.getEntriesForIndex("R_IDX"));
+        // Tables without statistics keep the fixed guesses
+        assertEquals(new DatabaseEstimates.TableEstimates().maxTuples,
+                estimates.getEstimatesForTable("X").maxTuples);
+
+        // Unchanged counts keep the estimates
+        stats.updateSite(1, counts("P", 3000, "R", 50), counts("P_IDX", 1000));
+        assertSame(estimates, stats.getEstimates());
+        stats.updateSite(1, counts("P", 7000, "R", 50), counts("P_IDX", 1000));
+        assertEquals(6000, stats.getEstimates().getEstimatesForTable("P").maxTuples);
+    }
+
+    public void testDrift() {
+        DatabaseStatistics stats = new DatabaseStatistics();
+        assertFalse(stats.checkDrift());
+
+        // Plans were costed with the fixed guesses before the first statistics
+        stats.updateSite(1, counts("T", 1000), counts());
+        assertTrue(stats.checkDrift());
+        assertFalse(stats.checkDrift());
+
+        stats.updateSite(1, counts("T", 1500), counts());
+        assertFalse(stats.checkDrift());
+        stats.updateSite(1, counts("T", 2500), counts());
+        assertTrue(stats.checkDrift());
+
+        // Tables shrinking below the smallest estimate don't drift
+        stats.updateSite(1, counts("T", 60), counts());
+        assertTrue(stats.checkDrift());
+        stats.updateSite(1, counts("T", 0), counts());
+        assertFalse(stats.checkDrift());
+    }
+}
@@ -182,6 +182,66 @@ public class TestExportDataSource extends TestCase {
         }
     }
 
+    public void testExecutorStats() throws Exception {
+        System.out.println("Running testExecutorStats");
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new ExportDataSource(null, "database",
+                table.getTypeName(),
+                m_part,
+                table.getSignature(),
+                table.getColumns(),
+                table.getPartitioncolumn(),
+                TEST_DIR.getAbsolutePath());
+        try {
+            // Let the tasks the source queued for itself finish
+            s.getExecutorService().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+            long executed = s.getExecutorTasksExecuted();
+            assertEquals(0, s.getExecutorQueueDepth());
+
+            // Hold the source's turn on the pool so that the tasks after it wait
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            s.getExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            s.getExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            ListenableFuture<?> last = s.getExecutorService().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            assertEquals(2, s.getExecutorQueueDepth());
+
+            Thread.sleep(50);
+            release.countDown();
+            last.get();
+            assertEquals(0, s.getExecutorQueueDepth());
+            assertEquals(executed + 3, s.getExecutorTasksExecuted());
+            assertTrue(s.getMaxSchedulingLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(s.getAverageSchedulingLatencyNanos() > 0);
+            assertTrue(s.getAverageSchedulingLatencyNanos() <= s.getMaxSchedulingLatencyNanos());
+        } finally {
+            s.close();
+        }
+    }
+
     public void testPollV2() throws Exception{
         System.out.println("Running testPollV2");
         VoltDB.replaceVoltDBInstanceForTest(m_mockVoltDB);
@@ -262,6 +262,29 @@ public class TestExportGeneration {
         assertEquals("unexpected data sources size", 0, m_expDs.sizeInBytes());
     }
 
+    @Test
+    public void testExecutorStats() throws Exception {
+        m_expDs.getExecutorService().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+
+        assertEquals(0, m_exportGeneration.getExecutorQueueDepth(m_part, m_tableSignature));
+        assertEquals(m_expDs.getExecutorTasksExecuted(),
+                m_exportGeneration.getExecutorTasksExecuted(m_part, m_tableSignature));
+        assertTrue(m_exportGeneration.getExecutorTasksExecuted(m_part, m_tableSignature) > 0);
+        assertEquals(m_expDs.getAverageSchedulingLatencyNanos(),
+                m_exportGeneration.getAverageSchedulingLatencyNanos(m_part, m_tableSignature));
+        assertEquals(m_expDs.getMaxSchedulingLatencyNanos(),
+                m_exportGeneration.getMaxSchedulingLatencyNanos(m_part, m_tableSignature));
+
+        // Unknown sources have nothing queued
+        assertEquals(0, m_exportGeneration.getExecutorQueueDepth(m_part + 1, m_tableSignature));
+        assertEquals(0, m_exportGeneration.getExecutorTasksExecuted(m_part, "unknown"));
+        assertEquals(0, m_exportGeneration.getMaxSchedulingLatencyNanos(m_part, "unknown"));
+    }
+
     private Long getOtherMailboxHsid() throws Exception {
         Long otherHsid = null;
 
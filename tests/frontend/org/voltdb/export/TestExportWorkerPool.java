@@ -0,0 +1,198 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestExportWorkerPool {
+
+    private final List<ExportWorkerPool> m_pools = new ArrayList<>();
+
+    private ExportWorkerPool newPool(int threads) {
+        ExportWorkerPool pool = new ExportWorkerPool(threads);
+        m_pools.add(pool);
+        return pool;
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (ExportWorkerPool pool : m_pools) {
+            pool.shutdown();
+        }
+        for (ExportWorkerPool pool : m_pools) {
+            assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        }
+        m_pools.clear();
+    }
+
+    @Test
+    public void testPerSourceOrdering() throws Exception {
+        ExportWorkerPool pool = newPool(4);
+        final int sourceCount = 16;
+        final int taskCount = 1000;
+        List<ExportWorkerPool.SourceExecutor> executors = new ArrayList<>();
+        List<List<Integer>> results = new ArrayList<>();
+        final AtomicBoolean overlapped = new AtomicBoolean(false);
+        for (int ii = 0; ii < sourceCount; ii++) {
+            executors.add(pool.newSourceExecutor("source " + ii));
+            results.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int task = 0; task < taskCount; task++) {
+            for (int ii = 0; ii < sourceCount; ii++) {
+                final List<Integer> result = results.get(ii);
+                final AtomicInteger running = new AtomicInteger();
+                final int value = task;
+                executors.get(ii).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running.incrementAndGet() != 1) {
+                            overlapped.set(true);
+                        }
+                        result.add(value);
+                        running.decrementAndGet();
+                    }
+                });
+            }
+        }
+        for (ExportWorkerPool.SourceExecutor es : executors) {
+            es.shutdown();
+        }
+        for (ExportWorkerPool.SourceExecutor es : executors) {
+            assertTrue(es.awaitTermination(60, TimeUnit.SECONDS));
+            assertEquals(0, es.getQueueDepth());
+            assertEquals(taskCount, es.getTasksExecuted());
+        }
+        assertFalse(overlapped.get());
+        for (List<Integer> result : results) {
+            assertEquals(taskCount, result.size());
+            for (int ii = 0; ii < taskCount; ii++) {
+                assertEquals(ii, result.get(ii).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testShutdownFromTaskRunsQueuedWork() throws Exception {
+        ExportWorkerPool pool = newPool(2);
+        final ExportWorkerPool.SourceExecutor es = pool.newSourceExecutor("shutdown test");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                es.shutdown();
+            }
+        });
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        });
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        assertEquals(1, es.getQueueDepth());
+        release.countDown();
+        assertTrue(es.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(1, ran.get());
+        assertTrue(es.isShutdown());
+        try {
+            es.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("Expected rejection after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void testSubmitReturnsResult() throws Exception {
+        ExportWorkerPool pool = newPool(1);
+        ExportWorkerPool.SourceExecutor es = pool.newSourceExecutor("submit test");
+        assertEquals(Long.valueOf(42), es.submit(new java.util.concurrent.Callable<Long>() {
+            @Override
+            public Long call() {
+                return 42L;
+            }
+        }).get());
+        assertEquals(1, es.getTasksExecuted());
+        assertTrue(es.getMaxSchedulingLatencyNanos() >= es.getAverageSchedulingLatencyNanos());
+    }
+
+    @Test
+    public void testShutdownRacingExecute() throws Exception {
+        ExportWorkerPool pool = newPool(2);
+        for (int round = 0; round < 200; round++) {
+            final ExportWorkerPool.SourceExecutor es = pool.newSourceExecutor("race test " + round);
+            final AtomicInteger accepted = new AtomicInteger();
+            final AtomicInteger ran = new AtomicInteger();
+            Thread submitter = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            es.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    ran.incrementAndGet();
+                                }
+                            });
+                            accepted.incrementAndGet();
+                        }
+                    } catch (RejectedExecutionException expected) {
+                    }
+                }
+            };
+            submitter.start();
+            es.shutdown();
+            submitter.join();
+            // Every task accepted before the shutdown must have run by the time the executor terminates
+            assertTrue(es.awaitTermination(60, TimeUnit.SECONDS));
+            assertEquals(accepted.get(), ran.get());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable;
+
+public class TestMpRoSitePoolSizer extends TestCase
+{
+    static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(2);
+
+    long m_now = 0;
+
+    MpRoSitePoolSizer.SizeChange nextInterval(MpRoSitePoolSizer sizer, double cpuLoad)
+    {
+        m_now += INTERVAL;
+        return sizer.evaluate(m_now, () -> cpuLoad);
+    }
+
+    public void testShrinkWhenIdleAndGrowWhenReadsQueue()
+    {
+        MpRoSitePoolSizer sizer = new MpRoSitePoolSizer(1, 20, INTERVAL, m_now);
+        assertEquals(20, sizer.getTargetSize());
+
+        // Nothing is evaluated before the interval elapses
+        assertNull(sizer.evaluate(m_now + INTERVAL - 1, () -> 0.1));
+
+        // Only two sites ever busy, the pool halves but never drops below the busy count
+        sizer.workStarted(2);
+        sizer.workCompleted(LATENCY);
+        MpRoSitePoolSizer.SizeChange change = nextInterval(sizer, 0.1);
+        assertEquals(MpRoSitePoolSizer.Reason.UNDERUTILIZED, change.m_reason);
+        assertEquals(10, sizer.getTargetSize());
+        for (int i = 0; i < 5; i++) {
+            sizer.workStarted(2);
+            sizer.workCompleted(LATENCY);
+            nextInterval(sizer, 0.1);
+        }
+        assertEquals(2, sizer.getTargetSize());
+        // No work at all
+        nextInterval(sizer, 0.1);
+        assertEquals(1, sizer.getTargetSize());
+        assertNull(nextInterval(sizer, 0.1));
+
+        // Reads waiting with plenty of CPU, double until the max
+        for (int expected : new int[] { 2, 4, 8, 16, 20, 20 }) {
+            sizer.workStarted(sizer.getTargetSize());
+            sizer.workCompleted(LATENCY);
+            sizer.readsQueued(5);
+            nextInterval(sizer, 0.2);
+            assertEquals(expected, sizer.getTargetSize());
+        }
+    }
+
+    public void testBackOffWhenCpuSaturated()
+    {
+        MpRoSitePoolSizer sizer = new MpRoSitePoolSizer(1, 20, INTERVAL, m_now);
+        sizer.workStarted(12);
+        sizer.workCompleted(LATENCY);
+        nextInterval(sizer, 0.5);
+        assertEquals(20, sizer.getTargetSize());
+
+        // Saturated CPU alone doesn't grow the pool
+        sizer.workStarted(20);
+        sizer.workCompleted(LATENCY);
+        sizer.readsQueued(10);
+        assertNull(nextInterval(sizer, 0.95));
+
+        // Saturated CPU and rising latency shrinks it
+        sizer.workStarted(20);
+        sizer.workCompleted(LATENCY * 3);
+        sizer.readsQueued(10);
+        MpRoSitePoolSizer.SizeChange change = nextInterval(sizer, 0.95);
+        assertEquals(MpRoSitePoolSizer.Reason.CPU_SATURATED, change.m_reason);
+        assertEquals(20, change.m_oldSize);
+        assertEquals(19, change.m_newSize);
+        assertEquals(95, change.m_cpuPercent);
+        assertEquals(TimeUnit.NANOSECONDS.toMicros(LATENCY * 3), change.m_avgLatencyMicros);
+    }
+
+    public void testCpuSampledOncePerInterval()
+    {
+        MpRoSitePoolSizer sizer = new MpRoSitePoolSizer(1, 20, INTERVAL, m_now);
+        final AtomicInteger samples = new AtomicInteger();
+        DoubleSupplier cpuLoad = () -> {
+            samples.incrementAndGet();
+            return 0.1;
+        };
+
+        // Work starting and completing within an interval doesn't sample the CPU
+        for (int i = 0; i < 100; i++) {
+            sizer.workStarted(2);
+            assertNull(sizer.evaluate(m_now + i * (INTERVAL / 100), cpuLoad));
+            sizer.workCompleted(LATENCY);
+        }
+        assertEquals(0, samples.get());
+
+        for (int interval = 1; interval <= 3; interval++) {
+            m_now += INTERVAL;
+            sizer.evaluate(m_now, cpuLoad);
+            sizer.evaluate(m_now, cpuLoad);
+            sizer.evaluate(m_now + INTERVAL - 1, cpuLoad);
+            assertEquals(interval, samples.get());
+        }
+    }
+
+    public void testFixedSizeAndStats()
+    {
+        MpRoSitePoolSizer fixed = new MpRoSitePoolSizer(4, 4, INTERVAL, m_now);
+        assertFalse(fixed.isAdaptive());
+        assertNull(nextInterval(fixed, 0.1));
+        assertEquals(4, fixed.getTargetSize());
+
+        MpRoSitePoolSizer sizer = new MpRoSitePoolSizer(1, 8, INTERVAL, m_now);
+        MpRoSitePoolStats stats = new MpRoSitePoolStats(sizer);
+        nextInterval(sizer, -1);
+        nextInterval(sizer, -1);
+        List<MpRoSitePoolSizer.SizeChange> history = sizer.getHistory(0);
+        assertEquals(2, history.size());
+        assertEquals(8, history.get(0).m_oldSize);
+        assertEquals(2, history.get(1).m_newSize);
+        assertEquals(-1, history.get(1).m_cpuPercent);
+
+        assertEquals(2, stats.getStatsRows(true, System.currentTimeMillis()).length);
+        assertEquals(0, stats.getStatsRows(true, System.currentTimeMillis()).length);
+        nextInterval(sizer, -1);
+        Object[][] rows = stats.getStatsRows(true, System.currentTimeMillis());
+        assertEquals(1, rows.length);
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        table.addRow(rows[0]);
+        table.advanceRow();
+        assertEquals(1, table.getLong(MpRoSitePoolStats.Constants.NEW_SIZE));
+        assertEquals("UNDERUTILIZED", table.getString(MpRoSitePoolStats.Constants.REASON));
+        assertEquals(3, stats.getStatsRows(false, System.currentTimeMillis()).length);
+    }
+}
@@ -28,6 +28,7 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -53,10 +54,12 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltType;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.TransactionTerminationException;
 import org.voltdb.messaging.BorrowTaskMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.ResultChunkMessage;
 import org.voltdb.utils.VoltTableUtil;
 
 public class TestMpTransactionState extends TestCase
@@ -604,4 +607,81 @@ public class TestMpTransactionState extends TestCase
         assertEquals(batch_size, results.size());
         System.out.println(results);
     }
+
+    @Test
+    public void testStreamedAdHocRead() throws IOException
+    {
+        long txnId = 1234l;
+        long initiatorHSId = 100;
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.setProcName("@AdHoc_RO_MP");
+        invocation.setStreamResults(true);
+        Iv2InitiateTaskMessage taskmsg =
+                new Iv2InitiateTaskMessage(
+                        initiatorHSId,
+                        -1,
+                        (txnId -1),
+                        txnId,
+                        System.currentTimeMillis(),
+                        true,
+                        false,
+                        invocation,
+                        77,
+                        88,
+                        false);
+        int hsids = 3;
+        buddyHSId = 0;
+        long[] non_local = configureHSIds(hsids);
+
+        MpTestPlan plan = createTestPlan(1, true, false, false, non_local);
+        // the coordinator fragment of an ad hoc query which only passes the partition results through
+        FragmentTaskMessage localWork = new FragmentTaskMessage(Long.MIN_VALUE, Long.MIN_VALUE,
+                Long.MIN_VALUE, 1234l, true, false, false);
+        String passThrough = "{\"PLAN_NODES\":[{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]}," +
+                "{\"ID\":2,\"PLAN_NODE_TYPE\":\"RECEIVE\"}]}";
+        localWork.addCustomFragment(VoltSystemProcedure.fragIdToHash(0L), plan.depsToResume.get(0),
+                createDummyParameterSet(), passThrough.getBytes("UTF-8"), "select * from t;");
+        localWork.addInputDepId(0, 1000);
+
+        Mailbox mailbox = mock(Mailbox.class);
+        SiteProcedureConnection siteConnection = mock(SiteProcedureConnection.class);
+
+        MpTransactionState dut =
+                new MpTransactionState(mailbox, taskmsg, allHsids, partMasters, buddyHSId, false);
+
+        dut.setupProcedureResume(true, plan.depsToResume);
+        dut.createLocalFragmentWork(localWork, false);
+        dut.createAllParticipatingFragmentWork(plan.remoteWork);
+        verify(mailbox).send(eq(non_local), (VoltMessage)any());
+
+        for (FragmentResponseMessage msg : plan.generatedResponses) {
+            dut.offerReceivedFragmentResponse(msg);
+        }
+        dut.recursableRun(siteConnection);
+
+        // every partition result goes to the client interface, not to the coordinator fragment
+        ArgumentCaptor<VoltMessage> chunkCaptor = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(mailbox, times(hsids)).send(eq(initiatorHSId), chunkCaptor.capture());
+        for (VoltMessage msg : chunkCaptor.getAllValues()) {
+            ResultChunkMessage chunk = (ResultChunkMessage) msg;
+            assertEquals(77, chunk.getClientInterfaceHandle());
+            assertEquals(88, chunk.getClientConnectionId());
+        }
+        ArgumentCaptor<BorrowTaskMessage> borrowCaptor = ArgumentCaptor.forClass(BorrowTaskMessage.class);
+        verify(mailbox).send(eq(buddyHSId), borrowCaptor.capture());
+        for (List<VoltTable> tables : borrowCaptor.getValue().getInputDepMap().values()) {
+            assertTrue(tables.isEmpty());
+        }
+
+        // the client has seen part of the results, the transaction must not run again
+        dut.restart();
+        dut.setupProcedureResume(true, plan.depsToResume);
+        dut.createLocalFragmentWork(localWork, false);
+        try {
+            dut.recursableRun(siteConnection);
+            fail();
+        }
+        catch (TransactionTerminationException expected) {
+        }
+    }
 }
@@ -26,6 +26,7 @@ package org.voltdb.largequery;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.endsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -37,14 +38,27 @@ import java.nio.ByteBuffer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
 import org.voltdb.utils.VoltFile;
 
+import com.google_voltpatches.common.util.concurrent.ForwardingListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
 public class TestLargeBlockManagerSuite {
 
     private static Path m_tempDir = null;
@@ -67,7 +81,8 @@ public class TestLargeBlockManagerSuite {
 
     @After
     public void droolCheck() throws IOException {
-        assertTrue(swapDirIsEmpty());
+        // Segment files are kept for reuse until shutdown, but no blocks may be left behind
+        assertEquals(0, LargeBlockManager.getInstance().getStoredBlockCount());
     }
 
     @Test
@@ -86,9 +101,10 @@ public class TestLargeBlockManagerSuite {
         long address = 0xDEADBEEF;
         lbm.storeBlock(new BlockId(siteId, blockId), address, block);
 
-        Path blockPath = lbm.makeBlockPath(new BlockId(siteId, blockId));
-        assertThat(blockPath.toString(), endsWith("large_query_swap/555___333.block"));
-        assertTrue(Files.exists(blockPath));
+        Path segmentPath = lbm.makeSegmentPath(siteId);
+        assertThat(segmentPath.toString(), endsWith("large_query_swap/555.segment"));
+        assertTrue(Files.exists(segmentPath));
+        assertEquals(1, lbm.getStoredBlockCount());
 
         // Load the block back into memory
         ByteBuffer loadedBlock = ByteBuffer.allocateDirect(32);
@@ -101,9 +117,19 @@ public class TestLargeBlockManagerSuite {
             assertEquals(i, loadedBlock.getLong());
         }
 
-        // Release the block
+        // Release the block, its slot in the segment is reused by the next block
+        lbm.storeBlock(new BlockId(siteId, blockId + 1), address + 1, block);
         lbm.releaseBlock(new BlockId(siteId, blockId));
-        assertTrue( ! Files.exists(blockPath));
+        long segmentSize = Files.size(segmentPath);
+        lbm.storeBlock(new BlockId(siteId, blockId + 2), address + 2, block);
+        assertEquals(address + 2, lbm.loadBlock(new BlockId(siteId, blockId + 2), loadedBlock));
+        assertEquals(segmentSize, Files.size(segmentPath));
+        lbm.releaseBlock(new BlockId(siteId, blockId + 1));
+        lbm.releaseBlock(new BlockId(siteId, blockId + 2));
+
+        // The space of the segment is given back once it holds no block
+        assertTrue(Files.exists(segmentPath));
+        assertEquals(0, Files.size(segmentPath));
     }
 
     @Test
@@ -122,14 +148,13 @@ public class TestLargeBlockManagerSuite {
         }
 
         for (long id : ids) {
-            BlockId blockId = new BlockId(id+100, id);
-            Path blockPath = lbm.makeBlockPath(blockId);
-            assertThat(blockPath.toString(), endsWith("large_query_swap/" + (id + 100) + "___" + id + ".block"));
-            assertTrue(Files.exists(blockPath));
+            Path segmentPath = lbm.makeSegmentPath(id + 100);
+            assertThat(segmentPath.toString(), endsWith("large_query_swap/" + (id + 100) + ".segment"));
+            assertTrue(Files.exists(segmentPath));
         }
 
         // create another spurious file, just to show that shutdown will clean it up
-        Path spuriousFile = lbm.makeBlockPath(new BlockId(0, 999));
+        Path spuriousFile = lbm.makeSegmentPath(0);
         Files.createFile(spuriousFile);
 
         LargeBlockManager.shutdown();
@@ -161,9 +186,9 @@ public class TestLargeBlockManagerSuite {
         long address = 0xDEADBEEF;
         lbm.storeBlock(new BlockId(siteId, blockId), address, block);
 
-        Path blockPath = lbm.makeBlockPath(new BlockId(siteId, blockId));
-        assertThat(blockPath.toString(), endsWith("large_query_swap/555___555.block"));
-        assertTrue(Files.exists(blockPath));
+        Path segmentPath = lbm.makeSegmentPath(siteId);
+        assertThat(segmentPath.toString(), endsWith("large_query_swap/555.segment"));
+        assertTrue(Files.exists(segmentPath));
 
         try {
             // Redundantly store a block (should fail)
@@ -200,26 +225,203 @@ public class TestLargeBlockManagerSuite {
     public void testFilenames() {
         LargeBlockManager lbm = LargeBlockManager.getInstance();
 
-        // Any value of long is a valid block ID.  Make sure that the block
-        // manager formats the ID as unsigned because file names starting with
+        // Any value of long is a valid site or block ID.  Make sure that they
+        // are formatted as unsigned because file names starting with
         // a "-" would be weird.
 
-        Path path = lbm.makeBlockPath(new BlockId(0,  0));
-        assertThat(path.toString(), endsWith("large_query_swap/0___0.block"));
+        Path path = lbm.makeSegmentPath(0);
+        assertThat(path.toString(), endsWith("large_query_swap/0.segment"));
 
-        path = lbm.makeBlockPath(new BlockId(100, 1));
-        assertThat(path.toString(), endsWith("large_query_swap/100___1.block"));
+        path = lbm.makeSegmentPath(100);
+        assertThat(path.toString(), endsWith("large_query_swap/100.segment"));
 
-        path = lbm.makeBlockPath(new BlockId(Long.MAX_VALUE, Long.MAX_VALUE));
-        assertThat(path.toString(), endsWith("large_query_swap/" + Long.MAX_VALUE + "___" + Long.MAX_VALUE + ".block"));
+        path = lbm.makeSegmentPath(Long.MAX_VALUE);
+        assertThat(path.toString(), endsWith("large_query_swap/" + Long.MAX_VALUE + ".segment"));
 
-        path = lbm.makeBlockPath(new BlockId(-1, -1));
+        path = lbm.makeSegmentPath(-1);
         BigInteger unsignedMinusOne = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
-        assertThat(path.toString(), endsWith("large_query_swap/" + unsignedMinusOne.toString() + "___" + unsignedMinusOne.toString() + ".block"));
+        assertThat(path.toString(), endsWith("large_query_swap/" + unsignedMinusOne.toString() + ".segment"));
 
-        path = lbm.makeBlockPath(new BlockId(Long.MIN_VALUE, Long.MIN_VALUE));
         BigInteger unsignedMinLong = BigInteger.ONE.shiftLeft(63);
-        assertThat(path.toString(), endsWith("large_query_swap/" + unsignedMinLong + "___" + unsignedMinLong + ".block"));
+        assertEquals(unsignedMinLong + "___" + unsignedMinLong + ".block",
+                new BlockId(Long.MIN_VALUE, Long.MIN_VALUE).fileNameString());
+    }
+
+    @Test
+    public void testConcurrentSites() throws Exception {
+        final LargeBlockManager lbm = LargeBlockManager.getInstance();
+        final int blockSize = 64 * 1024;
+        final int blocksPerSite = 20;
+        List<Thread> threads = new ArrayList<>();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (int site = 0; site < 4; site++) {
+            final long siteId = 1000 + site;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        spillAndScan(lbm, siteId, blockSize, blocksPerSite);
+                    }
+                    catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+
+        LargeBlockStats stats = new LargeBlockStats();
+        Object[][] rows = stats.getStatsRows(false, System.currentTimeMillis());
+        assertTrue(rows.length >= 4);
+        int siteIdIndex = stats.getColumnSchema().indexOf(
+                new ColumnInfo(LargeBlockStats.Constants.SITE_ID, VoltType.BIGINT));
+        int bytesWrittenIndex = stats.getColumnSchema().indexOf(
+                new ColumnInfo(LargeBlockStats.Constants.BYTES_WRITTEN, VoltType.BIGINT));
+        int prefetchHitsIndex = stats.getColumnSchema().indexOf(
+                new ColumnInfo(LargeBlockStats.Constants.PREFETCH_HITS, VoltType.BIGINT));
+        for (Object[] row : rows) {
+            if ((Long) row[siteIdIndex] < 1000) {
+                // Spilled by another test
+                continue;
+            }
+            assertTrue((Long) row[bytesWrittenIndex] > 0);
+            // Scans in storage order are served by the read ahead
+            assertTrue((Long) row[prefetchHitsIndex] > 0);
+        }
+    }
+
+    @Test
+    public void testSynchronousSpill() throws Exception {
+        Path swapPath = m_tempDir.resolve("sync_swap");
+        Files.createDirectory(swapPath);
+        LargeBlockManager lbm = new LargeBlockManager(swapPath, false);
+        lbm.startupInstance();
+        spillAndScan(lbm, 7, 1024, 10);
+        assertTrue(Files.exists(lbm.makeSegmentPath(7)));
+        lbm.shutdownInstance();
+        assertFalse(Files.exists(lbm.makeSegmentPath(7)));
+    }
+
+    @Test
+    public void testFreeSlotsAreMergedAndSplit() throws IOException {
+        Path segmentPath = m_tempDir.resolve("merge.segment");
+        // grow by one byte, so the segment is only as large as the space ever used
+        SiteSpillStore store = new SiteSpillStore(1, segmentPath, 1, 1, null);
+        int slotSize = SiteSpillStore.HEADER_SIZE + 1000;
+        for (int i = 0; i < 3; i++) {
+            store.storeBlock(new BlockId(1, i), i, ByteBuffer.allocateDirect(1000));
+        }
+        assertEquals(3 * slotSize, store.getSegmentBytes());
+
+        // Two released neighbours hold a block larger than either of them
+        store.releaseBlock(new BlockId(1, 0));
+        store.releaseBlock(new BlockId(1, 1));
+        store.storeBlock(new BlockId(1, 3), 3, ByteBuffer.allocateDirect(1800));
+        // and the rest of the merged slot holds a smaller one
+        store.storeBlock(new BlockId(1, 4), 4, ByteBuffer.allocateDirect(2 * slotSize - 1808 - SiteSpillStore.HEADER_SIZE));
+        assertEquals(3 * slotSize, store.getSegmentBytes());
+        assertEquals(3 * slotSize, Files.size(segmentPath));
+
+        for (long i = 2; i < 5; i++) {
+            store.releaseBlock(new BlockId(1, i));
+        }
+        assertEquals(0, store.getSegmentBytes());
+        assertEquals(0, Files.size(segmentPath));
+
+        // An emptied segment grows again from the start
+        store.storeBlock(new BlockId(1, 5), 5, ByteBuffer.allocateDirect(1000));
+        assertEquals(slotSize, store.getSegmentBytes());
+        store.releaseBlock(new BlockId(1, 5));
+        store.close();
+        assertFalse(Files.exists(segmentPath));
+    }
+
+    @Test
+    public void testFailedWriteIsThrown() throws Exception {
+        final AtomicBoolean failWrites = new AtomicBoolean(true);
+        final ListeningExecutorService delegate = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        ListeningExecutorService executor = new ForwardingListeningExecutorService() {
+            @Override
+            protected ListeningExecutorService delegate() {
+                return delegate;
+            }
+
+            @Override
+            public <T> ListenableFuture<T> submit(final Callable<T> task) {
+                if (!failWrites.get()) {
+                    return delegate.submit(task);
+                }
+                return delegate.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        throw new IOException("No space left on device");
+                    }
+                });
+            }
+        };
+
+        try {
+            Path segmentPath = m_tempDir.resolve("failing.segment");
+            SiteSpillStore store = new SiteSpillStore(2, segmentPath, 1024, 1, executor);
+            ByteBuffer block = ByteBuffer.allocateDirect(64);
+            block.putLong(0, 42);
+            store.storeBlock(new BlockId(2, 0), 0, block);
+
+            // The next store waits for the failed write and reports it instead of
+            // keeping more blocks in memory
+            failWrites.set(false);
+            try {
+                store.storeBlock(new BlockId(2, 1), 1, block);
+                fail("expected the failed write to be thrown");
+            }
+            catch (IOException e) {
+                assertThat(e.getCause().getMessage(), containsString("No space left on device"));
+            }
+            assertEquals(1, store.getBlockCount());
+
+            // The block whose write failed is still served from memory, and the failure
+            // was reported once
+            ByteBuffer loaded = ByteBuffer.allocateDirect(64);
+            assertEquals(0, store.loadBlock(new BlockId(2, 0), loaded));
+            assertEquals(42, loaded.getLong(0));
+            store.storeBlock(new BlockId(2, 1), 1, block);
+            store.releaseBlock(new BlockId(2, 0));
+            store.releaseBlock(new BlockId(2, 1));
+            store.close();
+        }
+        finally {
+            delegate.shutdownNow();
+        }
+    }
+
+    // Store a run of blocks, scan them in order twice, then release them
+    private static void spillAndScan(LargeBlockManager lbm, long siteId, int blockSize, int blockCount)
+            throws IOException {
+        ByteBuffer block = ByteBuffer.allocateDirect(blockSize);
+        for (int i = 0; i < blockCount; i++) {
+            block.clear();
+            while (block.hasRemaining()) {
+                block.putLong(siteId * 1000 + i);
+            }
+            lbm.storeBlock(new BlockId(siteId, i), i, block);
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < blockCount; i++) {
+                block.clear();
+                assertEquals(i, lbm.loadBlock(new BlockId(siteId, i), block));
+                assertEquals(siteId * 1000 + i, block.getLong(0));
+                assertEquals(siteId * 1000 + i, block.getLong(blockSize - 8));
+            }
+        }
+        for (int i = 0; i < blockCount; i++) {
+            lbm.releaseBlock(new BlockId(siteId, i));
+        }
     }
 
     private boolean swapDirIsEmpty() throws IOException {
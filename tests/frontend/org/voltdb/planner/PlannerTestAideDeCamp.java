@@ -93,23 +93,32 @@ public class PlannerTestAideDeCamp {
      * @param detMode
      */
     CompiledPlan compileAdHocPlan(String sql, DeterminismMode detMode) {
-        compile(sql, 0, null, true, false, detMode);
+        compile(sql, 0, null, true, false, detMode, false);
         return m_currentPlan;
     }
 
     CompiledPlan compileAdHocPlan(String sql, boolean inferPartitioning, boolean singlePartition, DeterminismMode detMode) {
-        compile(sql, 0, null, inferPartitioning, singlePartition, detMode);
+        compile(sql, 0, null, inferPartitioning, singlePartition, detMode, false);
+        return m_currentPlan;
+    }
+
+    /**
+     * Plan the statement as a large query, which may spill its temp tables to disk.
+     */
+    CompiledPlan compileAdHocLargeQueryPlan(String sql) {
+        compile(sql, 0, null, true, false, DeterminismMode.SAFER, true);
         return m_currentPlan;
     }
 
     List<AbstractPlanNode> compile(String sql, int paramCount, boolean inferPartitioning, boolean singlePartition, String joinOrder) {
-        return compile(sql, paramCount, joinOrder, inferPartitioning, singlePartition, DeterminismMode.SAFER);
+        return compile(sql, paramCount, joinOrder, inferPartitioning, singlePartition, DeterminismMode.SAFER, false);
     }
 
     /**
      * Compile and cache the statement and plan and return the final plan graph.
      */
-    private List<AbstractPlanNode> compile(String sql, int paramCount, String joinOrder, boolean inferPartitioning, boolean forceSingle, DeterminismMode detMode)
+    private List<AbstractPlanNode> compile(String sql, int paramCount, String joinOrder, boolean inferPartitioning, boolean forceSingle,
+            DeterminismMode detMode, boolean isLargeQuery)
     {
         String stmtLabel = "stmt-" + String.valueOf(compileCounter++);
 
@@ -153,7 +162,7 @@ public class PlannerTestAideDeCamp {
         // This is required until we figure out how to do parallel planning.
         try (QueryPlanner planner = new QueryPlanner(sql, stmtLabel, procName, db,
                 partitioning, hsql, estimates, false,
-                costModel, null, joinOrder, detMode, false)) {
+                costModel, null, joinOrder, detMode, isLargeQuery)) {
 
             planner.parse();
             plan = planner.plan();
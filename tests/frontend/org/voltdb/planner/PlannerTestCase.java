@@ -39,7 +39,7 @@ import org.voltdb.compiler.DeterminismMode;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.types.ExpressionType;
@@ -111,6 +111,19 @@ public class PlannerTestCase extends TestCase {
         return cp;
     }
 
+    protected CompiledPlan compileAdHocLargeQueryPlan(String sql) {
+        CompiledPlan cp = null;
+        try {
+            cp = m_aide.compileAdHocLargeQueryPlan(sql);
+            assertTrue(cp != null);
+        }
+        catch (Exception ex) {
+            ex.printStackTrace();
+            fail(ex.getMessage());
+        }
+        return cp;
+    }
+
     /**
      * Fetch compiled planned based on provided partitioning information.
      * @param sql: SQL statement
@@ -529,26 +542,26 @@ public class PlannerTestCase extends TestCase {
     }
 
     /**
-     * Assert that a two-fragment plan's coordinator fragment does a left join
+     * Assert that a two-fragment plan's coordinator fragment does a left hash join
      * with a specific replicated table on its outer side.
      **/
     protected static void assertReplicatedLeftJoinCoordinator(
             List<AbstractPlanNode> lpn, String replicatedTable) {
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        HashJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         pn = lpn.get(0);
         assertTopDownTree(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.RECEIVE);
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (HashJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertEquals(2, nlj.getChildCount());
         seqScan = (SeqScanPlanNode) nlj.getChild(0);
@@ -26,9 +26,10 @@ package org.voltdb.planner;
 import java.util.HashSet;
 import java.util.List;
 
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
@@ -45,7 +46,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii + 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii)));
                 n = node.getChild(0);
             }
@@ -61,7 +62,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii - 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii)));
                 n = node.getChild(0);
             }
@@ -230,11 +231,11 @@ public class TestJoinOrder extends PlannerTestCase {
     public void testFullJoinOrder() {
         AbstractPlanNode pn = compileSPWithJoinOrder("select * FROM T1 JOIN T2 ON T1.A = T2.B FULL JOIN T3 ON T1.A = T3.C", "T1, T2, T3");
         AbstractPlanNode n = pn.getChild(0);
-        assertEquals(PlanNodeType.NESTLOOP, n.getPlanNodeType());
-        assertEquals(JoinType.FULL, ((NestLoopPlanNode) n).getJoinType());
+        assertEquals(PlanNodeType.HASHJOIN, n.getPlanNodeType());
+        assertEquals(JoinType.FULL, ((HashJoinPlanNode) n).getJoinType());
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T3"));
         n = n.getChild(0);
-        assertEquals(PlanNodeType.NESTLOOP, n.getPlanNodeType());
+        assertEquals(PlanNodeType.HASHJOIN, n.getPlanNodeType());
         assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().equals("T1"));
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T2"));
 
@@ -273,14 +274,15 @@ public class TestJoinOrder extends PlannerTestCase {
         AbstractPlanNode n = pn.getChild(0).getChild(0);
         String joinOrder[] = {"T2", "T1", "T3", "T4", "T5", "T7", "T6"};
         for (int i = 6; i > 0; i--) {
-            assertTrue(n instanceof NestLoopPlanNode);
+            // Only the outer joins to T4 and T5 have an equality to hash on
+            assertEquals(i == 3 || i == 4 ? PlanNodeType.HASHJOIN : PlanNodeType.NESTLOOP, n.getPlanNodeType());
             assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
             SeqScanPlanNode s = (SeqScanPlanNode) n.getChild(1);
             if (i == 1) {
                 assertTrue(n.getChild(0) instanceof SeqScanPlanNode);
                 assertTrue(joinOrder[i-1].equals(((SeqScanPlanNode) n.getChild(0)).getTargetTableName()));
             } else {
-                assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+                assertTrue(n.getChild(0) instanceof AbstractJoinPlanNode);
                 n = n.getChild(0);
             }
             assertTrue(joinOrder[i].equals(s.getTargetTableName()));
@@ -347,7 +349,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii - 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 if (mySets.contains(Integer.valueOf(ii))) {
                     assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().endsWith(Integer.toString(ii)));
                     n = node.getChild(1);
@@ -706,6 +706,65 @@ public class TestPlansGroupBy extends PlannerTestCase {
         // ENG-6485
     }
 
+    private void checkTopNExtremeAggregate(String sql, boolean pushedDown) {
+        List<AbstractPlanNode> pns = compileToFragments(sql);
+        assertEquals(2, pns.size());
+
+        // The coordinator always aggregates the partial groups again before the top N
+        AbstractPlanNode p = pns.get(0).getChild(0);
+        if (p instanceof ProjectionPlanNode) {
+            p = p.getChild(0);
+        }
+        assertEquals(PlanNodeType.ORDERBY, p.getPlanNodeType());
+        assertNotNull(p.getInlinePlanNode(PlanNodeType.LIMIT));
+        p = p.getChild(0);
+        if (p instanceof ProjectionPlanNode) {
+            p = p.getChild(0);
+        }
+        assertEquals(PlanNodeType.HASHAGGREGATE, p.getPlanNodeType());
+        assertEquals(PlanNodeType.RECEIVE, p.getChild(0).getPlanNodeType());
+
+        p = pns.get(1).getChild(0);
+        if (pushedDown) {
+            assertEquals(PlanNodeType.ORDERBY, p.getPlanNodeType());
+            assertNotNull(p.getInlinePlanNode(PlanNodeType.LIMIT));
+            p = p.getChild(0);
+        }
+        assertTrue(p instanceof AbstractScanPlanNode);
+        assertNotNull(p.getInlinePlanNode(PlanNodeType.HASHAGGREGATE));
+    }
+
+    // GROUP BY a non partition column with the top N ordered by an aggregate
+    public void testTopNOrderByExtremeAggregate() {
+        // The local top N of MAX descending or MIN ascending holds every group of the global top N
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", true);
+        checkTopNExtremeAggregate("SELECT A1, MIN(B1) AS M FROM P1 GROUP BY A1 ORDER BY M LIMIT 10", true);
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) FROM P1 GROUP BY A1 ORDER BY MAX(B1) DESC, A1 LIMIT 10", true);
+        checkTopNExtremeAggregate("SELECT A1, C1, MIN(B1) FROM P1 GROUP BY A1, C1 ORDER BY 3, 2 LIMIT 10 OFFSET 5", true);
+
+        //
+        // negative tests
+        //
+        // Other aggregates of a group are spread over the partitions
+        checkTopNExtremeAggregate("SELECT A1, SUM(B1) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, COUNT(*) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, COUNT(B1) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, SUM(B1) FROM P1 GROUP BY A1 ORDER BY 2 LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1), SUM(C1) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        // Wrong direction for the aggregate
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) FROM P1 GROUP BY A1 ORDER BY 2 LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, MIN(B1) FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        // An expression of the aggregate, or a HAVING on the merged groups
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) + 1 FROM P1 GROUP BY A1 ORDER BY 2 DESC LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) FROM P1 GROUP BY A1 HAVING MAX(B1) < 5 ORDER BY 2 DESC LIMIT 10", false);
+        // NULL sorts first, so a partition whose only values of a group are NULL would
+        // keep that group ahead of the real top N
+        checkTopNExtremeAggregate("SELECT A1, MIN(B1) FROM PN GROUP BY A1 ORDER BY 2 LIMIT 10", false);
+        checkTopNExtremeAggregate("SELECT A1, MIN(B1) AS M FROM PN GROUP BY A1 ORDER BY M, A1 LIMIT 1", false);
+        // but sorts last in descending order, where it can only understate a group
+        checkTopNExtremeAggregate("SELECT A1, MAX(B1) FROM PN GROUP BY A1 ORDER BY 2 DESC LIMIT 10", true);
+    }
+
     public void testEdgeComplexRelatedCases() {
         List<AbstractPlanNode> pns;
 
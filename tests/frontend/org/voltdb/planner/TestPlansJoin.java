@@ -28,12 +28,13 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.SchemaColumn;
@@ -76,13 +77,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         followAssertedLeftChain(pn,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertEquals(4, pn.getOutputSchema().size());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -107,7 +108,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R1.C, D FROM R1 JOIN R2 ON R1.C" +
@@ -115,21 +116,21 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 3,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R2.C, R1.D FROM R1 JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -139,7 +140,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -189,8 +190,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C JOIN R3 ON R3.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -200,8 +201,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -209,8 +210,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 INNER JOIN R2 USING (C) INNER JOIN R3 USING(C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -219,14 +220,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3_NOC.A";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null, // weakened. soon, replace with: NESTLOOPINDEX, SEQSCAN?
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         if (joinOp == JoinOp.EQUAL) { // weaken test for now
-            node = followAssertedLeftChain(node, PlanNodeType.NESTLOOP,
+            node = followAssertedLeftChain(node, PlanNodeType.HASHJOIN,
                     PlanNodeType.NESTLOOPINDEX,
                     PlanNodeType.SEQSCAN);
         }
@@ -258,7 +259,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
         boolean theOpIsOnTheLeft;
@@ -266,11 +267,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -286,12 +287,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -313,12 +314,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -338,12 +339,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -366,14 +367,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R3.C AND R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -385,7 +386,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -406,12 +407,12 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -434,13 +435,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -453,13 +454,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C) WHERE A > 0";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -481,14 +482,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A JOIN R3 ON R1.C" +
                 joinOp + "R3.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -500,7 +501,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -523,7 +524,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         SchemaColumn sc0;
@@ -531,7 +532,7 @@ public class TestPlansJoin extends PlannerTestCase {
 
         query = "SELECT max(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -541,12 +542,12 @@ public class TestPlansJoin extends PlannerTestCase {
             assertNotSame(-1, tve.getColumnIndex());
         }
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertNotNull(AggregatePlanNode.getInlineAggregationNode(node));
 
         query = "SELECT distinct(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -560,7 +561,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -578,12 +579,12 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -604,8 +605,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM P1 LABEL LEFT JOIN R2 USING(A) WHERE A > 0";
         lpn = compileToFragments(query);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertTrue(JoinType.LEFT == nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -630,12 +631,12 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -664,7 +665,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -678,7 +679,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -712,7 +713,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -732,11 +733,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.A" +
                 joinOp + "R2.A AND R2.C = 1 ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -748,11 +749,11 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -779,7 +780,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -811,7 +812,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -850,7 +851,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String pattern;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1, R2";
@@ -859,7 +860,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getJoinPredicate());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -876,17 +877,17 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1 JOIN R2 ON ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -897,11 +898,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -954,7 +955,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1045,14 +1046,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R3.C > 0 AND R2.C >= 5";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1154,7 +1155,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1163,13 +1164,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R2 JOIN R1 USING(A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 ExpressionType.COMPARE_EQUAL,
@@ -1224,7 +1225,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1234,13 +1235,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 joinOp.toOperator(),
@@ -1347,7 +1348,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1355,12 +1356,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1377,12 +1378,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A = 5";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -1411,7 +1412,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1421,13 +1422,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1464,7 +1465,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
@@ -1473,12 +1474,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1497,12 +1498,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A > 0 AND R2.A < 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_GREATERTHAN,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -1525,12 +1526,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND (R1.A > 0 OR R2.A < 0)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         boolean theOrIsOnTheLeft = (predicate != null) &&
@@ -1572,12 +1573,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0 AND R2.A IS NULL AND (R1.C > R2.C OR R2.C IS NULL)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1608,12 +1609,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.A WHERE R3.A > 3 AND R3.C < 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.INDEXSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1634,12 +1635,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.C WHERE R3.A > 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.INNER, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1690,7 +1691,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-        PlanNodeType.NESTLOOP,
+        PlanNodeType.HASHJOIN,
         PlanNodeType.SEQSCAN,
         PlanNodeType.SEQSCAN);
 
@@ -1710,7 +1711,7 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments(query);
         assertEquals(2, lpn.size());
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1734,7 +1735,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1742,12 +1743,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1766,13 +1767,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1823,7 +1824,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
@@ -1866,12 +1867,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.A AND R3.A > 0 AND R3.C != 0 AND R2.A < 6";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_LESSTHAN,
@@ -1949,7 +1950,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1970,7 +1971,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1996,7 +1997,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2019,8 +2020,8 @@ public class TestPlansJoin extends PlannerTestCase {
         assertReplicatedLeftJoinCoordinator(lpn, "R3");
         pn = lpn.get(0);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -2108,7 +2109,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2119,38 +2120,38 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R2.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
@@ -2158,14 +2159,14 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
@@ -2185,13 +2186,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
@@ -2199,14 +2200,14 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP,
+                    PlanNodeType.HASHJOIN,
                     PlanNodeType.SEQSCAN,
                     PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2214,27 +2215,27 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2249,42 +2250,42 @@ public class TestPlansJoin extends PlannerTestCase {
                  true,
                  PlanNodeType.SEND,
                  PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 AND R1.C > 3";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         // Test with seqscan with different filers.
@@ -2293,15 +2294,15 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 4,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         //* enable for debug */ System.out.println(pn.toExplainPlanString());
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2313,13 +2314,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R2.A IS NULL";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2435,11 +2436,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2456,11 +2457,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2497,14 +2498,14 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
         query = "SELECT lr.a a, rr.a FROM r1 lr JOIN r1 rr using (a) ORDER BY a;";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -2517,8 +2518,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 " INNER JOIN R3 USING(C);";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2536,7 +2537,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2545,7 +2546,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2554,7 +2555,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2713,7 +2714,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3.A";
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null,
                 PlanNodeType.SEQSCAN);
 
@@ -2727,7 +2728,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         OrderByPlanNode orderBy;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AggregatePlanNode aggr;
         NodeSchema selectColumns;
         SchemaColumn col;
@@ -2739,7 +2740,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 "WHERE C > 0 GROUP BY C ORDER BY C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -2750,7 +2751,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(ExpressionType.VALUE_TUPLE, s.get(0).getExpressionType());
 
         // WHERE
-        nlj = (NestLoopPlanNode) orderBy.getChild(0);
+        nlj = (AbstractJoinPlanNode) orderBy.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -2779,8 +2780,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 FULL JOIN R2 USING (C) FULL JOIN R3 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2794,8 +2795,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 JOIN R2 USING (C) JOIN R3 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2810,7 +2811,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 LEFT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2824,7 +2825,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 RIGHT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2845,12 +2846,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 JOIN R1 USING (C) WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
@@ -2859,12 +2860,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2873,12 +2874,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R1.A < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2887,12 +2888,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A = 0 AND R1.D < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
@@ -3076,6 +3077,80 @@ public class TestPlansJoin extends PlannerTestCase {
         }
     }
 
+    /**
+     * Find the hash join of a plan, and check the join keys it hashes on
+     *
+     * @param expectedKeys The columns of the outer and the inner key of each pair
+     */
+    private void assertHashJoinKeys(AbstractPlanNode pn, boolean compareNotDistinct, String... expectedKeys) {
+        List<AbstractPlanNode> hashJoins = pn.findAllNodesOfType(PlanNodeType.HASHJOIN);
+        assertEquals(1, hashJoins.size());
+        HashJoinPlanNode hjNode = (HashJoinPlanNode) hashJoins.get(0);
+        assertEquals(expectedKeys.length / 2, hjNode.getOuterHashExpressions().size());
+        for (int ii = 0; ii < expectedKeys.length / 2; ii++) {
+            AbstractExpression outerKey = hjNode.getOuterHashExpressions().get(ii);
+            AbstractExpression innerKey = hjNode.getInnerHashExpressions().get(ii);
+            assertEquals(ExpressionType.VALUE_TUPLE, outerKey.getExpressionType());
+            assertEquals(ExpressionType.VALUE_TUPLE, innerKey.getExpressionType());
+            assertEquals(expectedKeys[2 * ii], ((TupleValueExpression) outerKey).getColumnName());
+            assertEquals(expectedKeys[2 * ii + 1], ((TupleValueExpression) innerKey).getColumnName());
+            assertEquals(compareNotDistinct, hjNode.getCompareNotDistinctFlags().get(ii).booleanValue());
+        }
+    }
+
+    public void testHashJoinKeys() {
+        AbstractPlanNode pn;
+
+        for (JoinOp joinOp : JoinOp.JOIN_OPS) {
+            boolean notDistinct = joinOp == JoinOp.NOT_DISTINCT;
+
+            // Keys of the same type are hashed, null keys only match with IS NOT DISTINCT FROM
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A" + joinOp + "HJ2.A");
+            assertHashJoinKeys(pn, notDistinct, "A", "A");
+            pn = compile("SELECT * FROM HJ1 LEFT JOIN HJ2 ON HJ2.V" + joinOp + "HJ1.V AND HJ1.B" + joinOp + "HJ2.B");
+            assertHashJoinKeys(pn, notDistinct, "V", "V", "B", "B");
+            pn = compile("SELECT * FROM HJ1 FULL JOIN HJ2 ON HJ1.A" + joinOp + "HJ2.A");
+            assertHashJoinKeys(pn, notDistinct, "A", "A");
+
+            // 0.0 and -0.0 are equal but may hash differently
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.F" + joinOp + "HJ2.F");
+            assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+            assertTrue(pn.hasAnyNodeOfType(PlanNodeType.NESTLOOP));
+
+            // Equal values of different types may hash differently
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A" + joinOp + "HJ2.B");
+            assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+            assertTrue(pn.hasAnyNodeOfType(PlanNodeType.NESTLOOP));
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A" + joinOp + "HJ2.B AND HJ1.V" + joinOp + "HJ2.V");
+            assertHashJoinKeys(pn, notDistinct, "V", "V");
+
+            // Each key has to depend on one side of the join only
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A + HJ2.A" + joinOp + "5");
+            assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+            pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A" + joinOp + "HJ2.A AND HJ1.B + HJ2.B" + joinOp + "5");
+            assertHashJoinKeys(pn, notDistinct, "A", "A");
+        }
+
+        // Inequalities can't key a hash join
+        pn = compile("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A < HJ2.A");
+        assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+
+        // A key with a subquery is left to the join predicate
+        pn = compile("SELECT * FROM HJ1, HJ2 WHERE HJ1.A = HJ2.A AND " +
+                "HJ1.B = (SELECT MAX(R1.C) FROM R1 WHERE R1.A = HJ2.A)");
+        assertHashJoinKeys(pn, false, "A", "A");
+
+        // An index on the inner key still drives a nested loop index join
+        pn = compile("SELECT * FROM HJ1 JOIN R3 ON HJ1.A = R3.A");
+        assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+        assertTrue(pn.hasAnyNodeOfType(PlanNodeType.NESTLOOPINDEX));
+
+        // The inner rows of a large query may be evicted from memory
+        CompiledPlan plan = compileAdHocLargeQueryPlan("SELECT * FROM HJ1 JOIN HJ2 ON HJ1.A = HJ2.A");
+        assertFalse(plan.rootPlanGraph.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+        assertTrue(plan.rootPlanGraph.hasAnyNodeOfType(PlanNodeType.NESTLOOP));
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(TestJoinOrder.class.getResource("testplans-join-ddl.sql"),
@@ -41,6 +41,7 @@ import org.voltdb.planner.parseinfo.StmtTableScan;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MergeReceivePlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
@@ -362,7 +363,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         checkSubquerySimplification(sql, equivalentSql);
     }
 
-    private void checkReplicatedOne(String sql) {
+    private void checkReplicatedOne(String sql, PlanNodeType joinType) {
         AbstractPlanNode pn;
         List<AbstractPlanNode> planNodes;
         AbstractPlanNode nlpn;
@@ -374,10 +375,10 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertEquals(joinType, nlpn.getPlanNodeType());
     }
 
-    private void checkReplicatedTwo(String sql, int nljCount, int nlijCount) {
+    private void checkReplicatedTwo(String sql, int scanJoinCount, int nlijCount) {
         AbstractPlanNode pn;
         List<AbstractPlanNode> planNodes;
         planNodes = compileToFragments(sql);
@@ -392,7 +393,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
-        checkJoinNode(pn, PlanNodeType.NESTLOOP, nljCount);
+        checkScanJoinNodes(pn, scanJoinCount);
         checkJoinNode(pn, PlanNodeType.NESTLOOPINDEX, nlijCount);
     }
 
@@ -402,19 +403,19 @@ public class TestPlansSubQueries extends PlannerTestCase {
         sql = "select T1.A, P1.C FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
         sqlNoSimplification = "select T1.A, P1.C FROM (SELECT A FROM R1  LIMIT 5) T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
         equivalentSql = "select T1.A, P1.C FROM R1 T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.HASHJOIN);
         checkSubquerySimplification(sql, equivalentSql);
 
         sql = "select T1.A FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
         sqlNoSimplification = "select T1.A FROM (SELECT A FROM R1 LIMIT 5) T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
         equivalentSql = "select T1.A FROM R1 T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.NESTLOOP);
         checkSubquerySimplification(sql, equivalentSql);
 
         sql = "select T1.A FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
         sqlNoSimplification = "select T1.A FROM (SELECT A FROM R1 LIMIT 5) T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
         equivalentSql = "select T1.A FROM R1 T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.NESTLOOP);
         checkSubquerySimplification(sql, equivalentSql);
 
         // Uncomment next test cases when ENG-6371 is fixed
@@ -736,7 +737,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(1);
         checkSeqScan(pn, "R1");
         pn = nlpn.getChild(0);
@@ -1414,15 +1415,24 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
     }
 
-    private void checkPushedDownJoins(int nestLoopCount, int nestLoopIndexCount, String joinQuery) {
+    // Counts the nested loop and hash joins, which both join scans of their children
+    private void checkScanJoinNodes(AbstractPlanNode root, int num) {
+        List<AbstractPlanNode> nodes = root.findAllNodesOfType(PlanNodeType.NESTLOOP);
+        nodes.addAll(root.findAllNodesOfType(PlanNodeType.HASHJOIN));
+        if (num > 0) {
+            assertEquals(num, nodes.size());
+        }
+    }
+
+    private void checkPushedDownJoins(int scanJoinCount, int nestLoopIndexCount, String joinQuery) {
         List<AbstractPlanNode> planNodes = compileToFragments(joinQuery);
         assertEquals(2, planNodes.size());
         //* enable to debug */ System.out.println(planNodes.get(0).toExplainPlanString());
-        checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOP, 0);
+        checkScanJoinNodes(planNodes.get(0), 0);
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOPINDEX, 0);
         // Join on distributed node
         //* enable to debug */ System.out.println(planNodes.get(1).toExplainPlanString());
-        checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOP, nestLoopCount);
+        checkScanJoinNodes(planNodes.get(1), scanJoinCount);
         checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOPINDEX, nestLoopIndexCount);
     }
 
@@ -1675,7 +1685,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1).getChild(0);
         // this join can be pushed down.
         //* enable to debug */ System.out.println(pn.toExplainPlanString());
-        assertTrue(pn.toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
         pn = pn.getChild(0);
         // This is a trivial subquery result scan.
         assertTrue(pn instanceof SeqScanPlanNode);
@@ -1747,7 +1757,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         // Distinct without GROUP BY
         String sql1, sql2;
@@ -1778,7 +1788,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         failToCompile(
                 "SELECT * FROM (SELECT DISTINCT A FROM P1 GROUP BY A, C) T1, P2 " +
@@ -1876,7 +1886,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
             nlpn = nlpn.getChild(0);
         }
 
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1900,7 +1910,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         if (nlpn instanceof ProjectionPlanNode) {
             nlpn = nlpn.getChild(0);
         }
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1931,8 +1941,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -1952,8 +1962,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2000,8 +2010,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
 
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P1");
@@ -2076,8 +2086,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2100,8 +2110,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
@@ -2123,7 +2133,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A1");
         pn = nlpn.getChild(1);
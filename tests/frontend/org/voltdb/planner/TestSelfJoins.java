@@ -30,9 +30,9 @@ import org.voltdb.expressions.ConstantValueExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.ProjectionPlanNode;
@@ -51,7 +51,7 @@ public class TestSelfJoins  extends PlannerTestCase {
         if (pn instanceof ProjectionPlanNode) {
             pn = pn.getChild(0);
         }
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().size());
         assertEquals(2, pn.getChildCount());
         AbstractPlanNode c = pn.getChild(0);
@@ -72,7 +72,7 @@ public class TestSelfJoins  extends PlannerTestCase {
         if (pn instanceof ProjectionPlanNode) {
             pn = pn.getChild(0);
         }
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().size());
         assertEquals(2, pn.getChildCount());
         c = pn.getChild(0);
@@ -91,7 +91,7 @@ public class TestSelfJoins  extends PlannerTestCase {
         if (pn instanceof ProjectionPlanNode) {
             pn = pn.getChild(0);
         }
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().size());
 
         pn = compile("select A,B.C  FROM R1 A JOIN R2 B USING(A)");
@@ -107,16 +107,16 @@ public class TestSelfJoins  extends PlannerTestCase {
     }
 
     public void testOuterSelfJoin() {
-        // A.C = B.C Inner-Outer join Expr stays at the NLJ as Join predicate
-        // A.A > 1 Outer Join Expr stays at the the NLJ as pre-join predicate
+        // A.C = B.C Inner-Outer join Expr stays at the hash join as Join predicate
+        // A.A > 1 Outer Join Expr stays at the the hash join as pre-join predicate
         // B.A < 0 Inner Join Expr is pushed down to the inner SeqScan node
         AbstractPlanNode pn = compile("select * FROM R1 A LEFT JOIN R1 B ON A.C = B.C AND A.A > 1 AND B.A < 0");
         pn = pn.getChild(0);
         if (pn instanceof ProjectionPlanNode) {
             pn = pn.getChild(0);
         }
-        assertTrue(pn instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) pn;
+        assertTrue(pn instanceof HashJoinPlanNode);
+        HashJoinPlanNode nl = (HashJoinPlanNode) pn;
         assertNotNull(nl.getPreJoinPredicate());
         AbstractExpression p = nl.getPreJoinPredicate();
         assertEquals(ExpressionType.COMPARE_GREATERTHAN, p.getExpressionType());
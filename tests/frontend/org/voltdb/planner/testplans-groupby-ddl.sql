@@ -65,6 +65,14 @@ CREATE TABLE P2 (
 CREATE INDEX P1_IDX_NUM_TREE ON P2 (NUM); 
 PARTITION TABLE P2 ON COLUMN ID; 
 
+CREATE TABLE PN (
+	PKEY INTEGER NOT NULL,
+	A1 INTEGER NOT NULL,
+	B1 INTEGER,
+	PRIMARY KEY (PKEY)
+);
+PARTITION TABLE PN ON COLUMN PKEY;
+
 
 CREATE TABLE T1 (
 	PKEY INTEGER NOT NULL,
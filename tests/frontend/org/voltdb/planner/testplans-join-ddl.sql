@@ -74,3 +74,17 @@ CREATE TABLE P4 (
 PARTITION TABLE P4 ON COLUMN A;
 
 
+
+CREATE TABLE HJ1 (
+	A INTEGER,
+	B BIGINT,
+	F FLOAT,
+	V VARCHAR(16)
+);
+
+CREATE TABLE HJ2 (
+	A INTEGER,
+	B BIGINT,
+	F FLOAT,
+	V VARCHAR(16)
+);
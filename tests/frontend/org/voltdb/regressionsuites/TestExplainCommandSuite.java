@@ -305,7 +305,7 @@ public class TestExplainCommandSuite extends RegressionSuite {
         "   MATERIALIZE COMMON TABLE \"EMP_PATH\"\n" +
         "   START WITH SEQUENTIAL SCAN of \"EMPLOYEES\"\n",
         // "    filter by (column#2 = 0)\n",
-        "   ITERATE UNTIL EMPTY NEST LOOP INNER JOIN\n",
+        "   ITERATE UNTIL EMPTY HASH INNER JOIN\n",
         // "    filter by (inner-table.column#0 = column#2)\n",
         "    SEQUENTIAL SCAN of \"EMPLOYEES (E)\"\n" +
         "    SEQUENTIAL SCAN of COMMON TABLE \"EMP_PATH (EP)\"\n" +
@@ -320,7 +320,7 @@ public class TestExplainCommandSuite extends RegressionSuite {
         "  FROM EMPLOYEES E JOIN EMP_BASE EB ON E.MANAGER_ID = EB.EMP_ID;\n";
         String[] NRCTEExplaination = new String[] {
         "RETURN RESULTS TO STORED PROCEDURE\n" +
-        " NEST LOOP INNER JOIN\n",
+        " HASH INNER JOIN\n",
         // "  filter by (inner-table.column#0 = column#2)\n",
         "  SEQUENTIAL SCAN of \"EMPLOYEES (E)\"\n" +
         "  SEQUENTIAL SCAN of COMMON TABLE \"EMP_BASE (EB)\"\n" +
@@ -24,6 +24,12 @@
 package org.voltdb.regressionsuites;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 
 import org.voltdb.BackendTarget;
 import org.voltdb.VoltTable;
@@ -1816,6 +1822,111 @@ public class TestJoinsSuite extends RegressionSuite {
         assertContentOfTable(new Object[][] {{null, 2}, {1.0, 1}}, cr.getResults()[0]);
     }
 
+    private static String hashJoinKey(int id, int modulus, int nullEvery, int uniqueEvery) {
+        if (id % nullEvery == 0) {
+            return null;
+        }
+        if (id % uniqueEvery == 0) {
+            return "u" + id;
+        }
+        return "k" + (id % modulus);
+    }
+
+    private static Long hashJoinNumber(int id, int nullEvery) {
+        return id % nullEvery == 0 ? null : Long.valueOf(id % 3);
+    }
+
+    private static boolean hashJoinKeysMatch(Object outer, Object inner, boolean notDistinct) {
+        if (notDistinct) {
+            return Objects.equals(outer, inner);
+        }
+        return outer != null && inner != null && outer.equals(inner);
+    }
+
+    /**
+     * The pairs of ids a nested loop join of the rows would produce, ordered like the queries
+     */
+    private static long[][] expectedHashJoin(Object[][] outer, Object[][] inner, String joinType,
+            boolean notDistinct, boolean onBothKeys) {
+        List<long[]> rows = new ArrayList<>();
+        boolean innerMatched[] = new boolean[inner.length];
+        for (Object[] outerRow : outer) {
+            boolean matched = false;
+            for (int ii = 0; ii < inner.length; ii++) {
+                if (hashJoinKeysMatch(outerRow[1], inner[ii][1], notDistinct) &&
+                        ( ! onBothKeys || hashJoinKeysMatch(outerRow[2], inner[ii][2], notDistinct))) {
+                    rows.add(new long[] {(Integer) outerRow[0], (Integer) inner[ii][0]});
+                    matched = true;
+                    innerMatched[ii] = true;
+                }
+            }
+            if ( ! matched && ! joinType.equals("INNER")) {
+                rows.add(new long[] {(Integer) outerRow[0], NULL_VALUE});
+            }
+        }
+        if (joinType.equals("FULL")) {
+            for (int ii = 0; ii < inner.length; ii++) {
+                if ( ! innerMatched[ii]) {
+                    rows.add(new long[] {NULL_VALUE, (Integer) inner[ii][0]});
+                }
+            }
+        }
+        Collections.sort(rows, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                int cmp = Long.compare(o1[0], o2[0]);
+                return cmp != 0 ? cmp : Long.compare(o1[1], o2[1]);
+            }
+        });
+        return rows.toArray(new long[rows.size()][]);
+    }
+
+    /**
+     * Joins on keys without an index are hashed. Many rows share each key, some keys are
+     * only on one side and some are null.
+     */
+    public void testHashJoins() throws Exception {
+        Client client = getClient();
+        truncateTables(client, "HJ1", "HJ2");
+
+        Object[][] hj1 = new Object[120][];
+        for (int ii = 0; ii < hj1.length; ii++) {
+            hj1[ii] = new Object[] {ii, hashJoinKey(ii, 23, 10, 17), hashJoinNumber(ii, 4)};
+            client.callProcedure("HJ1.INSERT", hj1[ii]);
+        }
+        Object[][] hj2 = new Object[90][];
+        for (int ii = 0; ii < hj2.length; ii++) {
+            hj2[ii] = new Object[] {ii, hashJoinKey(ii, 31, 9, 13), hashJoinNumber(ii, 5)};
+            client.callProcedure("HJ2.INSERT", hj2[ii]);
+        }
+        // Deleted rows must not be hashed
+        client.callProcedure("@AdHoc", "DELETE FROM HJ2 WHERE ID >= 85;");
+        hj2 = Arrays.copyOf(hj2, 85);
+
+        for (String joinType : new String[] {"INNER", "LEFT", "FULL"}) {
+            for (String joinOp : JOIN_OPS) {
+                final boolean notDistinct = !joinOp.equals("=");
+                String query = "SELECT HJ1.ID, HJ2.ID FROM HJ1 " + joinType + " JOIN HJ2 " +
+                        "ON HJ1.K " + joinOp + " HJ2.K ORDER BY 1, 2";
+                if ( ! isHSQL()) {
+                    String explain = client.callProcedure("@Explain", query).getResults()[0].fetchRow(0).getString(0);
+                    assertTrue(explain, explain.contains("HASH " + joinType + " JOIN"));
+                }
+                validateTableOfLongs(client, query, expectedHashJoin(hj1, hj2, joinType, notDistinct, false));
+
+                query = "SELECT HJ1.ID, HJ2.ID FROM HJ1 " + joinType + " JOIN HJ2 " +
+                        "ON HJ1.K " + joinOp + " HJ2.K AND HJ2.N " + joinOp + " HJ1.N ORDER BY 1, 2";
+                validateTableOfLongs(client, query, expectedHashJoin(hj1, hj2, joinType, notDistinct, true));
+
+                // An outer input this small scans the inner rows rather than hash them
+                query = "SELECT HJ1.ID, HJ2.ID FROM (SELECT * FROM HJ1 WHERE ID < 3) HJ1 " + joinType +
+                        " JOIN HJ2 ON HJ1.K " + joinOp + " HJ2.K AND HJ2.N " + joinOp + " HJ1.N ORDER BY 1, 2";
+                validateTableOfLongs(client, query,
+                        expectedHashJoin(Arrays.copyOf(hj1, 3), hj2, joinType, notDistinct, true));
+            }
+        }
+    }
+
     static public junit.framework.Test suite() {
         MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestJoinsSuite.class);
         VoltProjectBuilder project = new VoltProjectBuilder();
@@ -2973,6 +2973,58 @@ public class TestSaveRestoreSysprocSuite extends SaveRestoreBase {
         config.revertCompile();
     }
 
+    public void testRestorePartitionedTableInManyChunks()
+    throws Exception
+    {
+        if (isValgrind()) return; // snapshot doesn't run in valgrind ENG-4034
+
+        System.out.println("Starting testRestorePartitionedTableInManyChunks");
+        // Enough rows for every save file to hold more chunks than the restore keeps in flight
+        int num_partitioned_items_per_chunk = 1200;
+        int num_partitioned_chunks = 25;
+        Client client = getClient();
+
+        loadLargePartitionedTable(client, "PARTITION_TESTER",
+                                  num_partitioned_items_per_chunk,
+                                  num_partitioned_chunks);
+        client.drain();
+        saveTablesWithDefaultOptions(client, TESTNONCE);
+        validateSnapshot(true, TESTNONCE);
+        // Kill and restart all the execution sites.
+        m_config.shutDown();
+
+        // Every chunk has to be split again for the new partitions
+        CatalogChangeSingleProcessServer config =
+            (CatalogChangeSingleProcessServer) m_config;
+        config.recompile(4);
+
+        m_config.startUp();
+
+        client = getClient();
+
+        try
+        {
+            VoltTable[] results = client.callProcedure("@SnapshotRestore", TMPDIR,
+                                                       TESTNONCE).getResults();
+            while (results[0].advanceRow()) {
+                if (results[0].getString("RESULT").equals("FAILURE")) {
+                    fail(results[0].getString("ERR_MSG"));
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+            fail("SnapshotRestore exception: " + ex.getMessage());
+        }
+
+        // The chunks are prepared concurrently but every row has to be loaded once
+        checkTable(client, "PARTITION_TESTER", "PT_ID",
+                   num_partitioned_items_per_chunk * num_partitioned_chunks);
+
+        config.revertCompile();
+    }
+
     public void testChangeDDL()
     throws IOException, InterruptedException, ProcCallException
     {
@@ -48,7 +48,7 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING PLANNER STATS\n\n\n");
         Client client  = getClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[18];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -63,6 +63,10 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         expectedSchema[11] = new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("CACHE1_MISSES", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("CACHE2_MISSES", VoltType.BIGINT);
+        expectedSchema[16] = new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT);
+        expectedSchema[17] = new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -103,6 +107,7 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         long plan_time_max_max = Long.MIN_VALUE;
         long plan_time_avg_tot = 0;
         int failures = 0;
+        long cache1_misses = 0;
         while (stats.advanceRow()) {
             cache1_level += (Integer)stats.get("CACHE1_LEVEL", VoltType.INTEGER);
             cache2_level += (Integer)stats.get("CACHE2_LEVEL", VoltType.INTEGER);
@@ -113,6 +118,7 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
             plan_time_max_max = Math.max(plan_time_max_max, (Long)stats.get("PLAN_TIME_MAX", VoltType.BIGINT));
             plan_time_avg_tot += (Long)stats.get("PLAN_TIME_AVG", VoltType.BIGINT);
             failures += (Integer)stats.get("FAILURES", VoltType.INTEGER);
+            cache1_misses += (Long)stats.get("CACHE1_MISSES", VoltType.BIGINT);
             siteIds.add((Long)stats.get("SITE_ID", VoltType.BIGINT));
         }
 
@@ -141,6 +147,7 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         assertTrue("Failed total PLAN_TIME_MAX < 100,000,000,000, value was: " + plan_time_max_max, plan_time_max_max < 100000000000L);
         assertTrue("Failed total PLAN_TIME_AVG > 0, value was: " + plan_time_avg_tot, plan_time_avg_tot > 0);
         assertTrue("Failed total FAILURES == 0, value was: " + failures, failures == 0);
+        assertTrue("Failed total CACHE1_MISSES >= CACHE_MISSES, value was: " + cache1_misses, cache1_misses >= cache_misses);
     }
 
     //
@@ -71,3 +71,16 @@ CREATE TABLE T1_ENG_13603 (
 CREATE TABLE T2_ENG_13603 (
   ID INTEGER
 );
+
+-- Hash joins, no index on the join keys
+CREATE TABLE HJ1 (
+  ID INTEGER NOT NULL,
+  K VARCHAR(16),
+  N BIGINT
+);
+
+CREATE TABLE HJ2 (
+  ID INTEGER NOT NULL,
+  K VARCHAR(16),
+  N BIGINT
+);
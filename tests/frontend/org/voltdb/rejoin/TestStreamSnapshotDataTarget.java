@@ -25,6 +25,7 @@ package org.voltdb.rejoin;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -121,7 +122,8 @@ public class TestStreamSnapshotDataTarget {
     {
         assertEquals(targetId, msg.getTargetId());
 
-        ByteBuffer data = ByteBuffer.wrap(CompressionService.decompressBytes(msg.getData()));
+        assertTrue(msg.getData().isDirect());
+        ByteBuffer data = ByteBuffer.wrap(CompressionService.decompressBuffer(msg.getData().duplicate()));
         assertEquals(type.ordinal(), data.get(StreamSnapshotBase.typeOffset));
         assertEquals(blockIndex, data.getInt(StreamSnapshotBase.blockIndexOffset));
 
@@ -270,4 +272,26 @@ public class TestStreamSnapshotDataTarget {
 
         closeStream(dut);
     }
+
+    @Test
+    public void testDataMessageSerialization() throws IOException
+    {
+        ByteBuffer compressed = ByteBuffer.allocateDirect(16);
+        compressed.put(new byte[] {1, 2, 3, 4, 5});
+        compressed.flip();
+        RejoinDataMessage msg = new RejoinDataMessage(7, compressed);
+
+        ByteBuffer buf = ByteBuffer.allocate(msg.getSerializedSize());
+        msg.flattenToBuffer(buf);
+        // flattening must not consume the data so it can be sent to other destinations
+        assertEquals(5, compressed.remaining());
+
+        buf.flip();
+        buf.get(); // message type
+        RejoinDataMessage received = new RejoinDataMessage();
+        received.initFromBuffer(buf);
+        assertEquals(7, received.getTargetId());
+        assertEquals(compressed, received.getData());
+        assertEquals(0, buf.remaining());
+    }
 }
@@ -0,0 +1,206 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.DevNullSnapshotTarget;
+import org.voltdb.SnapshotDataTarget;
+import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.utils.VoltFile;
+
+public class TestIncrementalSnapshotTracker {
+    private static final List<Long> SITES = Arrays.asList(1L, 2L);
+    private static long s_catalogCRC = 1000;
+
+    private File m_dir;
+    private long m_catalogCRC;
+
+    @Before
+    public void setUp() throws IOException {
+        m_dir = Files.createTempDirectory("incremental").toFile();
+        // A new catalog forgets what earlier tests saved
+        m_catalogCRC = s_catalogCRC++;
+        SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.clear();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private static void record(long a, long b) {
+        for (long site : SITES) {
+            Map<String, Long> counts = new HashMap<>();
+            counts.put("A", a + site);
+            counts.put("B", b + site);
+            IncrementalSnapshotTracker.recordChangeCounts(site, counts);
+        }
+    }
+
+    private File write(String name, String content) throws IOException {
+        File f = new File(m_dir, name);
+        Files.write(f.toPath(), content.getBytes("UTF-8"));
+        return f;
+    }
+
+    private IncrementalSnapshotTracker.Plan snapshot(String nonce, boolean incremental, long a, long b)
+            throws IOException {
+        record(a, b);
+        IncrementalSnapshotTracker.Plan plan =
+                IncrementalSnapshotTracker.startSnapshot(nonce, m_catalogCRC, SITES, incremental);
+        for (String table : new String[] { "A", "B" }) {
+            File f = new File(m_dir, nonce + "-" + table + ".vpt");
+            if (plan.isInherited(table)) {
+                plan.linkData(table, f);
+            } else {
+                plan.dataWritten(table, write(f.getName(), nonce + table));
+            }
+        }
+        return plan;
+    }
+
+    @Test
+    public void testUnchangedTablesAreLinked() throws IOException {
+        snapshot("s1", true, 10, 20).completed();
+
+        // B changed
+        IncrementalSnapshotTracker.Plan plan = snapshot("s2", true, 10, 21);
+        assertTrue(plan.isInherited("A"));
+        assertFalse(plan.isInherited("B"));
+        assertEquals("s1", plan.getInheritedTables().get("A"));
+        File link = new File(m_dir, "s2-A.vpt" + SnapshotUtil.BASE_DATA_EXTENSION);
+        assertArrayEquals("s1A".getBytes("UTF-8"), Files.readAllBytes(link.toPath()));
+        plan.completed();
+
+        // The link outlives the snapshot which wrote the data
+        assertTrue(new File(m_dir, "s1-A.vpt").delete());
+        plan = snapshot("s3", true, 10, 21);
+        assertTrue(plan.isInherited("A"));
+        assertTrue(plan.isInherited("B"));
+        assertEquals("s1", plan.getInheritedTables().get("A"));
+        assertEquals("s2", plan.getInheritedTables().get("B"));
+    }
+
+    @Test
+    public void testFullSnapshotWritesEverything() throws IOException {
+        snapshot("s1", false, 10, 20).completed();
+        IncrementalSnapshotTracker.Plan plan = snapshot("s2", false, 10, 20);
+        assertFalse(plan.isInherited("A"));
+        assertFalse(plan.isInherited("B"));
+        plan.completed();
+
+        // But it is a base for the next incremental one
+        assertTrue(snapshot("s3", true, 10, 20).isInherited("A"));
+    }
+
+    @Test
+    public void testFailedSnapshotIsNoBase() throws IOException {
+        snapshot("s1", true, 10, 20).completed();
+        snapshot("s2", true, 11, 20);
+        IncrementalSnapshotTracker.Plan plan = snapshot("s3", true, 11, 20);
+        assertFalse(plan.isInherited("A"));
+        assertEquals("s1", plan.getInheritedTables().get("B"));
+    }
+
+    /**
+     * Close the targets of a snapshot the way the last site to finish it does
+     */
+    private static void close(IncrementalSnapshotTracker.Plan plan, List<SnapshotDataTarget> targets)
+            throws Exception {
+        if (plan != null) {
+            SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(plan.completionTask(targets));
+        }
+        SnapshotSiteProcessor.closeTargetsAndRunCompletionTasks(targets);
+    }
+
+    @Test
+    public void testFailedCloseRecordsNoBase() throws Exception {
+        close(snapshot("s1", true, 10, 20), Arrays.<SnapshotDataTarget>asList(new DevNullSnapshotTarget()));
+
+        // A changed, and a target fails to close
+        DevNullSnapshotTarget failing = new DevNullSnapshotTarget();
+        failing.reportSerializationFailure(new IOException("Failed serialization"));
+        try {
+            close(snapshot("s2", true, 11, 20),
+                    Arrays.<SnapshotDataTarget>asList(new DevNullSnapshotTarget(), failing));
+            fail("The close should have failed");
+        } catch (IOException expected) {
+        }
+        assertTrue(SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.isEmpty());
+
+        // The completion of the failed snapshot doesn't run when the next one, of any format, completes
+        close(null, Arrays.<SnapshotDataTarget>asList(new DevNullSnapshotTarget()));
+        IncrementalSnapshotTracker.Plan plan = snapshot("s3", true, 11, 20);
+        assertFalse(plan.isInherited("A"));
+        assertEquals("s1", plan.getInheritedTables().get("B"));
+    }
+
+    @Test
+    public void testFailedWriteRecordsNoBase() throws Exception {
+        close(snapshot("s1", true, 10, 20), Arrays.<SnapshotDataTarget>asList(new DevNullSnapshotTarget()));
+
+        // The target closes, but the data file is marked incomplete
+        close(snapshot("s2", true, 11, 20),
+                Arrays.<SnapshotDataTarget>asList(new DevNullSnapshotTarget(new IOException("Failed write"))));
+        IncrementalSnapshotTracker.Plan plan = snapshot("s3", true, 11, 20);
+        assertFalse(plan.isInherited("A"));
+        assertEquals("s1", plan.getInheritedTables().get("B"));
+    }
+
+    @Test
+    public void testCatalogChangeForgetsTables() throws IOException {
+        snapshot("s1", true, 10, 20).completed();
+        m_catalogCRC = s_catalogCRC++;
+        assertTrue(snapshot("s2", true, 10, 20).getInheritedTables().isEmpty());
+    }
+
+    @Test
+    public void testMissingSiteCountsLinkNothing() throws IOException {
+        snapshot("s1", true, 10, 20).completed();
+
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("A", 11L);
+        counts.put("B", 21L);
+        IncrementalSnapshotTracker.recordChangeCounts(1L, counts);
+        IncrementalSnapshotTracker.Plan plan =
+                IncrementalSnapshotTracker.startSnapshot("s2", m_catalogCRC, SITES, true);
+        assertTrue(plan.getInheritedTables().isEmpty());
+    }
+}
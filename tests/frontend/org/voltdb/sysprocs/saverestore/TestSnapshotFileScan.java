@@ -0,0 +1,182 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.voltcore.TransactionIdManager;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil.TableFiles;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+import junit.framework.TestCase;
+
+/**
+ * The table files of a snapshot are validated in parallel, but have to be reported
+ * as if they had been validated one after the other
+ */
+public class TestSnapshotFileScan extends TestCase {
+    private static int[] VERSION2 = { 0, 0, 0, 2 };
+    private static long TXN_ID = TransactionIdManager.makeIdFromComponents(24, 32, 96);
+    private static String NONCE = "TESTNONCE";
+    private static String TABLE_NAME = "TEST_TABLE";
+    private static int TOTAL_PARTITIONS = 6;
+
+    static {
+        org.voltdb.EELibraryLoader.loadExecutionEngineLibrary(true);
+    }
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("snapshotscan", "");
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private static void writeTableFile(File f, int hostId, List<Integer> partitionIds, int numberOfItems)
+            throws Exception {
+        VoltTable.ColumnInfo columnInfo[] = new VoltTable.ColumnInfo[] {
+                new ColumnInfo("RT_ID", VoltType.INTEGER),
+                new ColumnInfo("RT_NAME", VoltType.STRING) };
+        VoltTable table = new VoltTable(columnInfo, columnInfo.length);
+        DefaultSnapshotDataTarget dsdt = new DefaultSnapshotDataTarget(f,
+                hostId, "TEST_CLUSTER", "TEST_DATABASE", TABLE_NAME,
+                TOTAL_PARTITIONS, false, partitionIds, table,
+                TXN_ID, System.currentTimeMillis(), VERSION2);
+
+        // A chunk of 1000 rows for each partition in turn
+        int chunk = 0;
+        for (int i = 0; i < numberOfItems; i += 1000) {
+            VoltTable chunkTable = new VoltTable(columnInfo, columnInfo.length);
+            for (int j = i; j < Math.min(i + 1000, numberOfItems); j++) {
+                chunkTable.addRow(j, "name_" + j);
+            }
+            int partitionId = partitionIds.get(chunk++ % partitionIds.size());
+
+            FastSerializer fs = new FastSerializer();
+            fs.writeTable(chunkTable);
+            BBContainer c = fs.getBBContainer();
+            ByteBuffer b = c.b();
+            b.getInt();
+            int headerLength = b.getInt();
+            b.position(b.position() + headerLength);// at row count
+            BBContainer container = DBBPool.allocateDirect(b.remaining() + 4);
+            ByteBuffer payload = container.b();
+            payload.putInt(partitionId);
+            payload.put(b);
+            payload.flip();
+            c.discard();
+
+            dsdt.write(Callables.returning(container), -1);
+        }
+        dsdt.close();
+    }
+
+    private TableFiles retrieveTableFiles(boolean validate) {
+        Map<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+        SnapshotUtil.retrieveSnapshotFiles(m_dir, snapshots, new SnapshotUtil.SnapshotFilter(), validate,
+                SnapshotPathType.SNAP_PATH, new VoltLogger("TEST"));
+        Snapshot snapshot = snapshots.get(NONCE);
+        assertNotNull(snapshot);
+        assertEquals(TXN_ID, snapshot.getTxnId());
+        TableFiles tableFiles = snapshot.m_tableFiles.get(TABLE_NAME);
+        assertNotNull(tableFiles);
+        return tableFiles;
+    }
+
+    public void testValidatedFilesKeepTheirOrder() throws Exception {
+        System.out.println("Running testValidatedFilesKeepTheirOrder");
+        // The biggest files come first so that the later ones are validated before them
+        for (int hostId = 0; hostId < 3; hostId++) {
+            File f = new File(m_dir, NONCE + "-" + TABLE_NAME + "-host_" + hostId + ".vpt");
+            writeTableFile(f, hostId, Arrays.asList(hostId * 2, hostId * 2 + 1), (3 - hostId) * 20000);
+        }
+
+        // Corrupt the last chunk of the middle file, which belongs to its second partition
+        RandomAccessFile raf = new RandomAccessFile(new File(m_dir, NONCE + "-" + TABLE_NAME + "-host_1.vpt"), "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            byte last = raf.readByte();
+            raf.seek(raf.length() - 1);
+            raf.writeByte(~last);
+        } finally {
+            raf.close();
+        }
+
+        // The order the files are found in is the order of a scan without validation
+        TableFiles found = retrieveTableFiles(false);
+        TableFiles validated = retrieveTableFiles(true);
+        List<File> expectedFiles = new ArrayList<File>();
+        for (File f : m_dir.listFiles(new SnapshotUtil.SnapshotFilter())) {
+            expectedFiles.add(f);
+        }
+        assertEquals(expectedFiles, found.m_files);
+        assertEquals(expectedFiles, validated.m_files);
+
+        // The results of each file stay with it
+        for (int ii = 0; ii < validated.m_files.size(); ii++) {
+            String name = validated.m_files.get(ii).getName();
+            int hostId = Integer.parseInt(name.substring(name.lastIndexOf('_') + 1, name.indexOf(".vpt")));
+            assertTrue(validated.m_completed.get(ii));
+            assertEquals(TOTAL_PARTITIONS, validated.m_totalPartitionCounts.get(ii).intValue());
+            if (hostId == 1) {
+                assertEquals(Arrays.asList(2), new ArrayList<Integer>(validated.m_validPartitionIds.get(ii)));
+                assertEquals(Arrays.asList(3), new ArrayList<Integer>(validated.m_corruptParititionIds.get(ii)));
+            } else {
+                assertEquals(2, validated.m_validPartitionIds.get(ii).size());
+                assertTrue(validated.m_corruptParititionIds.get(ii).isEmpty());
+            }
+        }
+
+        // Without validation the corrupted chunk is not noticed
+        assertEquals(found.m_files.size(), found.m_validPartitionIds.size());
+        for (int ii = 0; ii < found.m_files.size(); ii++) {
+            assertEquals(2, found.m_validPartitionIds.get(ii).size());
+        }
+    }
+}
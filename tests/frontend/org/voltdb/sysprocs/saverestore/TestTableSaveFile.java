@@ -25,9 +25,14 @@ package org.voltdb.sysprocs.saverestore;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
 import org.junit.After;
 import org.voltcore.TransactionIdManager;
 import org.voltcore.utils.DBBPool;
@@ -40,6 +45,8 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltType;
 import org.voltdb.messaging.FastSerializer;
+import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.CompressionService.Codec;
 
 import com.google_voltpatches.common.util.concurrent.Callables;
 
@@ -276,33 +283,221 @@ public class TestTableSaveFile extends TestCase {
         FileInputStream fis = new FileInputStream(f);
         TableSaveFile savefile = new TableSaveFile(fis, 3, null);
         try {
-            int expectedPartitionId = 0;
-            VoltTable test_table = null;
-            VoltTable reaggregate_table = null;
-            while (savefile.hasMoreChunks()) {
-                final BBContainer c = savefile.getNextChunk();
-                if (c == null) {
-                    break;
-                }
-                TableSaveFile.Container cont = (TableSaveFile.Container)c;
-                assertEquals(expectedPartitionId, cont.partitionId);
-                expectedPartitionId++;
+            assertEquals(table, readChunks(savefile));
+        } finally {
+            savefile.close();
+        }
+    }
+
+    public void testChunkTableWithEveryCodec() throws Exception {
+        System.out.println("Running testChunkTableWithEveryCodec");
+        final Codec defaultCodec = CompressionService.SNAPSHOT_CODEC;
+        try {
+            for (Codec codec : Codec.values()) {
+                CompressionService.SNAPSHOT_CODEC = codec;
+                Pair<VoltTable, File> generated = generateTestTable(10000);
+
+                // The reader takes the codec from the header
+                TableSaveFile savefile = new TableSaveFile(new FileInputStream(generated.getSecond()), 3, null);
                 try {
-                    test_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
-                    if (reaggregate_table == null) {
-                        reaggregate_table = test_table.clone(10000);
-                    }
-                    while (test_table.advanceRow()) {
-                        // this will add the active row from test_table
-                        reaggregate_table.add(test_table);
-                    }
+                    assertEquals(codec, savefile.getCompressionCodec());
+                    assertEquals(generated.getFirst(), readChunks(savefile));
                 } finally {
-                    c.discard();
+                    savefile.close();
                 }
             }
-            assertEquals(table, reaggregate_table);
+        } finally {
+            CompressionService.SNAPSHOT_CODEC = defaultCodec;
+        }
+    }
+
+    public void testBaseDataFile() throws Exception {
+        System.out.println("Running testBaseDataFile");
+        Pair<VoltTable, File> generated = generateTestTable(10000);
+        VoltTable table = generated.getFirst();
+        File data = generated.getSecond();
+
+        // The file of an incremental snapshot only names the data linked next to it
+        final long txnId = TXN_ID + 1;
+        final File stub = File.createTempFile("foo", "bar");
+        stub.deleteOnExit();
+        ArrayList<Integer> partIds = new ArrayList<Integer>();
+        for (int ii = 0; ii < 5; ii++) {
+            partIds.add(ii);
+        }
+        new DefaultSnapshotDataTarget(stub,
+                HOST_ID, CLUSTER_NAME, DATABASE_NAME, TABLE_NAME,
+                TOTAL_PARTITIONS, false, partIds, table.clone(0),
+                txnId, TIMESTAMP, data.getName()).close();
+
+        TableSaveFile savefile = new TableSaveFile(stub, 3, null);
+        try {
+            assertEquals(txnId, savefile.getTxnId());
+            assertTrue(savefile.getCompleted());
+            assertEquals(table, readChunks(savefile));
+        } finally {
+            savefile.close();
+        }
+
+        // It can't be read from a stream
+        FileInputStream fis = new FileInputStream(stub);
+        try {
+            new TableSaveFile(fis, 3, null);
+            fail();
+        } catch (java.io.IOException expected) {
+        } finally {
+            fis.close();
+        }
+
+        // The data has to hold the partitions of the stub
+        partIds.add(5);
+        new DefaultSnapshotDataTarget(stub,
+                HOST_ID, CLUSTER_NAME, DATABASE_NAME, TABLE_NAME,
+                TOTAL_PARTITIONS, false, partIds, table.clone(0),
+                txnId, TIMESTAMP, data.getName()).close();
+        try {
+            new TableSaveFile(stub, 3, null);
+            fail();
+        } catch (java.io.IOException expected) {
+        }
+    }
+
+    public void testParallelDecompression() throws Exception {
+        System.out.println("Running testParallelDecompression");
+        Pair<VoltTable, File> generated = generateTestTable(100000);
+        File f = generated.getSecond();
+
+        TableSaveFile serial = new TableSaveFile(f, 3, null);
+        Map<Integer, VoltTable> expected;
+        try {
+            expected = readChunksByPartition(serial);
+        } finally {
+            serial.close();
+        }
+        assertEquals(100, expected.size());
+
+        // The chunks may arrive in any order but have to hold the same rows
+        TableSaveFile parallel = new TableSaveFile(f, 3, null);
+        try {
+            parallel.enableParallelDecompression();
+            parallel.prefetch();
+            assertEquals(expected, readChunksByPartition(parallel));
+        } finally {
+            parallel.close();
+        }
+    }
+
+    public void testParallelDecompressionOfCorruptChunk() throws Exception {
+        System.out.println("Running testParallelDecompressionOfCorruptChunk");
+        Pair<VoltTable, File> generated = generateTestTable(10000);
+        File f = generated.getSecond();
+        corruptChunkPayload(f, 3);
+
+        TableSaveFile savefile = new TableSaveFile(f, 3, null);
+        try {
+            savefile.enableParallelDecompression();
+            readChunksByPartition(savefile);
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Failed decompression of saved table chunk", expected.getMessage());
+        } finally {
+            savefile.close();
+        }
+
+        // Every partition of the file is corrupted but the other chunks are still read
+        savefile = new TableSaveFile(f, 3, null, true);
+        try {
+            savefile.enableParallelDecompression();
+            Map<Integer, VoltTable> chunks = readChunksByPartition(savefile);
+            assertEquals(9, chunks.size());
+            assertFalse(chunks.containsKey(3));
+            for (int partitionId : savefile.getPartitionIds()) {
+                assertTrue(savefile.getCorruptedPartitionIds().contains(partitionId));
+            }
         } finally {
             savefile.close();
         }
     }
+
+    private static VoltTable readChunks(TableSaveFile savefile) throws Exception {
+        int expectedPartitionId = 0;
+        VoltTable test_table = null;
+        VoltTable reaggregate_table = null;
+        while (savefile.hasMoreChunks()) {
+            final BBContainer c = savefile.getNextChunk();
+            if (c == null) {
+                break;
+            }
+            TableSaveFile.Container cont = (TableSaveFile.Container)c;
+            assertEquals(expectedPartitionId, cont.partitionId);
+            expectedPartitionId++;
+            try {
+                test_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
+                if (reaggregate_table == null) {
+                    reaggregate_table = test_table.clone(10000);
+                }
+                while (test_table.advanceRow()) {
+                    // this will add the active row from test_table
+                    reaggregate_table.add(test_table);
+                }
+            } finally {
+                c.discard();
+            }
+        }
+        return reaggregate_table;
+    }
+
+    private static Map<Integer, VoltTable> readChunksByPartition(TableSaveFile savefile) throws Exception {
+        Map<Integer, VoltTable> chunks = new TreeMap<Integer, VoltTable>();
+        while (savefile.hasMoreChunks()) {
+            final BBContainer c = savefile.getNextChunk();
+            if (c == null) {
+                break;
+            }
+            try {
+                // The buffer goes back to the save file, keep a copy of the rows
+                VoltTable chunk = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
+                VoltTable copy = chunk.clone(0);
+                while (chunk.advanceRow()) {
+                    copy.add(chunk);
+                }
+                assertNull(chunks.put(((TableSaveFile.Container)c).partitionId, copy));
+            } finally {
+                c.discard();
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Overwrite the compressed data of a version 2 chunk and fix up its CRC, so that the chunk
+     * is only found to be corrupted when it is decompressed
+     */
+    private static void corruptChunkPayload(File f, int chunkIndex) throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.seek(4);
+            long position = 8 + raf.readInt();
+            raf.seek(position);
+            position += 4 + raf.readInt();
+            for (int ii = 0; ii < chunkIndex; ii++) {
+                raf.seek(position);
+                position += 16 + raf.readInt();
+            }
+            raf.seek(position);
+            byte payload[] = new byte[raf.readInt()];
+            raf.seek(position + 16);
+            raf.readFully(payload);
+
+            // Keep the length prefix of the codec so only the decompression fails
+            java.util.Arrays.fill(payload, 8, payload.length, (byte)0xFF);
+            PureJavaCrc32C crc = new PureJavaCrc32C();
+            crc.update(payload, 0, payload.length);
+            raf.seek(position + 12);
+            raf.writeInt((int)crc.getValue());
+            raf.write(payload);
+        } finally {
+            raf.close();
+        }
+    }
 }
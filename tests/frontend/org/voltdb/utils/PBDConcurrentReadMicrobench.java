@@ -0,0 +1,139 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+
+/**
+ * One writer offering to a {@link PersistentBinaryDeque} while N cursors drain it.
+ * Run once with and once without -DPBD_CONCURRENT_READS=true to compare the locked
+ * and unlocked read paths.
+ *
+ * Arguments: [cursor counts, e.g. "1 2 4 8"] [entries per run] [entry size in bytes]
+ */
+public class PBDConcurrentReadMicrobench {
+
+    private static final VoltLogger logger = new VoltLogger("EXPORT");
+    private static final File TEST_DIR = new File("/tmp/" + System.getProperty("user.name") + "/pbdbench");
+
+    public static void main(String[] args) throws Exception {
+        int[] cursorCounts = new int[] { 1, 2, 4, 8 };
+        if (args.length >= 1) {
+            String[] counts = args[0].split("\\s+");
+            cursorCounts = new int[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                cursorCounts[i] = Integer.parseInt(counts[i]);
+            }
+        }
+        final int entries = args.length >= 2 ? Integer.parseInt(args[1]) : 20000;
+        final int entrySize = args.length >= 3 ? Integer.parseInt(args[2]) : 32 * 1024;
+
+        System.out.printf("PBD_CONCURRENT_READS=%b, %d entries of %d bytes%n",
+                PersistentBinaryDeque.CONCURRENT_READS, entries, entrySize);
+        for (int cursors : cursorCounts) {
+            run(cursors, entries, entrySize);
+        }
+    }
+
+    private static void run(final int cursors, final int entries, final int entrySize) throws Exception {
+        if (TEST_DIR.exists()) {
+            for (File f : TEST_DIR.listFiles()) {
+                f.delete();
+            }
+        } else {
+            TEST_DIR.mkdirs();
+        }
+        final PersistentBinaryDeque pbd = new PersistentBinaryDeque("bench", TEST_DIR, logger);
+        final List<BinaryDequeReader> readers = new ArrayList<>();
+        for (int i = 0; i < cursors; i++) {
+            readers.add(pbd.openForRead("cursor" + i));
+        }
+
+        final byte[] payload = new byte[entrySize];
+        new Random(0).nextBytes(payload);
+        // Keep the data compressible, like export rows
+        for (int i = 0; i < payload.length; i += 4) {
+            payload[i] = 0;
+        }
+
+        final CyclicBarrier start = new CyclicBarrier(cursors + 1);
+        ExecutorService es = Executors.newFixedThreadPool(cursors + 1);
+        Future<Long> writer = es.submit(() -> {
+            start.await();
+            final long begin = System.nanoTime();
+            for (int i = 0; i < entries; i++) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(entrySize);
+                buf.put(payload);
+                buf.flip();
+                pbd.offer(DBBPool.wrapBB(buf));
+            }
+            return System.nanoTime() - begin;
+        });
+        List<Future<Long>> readerResults = new ArrayList<>();
+        for (final BinaryDequeReader reader : readers) {
+            readerResults.add(es.submit(() -> {
+                start.await();
+                final long begin = System.nanoTime();
+                int read = 0;
+                while (read < entries) {
+                    BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                    if (cont == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    cont.discard();
+                    read++;
+                }
+                return System.nanoTime() - begin;
+            }));
+        }
+
+        final long writerNanos = writer.get();
+        long slowestReaderNanos = 0;
+        for (Future<Long> result : readerResults) {
+            slowestReaderNanos = Math.max(slowestReaderNanos, result.get());
+        }
+        es.shutdown();
+        es.awaitTermination(1, TimeUnit.MINUTES);
+        pbd.closeAndDelete();
+
+        System.out.printf("cursors=%d writer=%.0f offers/s readers=%.0f polls/s (aggregate)%n",
+                cursors,
+                entries / (writerNanos / 1e9),
+                ((double) entries * cursors) / (slowestReaderNanos / 1e9));
+    }
+}
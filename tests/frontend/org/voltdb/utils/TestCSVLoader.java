@@ -43,6 +43,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -290,6 +291,46 @@ public class TestCSVLoader {
         test_Interface(myOptions, myData, invalidLineCnt, validLineCnt );
     }
 
+    @Test
+    public void testGzipInputOnParserThreads() throws Exception
+    {
+        String path_gz = path_csv + ".gz";
+        String []myOptions = {
+                "-f" + path_gz,
+                "--reportdir=" + reportDir,
+                "--maxerrors=50",
+                "--user=",
+                "--password=",
+                "--port=",
+                "--parserthreads=4",
+                "--skip=1",
+                "BlAh"
+        };
+        String currentTime = new TimestampType().toString();
+        try (BufferedWriter out_csv = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(path_gz)), "UTF-8"))) {
+            out_csv.write("skipped\n");
+            for (int i = 0; i < 1000; i++) {
+                out_csv.write(i + "," + (i % 100) + ",1,11111111,\"multi\nline\"," + i + ".10,1.11," + currentTime + ",,\n");
+            }
+            // invalid line
+            out_csv.write("1000, NLL,1,11111111,first,1.10,1.11," + currentTime + ",,\n");
+        }
+
+        CSVLoader.testMode = true;
+        CSVLoader.main(myOptions);
+
+        VoltTable result = client.callProcedure("@AdHoc", "SELECT COUNT(*) FROM BLAH;").getResults()[0];
+        assertEquals(1000, result.asScalarLong());
+        BufferedReader log = new BufferedReader(new FileReader(CSVLoader.pathLogfile));
+        try {
+            // The invalid row is reported with its line number, counting the lines inside quotes
+            assertTrue(log.readLine().startsWith("Invalid input on line 2002."));
+        } finally {
+            log.close();
+        }
+    }
+
     //Test -p option where we use just one processor and one line at a time processing of callProcedure.
     @Test
     public void testProcedureOption() throws Exception {
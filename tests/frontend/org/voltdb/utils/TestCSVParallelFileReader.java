@@ -0,0 +1,222 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.supercsv.io.CsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
+import org.voltdb.utils.CSVParallelFileReader.Chunk;
+import org.voltdb.utils.CSVParallelFileReader.ChunkSplitter;
+
+public class TestCSVParallelFileReader {
+
+    private static final CsvPreference PREFERENCE = new CsvPreference.Builder('"', ',', "\n").build();
+
+    private static List<Chunk> split(String input, int chunkSize) throws IOException {
+        ChunkSplitter splitter = new ChunkSplitter(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                '"', '\\', CSVLoader.DEFAULT_COLUMN_LIMIT_SIZE, chunkSize);
+        List<Chunk> chunks = new ArrayList<>();
+        Chunk chunk;
+        while ((chunk = splitter.next()) != null) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static String text(Chunk chunk) {
+        return new String(chunk.m_data, 0, chunk.m_length, StandardCharsets.UTF_8);
+    }
+
+    // Rows of the input with the number of the line on which each one ends
+    private static List<String> parse(InputStream input, long lineOffset) throws IOException {
+        CsvListReader reader = new CsvListReader(new Tokenizer(new InputStreamReader(input, StandardCharsets.UTF_8),
+                PREFERENCE, false, '\\', CSVLoader.DEFAULT_COLUMN_LIMIT_SIZE, 0), PREFERENCE);
+        List<String> rows = new ArrayList<>();
+        List<String> row;
+        while ((row = reader.read()) != null) {
+            rows.add((lineOffset + reader.getLineNumber()) + ":" + row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testChunksEndOnRecords() throws IOException {
+        List<Chunk> chunks = split("1,a\n2,b\n3,c\n4,d\n", 10);
+        assertEquals(2, chunks.size());
+        assertEquals("1,a\n2,b\n", text(chunks.get(0)));
+        assertEquals(0, chunks.get(0).m_lineOffset);
+        assertEquals("3,c\n4,d\n", text(chunks.get(1)));
+        assertEquals(2, chunks.get(1).m_lineOffset);
+    }
+
+    @Test
+    public void testQuotedAndEscapedNewlines() throws IOException {
+        // The newline inside the quotes doesn't end the record, the escaped quote doesn't start one
+        List<Chunk> chunks = split("1,\"a\nb\"\n2,\\\"c\n3,\"d\"\"\ne\"\n4,f\n", 8);
+        assertEquals(4, chunks.size());
+        assertEquals("1,\"a\nb\"\n", text(chunks.get(0)));
+        assertEquals("2,\\\"c\n", text(chunks.get(1)));
+        assertEquals(2, chunks.get(1).m_lineOffset);
+        assertEquals("3,\"d\"\"\ne\"\n", text(chunks.get(2)));
+        assertEquals(3, chunks.get(2).m_lineOffset);
+        assertEquals("4,f\n", text(chunks.get(3)));
+        assertEquals(5, chunks.get(3).m_lineOffset);
+    }
+
+    @Test
+    public void testLineCounting() throws IOException {
+        ChunkSplitter splitter = new ChunkSplitter(
+                new ByteArrayInputStream("1,a\r\n2,b\r\n\n3,c".getBytes(StandardCharsets.UTF_8)),
+                '"', '\\', CSVLoader.DEFAULT_COLUMN_LIMIT_SIZE, 6);
+        assertEquals("1,a\r\n", text(splitter.next()));
+        Chunk chunk = splitter.next();
+        assertEquals("2,b\r\n\n", text(chunk));
+        assertEquals(1, chunk.m_lineOffset);
+        chunk = splitter.next();
+        assertEquals("3,c", text(chunk));
+        assertEquals(3, chunk.m_lineOffset);
+        assertNull(splitter.next());
+        assertEquals(4, splitter.getLineCount());
+    }
+
+    @Test
+    public void testBareCarriageReturns() throws IOException {
+        // Records which end with a bare \r are cut too, instead of piling up into one chunk
+        List<Chunk> chunks = split("1,a\r2,b\r3,\"c\rd\"\r4,e\r", 4);
+        assertEquals(4, chunks.size());
+        assertEquals("1,a\r", text(chunks.get(0)));
+        assertEquals("2,b\r", text(chunks.get(1)));
+        assertEquals(1, chunks.get(1).m_lineOffset);
+        assertEquals("3,\"c\rd\"\r", text(chunks.get(2)));
+        assertEquals(2, chunks.get(2).m_lineOffset);
+        assertEquals("4,e\r", text(chunks.get(3)));
+        assertEquals(4, chunks.get(3).m_lineOffset);
+
+        // A \r\n is never cut in the middle, even when the chunk is full at the \r
+        chunks = split("1,a\r\n2,b\r\n", 4);
+        assertEquals(2, chunks.size());
+        assertEquals("1,a\r\n", text(chunks.get(0)));
+        assertEquals("2,b\r\n", text(chunks.get(1)));
+        assertEquals(1, chunks.get(1).m_lineOffset);
+    }
+
+    @Test
+    public void testRecordLargerThanChunk() throws IOException {
+        List<Chunk> chunks = split("1,\"aaaaaaaaaaaaaaaaaaaa\"\n2,b\n", 4);
+        assertEquals(2, chunks.size());
+        assertEquals("1,\"aaaaaaaaaaaaaaaaaaaa\"\n", text(chunks.get(0)));
+        assertEquals("2,b\n", text(chunks.get(1)));
+        assertEquals(1, chunks.get(1).m_lineOffset);
+    }
+
+    @Test
+    public void testChunksParseLikeTheWholeInput() throws IOException {
+        Random random = new Random(42);
+        String[] values = { "plain", "with space", "\"quoted, comma\"", "\"quoted\nnewline\"",
+                "\"doubled \"\"quote\"\"\"", "escaped\\,comma", "\\N", "" };
+        StringBuilder input = new StringBuilder();
+        for (int row = 0; row < 2000; row++) {
+            for (int col = 0; col < 4; col++) {
+                if (col > 0) {
+                    input.append(',');
+                }
+                input.append(values[random.nextInt(values.length)]);
+            }
+            input.append(random.nextInt(10) == 0 ? "\n\n" : "\n");
+        }
+        final String csv = input.toString();
+        assertChunksParseLikeTheWholeInput(csv);
+        // Same records with \r\n and bare \r line terminators
+        assertChunksParseLikeTheWholeInput(csv.replace("\n", "\r\n"));
+        assertChunksParseLikeTheWholeInput(csv.replace("\n", "\r"));
+    }
+
+    private static void assertChunksParseLikeTheWholeInput(String csv) throws IOException {
+        List<String> expected = parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 0);
+        for (int chunkSize : new int[] { 7, 64, 1024 }) {
+            List<String> actual = new ArrayList<>();
+            List<Chunk> chunks = split(csv, chunkSize);
+            assertTrue(chunks.size() > 1);
+            for (Chunk chunk : chunks) {
+                actual.addAll(parse(new ByteArrayInputStream(chunk.m_data, 0, chunk.m_length), chunk.m_lineOffset));
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testCompressedInput() throws IOException {
+        byte[] csv = "1,a\n2,b\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(csv);
+        }
+
+        InputStream in = CSVLoader.openInput(new ByteArrayInputStream(compressed.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            decompressed.write(b);
+        }
+        assertArrayEquals(csv, decompressed.toByteArray());
+
+        // Uncompressed input is passed through
+        in = CSVLoader.openInput(new ByteArrayInputStream(csv));
+        assertEquals('1', in.read());
+
+        try {
+            CSVLoader.openInput(new ByteArrayInputStream(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0 }));
+            fail("zstd input should be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("zstd"));
+        }
+    }
+
+    @Test
+    public void testCanSplit() {
+        assertTrue(CSVParallelFileReader.canSplit(Charset.forName("utf-8"), '"', '\\'));
+        assertTrue(CSVParallelFileReader.canSplit(Charset.forName("ISO-8859-1"), '"', '\\'));
+        assertFalse(CSVParallelFileReader.canSplit(Charset.forName("UTF-16"), '"', '\\'));
+        assertFalse(CSVParallelFileReader.canSplit(Charset.forName("utf-8"), '«', '\\'));
+    }
+}
@@ -0,0 +1,172 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.voltcore.TransactionIdManager;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+import junit.framework.TestCase;
+
+/**
+ * The chunks of a table file are decompressed and converted concurrently, the CSV
+ * has to hold the same lines as converting the chunks one after the other
+ */
+public class TestCSVTableSaveFile extends TestCase {
+    private static int[] VERSION2 = { 0, 0, 0, 2 };
+    private static long TXN_ID = TransactionIdManager.makeIdFromComponents(24, 32, 96);
+
+    static {
+        org.voltdb.EELibraryLoader.loadExecutionEngineLibrary(true);
+    }
+
+    private static File generateTableFile(int numberOfItems) throws Exception {
+        VoltTable.ColumnInfo columnInfo[] = new VoltTable.ColumnInfo[] {
+                new ColumnInfo("RT_ID", VoltType.INTEGER),
+                new ColumnInfo("RT_NAME", VoltType.STRING),
+                new ColumnInfo("RT_FLOATVAL", VoltType.FLOAT) };
+        final File f = File.createTempFile("foo", ".vpt");
+        f.deleteOnExit();
+        DefaultSnapshotDataTarget dsdt = new DefaultSnapshotDataTarget(f,
+                0, "TEST_CLUSTER", "TEST_DATABASE", "TEST_TABLE",
+                4, false, Arrays.asList(0, 1, 2, 3), new VoltTable(columnInfo, columnInfo.length),
+                TXN_ID, System.currentTimeMillis(), VERSION2);
+
+        int partitionId = 0;
+        for (int i = 0; i < numberOfItems; i += 1000) {
+            VoltTable chunkTable = new VoltTable(columnInfo, columnInfo.length);
+            for (int j = i; j < Math.min(i + 1000, numberOfItems); j++) {
+                // Values which have to be quoted
+                chunkTable.addRow(j, j % 7 == 0 ? null : "name, \"" + j + "\"", j / 3.0);
+            }
+
+            FastSerializer fs = new FastSerializer();
+            fs.writeTable(chunkTable);
+            BBContainer c = fs.getBBContainer();
+            ByteBuffer b = c.b();
+            b.getInt();
+            int headerLength = b.getInt();
+            b.position(b.position() + headerLength);// at row count
+            BBContainer container = DBBPool.allocateDirect(b.remaining() + 4);
+            ByteBuffer payload = container.b();
+            payload.putInt(partitionId++ % 4);
+            payload.put(b);
+            payload.flip();
+            c.discard();
+
+            dsdt.write(Callables.returning(container), -1);
+        }
+        dsdt.close();
+        return f;
+    }
+
+    /**
+     * Convert the chunks in the order of the file on this thread
+     */
+    private static byte[] convertSerially(File f, char delimiter) throws Exception {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        TableSaveFile savefile = new TableSaveFile(f, 1, null);
+        try {
+            while (savefile.hasMoreChunks()) {
+                BBContainer c = savefile.getNextChunk();
+                if (c == null) {
+                    break;
+                }
+                try {
+                    VoltTable vt = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
+                    csv.write(VoltTableUtil.toCSV(vt, delimiter, null, 1024 * 64).getSecond());
+                } finally {
+                    c.discard();
+                }
+            }
+        } finally {
+            savefile.close();
+        }
+        return csv.toByteArray();
+    }
+
+    private static List<String> sortedLines(byte csv[]) {
+        List<String> lines = new ArrayList<String>(Arrays.asList(new String(csv, StandardCharsets.UTF_8).split("\n")));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    public void testConcurrentConversion() throws Exception {
+        System.out.println("Running testConcurrentConversion");
+        File f = generateTableFile(50000);
+
+        for (char delimiter : new char[] { ',', '\t' }) {
+            byte expected[] = convertSerially(f, delimiter);
+
+            // A small buffer budget makes the converters wait on the reader
+            File out = File.createTempFile("foo", ".csv");
+            out.deleteOnExit();
+            out.delete();
+            CSVTableSaveFile.convertTableSaveFile(delimiter, null, out, f, 4, 64 * 1024, null);
+            byte actual[] = Files.readAllBytes(out.toPath());
+
+            assertEquals(expected.length, actual.length);
+            List<String> expectedLines = sortedLines(expected);
+            assertEquals(50000, expectedLines.size());
+            assertEquals(expectedLines, sortedLines(actual));
+        }
+    }
+
+    public void testConcurrentConversionOfSomePartitions() throws Exception {
+        System.out.println("Running testConcurrentConversionOfSomePartitions");
+        File f = generateTableFile(20000);
+
+        File out = File.createTempFile("foo", ".csv");
+        out.deleteOnExit();
+        out.delete();
+        CSVTableSaveFile.convertTableSaveFile(',', new Integer[] { 1, 3 }, out, f, 4, 64 * 1024, null);
+
+        // Every other chunk of 1000 rows belongs to partitions 1 and 3
+        List<String> lines = sortedLines(Files.readAllBytes(out.toPath()));
+        assertEquals(10000, lines.size());
+        for (String line : lines) {
+            int id = Integer.parseInt(line.substring(0, line.indexOf(',')));
+            assertEquals(1, (id / 1000) % 2);
+        }
+    }
+}
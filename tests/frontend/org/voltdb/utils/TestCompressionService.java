@@ -24,9 +24,16 @@
 package org.voltdb.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
 import junit.framework.TestCase;
 
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.utils.CompressionService.Codec;
 
 public class TestCompressionService extends TestCase {
 
@@ -46,4 +53,87 @@ public class TestCompressionService extends TestCase {
 
         assertEquals(someText, result);
     }
+
+    public void testCodecs() throws IOException {
+        final Random random = new Random(0);
+        // Repetitive text, random bytes that don't compress, and nothing at all
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 300000) {
+            text.append("name_").append(random.nextInt(1000)).append(',');
+        }
+        byte[] noise = new byte[100000];
+        random.nextBytes(noise);
+        byte[][] inputs = { text.toString().getBytes("UTF-8"), noise, new byte[0] };
+
+        for (Codec codec : Codec.values()) {
+            assertEquals(codec, Codec.get(codec.getId()));
+            for (byte[] input : inputs) {
+                final int maxCompressedLength = CompressionService.maxCompressedLength(input.length);
+                assertTrue(codec.maxCompressedLength(input.length) < maxCompressedLength);
+                BBContainer in = DBBPool.allocateDirect(input.length + 8);
+                BBContainer compressed = DBBPool.allocateDirect(maxCompressedLength + 8);
+                BBContainer out = DBBPool.allocateDirect(input.length + 8);
+                try {
+                    // Data doesn't start at the beginning of the buffers
+                    in.b().position(8);
+                    in.b().put(input);
+                    in.b().position(8);
+                    compressed.b().position(8);
+
+                    final int compressedLength = codec.compress(in.b(), compressed.b());
+                    assertEquals(8, in.b().position());
+                    assertEquals(8, compressed.b().position());
+                    assertEquals(8 + compressedLength, compressed.b().limit());
+                    if (input == inputs[0]) {
+                        assertTrue(codec + " " + compressedLength, compressedLength < input.length / 2);
+                    }
+
+                    assertEquals(input.length, codec.uncompressedLength(compressed.b()));
+                    out.b().position(8);
+                    assertEquals(input.length, codec.decompress(compressed.b(), out.b()));
+                    assertEquals(8, out.b().position());
+                    assertEquals(8 + input.length, out.b().limit());
+                    byte[] result = new byte[input.length];
+                    out.b().get(result);
+                    assertTrue(codec.toString(), Arrays.equals(input, result));
+                } finally {
+                    in.discard();
+                    compressed.discard();
+                    out.discard();
+                }
+            }
+        }
+
+        try {
+            Codec.get(100);
+            fail();
+        } catch (IOException expected) {}
+    }
+
+    public void testCorruptBlocks() throws IOException {
+        byte[] input = new byte[10000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 7);
+        }
+        for (Codec codec : new Codec[] { Codec.LZ4, Codec.DEFLATE }) {
+            ByteBuffer in = ByteBuffer.allocateDirect(input.length);
+            in.put(input).flip();
+            ByteBuffer compressed = ByteBuffer.allocateDirect(codec.maxCompressedLength(input.length));
+            codec.compress(in, compressed);
+
+            // Truncated block
+            ByteBuffer truncated = compressed.duplicate();
+            truncated.limit(truncated.limit() / 2);
+            try {
+                codec.decompress(truncated, ByteBuffer.allocateDirect(input.length));
+                fail(codec.toString());
+            } catch (IOException expected) {}
+
+            // Output too small for the recorded length
+            try {
+                codec.decompress(compressed, ByteBuffer.allocateDirect(input.length - 1));
+                fail(codec.toString());
+            } catch (IOException expected) {}
+        }
+    }
 }
@@ -27,6 +27,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -100,6 +106,53 @@ public class TestPBDMultipleReaders {
         }
     }
 
+    @Test
+    public void testReadersConcurrentWithWriter() throws Exception {
+        final int numBuffers = 150;
+        final int numReaders = 3;
+        final BinaryDequeReader[] readers = new BinaryDequeReader[numReaders];
+        for (int i=0; i<numReaders; i++) {
+            readers[i] = m_pbd.openForRead("reader" + i);
+        }
+
+        ExecutorService es = Executors.newFixedThreadPool(numReaders);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i=0; i<numReaders; i++) {
+            final BinaryDequeReader reader = readers[i];
+            results.add(es.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    int expected = 0;
+                    while (expected < numBuffers) {
+                        BBContainer bbC = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                        if (bbC == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        // Entries must come back in the order they were offered
+                        assertEquals(expected, bbC.b().getLong(0));
+                        bbC.discard();
+                        expected++;
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (int i=0; i<numBuffers; i++) {
+            m_pbd.offer( DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(i)) );
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        es.shutdown();
+
+        for (BinaryDequeReader reader : readers) {
+            assertTrue(reader.isEmpty());
+            assertEquals(0, reader.getNumObjects());
+            assertEquals(0, reader.sizeInBytes());
+        }
+    }
+
     @Test
     public void testOpenReaders() throws Exception {
         String cursorId = "reader";
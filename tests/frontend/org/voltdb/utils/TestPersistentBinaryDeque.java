@@ -471,6 +471,174 @@ public class TestPersistentBinaryDeque {
         retval.discard();
     }
 
+    @Test
+    public void testOfferWithEveryCodecThenReopen() throws Exception {
+        System.out.println("Running testOfferWithEveryCodecThenReopen");
+        // Entries record their codec, so a segment can mix them
+        final CompressionService.Codec codecs[] = CompressionService.Codec.values();
+        final CompressionService.Codec defaultCodec = CompressionService.PBD_CODEC;
+        try {
+            for (int ii = 0; ii < codecs.length * 2; ii++) {
+                CompressionService.PBD_CODEC = codecs[ii % codecs.length];
+                m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(ii)));
+            }
+        } finally {
+            CompressionService.PBD_CODEC = defaultCodec;
+        }
+        m_pbd.sync();
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque( TEST_NONCE, TEST_DIR, logger );
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        for (int ii = 0; ii < codecs.length * 2; ii++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertTrue(getFilledSmallBuffer(ii).equals(retval.b()));
+            retval.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    /**
+     * Offer entries which alternate between compressed and uncompressed, then reopen the deque
+     * so that the segment holding them is sealed and gets memory mapped when it is read
+     */
+    private void offerMixedThenReopenMapped(int count) throws Exception {
+        for (int ii = 0; ii < count; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(ii)), ii % 2 == 0);
+        }
+        m_pbd.sync();
+        m_pbd.close();
+
+        PBDRegularSegment.MMAP_SEALED_SEGMENTS = true;
+        m_pbd = new PersistentBinaryDeque( TEST_NONCE, TEST_DIR, logger );
+    }
+
+    @Test
+    public void testMappedSegmentPoll() throws Exception {
+        System.out.println("Running testMappedSegmentPoll");
+        final boolean mmap = PBDRegularSegment.MMAP_SEALED_SEGMENTS;
+        final int mappings = PBDRegularSegment.getMappedRegionCount();
+        try {
+            offerMixedThenReopenMapped(10);
+            BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+            for (int ii = 0; ii < 10; ii++) {
+                BBContainer retval = reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY);
+                assertEquals(mappings + 1, PBDRegularSegment.getMappedRegionCount());
+                assertTrue(getFilledSmallBuffer(ii).equals(retval.b()));
+                // Only uncompressed entries can be sliced out of the mapping
+                assertEquals(ii % 2 != 0, retval.b().isReadOnly());
+                retval.discard();
+            }
+            assertNull(reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY));
+            // The fully read segment has been deleted along with its mapping
+            assertEquals(mappings, PBDRegularSegment.getMappedRegionCount());
+        } finally {
+            PBDRegularSegment.MMAP_SEALED_SEGMENTS = mmap;
+        }
+    }
+
+    @Test
+    public void testMappedSliceOutlivesSegment() throws Exception {
+        System.out.println("Running testMappedSliceOutlivesSegment");
+        final boolean mmap = PBDRegularSegment.MMAP_SEALED_SEGMENTS;
+        final int mappings = PBDRegularSegment.getMappedRegionCount();
+        try {
+            offerMixedThenReopenMapped(4);
+            BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+            BBContainer slices[] = new BBContainer[2];
+            for (int ii = 0; ii < 4; ii++) {
+                BBContainer retval = reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY);
+                if (ii % 2 == 0) {
+                    retval.discard();
+                } else {
+                    slices[ii / 2] = retval;
+                }
+            }
+
+            // Closing the segment leaves the mapping to the slices still held
+            m_pbd.close();
+            assertEquals(mappings + 1, PBDRegularSegment.getMappedRegionCount());
+            assertTrue(getFilledSmallBuffer(1).equals(slices[0].b()));
+            assertTrue(getFilledSmallBuffer(3).equals(slices[1].b()));
+
+            slices[0].discard();
+            assertEquals(mappings + 1, PBDRegularSegment.getMappedRegionCount());
+            assertTrue(getFilledSmallBuffer(3).equals(slices[1].b()));
+            // The last slice releases the mapping
+            slices[1].discard();
+            assertEquals(mappings, PBDRegularSegment.getMappedRegionCount());
+        } finally {
+            PBDRegularSegment.MMAP_SEALED_SEGMENTS = mmap;
+        }
+    }
+
+    @Test
+    public void testMappedSegmentAfterTruncation() throws Exception {
+        System.out.println("Running testMappedSegmentAfterTruncation");
+        final boolean mmap = PBDRegularSegment.MMAP_SEALED_SEGMENTS;
+        final int mappings = PBDRegularSegment.getMappedRegionCount();
+        try {
+            offerMixedThenReopenMapped(10);
+            m_pbd.parseAndTruncate(new BinaryDequeTruncator() {
+                @Override
+                public TruncatorResponse parse(BBContainer bbc) {
+                    if (bbc.b().getLong(0) == 6) {
+                        return PersistentBinaryDeque.fullTruncateResponse();
+                    }
+                    return null;
+                }
+            });
+            // Truncation reads the segment without mapping it
+            assertEquals(mappings, PBDRegularSegment.getMappedRegionCount());
+
+            // The mapping only covers what is left of the segment
+            BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+            BBContainer slices[] = new BBContainer[6];
+            for (int ii = 0; ii < 6; ii++) {
+                slices[ii] = reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY);
+                assertEquals(mappings + 1, PBDRegularSegment.getMappedRegionCount());
+            }
+            assertNull(reader.poll(PersistentBinaryDeque.READ_ONLY_CONTAINER_FACTORY));
+
+            m_pbd.close();
+            for (int ii = 0; ii < 6; ii++) {
+                assertTrue(getFilledSmallBuffer(ii).equals(slices[ii].b()));
+                slices[ii].discard();
+            }
+            assertEquals(mappings, PBDRegularSegment.getMappedRegionCount());
+        } finally {
+            PBDRegularSegment.MMAP_SEALED_SEGMENTS = mmap;
+        }
+    }
+
+    @Test
+    public void testMappedSegmentCopiedWithoutSlices() throws Exception {
+        System.out.println("Running testMappedSegmentCopiedWithoutSlices");
+        final boolean mmap = PBDRegularSegment.MMAP_SEALED_SEGMENTS;
+        final int mappings = PBDRegularSegment.getMappedRegionCount();
+        try {
+            offerMixedThenReopenMapped(4);
+            BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+            BBContainer copies[] = new BBContainer[4];
+            for (int ii = 0; ii < 4; ii++) {
+                copies[ii] = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                assertFalse(copies[ii].b().isReadOnly());
+            }
+
+            // Nothing refers to the mapping once the segment is closed
+            m_pbd.close();
+            assertEquals(mappings, PBDRegularSegment.getMappedRegionCount());
+            for (int ii = 0; ii < 4; ii++) {
+                assertTrue(getFilledSmallBuffer(ii).equals(copies[ii].b()));
+                // The copies are the caller's to modify
+                copies[ii].b().putLong(0, -1);
+                copies[ii].discard();
+            }
+        } finally {
+            PBDRegularSegment.MMAP_SEALED_SEGMENTS = mmap;
+        }
+    }
+
     @Test
     public void testCloseOldSegments() throws Exception {
         System.out.println("Running testCloseOldSegments");
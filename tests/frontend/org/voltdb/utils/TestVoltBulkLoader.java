@@ -24,6 +24,7 @@
 package org.voltdb.utils;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,11 +36,14 @@ import org.voltdb.TheHashinator;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltDB.Configuration;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTypeException;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientConfig;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
+import org.voltdb.client.VoltBulkLoader.BulkRowAppender;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.VoltProjectBuilder;
@@ -1365,6 +1369,117 @@ public class TestVoltBulkLoader extends TestCase {
         }
     }
 
+    public void testRowAppenderPartitionedOnInteger() throws Exception {
+        runRowAppender("clm_integer");
+    }
+
+    public void testRowAppenderPartitionedOnString() throws Exception {
+        runRowAppender("clm_string");
+    }
+
+    public void testRowAppenderMP() throws Exception {
+        runRowAppender(null);
+    }
+
+    private void runRowAppender(String partitionColumn) throws Exception {
+        String mySchema =
+                "create table BLAH (" +
+                "clm_integer integer not null, " +
+                "clm_string varchar(20) not null, " +
+                "clm_bigint bigint, " +
+                "clm_float float, " +
+                "clm_decimal decimal, " +
+                "clm_timestamp timestamp, " +
+                "primary key (clm_integer, clm_string)" +
+                "); ";
+        pathToCatalog = Configuration.getPathToCatalogForTest("vbl.jar");
+        pathToDeployment = Configuration.getPathToCatalogForTest("vbl.xml");
+        builder = new VoltProjectBuilder();
+        builder.addLiteralSchema(mySchema);
+        if (partitionColumn != null) {
+            builder.addPartitionInfo("BLAH", partitionColumn);
+        }
+        assertTrue(builder.compile(pathToCatalog, 2, 1, 0));
+        MiscUtils.copyFile(builder.getPathToDeployment(), pathToDeployment);
+        config = new VoltDB.Configuration();
+        config.m_pathToCatalog = pathToCatalog;
+        config.m_pathToDeployment = pathToDeployment;
+        localServer = new ServerThread(config);
+        localServer.start();
+        localServer.waitForInitialization();
+
+        client1 = ClientFactory.createClient();
+        try {
+            client1.createConnection("localhost");
+            TestFailureCallback testCallback = new TestFailureCallback();
+            VoltBulkLoader bulkLoader = client1.getNewBulkLoader("BLAH", 50, testCallback);
+            BulkRowAppender appender = bulkLoader.newRowAppender();
+
+            final int rowCount = 1000;
+            ArrayList<Integer> expectedFailures = new ArrayList<Integer>();
+            TimestampType now = new TimestampType();
+            for (int i = 0; i < rowCount; i++) {
+                // every 100th row duplicates the primary key of the previous one
+                int key = (i % 100 == 99) ? i - 1 : i;
+                if (key != i) {
+                    expectedFailures.add(i);
+                }
+                appender.addLong(key)
+                        .addString("row" + key)
+                        .addLong(key * 1000L)
+                        .addDouble(key / 2.0)
+                        .addDecimal(new BigDecimal(key).movePointLeft(2))
+                        .addTimestamp(now)
+                        .endRow(i);
+            }
+            // rows with nulls and a non-ASCII string
+            appender.addLong(rowCount).addString("r\u00e9sum\u00e9").addNull().addNull().addNull().addNull().endRow(rowCount);
+            appender.addLong(rowCount + 1).addString("null row").addLong(VoltType.NULL_BIGINT)
+                    .addNull().addDecimal(null).addTimestamp(null).endRow(rowCount + 1);
+
+            // type errors are thrown right away and discard the row being built
+            try {
+                appender.addString("not an integer");
+                fail();
+            } catch (VoltTypeException expected) {}
+            try {
+                appender.addLong(1).addString("too few").endRow();
+                fail();
+            } catch (IllegalStateException expected) {}
+
+            appender.flush();
+            bulkLoader.drain();
+            assertEquals(0, bulkLoader.getOutstandingRowCount());
+            assertEquals(rowCount + 2, bulkLoader.getCompletedRowCount());
+            bulkLoader.close();
+            assertTrue(testCallback.failureRowListMatches(expectedFailures));
+
+            VoltTable result = client1.callProcedure("@AdHoc", "SELECT COUNT(*) FROM BLAH;").getResults()[0];
+            assertEquals(rowCount + 2 - expectedFailures.size(), result.asScalarLong());
+            result = client1.callProcedure("@AdHoc",
+                    "SELECT clm_string, clm_bigint FROM BLAH WHERE clm_integer = " + (rowCount + 1) + ";").getResults()[0];
+            assertTrue(result.advanceRow());
+            assertEquals("null row", result.getString(0));
+            result.getLong(1);
+            assertTrue(result.wasNull());
+            result = client1.callProcedure("@AdHoc",
+                    "SELECT clm_string FROM BLAH WHERE clm_integer = " + rowCount + ";").getResults()[0];
+            assertEquals("r\u00e9sum\u00e9", result.fetchRow(0).getString(0));
+
+            VoltTable valTable = client1.callProcedure("@ValidatePartitioning", (Object)null).getResults()[0];
+            while (valTable.advanceRow()) {
+                assertEquals(0, valTable.getLong("MISPARTITIONED_ROWS"));
+            }
+        }
+        finally {
+            client1.close();
+            client1 = null;
+            localServer.shutdown();
+            localServer.join();
+            localServer = null;
+        }
+    }
+
     static class MyRunnable implements Runnable {
         private VoltBulkLoader loader;
         private Random random;
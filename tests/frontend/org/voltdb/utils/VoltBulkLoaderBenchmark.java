@@ -0,0 +1,146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientConfig;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
+import org.voltdb.client.VoltBulkLoader.BulkRowAppender;
+import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
+
+/**
+ * Loads narrow rows into a running database with {@link VoltBulkLoader#insertRow(Object, Object...)}
+ * and with a {@link BulkRowAppender}, and reports rows/s, the bytes allocated by the producing
+ * thread and the collections done by the client JVM for each.
+ *
+ * The table VBL_NARROW (ID BIGINT, VAL INTEGER, NAME VARCHAR(16)), partitioned on ID, is created
+ * if it doesn't exist and truncated before each run.
+ *
+ * Arguments: [servers] [rows] [batch size]. Defaults to localhost, 100M rows and batches of 200.
+ */
+public class VoltBulkLoaderBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String[] NAMES = new String[1024];
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAMES[i] = "name" + i;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String servers = args.length >= 1 ? args[0] : "localhost";
+        final long rows = args.length >= 2 ? Long.parseLong(args[1]) : 100000000L;
+        final int batchSize = args.length >= 3 ? Integer.parseInt(args[2]) : 200;
+
+        ClientConfig config = new ClientConfig();
+        config.setTopologyChangeAware(true);
+        Client client = ClientFactory.createClient(config);
+        for (String server : servers.split(",")) {
+            client.createConnection(server.trim());
+        }
+        try {
+            try {
+                client.callProcedure("@AdHoc",
+                        "CREATE TABLE VBL_NARROW (ID BIGINT NOT NULL, VAL INTEGER, NAME VARCHAR(16));" +
+                        "PARTITION TABLE VBL_NARROW ON COLUMN ID;");
+            }
+            catch (ProcCallException e) {
+                // already exists
+            }
+
+            run(client, "insertRow", rows, batchSize, false);
+            run(client, "BulkRowAppender", rows, batchSize, true);
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    private static void run(Client client, String name, long rows, int batchSize, boolean appender) throws Exception {
+        client.callProcedure("@AdHoc", "TRUNCATE TABLE VBL_NARROW;");
+
+        final AtomicLong failures = new AtomicLong();
+        VoltBulkLoader loader = client.getNewBulkLoader("VBL_NARROW", batchSize, new BulkLoaderFailureCallBack() {
+            @Override
+            public void failureCallback(Object rowHandle, Object[] fieldList, ClientResponse response) {
+                failures.incrementAndGet();
+            }
+        });
+
+        final long gcCountBefore = gcCount();
+        final long gcTimeBefore = gcTimeMs();
+        final long allocatedBefore = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        final long start = System.nanoTime();
+
+        if (appender) {
+            BulkRowAppender rowAppender = loader.newRowAppender();
+            for (long i = 0; i < rows; i++) {
+                rowAppender.addLong(i).addLong((int) i & 0x7fffffff).addString(NAMES[(int) (i & 1023)]).endRow();
+            }
+            rowAppender.flush();
+        }
+        else {
+            for (long i = 0; i < rows; i++) {
+                loader.insertRow(null, i, (int) i & 0x7fffffff, NAMES[(int) (i & 1023)]);
+            }
+        }
+        loader.drain();
+
+        final long elapsedNanos = System.nanoTime() - start;
+        final long allocated = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        final long gcCount = gcCount() - gcCountBefore;
+        final long gcTime = gcTimeMs() - gcTimeBefore;
+        loader.close();
+
+        System.out.printf("%-16s %,d rows in %.1f s: %,.0f rows/s, %.1f bytes/row allocated by the producer, " +
+                "%d collections taking %d ms, %d failed rows%n",
+                name, rows, elapsedNanos / 1e9, rows / (elapsedNanos / 1e9), (double) allocated / rows,
+                gcCount, gcTime, failures.get());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}